@@ -0,0 +1,61 @@
+#ifndef FILE_LOCK_H
+#define FILE_LOCK_H
+
+#include <string>
+
+#ifdef _WIN32
+#include <fcntl.h>
+#include <io.h>
+#include <share.h>
+#include <sys/stat.h>
+#else
+#include <fcntl.h>
+#include <sys/file.h>
+#include <unistd.h>
+#endif
+
+using namespace std;
+
+// --- Exclusive File Lock ---
+// Held for the owner's lifetime, so a second engine started on the same data files
+// cannot map or append to them too. The OS drops the lock when the process exits or
+// crashes, so a stale lock file never blocks the next start.
+class FileLock
+{
+public:
+    explicit FileLock(const string &path)
+    {
+#ifdef _WIN32
+        if (_sopen_s(&fd, path.c_str(), _O_RDWR | _O_CREAT, _SH_DENYRW, _S_IREAD | _S_IWRITE) != 0)
+            fd = -1; // another process has it open
+#else
+        fd = open(path.c_str(), O_RDWR | O_CREAT, 0644);
+        if (fd >= 0 && flock(fd, LOCK_EX | LOCK_NB) != 0)
+        {
+            close(fd);
+            fd = -1;
+        }
+#endif
+    }
+
+    ~FileLock()
+    {
+#ifdef _WIN32
+        if (fd >= 0)
+            _close(fd);
+#else
+        if (fd >= 0)
+            close(fd); // releases the flock
+#endif
+    }
+
+    FileLock(const FileLock &) = delete;
+    FileLock &operator=(const FileLock &) = delete;
+
+    bool held() const { return fd >= 0; }
+
+private:
+    int fd = -1;
+};
+
+#endif // FILE_LOCK_H
@@ -1,60 +1,65 @@
 #include "ParkingSystem.h"
+#include <random>
+#include <fstream>
 
 // --- Constructor ---
-AdvancedParkingSystem::AdvancedParkingSystem()
+AdvancedParkingSystem::AdvancedParkingSystem(const vector<FloorPlan> &layout, const string &profilePath)
+    : userDatabase(profilePath)
 {
-    initializeSlots();
-    // Pre-register some users for demo
+    initializeSlots(layout);
+    // Bookings are kept next to the profile store (and under its lock) when it is a file
+    if (!userDatabase.path().empty())
+    {
+        reservationPath = userDatabase.path() + ".reservations";
+        loadReservations();
+    }
+    // Pre-register some users for demo (already there when the profile store is persistent)
     registerUser("MH01AA1111", "Bhuban W.", 1, "Apt 5B");         // Resident
     registerUser("MH02BB2222", "Mayur N.", 2, "Room 301");        // Hotel
     registerUser("MH03CC3333", "Aditya S.", 3, "Building Staff"); // Staff
 }
 
 // --- NEW 6-FLOOR LAYOUT ---
-void AdvancedParkingSystem::initializeSlots()
+vector<FloorPlan> AdvancedParkingSystem::defaultLayout()
+{
+    vector<FloorPlan> layout;
+    layout.push_back({1, "BIKE", 15});         // Floor 1: Bike slots
+    layout.push_back({2, "CAR_GUEST", 20});    // Floor 2: Car slots (Restaurant Guests)
+    layout.push_back({3, "CAR_HOTEL", 15});    // Floor 3: Car slots (Hotel Guests)
+    layout.push_back({4, "CAR_RESIDENT", 15}); // Floor 4: Car slots (Residents)
+    layout.push_back({5, "TRUCK", 10});        // Floor 5: Truck/Delivery slots
+    layout.push_back({6, "STAFF", 10});        // Floor 6: Staff slots (Cars/Bikes)
+    return layout;
+}
+
+void AdvancedParkingSystem::initializeSlots(const vector<FloorPlan> &layout)
 {
     int currentId = 1;
-    // Floor 1: 15 Bike slots
-    for (int i = 0; i < 15; i++)
+    for (size_t f = 0; f < layout.size(); ++f)
     {
-        parkingSlots.push_back(ParkingSlot(currentId, 1, "BIKE"));
-        typeToAvailableSlots["BIKE"].push(currentId);
-        currentId++;
-    }
-    // Floor 2: 20 Car slots (Restaurant Guests)
-    for (int i = 0; i < 20; i++)
-    {
-        parkingSlots.push_back(ParkingSlot(currentId, 2, "CAR_GUEST"));
-        typeToAvailableSlots["CAR_GUEST"].push(currentId);
-        currentId++;
-    }
-    // Floor 3: 15 Car slots (Hotel Guests)
-    for (int i = 0; i < 15; i++)
-    {
-        parkingSlots.push_back(ParkingSlot(currentId, 3, "CAR_HOTEL"));
-        typeToAvailableSlots["CAR_HOTEL"].push(currentId);
-        currentId++;
-    }
-    // Floor 4: 15 Car slots (Residents)
-    for (int i = 0; i < 15; i++)
-    {
-        parkingSlots.push_back(ParkingSlot(currentId, 4, "CAR_RESIDENT"));
-        typeToAvailableSlots["CAR_RESIDENT"].push(currentId);
-        currentId++;
-    }
-    // Floor 5: 10 Truck/Delivery slots
-    for (int i = 0; i < 10; i++)
-    {
-        parkingSlots.push_back(ParkingSlot(currentId, 5, "TRUCK"));
-        typeToAvailableSlots["TRUCK"].push(currentId);
-        currentId++;
+        for (int i = 0; i < layout[f].slots; i++)
+        {
+            parkingSlots.push_back(ParkingSlot(currentId, layout[f].floor, layout[f].constraint));
+            currentId++;
+        }
     }
-    // Floor 6: 10 Staff slots (Cars/Bikes)
-    for (int i = 0; i < 10; i++)
+    // Grid position, slot lists and counts per constraint (ascending) for reservation
+    // searches, slot selection and the allocation policy
+    map<int, int> slotsOnFloor;
+    for (size_t i = 0; i < parkingSlots.size(); ++i)
     {
-        parkingSlots.push_back(ParkingSlot(currentId, 6, "STAFF"));
-        typeToAvailableSlots["STAFF"].push(currentId);
-        currentId++;
+        ParkingSlot &slot = parkingSlots[i];
+        int index = slotsOnFloor[slot.floor]++;
+        slot.aisle = index / SLOTS_PER_AISLE;
+        slot.bay = index % SLOTS_PER_AISLE;
+
+        const string &constraint = slot.vehicleTypeConstraint;
+        if (!typeToAvailableSlots.count(constraint))
+            typeToAvailableSlots[constraint] = makeSelector(selectionStrategy);
+        typeToAvailableSlots[constraint]->add(slot, releaseTick++);
+        constraintToSlots[constraint].push_back(slot.slotId);
+        freeSlotCount[constraint]++;
+        totalSlotCount[constraint]++;
     }
 }
 
@@ -65,14 +70,53 @@ string AdvancedParkingSystem::registerUser(const string &plate, const string &na
     {
         return "ERROR,All fields are required for registration.";
     }
-    if (userDatabase.count(plate))
+    if (type < GUEST || type > STAFF)
+    {
+        return "ERROR,Unknown user type.";
+    }
+    if (userDatabase.contains(plate))
     {
         return "ERROR,Plate already registered.";
     }
-    userDatabase[plate] = UserProfile(plate, name, (UserType)type, billingId);
+    if (!userDatabase.put(UserProfile(plate, name, (UserType)type, billingId)))
+    {
+        return "ERROR,Plate number is too long.";
+    }
     return "SUCCESS,User " + name + " registered.";
 }
 
+// Blacklist: a blocked plate keeps its profile but is refused at the gate
+string AdvancedParkingSystem::setBlocked(const string &plate, bool blocked)
+{
+    if (plate.empty())
+        return "ERROR,Plate number cannot be empty.";
+    UserProfile profile;
+    uint8_t flags = 0;
+    if (!userDatabase.find(plate, profile, &flags))
+    {
+        // Unknown plates are blacklisted as guests
+        if (!blocked)
+            return "ERROR,Plate not registered.";
+        if (!userDatabase.put(UserProfile(plate, "Blocked", GUEST, "N/A"), ProfileStore::FLAG_BLOCKED))
+            return "ERROR,Plate number is too long.";
+        return "SUCCESS,Plate " + plate + " blocked.";
+    }
+    flags = blocked ? (flags | ProfileStore::FLAG_BLOCKED) : (flags & ~ProfileStore::FLAG_BLOCKED);
+    userDatabase.setFlags(plate, flags);
+    return "SUCCESS,Plate " + plate + (blocked ? " blocked." : " unblocked.");
+}
+
+string AdvancedParkingSystem::getUser(const string &plate)
+{
+    UserProfile profile;
+    uint8_t flags = 0;
+    if (!userDatabase.find(plate, profile, &flags))
+        return "ERROR,Plate not registered.";
+    // Format: Name,Plate,BillingID,Type(as int),Blocked(1/0)
+    return "USER," + profile.driverName + "," + profile.plateNumber + "," + profile.billingId + "," +
+           to_string((int)profile.type) + "," + ((flags & ProfileStore::FLAG_BLOCKED) ? "1" : "0");
+}
+
 // --- Parking Logic ---
 string AdvancedParkingSystem::parkVehicle(const string &plate, const string &type, const string &name, int duration, bool valet)
 {
@@ -81,69 +125,67 @@ string AdvancedParkingSystem::parkVehicle(const string &plate, const string &typ
     if (plateToSlotMap.count(plate))
         return "ERROR,Vehicle already parked.";
 
-    UserProfile profile;
-    if (userDatabase.count(plate))
-    {
-        profile = userDatabase[plate]; // Load existing profile
-    }
-    else
-    {
-        profile = UserProfile(plate, name.empty() ? "Guest" : name, GUEST, "N/A"); // Create guest profile
-    }
+    time_t now = clock->now();
+    UserProfile profile(plate, name.empty() ? "Guest" : name, GUEST, "N/A"); // Guest unless registered
+    uint8_t flags = 0;
+    userDatabase.find(plate, profile, &flags);
+    if (flags & ProfileStore::FLAG_BLOCKED)
+        return "ERROR,Vehicle " + plate + " is blocked.";
 
-    string constraint;
+    string constraint = resolveConstraint(profile, type);
     time_t exitTime = 0;
     double fee = 0;
 
-    // Determine parking zone based on user type and vehicle type
-    if (profile.type == RESIDENT)
-    {
-        constraint = "CAR_RESIDENT";
-    }
-    else if (profile.type == STAFF)
-    {
-        constraint = (type == "TRUCK") ? "TRUCK" : "STAFF"; // Staff can park trucks on floor 5
-    }
-    else if (profile.type == HOTEL)
+    if (profile.type == GUEST)
     {
-        constraint = "CAR_HOTEL";
-    }
-    else
-    { // GUEST
-        if (type == "BIKE")
-            constraint = "BIKE";
-        else if (type == "TRUCK")
-            constraint = "TRUCK";
-        else
-            constraint = "CAR_GUEST";
-
         // Guests must pre-pay
         double baseRate = (type == "BIKE") ? BIKE_RATE : (type == "TRUCK" ? TRUCK_RATE : CAR_RATE);
         fee = max(1.0, (double)duration) * baseRate; // Ensure at least 1 hour charge
         if (valet)
             fee += VALET_FEE;
-        exitTime = time(nullptr) + max(1, duration) * 3600; // Store exit time based on pre-paid duration
-        revenueLogs.push_back({time(nullptr), fee});
+        exitTime = now + max(1, duration) * 3600; // Store exit time based on pre-paid duration
+        revenueLogs.push_back({now, fee});
     }
 
-    // Find and occupy a slot
-    if (typeToAvailableSlots.count(constraint) && !typeToAvailableSlots[constraint].empty())
+    // Find and occupy a slot: a booked vehicle gets its reserved slot, everyone else
+    // gets the lowest free slot that no booking claims during their stay, trying the
+    // constraint classes the allocation policy allows in order
+    int slotId = takeReservedSlotFor(plate, now);
+    if (slotId == 0)
     {
-        int slotId = typeToAvailableSlots[constraint].top();
-        typeToAvailableSlots[constraint].pop();
-
-        parkingSlots[slotId - 1].occupy(plate, profile.driverName, type, valet, exitTime);
+        time_t windowEnd = (exitTime > 0) ? exitTime : now + NON_GUEST_LOOKAHEAD_SECONDS;
+        vector<string> classes = allocationPolicy->candidates(constraint, now);
+        for (size_t i = 0; i < classes.size() && slotId == 0; ++i)
+        {
+            if (allocationPolicy->admits(constraint, classes[i], now, freeSlotCount, totalSlotCount))
+                slotId = takeFreeSlot(classes[i], now, windowEnd, plate);
+        }
+    }
+    if (slotId > 0)
+    {
+        ParkingSlot &slot = parkingSlots[slotId - 1];
+        slot.occupy(plate, profile.driverName, type, valet, exitTime, now);
+        slot.prePaidFee = fee;
+        freeSlotCount[slot.vehicleTypeConstraint]--;
         plateToSlotMap[plate] = slotId;
         occupancyByUserType[profile.type]++;
-        entryLogs.push_back(time(nullptr));
+        entryLogs.push_back(now);
+
+        string where = "slot " + to_string(slotId) + " (Floor " + to_string(slot.floor) + ")";
+        if (slot.vehicleTypeConstraint != constraint)
+        {
+            overflowPlacements++;
+            overflowPlacementsByRoute[constraint + ">" + slot.vehicleTypeConstraint]++;
+            where = "overflow " + where;
+        }
 
         if (fee > 0)
         {
             stringstream ss;
             ss << fixed << setprecision(2) << fee;
-            return "SUCCESS,Parked in slot " + to_string(slotId) + " (Floor " + to_string(parkingSlots[slotId - 1].floor) + "). Pre-paid: \u20B9" + ss.str();
+            return "SUCCESS,Parked in " + where + ". Pre-paid: \u20B9" + ss.str();
         }
-        return "SUCCESS,Welcome. Parked in slot " + to_string(slotId) + " (Floor " + to_string(parkingSlots[slotId - 1].floor) + ").";
+        return "SUCCESS,Welcome. Parked in " + where + ".";
     }
 
     // No slots, add to waiting queue
@@ -151,6 +193,422 @@ string AdvancedParkingSystem::parkVehicle(const string &plate, const string &typ
     return "SUCCESS,Lot full for " + constraint + ". Vehicle " + plate + " added to waiting queue.";
 }
 
+// Determine parking zone based on user type and vehicle type
+string AdvancedParkingSystem::resolveConstraint(const UserProfile &profile, const string &type)
+{
+    if (profile.type == RESIDENT)
+        return "CAR_RESIDENT";
+    if (profile.type == STAFF)
+        return (type == "TRUCK") ? "TRUCK" : "STAFF"; // Staff can park trucks on floor 5
+    if (profile.type == HOTEL)
+        return "CAR_HOTEL";
+    // GUEST
+    if (type == "BIKE")
+        return "BIKE";
+    if (type == "TRUCK")
+        return "TRUCK";
+    return "CAR_GUEST";
+}
+
+// Takes the first free slot (in the selection strategy's order) that is not booked
+// by someone else for [start, end)
+int AdvancedParkingSystem::takeFreeSlot(const string &constraint, time_t start, time_t end, const string &plate)
+{
+    if (!typeToAvailableSlots.count(constraint))
+        return 0;
+    return typeToAvailableSlots[constraint]->take([&](int slotId)
+                                                  { return isSlotFreeForWindow(slotId, start, end, plate); });
+}
+
+void AdvancedParkingSystem::releaseSlot(const ParkingSlot &slot)
+{
+    SlotSelector &selector = *typeToAvailableSlots[slot.vehicleTypeConstraint];
+    selector.add(slot, releaseTick++);
+    map<int, map<time_t, Reservation>>::const_iterator bookings = slotReservations.find(slot.slotId);
+    if (bookings != slotReservations.end() && !bookings->second.empty())
+        selector.setClaimed(slot.slotId, true);
+}
+
+// --- Slot Selection Strategies ---
+void KeyedSlotSelector::add(const ParkingSlot &slot, long long tick)
+{
+    if (keyOf.count(slot.slotId))
+        return;
+    long long key;
+    if (mode == NEAREST_EXIT)
+        key = (long long)(walkingDistance(slot) * 100); // centimetres
+    else if (mode == LEAST_RECENTLY_USED)
+        key = tick;
+    else
+        key = slot.slotId;
+    keyOf[slot.slotId] = key;
+    open.insert(make_pair(key, slot.slotId));
+}
+
+void KeyedSlotSelector::remove(int slotId)
+{
+    map<int, long long>::iterator it = keyOf.find(slotId);
+    if (it == keyOf.end())
+        return;
+    open.erase(make_pair(it->second, slotId));
+    claimed.erase(make_pair(it->second, slotId));
+    keyOf.erase(it);
+}
+
+void KeyedSlotSelector::setClaimed(int slotId, bool isClaimed)
+{
+    map<int, long long>::iterator it = keyOf.find(slotId);
+    if (it == keyOf.end())
+        return;
+    pair<long long, int> entry(it->second, slotId);
+    if (isClaimed && open.erase(entry))
+        claimed.insert(entry);
+    else if (!isClaimed && claimed.erase(entry))
+        open.insert(entry);
+}
+
+int KeyedSlotSelector::takeFrom(set<pair<long long, int>> &from, set<pair<long long, int>>::iterator it)
+{
+    int slotId = it->second;
+    keyOf.erase(slotId);
+    from.erase(it);
+    return slotId;
+}
+
+int KeyedSlotSelector::take(const function<bool(int)> &accept)
+{
+    // An unclaimed slot has no booking to clash with, so the first one is taken in O(log n)
+    for (set<pair<long long, int>>::iterator it = open.begin(); it != open.end(); ++it)
+    {
+        if (accept(it->second))
+            return takeFrom(open, it);
+    }
+    // Only when every free slot is booked does a park check bookings slot by slot
+    for (set<pair<long long, int>>::iterator it = claimed.begin(); it != claimed.end(); ++it)
+    {
+        if (accept(it->second))
+            return takeFrom(claimed, it);
+    }
+    return 0;
+}
+
+void AisleRoundRobinSelector::reorder(int aisleKey, long long oldPicks)
+{
+    aisles.erase(make_pair(oldPicks, aisleKey));
+    if (!freeByAisle[aisleKey].empty())
+        aisles.insert(make_pair(picks[aisleKey], aisleKey));
+}
+
+void AisleRoundRobinSelector::add(const ParkingSlot &slot, long long)
+{
+    if (aisleOfSlot.count(slot.slotId))
+        return;
+    int aisleKey = slot.floor * 1000 + slot.aisle;
+    AisleSlots &free = freeByAisle[aisleKey];
+    if (free.empty())
+    {
+        // An aisle coming back must not get a burst of cars for the turns it missed
+        long long least = aisles.empty() ? 0 : aisles.begin()->first;
+        picks[aisleKey] = max(picks[aisleKey], least);
+        aisles.insert(make_pair(picks[aisleKey], aisleKey));
+    }
+    free.open.insert(slot.slotId);
+    aisleOfSlot[slot.slotId] = aisleKey;
+}
+
+void AisleRoundRobinSelector::remove(int slotId)
+{
+    map<int, int>::iterator it = aisleOfSlot.find(slotId);
+    if (it == aisleOfSlot.end())
+        return;
+    int aisleKey = it->second;
+    aisleOfSlot.erase(it);
+    freeByAisle[aisleKey].open.erase(slotId);
+    freeByAisle[aisleKey].claimed.erase(slotId);
+    reorder(aisleKey, picks[aisleKey]);
+}
+
+void AisleRoundRobinSelector::setClaimed(int slotId, bool isClaimed)
+{
+    map<int, int>::iterator it = aisleOfSlot.find(slotId);
+    if (it == aisleOfSlot.end())
+        return;
+    AisleSlots &free = freeByAisle[it->second];
+    if (isClaimed && free.open.erase(slotId))
+        free.claimed.insert(slotId);
+    else if (!isClaimed && free.claimed.erase(slotId))
+        free.open.insert(slotId);
+}
+
+int AisleRoundRobinSelector::takeFrom(int aisleKey, set<int> &from, set<int>::iterator it)
+{
+    int slotId = *it;
+    long long oldPicks = picks[aisleKey];
+    from.erase(it);
+    aisleOfSlot.erase(slotId);
+    picks[aisleKey]++;
+    reorder(aisleKey, oldPicks);
+    return slotId;
+}
+
+int AisleRoundRobinSelector::take(const function<bool(int)> &accept)
+{
+    // Same as KeyedSlotSelector: unclaimed slots first, booking checks only when none is left
+    for (int pass = 0; pass < 2; ++pass)
+    {
+        for (set<pair<long long, int>>::iterator a = aisles.begin(); a != aisles.end(); ++a)
+        {
+            int aisleKey = a->second;
+            set<int> &free = pass == 0 ? freeByAisle[aisleKey].open : freeByAisle[aisleKey].claimed;
+            for (set<int>::iterator it = free.begin(); it != free.end(); ++it)
+            {
+                if (accept(*it))
+                    return takeFrom(aisleKey, free, it);
+            }
+        }
+    }
+    return 0;
+}
+
+shared_ptr<SlotSelector> AdvancedParkingSystem::makeSelector(const string &strategy)
+{
+    if (strategy == "NEAREST_EXIT")
+        return make_shared<KeyedSlotSelector>(KeyedSlotSelector::NEAREST_EXIT);
+    if (strategy == "LRU")
+        return make_shared<KeyedSlotSelector>(KeyedSlotSelector::LEAST_RECENTLY_USED);
+    if (strategy == "AISLE_ROUND_ROBIN")
+        return make_shared<AisleRoundRobinSelector>();
+    if (strategy == "LOWEST_ID")
+        return make_shared<KeyedSlotSelector>(KeyedSlotSelector::LOWEST_ID);
+    return shared_ptr<SlotSelector>();
+}
+
+string AdvancedParkingSystem::setSelectionStrategy(const string &strategy)
+{
+    if (!makeSelector(strategy))
+        return "ERROR,Unknown strategy. Use LOWEST_ID, NEAREST_EXIT, AISLE_ROUND_ROBIN or LRU.";
+    selectionStrategy = strategy;
+    // Rebuild every class's index from the currently free slots
+    for (map<string, shared_ptr<SlotSelector>>::iterator it = typeToAvailableSlots.begin(); it != typeToAvailableSlots.end(); ++it)
+    {
+        it->second = makeSelector(strategy);
+    }
+    for (size_t i = 0; i < parkingSlots.size(); ++i)
+    {
+        if (!parkingSlots[i].isOccupied)
+            releaseSlot(parkingSlots[i]);
+    }
+    return "SUCCESS,Slot selection strategy set to " + strategy + ".";
+}
+
+// Replays one synthetic day-pattern trace against each strategy on a copy of a class's slots.
+// Format per strategy: name,avgWalkMeters,busiestRampShare,peakRampMovesPer15Min,turnedAway;
+string AdvancedParkingSystem::simulateStrategies(const string &constraint, int hours, int occupancyPercent, int meanStayMinutes, unsigned seed)
+{
+    if (!constraintToSlots.count(constraint))
+        return "ERROR,Unknown constraint class.";
+    if (hours <= 0 || occupancyPercent <= 0 || meanStayMinutes <= 0)
+        return "ERROR,Hours, occupancy and stay must be positive.";
+    if (hours > SIMULATION_MAX_HOURS)
+        return "ERROR,At most 8760 hours (one year) can be simulated.";
+
+    vector<ParkingSlot> slots;
+    for (size_t i = 0; i < constraintToSlots[constraint].size(); ++i)
+        slots.push_back(parkingSlots[constraintToSlots[constraint][i] - 1]);
+    map<int, size_t> indexOf;
+    for (size_t i = 0; i < slots.size(); ++i)
+        indexOf[slots[i].slotId] = i;
+
+    // Same Poisson arrival trace for every strategy
+    mt19937 rng(seed);
+    double meanStaySeconds = meanStayMinutes * 60.0;
+    double arrivalsPerSecond = (occupancyPercent / 100.0) * slots.size() / meanStaySeconds;
+    if (arrivalsPerSecond * hours * 3600.0 > SIMULATION_MAX_ARRIVALS)
+        return "ERROR,Too many arrivals to simulate; lower the occupancy or lengthen the stay.";
+    exponential_distribution<double> gap(arrivalsPerSecond);
+    exponential_distribution<double> stay(1.0 / meanStaySeconds);
+    vector<pair<double, double>> trace; // (arrival, departure)
+    for (double t = gap(rng); t < hours * 3600.0; t += gap(rng))
+        trace.push_back(make_pair(t, t + stay(rng)));
+
+    const char *strategies[] = {"LOWEST_ID", "NEAREST_EXIT", "AISLE_ROUND_ROBIN", "LRU"};
+    stringstream ss;
+    ss << fixed << setprecision(2);
+    for (int s = 0; s < 4; ++s)
+    {
+        shared_ptr<SlotSelector> selector = makeSelector(strategies[s]);
+        long long tick = 0;
+        for (size_t i = 0; i < slots.size(); ++i)
+            selector->add(slots[i], tick++);
+
+        priority_queue<pair<double, int>, vector<pair<double, int>>, greater<pair<double, int>>> departures;
+        map<long long, pair<int, int>> rampMoves; // 15-min bucket -> moves on (ramp 0, ramp 1)
+        double totalWalk = 0;
+        int parked = 0, turnedAway = 0, moves[2] = {0, 0};
+
+        for (size_t i = 0; i < trace.size(); ++i)
+        {
+            double now = trace[i].first;
+            while (!departures.empty() && departures.top().first <= now)
+            {
+                const ParkingSlot &leaving = slots[indexOf[departures.top().second]];
+                int ramp = rampFor(leaving);
+                moves[ramp]++;
+                pair<int, int> &bucket = rampMoves[(long long)(departures.top().first / 900)];
+                (ramp == 0 ? bucket.first : bucket.second)++;
+                selector->add(leaving, tick++);
+                departures.pop();
+            }
+            int slotId = selector->take([](int) { return true; });
+            if (slotId == 0)
+            {
+                turnedAway++;
+                continue;
+            }
+            const ParkingSlot &slot = slots[indexOf[slotId]];
+            int ramp = rampFor(slot);
+            moves[ramp]++;
+            pair<int, int> &bucket = rampMoves[(long long)(now / 900)];
+            (ramp == 0 ? bucket.first : bucket.second)++;
+            totalWalk += walkingDistance(slot);
+            parked++;
+            departures.push(make_pair(trace[i].second, slotId));
+        }
+
+        int peak = 0;
+        for (map<long long, pair<int, int>>::const_iterator it = rampMoves.begin(); it != rampMoves.end(); ++it)
+            peak = max(peak, max(it->second.first, it->second.second));
+        int totalMoves = moves[0] + moves[1];
+        ss << strategies[s] << ","
+           << (parked > 0 ? totalWalk / parked : 0.0) << ","
+           << (totalMoves > 0 ? (double)max(moves[0], moves[1]) / totalMoves : 0.0) << ","
+           << peak << ","
+           << turnedAway << ";";
+    }
+    return ss.str();
+}
+
+// --- Allocation Policy ---
+// Thread-safe hour of day: the simulator runs several engines at once
+static int localHour(time_t t)
+{
+    struct tm parts;
+#ifdef _WIN32
+    localtime_s(&parts, &t);
+#else
+    localtime_r(&t, &parts);
+#endif
+    return parts.tm_hour;
+}
+
+vector<string> OverflowPolicy::candidates(const string &primary, time_t now)
+{
+    vector<string> result(1, primary);
+    int hour = localHour(now);
+    for (size_t i = 0; i < rules.size(); ++i)
+    {
+        if (rules[i].fromConstraint == primary && rules[i].appliesAt(hour))
+            result.push_back(rules[i].toConstraint);
+    }
+    return result;
+}
+
+bool OverflowPolicy::admits(const string &primary, const string &target, time_t now,
+                            const map<string, int> &freeSlots, const map<string, int> &totalSlots)
+{
+    if (target == primary)
+        return true;
+    int hour = localHour(now);
+    for (size_t i = 0; i < rules.size(); ++i)
+    {
+        const OverflowRule &rule = rules[i];
+        if (rule.fromConstraint != primary || rule.toConstraint != target || !rule.appliesAt(hour))
+            continue;
+        map<string, int>::const_iterator freeIt = freeSlots.find(rule.toConstraint);
+        map<string, int>::const_iterator totalIt = totalSlots.find(rule.toConstraint);
+        if (freeIt == freeSlots.end() || totalIt == totalSlots.end())
+            return false;
+        // Taking one more slot must still leave the target's headroom free
+        int reserve = (int)ceil(totalIt->second * rule.headroomPercent / 100.0);
+        if (freeIt->second - 1 < reserve)
+        {
+            headroomRefusals++;
+            return false;
+        }
+        return true;
+    }
+    return false;
+}
+
+string OverflowPolicy::describe() const
+{
+    stringstream ss;
+    for (size_t i = 0; i < rules.size(); ++i)
+    {
+        const OverflowRule &r = rules[i];
+        ss << r.fromConstraint << ">" << r.toConstraint << "@" << r.fromHour << "-" << r.toHour << "/" << r.headroomPercent << "%;";
+    }
+    return ss.str();
+}
+
+void AdvancedParkingSystem::setClock(const Clock *source)
+{
+    clock = (source != nullptr) ? source : &systemClock;
+}
+
+void AdvancedParkingSystem::setTransactionLog(TransactionLog *log)
+{
+    transactionLog = log;
+}
+
+string AdvancedParkingSystem::setValidationHours(int hours)
+{
+    if (hours < 0)
+        return "ERROR,Validation hours cannot be negative.";
+    validationHours = hours;
+    return "SUCCESS,Validation now covers " + to_string(hours) + " hours.";
+}
+
+void AdvancedParkingSystem::setAllocationPolicy(AllocationPolicy *policy)
+{
+    allocationPolicy = (policy != nullptr) ? policy : &overflowPolicy;
+}
+
+string AdvancedParkingSystem::addOverflowRule(const string &from, const string &to, int fromHour, int toHour, int headroomPercent)
+{
+    if (!totalSlotCount.count(from) || !totalSlotCount.count(to))
+        return "ERROR,Unknown constraint class.";
+    if (from == to)
+        return "ERROR,Overflow target must differ from source.";
+    if (fromHour < 0 || fromHour > 23 || toHour < 0 || toHour > 23)
+        return "ERROR,Hours must be between 0 and 23.";
+    if (headroomPercent < 0 || headroomPercent > 100)
+        return "ERROR,Headroom must be between 0 and 100 percent.";
+    OverflowRule rule = {from, to, fromHour, toHour, headroomPercent};
+    overflowPolicy.addRule(rule);
+    return "SUCCESS,Overflow " + from + " -> " + to + " enabled " + to_string(fromHour) + ":00-" + to_string(toHour) +
+           ":00 with " + to_string(headroomPercent) + "% headroom.";
+}
+
+string AdvancedParkingSystem::clearOverflowRules()
+{
+    overflowPolicy.clearRules();
+    return "SUCCESS,Overflow rules cleared.";
+}
+
+// Format: placements|FROM>TO,count;...|headroomRefusals|rules
+string AdvancedParkingSystem::getOverflowStats()
+{
+    stringstream ss;
+    ss << overflowPlacements << "|";
+    for (map<string, int>::const_iterator it = overflowPlacementsByRoute.begin(); it != overflowPlacementsByRoute.end(); ++it)
+    {
+        ss << it->first << "," << it->second << ";";
+    }
+    ss << "|" << overflowPolicy.headroomRefusals << "|" << allocationPolicy->describe();
+    return ss.str();
+}
+
 // --- Exit Logic ---
 string AdvancedParkingSystem::removeVehicle(const string &plate)
 {
@@ -161,19 +619,42 @@ string AdvancedParkingSystem::removeVehicle(const string &plate)
 
     int slotId = plateToSlotMap[plate];
     ParkingSlot &slot = parkingSlots[slotId - 1];
-    UserProfile profile = userDatabase.count(plate) ? userDatabase[plate] : UserProfile(plate, slot.driverName, GUEST, "N/A");
+    UserProfile profile(plate, slot.driverName, GUEST, "N/A");
+    userDatabase.find(plate, profile);
 
-    string feeMessage = calculateFee(slot); // Calculate fee BEFORE vacating
+    double charged = 0;
+    string feeMessage = calculateFee(slot, charged); // Calculate fee BEFORE vacating
+    if (transactionLog != nullptr)
+    {
+        Transaction t;
+        t.entryTime = slot.entryTime;
+        t.exitTime = clock->now();
+        t.plate = plate;
+        t.slotId = slot.slotId;
+        t.floor = slot.floor;
+        t.vehicleType = slot.vehicleType;
+        t.userType = profile.type;
+        t.billingId = profile.billingId;
+        t.valet = slot.isValet;
+        t.validated = slot.isValidated;
+        t.prepaid = slot.prePaidFee;
+        t.exitCharge = charged;
+        transactionLog->record(t);
+    }
 
     // Vacate the slot
     string constraint = slot.vehicleTypeConstraint;
     slot.vacate();
+    freeSlotCount[constraint]++;
     plateToSlotMap.erase(plate);
     if (occupancyByUserType.count(profile.type))
     { // Decrement count safely
         occupancyByUserType[profile.type]--;
     }
 
+    // Free the slot first so the allocator (and any booking on it) can see it
+    releaseSlot(slot);
+
     // Check waiting queue for this zone
     Vehicle nextVehicle = findNextWaitingVehicle(constraint);
     if (nextVehicle.plateNumber != "")
@@ -182,19 +663,16 @@ string AdvancedParkingSystem::removeVehicle(const string &plate)
         // Note: This recursive call might need careful state management in a real system
         parkVehicle(nextVehicle.plateNumber, nextVehicle.vehicleType, nextVehicle.driverName, 1, false);
     }
-    else
-    {
-        // No one waiting, free the slot
-        typeToAvailableSlots[constraint].push(slotId);
-    }
 
     return "SUCCESS," + feeMessage;
 }
 
 // --- Billing Logic ---
-string AdvancedParkingSystem::calculateFee(ParkingSlot &slot)
+string AdvancedParkingSystem::calculateFee(ParkingSlot &slot, double &charged)
 {
-    UserProfile profile = userDatabase.count(slot.plateNumber) ? userDatabase[slot.plateNumber] : UserProfile();
+    charged = 0;
+    UserProfile profile;
+    userDatabase.find(slot.plateNumber, profile);
 
     stringstream ssFee;
     ssFee << fixed << setprecision(2); // Set precision once
@@ -204,7 +682,7 @@ string AdvancedParkingSystem::calculateFee(ParkingSlot &slot)
         return "User is Resident/Staff. No charge.";
     }
 
-    time_t currentTime = time(nullptr);
+    time_t currentTime = clock->now();
     double hoursParked = ceil(max(3600.0, difftime(currentTime, slot.entryTime)) / 3600.0); // Min 1 hour
 
     double baseRate;
@@ -221,6 +699,7 @@ string AdvancedParkingSystem::calculateFee(ParkingSlot &slot)
         if (slot.isValet)
             fee += VALET_FEE;
         revenueLogs.push_back({currentTime, fee});
+        charged = fee;
         ssFee << fee;
         return "Bill \u20B9" + ssFee.str() + " to Room " + profile.billingId + ".";
     }
@@ -235,7 +714,7 @@ string AdvancedParkingSystem::calculateFee(ParkingSlot &slot)
     double overstaySeconds = difftime(currentTime, slot.prePaidExitTime);
     if (slot.isValidated)
     {
-        overstaySeconds -= (VALIDATION_HOURS * 3600); // Subtract validated free hours
+        overstaySeconds -= (validationHours * 3600); // Subtract validated free hours
     }
     if (overstaySeconds <= 0)
     { // If validation covers overstay or they left on time
@@ -251,6 +730,7 @@ string AdvancedParkingSystem::calculateFee(ParkingSlot &slot)
         penaltyFee += VALET_FEE;
 
     revenueLogs.push_back({currentTime, penaltyFee});
+    charged = penaltyFee;
     ssFee << penaltyFee;
     return "OVERSTAY. Penalty fee due: \u20B9" + ssFee.str();
 }
@@ -264,13 +744,309 @@ string AdvancedParkingSystem::applyValidation(const string &plate)
         return "ERROR,Vehicle not found.";
     int slotId = plateToSlotMap[plate];
     parkingSlots[slotId - 1].isValidated = true;
-    return "SUCCESS,Validation applied to " + plate + ". " + to_string(VALIDATION_HOURS) + " hours free.";
+    return "SUCCESS,Validation applied to " + plate + ". " + to_string(validationHours) + " hours free.";
+}
+
+// --- Reservations ---
+static string formatTime(time_t t)
+{
+    char buffer[40];
+    strftime(buffer, sizeof(buffer), "%Y-%m-%d %H:%M", localtime(&t));
+    return buffer;
+}
+
+// True if no booking by another plate overlaps [start, end) on this slot
+bool AdvancedParkingSystem::isSlotFreeForWindow(int slotId, time_t start, time_t end, const string &plate)
+{
+    map<int, map<time_t, Reservation>>::iterator found = slotReservations.find(slotId);
+    if (found == slotReservations.end() || found->second.empty())
+        return true;
+    map<time_t, Reservation> &bookings = found->second;
+    // Walk back from the last booking starting before 'end'; ends are sorted too, so stop at the first that ends before 'start'
+    map<time_t, Reservation>::iterator it = bookings.lower_bound(end);
+    while (it != bookings.begin())
+    {
+        --it;
+        if (it->second.endTime <= start)
+            break;
+        if (it->second.plateNumber != plate)
+            return false;
+    }
+    return true;
+}
+
+void AdvancedParkingSystem::addReservation(const Reservation &booking)
+{
+    slotReservations[booking.slotId][booking.startTime] = booking;
+    const string &constraint = parkingSlots[booking.slotId - 1].vehicleTypeConstraint;
+    typeToAvailableSlots[constraint]->setClaimed(booking.slotId, true);
+    BookingWindows &windows = constraintBookings[constraint];
+    windows.byEnd.insert(make_pair(booking.endTime, booking.reservationId));
+    windows.lengths.insert(booking.endTime - booking.startTime);
+    reservationIndex[booking.reservationId] = make_pair(booking.slotId, booking.startTime);
+    plateToReservations.insert(make_pair(booking.plateNumber, booking.reservationId));
+}
+
+void AdvancedParkingSystem::eraseReservation(int reservationId)
+{
+    map<int, pair<int, time_t>>::iterator idx = reservationIndex.find(reservationId);
+    if (idx == reservationIndex.end())
+        return;
+    map<time_t, Reservation> &bookings = slotReservations[idx->second.first];
+    map<time_t, Reservation>::iterator booking = bookings.find(idx->second.second);
+    if (booking != bookings.end())
+    {
+        pair<multimap<string, int>::iterator, multimap<string, int>::iterator> range = plateToReservations.equal_range(booking->second.plateNumber);
+        for (multimap<string, int>::iterator p = range.first; p != range.second; ++p)
+        {
+            if (p->second == reservationId)
+            {
+                plateToReservations.erase(p);
+                break;
+            }
+        }
+        const Reservation &r = booking->second;
+        BookingWindows &windows = constraintBookings[parkingSlots[r.slotId - 1].vehicleTypeConstraint];
+        pair<multimap<time_t, int>::iterator, multimap<time_t, int>::iterator> ends = windows.byEnd.equal_range(r.endTime);
+        for (multimap<time_t, int>::iterator e = ends.first; e != ends.second; ++e)
+        {
+            if (e->second == reservationId)
+            {
+                windows.byEnd.erase(e);
+                break;
+            }
+        }
+        windows.lengths.erase(windows.lengths.find(r.endTime - r.startTime));
+        bookings.erase(booking);
+        if (bookings.empty())
+        {
+            int slotId = idx->second.first;
+            typeToAvailableSlots[parkingSlots[slotId - 1].vehicleTypeConstraint]->setClaimed(slotId, false);
+        }
+    }
+    reservationIndex.erase(idx);
 }
 
-string AdvancedParkingSystem::reserveSlot(const string &plate, const string &type, const string &name)
+void AdvancedParkingSystem::purgeExpiredReservations(int slotId, time_t now)
 {
-    // Placeholder - Not fully implemented
-    return "ERROR,Reservation system not implemented.";
+    map<int, map<time_t, Reservation>>::iterator found = slotReservations.find(slotId);
+    if (found == slotReservations.end())
+        return;
+    while (!found->second.empty() && found->second.begin()->second.endTime <= now)
+    {
+        eraseReservation(found->second.begin()->second.reservationId);
+    }
+}
+
+void AdvancedParkingSystem::purgeExpiredReservations(const string &constraint, time_t now)
+{
+    BookingWindows &windows = constraintBookings[constraint];
+    while (!windows.byEnd.empty() && windows.byEnd.begin()->first <= now)
+    {
+        eraseReservation(windows.byEnd.begin()->second);
+    }
+}
+
+// Slots of a class with any booking overlapping [start, end). Visits only the bookings that
+// end after 'start' and before end + the longest booking, never the class's other slots.
+set<int> AdvancedParkingSystem::slotsBookedDuring(const string &constraint, time_t start, time_t end)
+{
+    set<int> booked;
+    map<string, BookingWindows>::const_iterator found = constraintBookings.find(constraint);
+    if (found == constraintBookings.end() || found->second.byEnd.empty())
+        return booked;
+    const BookingWindows &windows = found->second;
+    time_t horizon = end + *windows.lengths.rbegin();
+    for (multimap<time_t, int>::const_iterator it = windows.byEnd.upper_bound(start); it != windows.byEnd.end() && it->first < horizon; ++it)
+    {
+        const pair<int, time_t> &location = reservationIndex[it->second];
+        if (location.second < end)
+            booked.insert(location.first);
+    }
+    return booked;
+}
+
+// Booking covering 'now' on a slot, or nullptr
+const Reservation *AdvancedParkingSystem::activeReservation(int slotId, time_t now)
+{
+    purgeExpiredReservations(slotId, now);
+    map<int, map<time_t, Reservation>>::iterator found = slotReservations.find(slotId);
+    if (found == slotReservations.end() || found->second.empty())
+        return nullptr;
+    const Reservation &first = found->second.begin()->second; // earliest unexpired booking
+    return (first.startTime - RESERVATION_GRACE_SECONDS <= now) ? &first : nullptr;
+}
+
+// If the plate has a booking starting now (within the grace period), consume it and return its slot
+int AdvancedParkingSystem::takeReservedSlotFor(const string &plate, time_t now)
+{
+    pair<multimap<string, int>::iterator, multimap<string, int>::iterator> range = plateToReservations.equal_range(plate);
+    for (multimap<string, int>::iterator p = range.first; p != range.second; ++p)
+    {
+        const pair<int, time_t> &location = reservationIndex[p->second];
+        const Reservation &booking = slotReservations[location.first][location.second];
+        if (booking.startTime - RESERVATION_GRACE_SECONDS <= now && now < booking.endTime &&
+            !parkingSlots[booking.slotId - 1].isOccupied)
+        {
+            int slotId = booking.slotId;
+            const string &constraint = parkingSlots[slotId - 1].vehicleTypeConstraint;
+            typeToAvailableSlots[constraint]->remove(slotId);
+            eraseReservation(p->second);
+            saveReservations();
+            return slotId;
+        }
+    }
+    return 0;
+}
+
+string AdvancedParkingSystem::reserveSlot(const string &plate, const string &type, const string &name, time_t start, time_t end)
+{
+    if (plate.empty())
+        return "ERROR,Plate number cannot be empty.";
+    time_t now = clock->now();
+    if (end <= start)
+        return "ERROR,Reservation must end after it starts.";
+    if (end <= now)
+        return "ERROR,Reservation window is already over.";
+
+    // One booking per plate per window
+    pair<multimap<string, int>::iterator, multimap<string, int>::iterator> range = plateToReservations.equal_range(plate);
+    for (multimap<string, int>::iterator p = range.first; p != range.second; ++p)
+    {
+        const pair<int, time_t> &location = reservationIndex[p->second];
+        const Reservation &other = slotReservations[location.first][location.second];
+        if (other.startTime < end && start < other.endTime)
+            return "ERROR,Plate already has reservation #" + to_string(other.reservationId) + " in that window.";
+    }
+
+    UserProfile profile(plate, name.empty() ? "Guest" : name, GUEST, "N/A");
+    userDatabase.find(plate, profile);
+    string constraint = resolveConstraint(profile, type);
+    const vector<int> &candidates = constraintToSlots[constraint];
+    bool startsNow = start - RESERVATION_GRACE_SECONDS <= now;
+    if (startsNow && freeSlotCount[constraint] <= 0)
+        return "ERROR,No " + constraint + " slot available for that window.";
+
+    // Lowest slot ID with no overlapping booking; for a later window that skips at most booked.size() slots
+    purgeExpiredReservations(constraint, now);
+    set<int> booked = slotsBookedDuring(constraint, start, end);
+    for (size_t i = 0; i < candidates.size(); ++i)
+    {
+        int slotId = candidates[i];
+        if (booked.count(slotId) || (startsNow && parkingSlots[slotId - 1].isOccupied))
+            continue;
+
+        Reservation booking = {nextReservationId++, plate, profile.driverName, slotId, start, end};
+        addReservation(booking);
+        string unsaved = saveReservations() ? "" : " It could not be saved and lasts until the engine restarts.";
+        return "SUCCESS,Reservation #" + to_string(booking.reservationId) + ": slot " + to_string(slotId) +
+               " (Floor " + to_string(parkingSlots[slotId - 1].floor) + ") for " + plate + " from " +
+               formatTime(start) + " to " + formatTime(end) + "." + unsaved;
+    }
+    return "ERROR,No " + constraint + " slot available for that window.";
+}
+
+string AdvancedParkingSystem::cancelReservation(int reservationId)
+{
+    if (!reservationIndex.count(reservationId))
+        return "ERROR,Reservation not found.";
+    eraseReservation(reservationId);
+    saveReservations();
+    return "SUCCESS,Reservation #" + to_string(reservationId) + " cancelled.";
+}
+
+// <profile store>.reservations: "next,<id>" then id,slotId,startEpoch,endEpoch,plate,name per
+// booking. Rewritten whole (through a temporary file) when a booking is made, cancelled or
+// used; bookings that merely expired are dropped by the next rewrite or load.
+bool AdvancedParkingSystem::saveReservations() const
+{
+    if (reservationPath.empty())
+        return true;
+    string tmpPath = reservationPath + ".tmp";
+    FILE *out = fopen(tmpPath.c_str(), "w");
+    if (out == nullptr)
+        return false;
+    fprintf(out, "next,%d\n", nextReservationId);
+    for (map<int, map<time_t, Reservation>>::const_iterator slot = slotReservations.begin(); slot != slotReservations.end(); ++slot)
+    {
+        for (map<time_t, Reservation>::const_iterator it = slot->second.begin(); it != slot->second.end(); ++it)
+        {
+            const Reservation &r = it->second;
+            fprintf(out, "%d,%d,%lld,%lld,%s,%s\n", r.reservationId, r.slotId, (long long)r.startTime,
+                    (long long)r.endTime, r.plateNumber.c_str(), r.driverName.c_str());
+        }
+    }
+    bool written = fclose(out) == 0;
+    if (!written || !ProfileStore::replaceFile(tmpPath, reservationPath))
+    {
+        std::remove(tmpPath.c_str());
+        return false;
+    }
+    return true;
+}
+
+// Bookings that ended, point at a slot this layout lacks or overlap an earlier line are skipped
+void AdvancedParkingSystem::loadReservations()
+{
+    ifstream in(reservationPath.c_str());
+    string line;
+    time_t now = clock->now();
+    while (getline(in, line))
+    {
+        stringstream fields(line);
+        string id, slot, start, end, plate, name;
+        if (!getline(fields, id, ',') || !getline(fields, slot, ',') || !getline(fields, start, ','))
+            continue;
+        try
+        {
+            if (id == "next")
+            {
+                nextReservationId = max(nextReservationId, stoi(slot));
+                continue;
+            }
+            if (!getline(fields, end, ',') || !getline(fields, plate, ',') || !getline(fields, name))
+                continue;
+            Reservation booking = {stoi(id), plate, name, stoi(slot), (time_t)stoll(start), (time_t)stoll(end)};
+            if (booking.slotId < 1 || booking.slotId > (int)parkingSlots.size() || booking.endTime <= now ||
+                booking.endTime <= booking.startTime || reservationIndex.count(booking.reservationId) ||
+                !isSlotFreeForWindow(booking.slotId, booking.startTime, booking.endTime, ""))
+                continue;
+            addReservation(booking);
+            nextReservationId = max(nextReservationId, booking.reservationId + 1);
+        }
+        catch (const exception &)
+        {
+            // A malformed line loses only its own booking
+        }
+    }
+}
+
+// Format: AVAILABILITY,constraint,freeSlots,totalSlots
+string AdvancedParkingSystem::checkAvailability(const string &plate, const string &type, time_t start, time_t end)
+{
+    if (end <= start)
+        return "ERROR,Window must end after it starts.";
+    time_t now = clock->now();
+    UserProfile profile;
+    userDatabase.find(plate, profile);
+    string constraint = resolveConstraint(profile, type);
+    const vector<int> &candidates = constraintToSlots[constraint];
+    bool startsNow = start - RESERVATION_GRACE_SECONDS <= now;
+
+    // Every slot minus the booked ones and, for a window starting now, the occupied ones (each counted once)
+    purgeExpiredReservations(constraint, now);
+    set<int> booked = slotsBookedDuring(constraint, start, end);
+    int freeSlots = (int)candidates.size() - (int)booked.size();
+    if (startsNow)
+    {
+        freeSlots -= totalSlotCount[constraint] - freeSlotCount[constraint];
+        for (set<int>::const_iterator it = booked.begin(); it != booked.end(); ++it)
+        {
+            if (parkingSlots[*it - 1].isOccupied)
+                freeSlots++;
+        }
+    }
+    return "AVAILABILITY," + constraint + "," + to_string(freeSlots) + "," + to_string(candidates.size());
 }
 
 string AdvancedParkingSystem::findMyCar(const string &plate)
@@ -323,17 +1099,21 @@ string AdvancedParkingSystem::getSlotDetails(int slotId)
 string AdvancedParkingSystem::getParkingStatus()
 {
     stringstream ss;
-    time_t now = time(nullptr);
+    time_t now = clock->now();
     for (size_t i = 0; i < parkingSlots.size(); ++i)
     {
         const ParkingSlot &slot = parkingSlots[i];
         bool overstay = (slot.isOccupied && slot.prePaidExitTime > 0 && now > slot.prePaidExitTime && !slot.isValidated);
+        const Reservation *booking = slot.isOccupied ? nullptr : activeReservation(slot.slotId, now);
+        bool reserved = slot.isReserved || booking != nullptr;
+        string plate = booking != nullptr ? booking->plateNumber : slot.plateNumber;
         ss << slot.slotId << ","
            << (slot.isOccupied ? "1" : "0") << ","
-           << (slot.isReserved ? "1" : "0") << ","
+           << (reserved ? "1" : "0") << ","
            << (overstay ? "1" : "0") << ","
-           << (slot.plateNumber.empty() ? "N/A" : slot.plateNumber) << ","
-           << slot.floor << ";";
+           << (plate.empty() ? "N/A" : plate) << ","
+           << slot.floor << ","
+           << slot.vehicleTypeConstraint << ";";
     }
     ss << "|"; // Queue separator
 
@@ -347,17 +1127,62 @@ string AdvancedParkingSystem::getParkingStatus()
     return ss.str();
 }
 
-string AdvancedParkingSystem::getUserList()
+// Billing inputs for every occupied slot, so the client can estimate running fees.
+// Format per slot: slotId,vehicleType,userType(int),entryTime,prePaidExitTime,valet(1/0),validated(1/0);
+string AdvancedParkingSystem::getBillingData()
 {
     stringstream ss;
-    for (map<string, UserProfile>::const_iterator it = userDatabase.begin(); it != userDatabase.end(); ++it)
+    for (size_t i = 0; i < parkingSlots.size(); ++i)
     {
-        // Format: Name,Plate,BillingID,Type(as int)
-        ss << it->second.driverName << "," << it->second.plateNumber << "," << it->second.billingId << "," << (int)it->second.type << ";";
+        const ParkingSlot &slot = parkingSlots[i];
+        if (!slot.isOccupied)
+            continue;
+        UserProfile user;
+        UserType type = userDatabase.find(slot.plateNumber, user) ? user.type : GUEST;
+        ss << slot.slotId << ","
+           << (slot.vehicleType.empty() ? "CAR" : slot.vehicleType) << ","
+           << (int)type << ","
+           << (long long)slot.entryTime << ","
+           << (long long)slot.prePaidExitTime << ","
+           << (slot.isValet ? "1" : "0") << ","
+           << (slot.isValidated ? "1" : "0") << ";";
     }
     return ss.str();
 }
 
+// Free/total per slot constraint, from the counters the allocation policy keeps.
+// Format: constraint,free,total;...
+string AdvancedParkingSystem::getOccupancyByConstraint()
+{
+    stringstream ss;
+    for (map<string, int>::const_iterator it = totalSlotCount.begin(); it != totalSlotCount.end(); ++it)
+    {
+        ss << it->first << "," << freeSlotCount[it->first] << "," << it->second << ";";
+    }
+    return ss.str();
+}
+
+string AdvancedParkingSystem::getUserList()
+{
+    // The store can hold far more profiles than one reply line should carry; GET_USER looks up any plate
+    stringstream ss;
+    size_t listed = 0;
+    userDatabase.forEach([&](const UserProfile &user, uint8_t)
+                         {
+        // Format: Name,Plate,BillingID,Type(as int)
+        ss << user.driverName << "," << user.plateNumber << "," << user.billingId << "," << (int)user.type << ";";
+        return ++listed < USER_LIST_LIMIT; });
+    return ss.str();
+}
+
+double AdvancedParkingSystem::getTotalRevenue() const
+{
+    double total = 0;
+    for (size_t i = 0; i < revenueLogs.size(); ++i)
+        total += revenueLogs[i].second;
+    return total;
+}
+
 string AdvancedParkingSystem::getAnalyticsData()
 {
     stringstream ss;
@@ -388,6 +1213,7 @@ string AdvancedParkingSystem::getAnalyticsData()
     stringstream ssFee; // Declare locally
     ssFee << fixed << setprecision(2) << totalRevenue;
     ss << ssFee.str();
+    ss << "|" << overflowPlacements; // vehicles that skipped the waiting queue via overflow
 
     return ss.str();
-}
\ No newline at end of file
+}
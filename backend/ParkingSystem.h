@@ -13,6 +13,10 @@
 #include <sstream>
 #include <cmath>
 #include <algorithm> // Needed for std::max
+#include <functional>
+#include <memory>
+#include "ProfileStore.h"
+#include "TransactionLog.h"
 
 using namespace std;
 
@@ -44,6 +48,17 @@ struct Vehicle
     string driverName;
 };
 
+// --- Reservation (time-window booking of one slot) ---
+struct Reservation
+{
+    int reservationId;
+    string plateNumber;
+    string driverName;
+    int slotId;
+    time_t startTime; // inclusive
+    time_t endTime;   // exclusive
+};
+
 // --- Parking Slot Structure ---
 struct ParkingSlot
 {
@@ -62,18 +77,24 @@ struct ParkingSlot
     // --- New Billing Fields ---
     bool isValet;
     time_t prePaidExitTime;
+    double prePaidFee; // collected at entry, reported with the exit transaction
     bool isValidated; // For restaurant discount
 
+    // --- Position on the floor (same 10-per-row grid the dashboard draws) ---
+    int aisle; // row on the floor, 0 = row nearest the lift
+    int bay;   // position along the aisle, 0 = next to the lift
+
     ParkingSlot(int id, int f, string constraint) : slotId(id), floor(f), vehicleTypeConstraint(constraint),
                                                     isOccupied(false), isReserved(false), isValet(false),
-                                                    prePaidExitTime(0), isValidated(false), entryTime(0) {}
+                                                    prePaidExitTime(0), prePaidFee(0), isValidated(false), entryTime(0),
+                                                    aisle(0), bay(0) {}
 
-    void occupy(const string &plate, const string &name, const string &type, bool valet, time_t exitTime = 0)
+    void occupy(const string &plate, const string &name, const string &type, bool valet, time_t exitTime, time_t now)
     {
         plateNumber = plate;
         driverName = name;
         vehicleType = type;
-        entryTime = time(nullptr);
+        entryTime = now;
         isValet = valet;
         prePaidExitTime = exitTime; // 0 for non-guests
         isOccupied = true;
@@ -89,11 +110,190 @@ struct ParkingSlot
         isReserved = false;
         isValet = false;
         prePaidExitTime = 0;
+        prePaidFee = 0;
         isValidated = false;
         entryTime = 0;
     }
 };
 
+// --- Building Layout ---
+struct FloorPlan
+{
+    int floor;
+    string constraint;
+    int slots;
+};
+
+// --- Time Source ---
+// The engine reads the time only through a Clock, so the simulator can run it on virtual time
+class Clock
+{
+public:
+    virtual ~Clock() {}
+    virtual time_t now() const = 0;
+};
+
+class SystemClock : public Clock
+{
+public:
+    time_t now() const { return time(nullptr); }
+};
+
+// Moved only by its owner; the simulator sets it to each event's time before calling the engine
+class VirtualClock : public Clock
+{
+private:
+    time_t current;
+
+public:
+    explicit VirtualClock(time_t start) : current(start) {}
+    time_t now() const { return current; }
+    void set(time_t t) { current = t; }
+};
+
+// --- Slot Selection Strategies (which free slot inside one constraint class) ---
+const int SLOTS_PER_AISLE = 10;
+const double BAY_WIDTH_METERS = 2.5;
+const double AISLE_PITCH_METERS = 6.0;
+
+// Walking distance from a bay to the floor's lift/exit at bay 0 of aisle 0
+inline double walkingDistance(const ParkingSlot &slot)
+{
+    return slot.bay * BAY_WIDTH_METERS + slot.aisle * AISLE_PITCH_METERS;
+}
+
+// Each floor has a ramp at either end of its aisles; a car uses the nearer one
+inline int rampFor(const ParkingSlot &slot)
+{
+    return slot.bay < SLOTS_PER_AISLE / 2 ? 0 : 1;
+}
+
+// Free slots that hold a booking are "claimed" and kept apart from the rest. take()
+// hands out unclaimed slots first, in strategy order, which needs no booking check and
+// costs O(log n); claimed slots are only checked one by one once none is unclaimed.
+// Walk-ins therefore leave booked slots to their bookings while any other slot is free.
+class SlotSelector
+{
+public:
+    virtual ~SlotSelector() {}
+    // Slot became free; releaseTick grows with every release (used by LRU)
+    virtual void add(const ParkingSlot &slot, long long releaseTick) = 0;
+    virtual void remove(int slotId) = 0;
+    // The free slot gained its first booking or lost its last one; ignored if not free
+    virtual void setClaimed(int slotId, bool claimed) = 0;
+    // Removes and returns the first free slot, in strategy order, that 'accept' allows; 0 if none
+    virtual int take(const function<bool(int)> &accept) = 0;
+    virtual size_t size() const = 0;
+};
+
+// One ordered set keyed by a per-slot value fixed when the slot is freed:
+// LOWEST_ID (slot ID), NEAREST_EXIT (walking distance), LRU (release order)
+class KeyedSlotSelector : public SlotSelector
+{
+public:
+    enum Mode
+    {
+        LOWEST_ID,
+        NEAREST_EXIT,
+        LEAST_RECENTLY_USED
+    };
+
+private:
+    Mode mode;
+    set<pair<long long, int>> open;    // (key, slotId) without bookings
+    set<pair<long long, int>> claimed; // (key, slotId) with bookings
+    map<int, long long> keyOf;
+
+    int takeFrom(set<pair<long long, int>> &from, set<pair<long long, int>>::iterator it);
+
+public:
+    explicit KeyedSlotSelector(Mode m) : mode(m) {}
+    void add(const ParkingSlot &slot, long long releaseTick);
+    void remove(int slotId);
+    void setClaimed(int slotId, bool isClaimed);
+    int take(const function<bool(int)> &accept);
+    size_t size() const { return keyOf.size(); }
+};
+
+// Spreads arrivals across aisles: aisles are ordered by how many cars they were given,
+// and within an aisle the lowest slot ID goes first
+class AisleRoundRobinSelector : public SlotSelector
+{
+private:
+    struct AisleSlots
+    {
+        set<int> open;    // free slotIds without bookings
+        set<int> claimed; // free slotIds with bookings
+        bool empty() const { return open.empty() && claimed.empty(); }
+    };
+
+    map<int, AisleSlots> freeByAisle; // aisleKey -> free slots
+    set<pair<long long, int>> aisles; // (picks, aisleKey) for aisles with a free slot
+    map<int, long long> picks;        // aisleKey -> cars assigned so far
+    map<int, int> aisleOfSlot;
+
+    void reorder(int aisleKey, long long oldPicks);
+    int takeFrom(int aisleKey, set<int> &from, set<int>::iterator it);
+
+public:
+    void add(const ParkingSlot &slot, long long releaseTick);
+    void remove(int slotId);
+    void setClaimed(int slotId, bool isClaimed);
+    int take(const function<bool(int)> &accept);
+    size_t size() const { return aisleOfSlot.size(); }
+};
+
+// --- Allocation Policy (which constraint classes a vehicle may use) ---
+// An overflow rule lets vehicles of one constraint class spill into another
+// during a daily hour window, as long as the target keeps its headroom free.
+struct OverflowRule
+{
+    string fromConstraint;
+    string toConstraint;
+    int fromHour;        // 0-23, inclusive
+    int toHour;          // 0-23, exclusive; fromHour == toHour means all day
+    int headroomPercent; // share of the target's slots that must stay free
+
+    bool appliesAt(int hour) const
+    {
+        if (fromHour == toHour)
+            return true;
+        if (fromHour < toHour)
+            return hour >= fromHour && hour < toHour;
+        return hour >= fromHour || hour < toHour; // window wraps midnight
+    }
+};
+
+class AllocationPolicy
+{
+public:
+    virtual ~AllocationPolicy() {}
+    // Constraint classes to try, in order, for a vehicle whose home class is 'primary'
+    virtual vector<string> candidates(const string &primary, time_t now) = 0;
+    // Asked just before 'target' is tried, so only once every earlier candidate had no slot
+    virtual bool admits(const string & /*primary*/, const string & /*target*/, time_t /*now*/,
+                        const map<string, int> & /*freeSlots*/, const map<string, int> & /*totalSlots*/) { return true; }
+    virtual string describe() const = 0;
+};
+
+// Default policy: home class first, then any overflow rule that is open and leaves headroom.
+// No rules by default; a site loads its own (see overflow-rules.example.csv).
+class OverflowPolicy : public AllocationPolicy
+{
+private:
+    vector<OverflowRule> rules;
+
+public:
+    int headroomRefusals = 0; // overflows refused for headroom after the home class was full
+
+    void addRule(const OverflowRule &rule) { rules.push_back(rule); }
+    void clearRules() { rules.clear(); }
+    vector<string> candidates(const string &primary, time_t now);
+    bool admits(const string &primary, const string &target, time_t now,
+                const map<string, int> &freeSlots, const map<string, int> &totalSlots);
+    string describe() const;
+};
+
 class AdvancedParkingSystem
 {
 private:
@@ -101,16 +301,51 @@ private:
     map<string, int> plateToSlotMap; // Links plate -> slotId
 
     // --- Databases ---
-    map<string, UserProfile> userDatabase; // Links plate -> UserProfile
+    ProfileStore userDatabase; // Links plate -> UserProfile; memory-mapped when given a path
+    static const size_t USER_LIST_LIMIT = 1000; // profiles per GET_USERS reply
+    static const int SIMULATION_MAX_HOURS = 8760;            // one year of strategy comparison
+    static const long long SIMULATION_MAX_ARRIVALS = 2000000; // bounds the trace held in memory
 
     // --- Slot/Queue Management ---
-    map<string, priority_queue<int, vector<int>, greater<int>>> typeToAvailableSlots;
+    map<string, shared_ptr<SlotSelector>> typeToAvailableSlots; // free slots per constraint, in strategy order
+    string selectionStrategy = "LOWEST_ID";
+    long long releaseTick = 0;
     map<string, queue<Vehicle>> typeToWaitingQueue;
 
+    // --- Reservations ---
+    // Per-slot interval index: startTime -> booking. Bookings on one slot never overlap,
+    // so both starts and ends are sorted and an overlap check is one map lookup.
+    map<int, map<time_t, Reservation>> slotReservations;
+    // Per-constraint interval index over the same bookings, ordered by end time. A booking
+    // overlaps [start, end) iff it ends after start and starts before end; no booking is
+    // longer than the class's longest, so the overlapping ones are one run of this order.
+    struct BookingWindows
+    {
+        multimap<time_t, int> byEnd; // endTime -> reservationId
+        multiset<time_t> lengths;    // endTime - startTime of each booking, longest last
+    };
+    map<string, BookingWindows> constraintBookings;
+    map<string, vector<int>> constraintToSlots;       // slotIds per constraint, ascending
+    map<int, pair<int, time_t>> reservationIndex;      // reservationId -> (slotId, startTime)
+    multimap<string, int> plateToReservations;         // plate -> reservationIds
+    int nextReservationId = 1;
+    const int RESERVATION_GRACE_SECONDS = 15 * 60;     // early arrival allowance
+    const int NON_GUEST_LOOKAHEAD_SECONDS = 3600;      // booking horizon checked for open-ended stays
+    string reservationPath; // <profile store>.reservations; empty keeps bookings in memory
+
+    // --- Allocation ---
+    map<string, int> freeSlotCount;  // constraint -> free slots, for O(1) headroom checks
+    map<string, int> totalSlotCount; // constraint -> slots
+    OverflowPolicy overflowPolicy;
+    AllocationPolicy *allocationPolicy = &overflowPolicy;
+    int overflowPlacements = 0;              // vehicles parked that would otherwise have queued
+    map<string, int> overflowPlacementsByRoute; // "FROM>TO" -> count
+
     // --- Analytics ---
     vector<pair<time_t, double>> revenueLogs;
     vector<time_t> entryLogs;
     map<UserType, int> occupancyByUserType;
+    TransactionLog *transactionLog = nullptr; // completed stays, when the host keeps a log
 
     // --- Billing Constants ---
     const double BIKE_RATE = 20.0;
@@ -118,24 +353,64 @@ private:
     const double TRUCK_RATE = 100.0;
     const double OVERSTAY_PENALTY_RATE = 2.0; // 2x normal rate for overstay
     const double VALET_FEE = 150.0;
-    const int VALIDATION_HOURS = 2; // 2 hours free for restaurant
+    int validationHours = 2; // hours free for restaurant validation
+
+    // --- Time ---
+    SystemClock systemClock;
+    const Clock *clock = &systemClock;
 
-    void initializeSlots();
-    string calculateFee(ParkingSlot &slot);
+    void initializeSlots(const vector<FloorPlan> &layout);
+    string calculateFee(ParkingSlot &slot, double &charged);
     Vehicle findNextWaitingVehicle(const string &constraint);
+    string resolveConstraint(const UserProfile &profile, const string &type);
+
+    // Reservation helpers
+    bool isSlotFreeForWindow(int slotId, time_t start, time_t end, const string &plate);
+    const Reservation *activeReservation(int slotId, time_t now);
+    int takeReservedSlotFor(const string &plate, time_t now);
+    int takeFreeSlot(const string &constraint, time_t start, time_t end, const string &plate);
+    void addReservation(const Reservation &booking);
+    void eraseReservation(int reservationId);
+    void purgeExpiredReservations(int slotId, time_t now);
+    void purgeExpiredReservations(const string &constraint, time_t now);
+    set<int> slotsBookedDuring(const string &constraint, time_t start, time_t end);
+    void loadReservations();
+    bool saveReservations() const;
+
+    static shared_ptr<SlotSelector> makeSelector(const string &strategy);
+    void releaseSlot(const ParkingSlot &slot);
 
 public:
-    AdvancedParkingSystem(); // Constructor
+    // Empty profilePath keeps profiles in memory for this run only
+    explicit AdvancedParkingSystem(const vector<FloorPlan> &layout = defaultLayout(), const string &profilePath = "");
+    static vector<FloorPlan> defaultLayout();
+    void setClock(const Clock *source);
+    void setTransactionLog(TransactionLog *log);
+    string setValidationHours(int hours);
     string registerUser(const string &plate, const string &name, int type, const string &billingId);
+    string setBlocked(const string &plate, bool blocked);
+    string getUser(const string &plate);
     string parkVehicle(const string &plate, const string &type, const string &name, int duration, bool valet);
     string removeVehicle(const string &plate);
     string applyValidation(const string &plate);
-    string reserveSlot(const string &plate, const string &type, const string &name); // Placeholder
+    string reserveSlot(const string &plate, const string &type, const string &name, time_t start, time_t end);
+    string cancelReservation(int reservationId);
+    string checkAvailability(const string &plate, const string &type, time_t start, time_t end);
+    void setAllocationPolicy(AllocationPolicy *policy);
+    string addOverflowRule(const string &from, const string &to, int fromHour, int toHour, int headroomPercent);
+    string clearOverflowRules();
+    string getOverflowStats();
+    string setSelectionStrategy(const string &strategy);
+    string getSelectionStrategy() const { return selectionStrategy; }
+    string simulateStrategies(const string &constraint, int hours, int occupancyPercent, int meanStayMinutes, unsigned seed);
     string findMyCar(const string &plate);
     string getParkingStatus();
     string getAnalyticsData();
     string getUserList();
     string getSlotDetails(int slotId);
+    string getBillingData();
+    string getOccupancyByConstraint();
+    double getTotalRevenue() const;
 };
 
 #endif // PARKING_SYSTEM_H
\ No newline at end of file
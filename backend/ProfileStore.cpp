@@ -0,0 +1,431 @@
+#include "ParkingSystem.h"
+#include <cstdio>
+#include <cstring>
+#include <ctime>
+
+#ifdef _WIN32
+#define NOMINMAX
+#include <windows.h>
+#else
+#include <fcntl.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
+#include <unistd.h>
+#endif
+
+static const char STORE_MAGIC[8] = {'P', 'R', 'O', 'F', 'I', 'L', 'E', 'S'};
+static const uint32_t STORE_VERSION = 1;
+static const uint64_t INITIAL_CAPACITY = 1024;
+static const uint64_t MAX_LOAD_PERCENT = 70;
+
+ProfileStore::ProfileStore(const string &path) : filePath(path), logPath(path.empty() ? "" : path + ".log")
+{
+    static_assert(sizeof(Header) == 64, "header layout is part of the file format");
+    static_assert(sizeof(Record) == 128, "record layout is part of the file format");
+
+    size_t initialBytes = sizeof(Header) + INITIAL_CAPACITY * sizeof(Record);
+    if (filePath.empty())
+    {
+        allocate(block, initialBytes);
+        initialize(block, INITIAL_CAPACITY);
+        return;
+    }
+    lock.reset(new FileLock(filePath + ".lock"));
+    if (!lock->held())
+        throw runtime_error("Profile store " + filePath + " is in use by another engine");
+    FILE *existing = fopen(filePath.c_str(), "rb");
+    if (existing != nullptr)
+    {
+        fclose(existing);
+        if (mapFile(block, filePath, 0) && valid(block))
+            return;
+        // Unreadable store: keep it for inspection and start an empty one
+        release(block);
+        string aside = filePath + ".corrupt";
+        std::remove(aside.c_str());
+        std::rename(filePath.c_str(), aside.c_str());
+        note("Profile store " + filePath + " is not valid; moved to " + aside);
+    }
+    if (mapFile(block, filePath, initialBytes))
+    {
+        initialize(block, INITIAL_CAPACITY);
+        return;
+    }
+    note("Cannot map profile store " + filePath + "; keeping profiles in memory");
+    filePath.clear();
+    allocate(block, initialBytes);
+    initialize(block, INITIAL_CAPACITY);
+}
+
+ProfileStore::~ProfileStore()
+{
+    release(block);
+}
+
+// --- Lookup ---
+uint32_t ProfileStore::hashOf(const string &plate)
+{
+    uint32_t h = 2166136261u; // FNV-1a
+    for (size_t i = 0; i < plate.size(); ++i)
+    {
+        h ^= (unsigned char)plate[i];
+        h *= 16777619u;
+    }
+    // FNV's low bits follow the last characters, and plates differ mostly there; the
+    // murmur3 finalizer spreads every input bit over the bits the table mask keeps
+    h ^= h >> 16;
+    h *= 0x85ebca6bu;
+    h ^= h >> 13;
+    h *= 0xc2b2ae35u;
+    h ^= h >> 16;
+    return h;
+}
+
+long long ProfileStore::locate(const string &plate, uint32_t hash) const
+{
+    if (plate.empty() || plate.size() > MAX_PLATE)
+        return -1;
+    uint64_t mask = block.header()->capacity - 1;
+    const Record *table = block.records();
+    for (uint64_t i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, ++probes)
+    {
+        const Record &r = table[i];
+        if (r.state == EMPTY)
+            return -1;
+        if (r.state == LIVE && r.hash == hash && plate.compare(r.plate) == 0)
+            return (long long)i;
+    }
+    return -1;
+}
+
+bool ProfileStore::find(const string &plate, UserProfile &out, uint8_t *flags) const
+{
+    long long i = locate(plate, hashOf(plate));
+    if (i < 0)
+        return false;
+    const Record &r = block.records()[i];
+    out = UserProfile(r.plate, r.name, (UserType)r.type, r.billingId);
+    if (flags != nullptr)
+        *flags = r.flags;
+    return true;
+}
+
+bool ProfileStore::contains(const string &plate) const
+{
+    return locate(plate, hashOf(plate)) >= 0;
+}
+
+void ProfileStore::forEach(const function<bool(const UserProfile &, uint8_t)> &visit) const
+{
+    const Record *table = block.records();
+    for (uint64_t i = 0; i < block.header()->capacity; ++i)
+    {
+        if (table[i].state != LIVE)
+            continue;
+        if (!visit(UserProfile(table[i].plate, table[i].name, (UserType)table[i].type, table[i].billingId), table[i].flags))
+            return;
+    }
+}
+
+// --- Updates ---
+bool ProfileStore::put(const UserProfile &profile, uint8_t flags)
+{
+    const string &plate = profile.plateNumber;
+    if (plate.empty() || plate.size() > MAX_PLATE)
+        return false;
+    uint32_t hash = hashOf(plate);
+    long long found = locate(plate, hash);
+    if (found < 0 && (block.header()->occupied + 1) * 100 > block.header()->capacity * MAX_LOAD_PERCENT)
+    {
+        if (!grow())
+            return false;
+    }
+
+    Record *target;
+    if (found >= 0)
+    {
+        target = &block.records()[found];
+    }
+    else
+    {
+        // First tombstone or empty record on the probe path
+        uint64_t mask = block.header()->capacity - 1;
+        uint64_t i = hash & mask;
+        while (block.records()[i].state == LIVE)
+            i = (i + 1) & mask;
+        target = &block.records()[i];
+        if (target->state == EMPTY)
+            block.header()->occupied++;
+        block.header()->count++;
+    }
+    target->type = (uint8_t)profile.type;
+    target->flags = flags;
+    target->hash = hash;
+    copyField(target->plate, sizeof(target->plate), plate);
+    copyField(target->name, sizeof(target->name), profile.driverName);
+    copyField(target->billingId, sizeof(target->billingId), profile.billingId);
+    target->state = LIVE; // last, so a half-written record is never live
+    return true;
+}
+
+bool ProfileStore::setFlags(const string &plate, uint8_t flags)
+{
+    long long i = locate(plate, hashOf(plate));
+    if (i < 0)
+        return false;
+    block.records()[i].flags = flags;
+    return true;
+}
+
+bool ProfileStore::remove(const string &plate)
+{
+    long long i = locate(plate, hashOf(plate));
+    if (i < 0)
+        return false;
+    block.records()[i].state = TOMBSTONE;
+    block.header()->count--;
+    return true;
+}
+
+// Moves live records into a table twice the size; tombstones are dropped
+bool ProfileStore::grow()
+{
+    return rebuild(block.header()->capacity * 2);
+}
+
+bool ProfileStore::rebuild(uint64_t capacity)
+{
+    size_t bytes = sizeof(Header) + capacity * sizeof(Record);
+    Block fresh;
+    string tmpPath = filePath + ".rebuild";
+    if (filePath.empty())
+    {
+        allocate(fresh, bytes);
+    }
+    else
+    {
+        std::remove(tmpPath.c_str());
+        if (!mapFile(fresh, tmpPath, bytes))
+        {
+            note("Cannot rebuild profile store " + filePath);
+            return false;
+        }
+    }
+    initialize(fresh, capacity);
+    const Record *table = block.records();
+    for (uint64_t i = 0; i < block.header()->capacity; ++i)
+    {
+        if (table[i].state == LIVE)
+            insertRecord(fresh, table[i]);
+    }
+
+    if (filePath.empty())
+    {
+        release(block);
+        block.heap.swap(fresh.heap);
+        block.base = block.heap.data();
+        block.bytes = bytes;
+        return true;
+    }
+    release(fresh);
+    release(block);
+    bool moved = replaceFile(tmpPath, filePath);
+    if (moved && mapFile(block, filePath, 0) && valid(block))
+        return true;
+    release(block);
+    if (!moved && mapFile(block, filePath, 0) && valid(block))
+    {
+        note("Cannot replace profile store " + filePath + " with its rebuilt table");
+        std::remove(tmpPath.c_str());
+        return false; // the old table is still intact
+    }
+
+    // The store file (rebuilt or not) cannot be mapped again: carry on with its table in memory
+    release(block);
+    std::remove(tmpPath.c_str()); // still there if the rename failed
+    string path = filePath;
+    filePath.clear();
+    if (!readFile(block, path))
+    {
+        note("Profile store " + path + " could not be reopened or read after rebuilding; starting an empty table for this run");
+        allocate(block, sizeof(Header) + INITIAL_CAPACITY * sizeof(Record));
+        initialize(block, INITIAL_CAPACITY);
+        return true;
+    }
+    note("Profile store " + path + " could not be reopened after rebuilding; keeping profiles in memory for this run");
+    return moved || rebuild(capacity);
+}
+
+// Copies a whole store file into a heap block, for when it cannot be mapped
+bool ProfileStore::readFile(Block &b, const string &path)
+{
+    FILE *in = fopen(path.c_str(), "rb");
+    if (in == nullptr)
+        return false;
+    bool ok = fseek(in, 0, SEEK_END) == 0;
+    long size = ok ? ftell(in) : 0;
+    ok = size > 0 && fseek(in, 0, SEEK_SET) == 0;
+    if (ok)
+    {
+        allocate(b, (size_t)size);
+        ok = fread(b.base, 1, (size_t)size, in) == (size_t)size && valid(b);
+    }
+    fclose(in);
+    if (!ok)
+        release(b);
+    return ok;
+}
+
+bool ProfileStore::replaceFile(const string &tmpPath, const string &path)
+{
+#ifdef _WIN32
+    return MoveFileExA(tmpPath.c_str(), path.c_str(), MOVEFILE_REPLACE_EXISTING) != 0;
+#else
+    return std::rename(tmpPath.c_str(), path.c_str()) == 0;
+#endif
+}
+
+void ProfileStore::note(const string &message) const
+{
+    FILE *out = logPath.empty() ? nullptr : fopen(logPath.c_str(), "a");
+    if (out == nullptr)
+        return;
+    time_t now = time(nullptr);
+    char stamp[24];
+    strftime(stamp, sizeof(stamp), "%Y-%m-%d %H:%M:%S", localtime(&now));
+    fprintf(out, "%s %s\n", stamp, message.c_str());
+    fclose(out);
+}
+
+void ProfileStore::insertRecord(Block &b, const Record &r)
+{
+    uint64_t mask = b.header()->capacity - 1;
+    uint64_t i = r.hash & mask;
+    while (b.records()[i].state != EMPTY)
+        i = (i + 1) & mask;
+    b.records()[i] = r;
+    b.header()->count++;
+    b.header()->occupied++;
+}
+
+void ProfileStore::copyField(char *dest, size_t size, const string &value)
+{
+    size_t n = min(value.size(), size - 1); // longer names and billing IDs are cut
+    memcpy(dest, value.data(), n);
+    memset(dest + n, 0, size - n);
+}
+
+// --- Backing memory ---
+void ProfileStore::initialize(Block &b, uint64_t capacity)
+{
+    memset(b.base, 0, sizeof(Header) + capacity * sizeof(Record));
+    Header *h = b.header();
+    memcpy(h->magic, STORE_MAGIC, sizeof(STORE_MAGIC));
+    h->version = STORE_VERSION;
+    h->recordSize = sizeof(Record);
+    h->capacity = capacity;
+}
+
+bool ProfileStore::valid(const Block &b)
+{
+    if (b.bytes < sizeof(Header))
+        return false;
+    const Header *h = b.header();
+    return memcmp(h->magic, STORE_MAGIC, sizeof(STORE_MAGIC)) == 0 && h->version == STORE_VERSION &&
+           h->recordSize == sizeof(Record) && h->capacity > 0 && (h->capacity & (h->capacity - 1)) == 0 &&
+           b.bytes >= sizeof(Header) + h->capacity * sizeof(Record) && h->count <= h->occupied && h->occupied < h->capacity;
+}
+
+void ProfileStore::allocate(Block &b, size_t bytes)
+{
+    b.heap.assign(bytes, 0);
+    b.base = b.heap.data();
+    b.bytes = bytes;
+}
+
+bool ProfileStore::mapFile(Block &b, const string &path, size_t bytes)
+{
+#ifdef _WIN32
+    HANDLE file = CreateFileA(path.c_str(), GENERIC_READ | GENERIC_WRITE, FILE_SHARE_READ, NULL, OPEN_ALWAYS,
+                              FILE_ATTRIBUTE_NORMAL, NULL);
+    if (file == INVALID_HANDLE_VALUE)
+        return false;
+    LARGE_INTEGER size;
+    if (bytes == 0)
+    {
+        if (!GetFileSizeEx(file, &size) || size.QuadPart == 0)
+        {
+            CloseHandle(file);
+            return false;
+        }
+        bytes = (size_t)size.QuadPart;
+    }
+    size.QuadPart = (LONGLONG)bytes;
+    HANDLE mapping = CreateFileMappingA(file, NULL, PAGE_READWRITE, (DWORD)(size.QuadPart >> 32), (DWORD)size.QuadPart, NULL);
+    void *view = mapping ? MapViewOfFile(mapping, FILE_MAP_ALL_ACCESS, 0, 0, bytes) : NULL;
+    if (view == NULL)
+    {
+        if (mapping)
+            CloseHandle(mapping);
+        CloseHandle(file);
+        return false;
+    }
+    b.file = file;
+    b.mapping = mapping;
+    b.base = (char *)view;
+#else
+    int fd = open(path.c_str(), O_RDWR | O_CREAT, 0644);
+    if (fd < 0)
+        return false;
+    if (bytes == 0)
+    {
+        struct stat st;
+        if (fstat(fd, &st) != 0 || st.st_size == 0)
+        {
+            close(fd);
+            return false;
+        }
+        bytes = (size_t)st.st_size;
+    }
+    else if (ftruncate(fd, (off_t)bytes) != 0)
+    {
+        close(fd);
+        return false;
+    }
+    void *view = mmap(nullptr, bytes, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+    if (view == MAP_FAILED)
+    {
+        close(fd);
+        return false;
+    }
+    b.fd = fd;
+    b.base = (char *)view;
+#endif
+    b.bytes = bytes;
+    return true;
+}
+
+void ProfileStore::release(Block &b)
+{
+    if (!b.heap.empty())
+    {
+        vector<char>().swap(b.heap);
+    }
+    else if (b.base != nullptr)
+    {
+#ifdef _WIN32
+        FlushViewOfFile(b.base, 0);
+        UnmapViewOfFile(b.base);
+        CloseHandle(b.mapping);
+        CloseHandle(b.file);
+        b.mapping = b.file = nullptr;
+#else
+        msync(b.base, b.bytes, MS_SYNC);
+        munmap(b.base, b.bytes);
+        close(b.fd);
+        b.fd = -1;
+#endif
+    }
+    b.base = nullptr;
+    b.bytes = 0;
+}
@@ -0,0 +1,130 @@
+#ifndef PROFILE_STORE_H
+#define PROFILE_STORE_H
+
+#include <cstdint>
+#include <functional>
+#include <memory>
+#include <string>
+#include <vector>
+#include "FileLock.h"
+
+using namespace std;
+
+struct UserProfile;
+
+// --- Persistent User Profile Store ---
+// Open-addressing hash table of fixed-size records, keyed by plate, kept in a
+// memory-mapped file. Opening maps the file and checks the header, so startup
+// does not depend on the number of profiles; a lookup hashes the plate and
+// probes a few adjacent 128-byte records. Profiles live outside the engine's
+// heap, and the OS pages in only the records that are used. An empty path
+// gives the same table in process memory (the simulator runs many engines).
+//
+// File: 64-byte header, then 'capacity' records (capacity a power of two).
+// Linear probing; removed records become tombstones that inserts reuse. The table
+// doubles into a new file (renamed over the old one) past 70% load; if the new file
+// cannot be mapped again, the table carries on in process memory for the run.
+// Problems are noted in <path>.log; the engine's stdout and stderr carry replies only.
+// <path>.lock is held while the store is open; a second process is refused.
+class ProfileStore
+{
+public:
+    // Record flags
+    static const uint8_t FLAG_BLOCKED = 1; // blacklisted: refused at the gate
+
+    static const size_t MAX_PLATE = 23; // bytes, excluding the terminator
+    static const size_t MAX_NAME = 55;
+    static const size_t MAX_BILLING_ID = 39;
+
+    // Throws runtime_error if another process has the file open
+    explicit ProfileStore(const string &path = "");
+    ~ProfileStore();
+    ProfileStore(const ProfileStore &) = delete; // owns a mapping
+    ProfileStore &operator=(const ProfileStore &) = delete;
+
+    bool find(const string &plate, UserProfile &out, uint8_t *flags = nullptr) const;
+    bool contains(const string &plate) const;
+    // Inserts or replaces; false if the plate is empty or too long, or the table can't grow
+    bool put(const UserProfile &profile, uint8_t flags = 0);
+    bool setFlags(const string &plate, uint8_t flags);
+    bool remove(const string &plate);
+    size_t size() const { return count(); }
+    // Visits profiles in table order; stop early by returning false
+    void forEach(const function<bool(const UserProfile &, uint8_t)> &visit) const;
+    const string &path() const { return filePath; }
+
+    // Moves tmpPath over path in one step (the rename a rebuild ends with)
+    static bool replaceFile(const string &tmpPath, const string &path);
+
+private:
+    struct Header
+    {
+        char magic[8];
+        uint32_t version;
+        uint32_t recordSize;
+        uint64_t capacity;
+        uint64_t count;     // live records
+        uint64_t occupied;  // live records + tombstones (what probing sees)
+        char reserved[24];
+    };
+
+    struct Record
+    {
+        uint8_t state; // EMPTY, LIVE, TOMBSTONE
+        uint8_t type;  // UserType
+        uint8_t flags;
+        uint8_t pad;
+        uint32_t hash;
+        char plate[MAX_PLATE + 1];
+        char name[MAX_NAME + 1];
+        char billingId[MAX_BILLING_ID + 1];
+    };
+
+    enum
+    {
+        EMPTY = 0,
+        LIVE = 1,
+        TOMBSTONE = 2
+    };
+
+    // Header + records, either a file mapping or a heap block
+    struct Block
+    {
+        char *base = nullptr;
+        size_t bytes = 0;
+        vector<char> heap;
+#ifdef _WIN32
+        void *file = nullptr;
+        void *mapping = nullptr;
+#else
+        int fd = -1;
+#endif
+        Header *header() const { return reinterpret_cast<Header *>(base); }
+        Record *records() const { return reinterpret_cast<Record *>(base + sizeof(Header)); }
+    };
+
+    string filePath;
+    string logPath; // kept when filePath falls back to memory
+    unique_ptr<FileLock> lock;
+    Block block;
+
+    uint64_t count() const { return block.base ? block.header()->count : 0; }
+
+    static uint32_t hashOf(const string &plate);
+    // Index of the live record for the plate, or -1
+    long long locate(const string &plate, uint32_t hash) const;
+    bool grow();
+    bool rebuild(uint64_t capacity); // reinserts live records into a fresh table of this capacity
+    void note(const string &message) const;
+
+    static bool mapFile(Block &b, const string &path, size_t bytes); // bytes 0 = existing length
+    static void allocate(Block &b, size_t bytes);
+    static void release(Block &b);
+    static void initialize(Block &b, uint64_t capacity);
+    static bool readFile(Block &b, const string &path); // heap copy of a store file, if valid
+    static bool valid(const Block &b);
+    static void insertRecord(Block &b, const Record &r); // no duplicate check
+    static void copyField(char *dest, size_t size, const string &value);
+};
+
+#endif // PROFILE_STORE_H
@@ -0,0 +1,710 @@
+#include "TransactionLog.h"
+#include <algorithm>
+#include <cmath>
+#include <cstring>
+#include <fstream>
+#include <map>
+#include <sstream>
+#include <stdexcept>
+
+#ifdef _WIN32
+#include <direct.h>
+#include <io.h>
+#else
+#include <dirent.h>
+#include <sys/stat.h>
+#endif
+
+static const char COLUMNAR_MAGIC[8] = {'P', 'K', 'T', 'X', 'C', 'O', 'L', '1'};
+static const char GROUP_MAGIC[4] = {'T', 'X', 'G', '1'};
+static const size_t GROUP_HEADER_BYTES = 16; // magic, rows, payload bytes, checksum
+static const size_t MAX_GROUP_PAYLOAD = 64 * 1024 * 1024;
+static const int CSV_FIELDS = 13;
+static const char *USER_TYPE_NAMES[] = {"GUEST", "RESIDENT", "HOTEL", "STAFF"};
+
+// --- Encoding ---
+static void putVarint(vector<uint8_t> &out, uint64_t v)
+{
+    while (v >= 0x80)
+    {
+        out.push_back((uint8_t)(v | 0x80));
+        v >>= 7;
+    }
+    out.push_back((uint8_t)v);
+}
+
+static void putSigned(vector<uint8_t> &out, int64_t v)
+{
+    putVarint(out, ((uint64_t)v << 1) ^ (uint64_t)(v >> 63)); // zigzag: small magnitudes stay short
+}
+
+static bool getVarint(const uint8_t *&p, const uint8_t *end, uint64_t &v)
+{
+    v = 0;
+    for (int shift = 0; shift < 64 && p < end; shift += 7)
+    {
+        uint8_t b = *p++;
+        v |= (uint64_t)(b & 0x7f) << shift;
+        if (!(b & 0x80))
+            return true;
+    }
+    return false;
+}
+
+static bool getSigned(const uint8_t *&p, const uint8_t *end, int64_t &v)
+{
+    uint64_t raw;
+    if (!getVarint(p, end, raw))
+        return false;
+    v = (int64_t)(raw >> 1) ^ -(int64_t)(raw & 1);
+    return true;
+}
+
+static void putU32(uint8_t *out, uint32_t v)
+{
+    for (int i = 0; i < 4; ++i)
+        out[i] = (uint8_t)(v >> (8 * i));
+}
+
+static uint32_t getU32(const uint8_t *in)
+{
+    return (uint32_t)in[0] | ((uint32_t)in[1] << 8) | ((uint32_t)in[2] << 16) | ((uint32_t)in[3] << 24);
+}
+
+static uint32_t checksum(const uint8_t *data, size_t size)
+{
+    uint32_t h = 2166136261u; // FNV-1a
+    for (size_t i = 0; i < size; ++i)
+    {
+        h ^= data[i];
+        h *= 16777619u;
+    }
+    return h;
+}
+
+static int64_t toPaise(double rupees)
+{
+    return (int64_t)llround(rupees * 100.0);
+}
+
+// Dictionary then one index per row; plates repeat little, account IDs and vehicle types a lot
+static void putStringColumn(vector<uint8_t> &out, const vector<Transaction> &rows, string Transaction::*field)
+{
+    map<string, uint64_t> ids;
+    vector<const string *> order;
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        const string &value = rows[i].*field;
+        if (ids.insert(make_pair(value, (uint64_t)order.size())).second)
+            order.push_back(&value);
+    }
+    putVarint(out, order.size());
+    for (size_t i = 0; i < order.size(); ++i)
+    {
+        putVarint(out, order[i]->size());
+        out.insert(out.end(), order[i]->begin(), order[i]->end());
+    }
+    for (size_t i = 0; i < rows.size(); ++i)
+        putVarint(out, ids[rows[i].*field]);
+}
+
+static bool getStringColumn(const uint8_t *&p, const uint8_t *end, vector<Transaction> &rows, string Transaction::*field)
+{
+    uint64_t size, length, id;
+    if (!getVarint(p, end, size) || size > rows.size())
+        return false;
+    vector<string> dictionary(size);
+    for (uint64_t i = 0; i < size; ++i)
+    {
+        if (!getVarint(p, end, length) || length > (uint64_t)(end - p))
+            return false;
+        dictionary[i].assign((const char *)p, length);
+        p += length;
+    }
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        if (!getVarint(p, end, id) || id >= size)
+            return false;
+        rows[i].*field = dictionary[id];
+    }
+    return true;
+}
+
+// Row group: header, then each column for all rows
+static void encodeGroup(const vector<Transaction> &rows, vector<uint8_t> &out)
+{
+    out.assign(GROUP_HEADER_BYTES, 0);
+    int64_t previousExit = 0;
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        putSigned(out, (int64_t)rows[i].exitTime - previousExit);
+        previousExit = (int64_t)rows[i].exitTime;
+    }
+    for (size_t i = 0; i < rows.size(); ++i)
+        putSigned(out, (int64_t)rows[i].exitTime - (int64_t)rows[i].entryTime);
+    for (size_t i = 0; i < rows.size(); ++i)
+        putSigned(out, rows[i].slotId);
+    for (size_t i = 0; i < rows.size(); ++i)
+        putSigned(out, rows[i].floor);
+    for (size_t i = 0; i < rows.size(); ++i)
+        out.push_back((uint8_t)((rows[i].userType & 3) | (rows[i].valet ? 4 : 0) | (rows[i].validated ? 8 : 0)));
+    for (size_t i = 0; i < rows.size(); ++i)
+        putSigned(out, toPaise(rows[i].prepaid));
+    for (size_t i = 0; i < rows.size(); ++i)
+        putSigned(out, toPaise(rows[i].exitCharge));
+    putStringColumn(out, rows, &Transaction::plate);
+    putStringColumn(out, rows, &Transaction::vehicleType);
+    putStringColumn(out, rows, &Transaction::billingId);
+
+    size_t payload = out.size() - GROUP_HEADER_BYTES;
+    memcpy(&out[0], GROUP_MAGIC, 4);
+    putU32(&out[4], (uint32_t)rows.size());
+    putU32(&out[8], (uint32_t)payload);
+    putU32(&out[12], checksum(&out[GROUP_HEADER_BYTES], payload));
+}
+
+static bool decodeGroup(const uint8_t *p, const uint8_t *end, vector<Transaction> &rows)
+{
+    int64_t v, previousExit = 0;
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        if (!getSigned(p, end, v))
+            return false;
+        previousExit += v;
+        rows[i].exitTime = (time_t)previousExit;
+    }
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        if (!getSigned(p, end, v))
+            return false;
+        rows[i].entryTime = rows[i].exitTime - (time_t)v;
+    }
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        if (!getSigned(p, end, v))
+            return false;
+        rows[i].slotId = (int)v;
+    }
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        if (!getSigned(p, end, v))
+            return false;
+        rows[i].floor = (int)v;
+    }
+    if ((size_t)(end - p) < rows.size())
+        return false;
+    for (size_t i = 0; i < rows.size(); ++i, ++p)
+    {
+        rows[i].userType = *p & 3;
+        rows[i].valet = (*p & 4) != 0;
+        rows[i].validated = (*p & 8) != 0;
+    }
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        if (!getSigned(p, end, v))
+            return false;
+        rows[i].prepaid = v / 100.0;
+    }
+    for (size_t i = 0; i < rows.size(); ++i)
+    {
+        if (!getSigned(p, end, v))
+            return false;
+        rows[i].exitCharge = v / 100.0;
+    }
+    return getStringColumn(p, end, rows, &Transaction::plate) &&
+           getStringColumn(p, end, rows, &Transaction::vehicleType) &&
+           getStringColumn(p, end, rows, &Transaction::billingId) && p == end;
+}
+
+// Reads the next row group header and payload; false at the end or on a damaged group
+static bool readGroupBytes(FILE *in, vector<uint8_t> &buffer, uint32_t &rows)
+{
+    uint8_t header[GROUP_HEADER_BYTES];
+    if (fread(header, 1, GROUP_HEADER_BYTES, in) != GROUP_HEADER_BYTES || memcmp(header, GROUP_MAGIC, 4) != 0)
+        return false;
+    rows = getU32(header + 4);
+    uint32_t payload = getU32(header + 8);
+    if (rows == 0 || rows > payload || payload > MAX_GROUP_PAYLOAD) // every row takes at least a byte
+        return false;
+    buffer.resize(payload);
+    if (payload > 0 && fread(&buffer[0], 1, payload, in) != payload)
+        return false;
+    return checksum(buffer.data(), payload) == getU32(header + 12);
+}
+
+// --- Days ---
+static struct tm localParts(time_t t)
+{
+    struct tm parts;
+#ifdef _WIN32
+    localtime_s(&parts, &t);
+#else
+    localtime_r(&t, &parts);
+#endif
+    return parts;
+}
+
+string TransactionLog::dayOf(time_t t)
+{
+    struct tm parts = localParts(t);
+    char buffer[16];
+    strftime(buffer, sizeof(buffer), "%Y-%m-%d", &parts);
+    return buffer;
+}
+
+time_t TransactionLog::parseDay(const string &day)
+{
+    struct tm parts = {};
+    if (day.size() != 10 || sscanf(day.c_str(), "%4d-%2d-%2d", &parts.tm_year, &parts.tm_mon, &parts.tm_mday) != 3)
+        return 0;
+    parts.tm_year -= 1900;
+    parts.tm_mon -= 1;
+    parts.tm_hour = 12; // noon: a day key never shifts across a DST change
+    parts.tm_isdst = -1;
+    time_t noon = mktime(&parts);
+    return (noon != (time_t)-1 && dayOf(noon) == day) ? noon : 0; // rejects 2026-02-30
+}
+
+string TransactionLog::nextDay(const string &day)
+{
+    return dayOf(parseDay(day) + 24 * 3600);
+}
+
+static string formatTimestamp(time_t t)
+{
+    struct tm parts = localParts(t);
+    char buffer[24];
+    strftime(buffer, sizeof(buffer), "%Y-%m-%d %H:%M:%S", &parts);
+    return buffer;
+}
+
+static time_t parseTimestamp(const string &text)
+{
+    struct tm parts = {};
+    if (sscanf(text.c_str(), "%4d-%2d-%2d %2d:%2d:%2d", &parts.tm_year, &parts.tm_mon, &parts.tm_mday,
+               &parts.tm_hour, &parts.tm_min, &parts.tm_sec) != 6)
+        return 0;
+    parts.tm_year -= 1900;
+    parts.tm_mon -= 1;
+    parts.tm_isdst = -1;
+    return mktime(&parts);
+}
+
+// --- CSV ---
+void TransactionLog::writeCsvHeader(FILE *out)
+{
+    fputs("exitTime,entryTime,plate,slotId,floor,vehicleType,userType,billingId,valet,validated,prepaid,exitCharge,fee\n", out);
+}
+
+void TransactionLog::writeCsvRow(FILE *out, const Transaction &t)
+{
+    fprintf(out, "%s,%s,%s,%d,%d,%s,%s,%s,%d,%d,%.2f,%.2f,%.2f\n",
+            formatTimestamp(t.exitTime).c_str(), formatTimestamp(t.entryTime).c_str(), t.plate.c_str(),
+            t.slotId, t.floor, t.vehicleType.c_str(), USER_TYPE_NAMES[t.userType & 3], t.billingId.c_str(),
+            t.valet ? 1 : 0, t.validated ? 1 : 0, t.prepaid, t.exitCharge, t.fee());
+}
+
+static bool parseCsvRow(const string &line, Transaction &t)
+{
+    vector<string> fields;
+    stringstream in(line);
+    string field;
+    while (getline(in, field, ','))
+        fields.push_back(field);
+    if ((int)fields.size() != CSV_FIELDS)
+        return false;
+    try
+    {
+        t.exitTime = parseTimestamp(fields[0]);
+        t.entryTime = parseTimestamp(fields[1]);
+        t.plate = fields[2];
+        t.slotId = stoi(fields[3]);
+        t.floor = stoi(fields[4]);
+        t.vehicleType = fields[5];
+        t.userType = 0;
+        for (int i = 0; i < 4; ++i)
+            if (fields[6] == USER_TYPE_NAMES[i])
+                t.userType = i;
+        t.billingId = fields[7];
+        t.valet = fields[8] == "1";
+        t.validated = fields[9] == "1";
+        t.prepaid = stod(fields[10]);
+        t.exitCharge = stod(fields[11]);
+    }
+    catch (const exception &)
+    {
+        return false;
+    }
+    return t.exitTime != 0;
+}
+
+// --- Transaction Log ---
+// Day keys that have a CSV segment in dir, oldest first
+static vector<string> csvDays(const string &dir)
+{
+    vector<string> days;
+#ifdef _WIN32
+    struct _finddata_t entry;
+    intptr_t handle = _findfirst((dir + "/*.csv").c_str(), &entry);
+    if (handle != -1)
+    {
+        do
+            days.push_back(string(entry.name));
+        while (_findnext(handle, &entry) == 0);
+        _findclose(handle);
+    }
+#else
+    DIR *listing = opendir(dir.c_str());
+    if (listing != nullptr)
+    {
+        while (struct dirent *entry = readdir(listing))
+            days.push_back(entry->d_name);
+        closedir(listing);
+    }
+#endif
+    vector<string> valid;
+    for (size_t i = 0; i < days.size(); ++i)
+    {
+        const string &name = days[i];
+        if (name.size() == 14 && name.compare(10, 4, ".csv") == 0 && TransactionLog::parseDay(name.substr(0, 10)) != 0)
+            valid.push_back(name.substr(0, 10)); // skips export-*.csv
+    }
+    sort(valid.begin(), valid.end());
+    return valid;
+}
+
+TransactionLog::TransactionLog(const string &directory) : dir(directory)
+{
+#ifdef _WIN32
+    _mkdir(dir.c_str());
+#else
+    mkdir(dir.c_str(), 0755);
+#endif
+    lock.reset(new FileLock(dir + "/.lock"));
+    if (!lock->held())
+        throw runtime_error("Transaction log " + dir + " is in use by another engine");
+    notes = fopen((dir + "/recovery.log").c_str(), "a");
+    pending.reserve(ROW_GROUP_ROWS);
+
+    // A crash can leave any earlier day behind, not only the one that is reopened next
+    vector<string> days = csvDays(dir);
+    for (size_t i = 0; i < days.size(); ++i)
+        reconcileDay(days[i]);
+    openDay(dayOf(time(nullptr)));
+}
+
+TransactionLog::~TransactionLog()
+{
+    closeDay();
+    if (notes != nullptr)
+        fclose(notes);
+}
+
+string TransactionLog::segmentPath(const string &day, const char *extension) const
+{
+    return dir + "/" + day + extension;
+}
+
+// The engine's stdout carries exactly one reply per command, so diagnostics go to a file
+void TransactionLog::note(const string &message)
+{
+    if (notes == nullptr)
+        return;
+    fprintf(notes, "%s %s\n", formatTimestamp(time(nullptr)).c_str(), message.c_str());
+    fflush(notes);
+}
+
+void TransactionLog::record(const Transaction &t)
+{
+    string day = dayOf(t.exitTime);
+    if (day != currentDay)
+    {
+        closeDay();
+        openDay(day);
+    }
+    if (csv != nullptr)
+    {
+        writeCsvRow(csv, t);
+        fflush(csv);
+    }
+    pending.push_back(t);
+    if (pending.size() >= ROW_GROUP_ROWS)
+        flush();
+}
+
+void TransactionLog::flush()
+{
+    if (pending.empty())
+        return;
+    if (col != nullptr)
+    {
+        encodeGroup(pending, buffer);
+        fwrite(buffer.data(), 1, buffer.size(), col);
+        fflush(col);
+    }
+    pending.clear();
+}
+
+void TransactionLog::openDay(const string &day)
+{
+    reconcileDay(day); // creates the segment files of a new day
+    currentDay = day;
+    string colPath = segmentPath(day, ".col");
+    col = fopen(colPath.c_str(), "ab");
+    if (col == nullptr)
+        note("Cannot open " + colPath + "; transactions go to CSV only");
+
+    string csvPath = segmentPath(day, ".csv");
+    csv = fopen(csvPath.c_str(), "ab");
+    if (csv == nullptr)
+        note("Cannot open " + csvPath);
+}
+
+void TransactionLog::closeDay()
+{
+    flush();
+    if (csv != nullptr)
+        fclose(csv);
+    if (col != nullptr)
+        fclose(col);
+    csv = col = nullptr;
+    currentDay.clear();
+}
+
+void TransactionLog::reconcileDay(const string &day)
+{
+    string colPath = segmentPath(day, ".col");
+    long long columnarRows = recoverColumnar(colPath);
+    recoverFromCsv(segmentPath(day, ".csv"), colPath, columnarRows);
+}
+
+long long TransactionLog::recoverColumnar(const string &path)
+{
+    FILE *in = fopen(path.c_str(), "rb");
+    if (in == nullptr)
+    {
+        FILE *out = fopen(path.c_str(), "wb");
+        if (out != nullptr)
+        {
+            fwrite(COLUMNAR_MAGIC, 1, sizeof(COLUMNAR_MAGIC), out);
+            fclose(out);
+        }
+        return 0;
+    }
+    char magic[sizeof(COLUMNAR_MAGIC)];
+    bool valid = fread(magic, 1, sizeof(magic), in) == sizeof(magic) && memcmp(magic, COLUMNAR_MAGIC, sizeof(magic)) == 0;
+    long long rows = 0;
+    long goodBytes = (long)sizeof(COLUMNAR_MAGIC);
+    uint32_t groupRows;
+    while (valid && readGroupBytes(in, buffer, groupRows))
+    {
+        rows += groupRows;
+        goodBytes = ftell(in);
+    }
+    fseek(in, 0, SEEK_END);
+    long fileBytes = ftell(in);
+    if (valid && fileBytes == goodBytes)
+    {
+        fclose(in);
+        return rows;
+    }
+
+    // Keep the valid prefix (an empty segment if even the header is wrong)
+    string repaired = path + ".repair";
+    FILE *out = fopen(repaired.c_str(), "wb");
+    if (out == nullptr)
+    {
+        fclose(in);
+        return rows;
+    }
+    fwrite(COLUMNAR_MAGIC, 1, sizeof(COLUMNAR_MAGIC), out);
+    if (valid)
+    {
+        fseek(in, (long)sizeof(COLUMNAR_MAGIC), SEEK_SET);
+        vector<char> chunk(64 * 1024);
+        for (long left = goodBytes - (long)sizeof(COLUMNAR_MAGIC); left > 0;)
+        {
+            size_t n = fread(&chunk[0], 1, (size_t)min(left, (long)chunk.size()), in);
+            if (n == 0)
+                break;
+            fwrite(&chunk[0], 1, n, out);
+            left -= (long)n;
+        }
+    }
+    fclose(in);
+    fclose(out);
+    std::remove(path.c_str());
+    std::rename(repaired.c_str(), path.c_str());
+    note("Transaction segment " + path + ": dropped " + to_string(fileBytes - goodBytes) + " damaged bytes");
+    return valid ? rows : 0;
+}
+
+// Appends the CSV lines after the first skipRows to the day's columnar file
+void TransactionLog::recoverFromCsv(const string &csvPath, const string &colPath, long long skipRows)
+{
+    ifstream in(csvPath.c_str());
+    if (!in)
+    {
+        FILE *out = fopen(csvPath.c_str(), "wb");
+        if (out != nullptr)
+        {
+            writeCsvHeader(out);
+            fclose(out);
+        }
+        return;
+    }
+    FILE *out = nullptr;
+    vector<Transaction> rows;
+    string line;
+    getline(in, line); // header
+    long long row = 0, recovered = 0;
+    for (bool more = true; more;)
+    {
+        more = (bool)getline(in, line);
+        if (more)
+        {
+            if (line.empty() || row++ < skipRows)
+                continue;
+            Transaction t;
+            if (!parseCsvRow(line, t))
+            {
+                note("Malformed transaction line in " + csvPath + ": " + line);
+                continue;
+            }
+            rows.push_back(t);
+        }
+        if (rows.size() >= ROW_GROUP_ROWS || (!more && !rows.empty()))
+        {
+            if (out == nullptr && (out = fopen(colPath.c_str(), "ab")) == nullptr)
+            {
+                note("Cannot open " + colPath + " to recover transactions");
+                return;
+            }
+            encodeGroup(rows, buffer);
+            fwrite(buffer.data(), 1, buffer.size(), out);
+            recovered += (long long)rows.size();
+            rows.clear();
+        }
+    }
+    if (out != nullptr)
+        fclose(out);
+    if (recovered > 0)
+        note("Recovered " + to_string(recovered) + " transactions from " + csvPath);
+}
+
+bool TransactionLog::exportRange(const string &directory, const string &fromDay, const string &toDay, const string &outPath,
+                                 ExportSummary &summary, string &error)
+{
+    if (parseDay(fromDay) == 0 || parseDay(toDay) == 0)
+    {
+        error = "Dates must be YYYY-MM-DD.";
+        return false;
+    }
+    if (toDay < fromDay)
+    {
+        error = "End date is before start date.";
+        return false;
+    }
+    FILE *out = fopen(outPath.c_str(), "wb");
+    if (out == nullptr)
+    {
+        error = "Cannot write " + outPath + ".";
+        return false;
+    }
+    writeCsvHeader(out);
+    summary = ExportSummary();
+    for (string day = fromDay; day <= toDay; day = nextDay(day))
+    {
+        string base = directory + "/" + day;
+        TransactionReader reader(base + ".col", base + ".csv");
+        if (reader.isDamaged())
+            fprintf(stderr, "%s.col is not a transaction segment; reading the CSV instead\n", base.c_str());
+        Transaction t;
+        bool any = false;
+        while (reader.next(t))
+        {
+            writeCsvRow(out, t);
+            summary.rows++;
+            summary.total += t.fee();
+            any = true;
+        }
+        if (any)
+            summary.segments++;
+    }
+    bool written = fclose(out) == 0;
+    if (!written)
+        error = "Cannot write " + outPath + ".";
+    return written;
+}
+
+// --- Transaction Reader ---
+TransactionReader::TransactionReader(const string &path, const string &csvPath) : csvPath(csvPath)
+{
+    file = fopen(path.c_str(), "rb");
+    if (file == nullptr)
+        return;
+    char magic[sizeof(COLUMNAR_MAGIC)];
+    if (fread(magic, 1, sizeof(magic), file) != sizeof(magic) || memcmp(magic, COLUMNAR_MAGIC, sizeof(magic)) != 0)
+    {
+        fclose(file);
+        file = nullptr;
+        damaged = true;
+    }
+}
+
+TransactionReader::~TransactionReader()
+{
+    if (file != nullptr)
+        fclose(file);
+}
+
+bool TransactionReader::next(Transaction &out)
+{
+    if (tail == nullptr && (position < group.size() || readGroup()))
+    {
+        out = group[position++];
+        return true;
+    }
+    return readTail(out);
+}
+
+// CSV lines after the first columnarRows, as reconcileDay would append them
+bool TransactionReader::readTail(Transaction &out)
+{
+    if (csvPath.empty())
+        return false;
+    string line;
+    if (tail == nullptr)
+    {
+        tail.reset(new ifstream(csvPath.c_str()));
+        getline(*tail, line); // header
+        for (long long skipped = 0; skipped < columnarRows && getline(*tail, line);)
+            if (!line.empty())
+                skipped++;
+    }
+    while (getline(*tail, line))
+    {
+        if (!line.empty() && parseCsvRow(line, out)) // a line still being written does not parse
+        {
+            tailRows++;
+            return true;
+        }
+    }
+    return false;
+}
+
+bool TransactionReader::readGroup()
+{
+    uint32_t rows;
+    if (file == nullptr || !readGroupBytes(file, buffer, rows))
+        return false;
+    group.assign(rows, Transaction());
+    position = 0;
+    if (!decodeGroup(buffer.data(), buffer.data() + buffer.size(), group))
+    {
+        group.clear();
+        return false;
+    }
+    columnarRows += rows;
+    return true;
+}
@@ -0,0 +1,143 @@
+#ifndef TRANSACTION_LOG_H
+#define TRANSACTION_LOG_H
+
+#include <cstdint>
+#include <cstdio>
+#include <ctime>
+#include <fstream>
+#include <memory>
+#include <string>
+#include <vector>
+#include "FileLock.h"
+
+using namespace std;
+
+// --- Completed Transaction ---
+// One vehicle's stay, recorded when it leaves. Amounts are in rupees; the columnar
+// file keeps them as whole paise.
+struct Transaction
+{
+    time_t entryTime = 0;
+    time_t exitTime = 0;
+    string plate;
+    int slotId = 0;
+    int floor = 0;
+    string vehicleType;
+    int userType = 0; // UserType
+    string billingId;
+    bool valet = false;
+    bool validated = false;
+    double prepaid = 0;    // paid at the gate on entry (guests)
+    double exitCharge = 0; // billed to the account or due as overstay at exit
+
+    double fee() const { return prepaid + exitCharge; }
+};
+
+// --- Transaction Log ---
+// Appends every completed transaction to one segment per local day (by exit time),
+// written twice:
+//   <dir>/YYYY-MM-DD.csv  one line per transaction, flushed as it is written
+//   <dir>/YYYY-MM-DD.col  columnar row groups of up to ROW_GROUP_ROWS transactions
+// Only the row group being filled is held in memory, so memory does not grow with
+// volume. Each column in a row group is encoded on its own: times as varint deltas,
+// amounts as varint paise, and plate / billing ID / vehicle type as a per-group
+// dictionary plus varint indexes. A day of exits is a few bytes per transaction.
+//
+// The pending row group is written when full, at the day rollover and on
+// shutdown; until then readers pick those rows up from the CSV. If the engine is
+// killed before that, the constructor reconciles every day in the directory: a torn
+// row group at the end of a columnar file (bad length or checksum) is cut off, then
+// the CSV lines it is missing are appended as new row groups. This runs before the engine reads its first command,
+// and notes go to <dir>/recovery.log, never to the engine's stdout or stderr.
+// <dir>/.lock is held while the log is open, so two engines never append to the
+// same segments.
+class TransactionLog
+{
+public:
+    static const size_t ROW_GROUP_ROWS = 4096;
+
+    struct ExportSummary
+    {
+        long long rows = 0;
+        double total = 0;
+        int segments = 0; // days with at least one transaction in range
+    };
+
+    // Throws runtime_error if another process has the directory open
+    explicit TransactionLog(const string &directory);
+    ~TransactionLog();
+    TransactionLog(const TransactionLog &) = delete; // owns open segment files
+    TransactionLog &operator=(const TransactionLog &) = delete;
+
+    void record(const Transaction &t);
+    void flush(); // writes the pending row group
+
+    // Streams transactions of directory that left on local days fromDay..toDay (YYYY-MM-DD,
+    // inclusive) to a CSV file, one row group at a time. Reads segments plus their CSV tails,
+    // so it needs no running engine's cooperation (parking_invoice --export).
+    static bool exportRange(const string &directory, const string &fromDay, const string &toDay, const string &outPath,
+                            ExportSummary &summary, string &error);
+
+    const string &directory() const { return dir; }
+    string segmentPath(const string &day, const char *extension) const;
+
+    // Local day key (YYYY-MM-DD) of a time; parseDay gives noon of a day key, 0 if malformed
+    static string dayOf(time_t t);
+    static time_t parseDay(const string &day);
+    static string nextDay(const string &day);
+
+    static void writeCsvHeader(FILE *out);
+    static void writeCsvRow(FILE *out, const Transaction &t);
+
+private:
+    string dir;
+    unique_ptr<FileLock> lock;
+    string currentDay;
+    FILE *csv = nullptr;
+    FILE *col = nullptr;
+    FILE *notes = nullptr; // recovery.log
+    vector<Transaction> pending;
+    vector<uint8_t> buffer; // encoded row group, reused
+
+    void note(const string &message);
+    void openDay(const string &day);
+    void closeDay();
+    void reconcileDay(const string &day);            // brings a day's columnar file level with its CSV
+    long long recoverColumnar(const string &path);   // rows in valid row groups; cuts off a torn tail
+    void recoverFromCsv(const string &csvPath, const string &colPath, long long skipRows);
+};
+
+// --- Transaction Reader ---
+// Reads one columnar segment forward, decoding a single row group at a time. Given the
+// day's CSV as well, it goes on with the CSV lines past the segment's row count once the
+// segment ends: those are the open day's pending exits (or a torn tail), which a running
+// engine has not written as a row group yet.
+class TransactionReader
+{
+public:
+    explicit TransactionReader(const string &path, const string &csvPath = "");
+    ~TransactionReader();
+    TransactionReader(const TransactionReader &) = delete;
+    TransactionReader &operator=(const TransactionReader &) = delete;
+
+    bool isOpen() const { return file != nullptr; }
+    bool isDamaged() const { return damaged; } // the file exists but is not a transaction segment
+    bool next(Transaction &out); // false at the end of the segment (and CSV tail) or at a damaged row group
+    long long csvRows() const { return tailRows; } // rows read from the CSV tail so far
+
+private:
+    FILE *file = nullptr;
+    vector<uint8_t> buffer;
+    vector<Transaction> group;
+    size_t position = 0;
+    bool damaged = false;
+    string csvPath;
+    unique_ptr<ifstream> tail; // open once the segment is exhausted
+    long long columnarRows = 0;
+    long long tailRows = 0;
+
+    bool readGroup();
+    bool readTail(Transaction &out);
+};
+
+#endif // TRANSACTION_LOG_H
@@ -0,0 +1,526 @@
+// Monthly invoicing by billing ID.
+//
+// Groups every logged transaction of a period by UserProfile.billingId ("Apt 5B",
+// "Room 301") into one statement line per account. Reads the columnar day segments
+// that TransactionLog writes, plus any CSV lines past a segment's row count: a running
+// engine holds the open day's exits in memory until a row group fills, so they are only
+// in the CSV so far. Fork-join: each day segment is a task, workers take
+// tasks off a shared counter and fold each segment's per-account partial sums into
+// their own accumulator, and the accumulators are merged once all workers have
+// joined. Nothing is shared while workers run.
+//
+// Incremental: each segment's partial sums are cached next to the log, keyed by the
+// size and modification time of the day's segment and CSV, and the period's totals
+// are kept with the fingerprints they were built from. A re-run only rescans segments that changed
+// since (a late transaction appends to its day) and applies new - old partial sums
+// to the stored totals, so only the affected accounts move. If a changed segment's
+// previous partials are gone, the period is rebuilt from the (mostly cached) partials.
+//
+// Build: g++ -std=c++11 -O2 -pthread -o parking_invoice TransactionLog.cpp invoicer.cpp
+// Usage: parking_invoice [--dir transactions] [--threads N] [--account ID] [--full] [--export] YYYY-MM | FROM TO
+//   writes <dir>/invoices/FROM_TO.csv: billingId,userType,stays,hours,valet,validated,prepaid,charged,total
+//   walk-in guests (billing ID N/A) have no account; they are totalled on their own, not invoiced
+//   --account ID prints that account's transactions for the period instead
+//   --full ignores the caches and rescans every segment
+//   --export copies the period's raw transactions to <dir>/export-FROM_TO.csv and prints
+//     EXPORT,rows,total,days,path (or ERROR,message); the dashboard's Export button runs this
+//     so a month-long scan never holds up the engine's command loop
+
+#include "TransactionLog.h"
+#include <algorithm>
+#include <atomic>
+#include <chrono>
+#include <cmath>
+#include <cstdlib>
+#include <fstream>
+#include <iomanip>
+#include <iostream>
+#include <map>
+#include <sstream>
+#include <thread>
+#include <unordered_map>
+#include <sys/stat.h>
+
+#ifdef _WIN32
+#include <direct.h>
+#endif
+
+static const char *USER_TYPES[] = {"GUEST", "RESIDENT", "HOTEL", "STAFF"};
+static const string WALK_IN = "N/A"; // billing ID of guests without a profile
+
+// ----- Per-account sums (amounts in paise) -----
+struct AccountTotals
+{
+    int userType = 0;
+    long long stays = 0;
+    long long seconds = 0;
+    long long prepaid = 0;
+    long long charged = 0;
+    long long valet = 0;
+    long long validated = 0;
+
+    void add(const Transaction &t)
+    {
+        userType = max(userType, t.userType);
+        stays++;
+        seconds += (long long)max((time_t)0, t.exitTime - t.entryTime);
+        prepaid += llround(t.prepaid * 100);
+        charged += llround(t.exitCharge * 100);
+        valet += t.valet ? 1 : 0;
+        validated += t.validated ? 1 : 0;
+    }
+
+    void merge(const AccountTotals &o, int sign)
+    {
+        userType = max(userType, o.userType);
+        stays += sign * o.stays;
+        seconds += sign * o.seconds;
+        prepaid += sign * o.prepaid;
+        charged += sign * o.charged;
+        valet += sign * o.valet;
+        validated += sign * o.validated;
+    }
+
+    bool isZero() const
+    {
+        return stays == 0 && seconds == 0 && prepaid == 0 && charged == 0 && valet == 0 && validated == 0;
+    }
+};
+
+typedef unordered_map<string, AccountTotals> Partial;
+
+static void mergeInto(Partial &target, const Partial &source, int sign)
+{
+    for (Partial::const_iterator it = source.begin(); it != source.end(); ++it)
+        target[it->first].merge(it->second, sign);
+}
+
+// Text form shared by the partial and state files; the billing ID goes last as the free-text field
+static void writeTotals(ostream &out, const string &account, const AccountTotals &t)
+{
+    out << t.userType << "," << t.stays << "," << t.seconds << "," << t.prepaid << "," << t.charged << ","
+        << t.valet << "," << t.validated << "," << account << "\n";
+}
+
+static bool readTotals(const string &line, string &account, AccountTotals &t)
+{
+    istringstream in(line);
+    char c[7];
+    if (!(in >> t.userType >> c[0] >> t.stays >> c[1] >> t.seconds >> c[2] >> t.prepaid >> c[3] >> t.charged >> c[4] >>
+          t.valet >> c[5] >> t.validated >> c[6]))
+        return false;
+    getline(in, account);
+    return !account.empty();
+}
+
+// ----- Files -----
+static void makeDirectory(const string &path)
+{
+#ifdef _WIN32
+    _mkdir(path.c_str());
+#else
+    mkdir(path.c_str(), 0755);
+#endif
+}
+
+// "size:mtime" of a file, empty if it does not exist; segments only ever grow or get repaired
+static string fingerprint(const string &path)
+{
+    struct stat info;
+    if (stat(path.c_str(), &info) != 0)
+        return "";
+    return to_string((long long)info.st_size) + ":" + to_string((long long)info.st_mtime);
+}
+
+// A day's data is its segment plus the CSV lines not yet in it; empty if the day has neither
+static string dayFingerprint(const string &segment, const string &csv)
+{
+    string col = fingerprint(segment), text = fingerprint(csv);
+    return (col.empty() && text.empty()) ? "" : col + "|" + text;
+}
+
+// Partial file: "segment <fingerprint>" then one totals line per account
+static bool loadPartial(const string &path, string &fp, Partial &out)
+{
+    ifstream in(path.c_str());
+    string line;
+    if (!in || !getline(in, line) || line.compare(0, 8, "segment ") != 0)
+        return false;
+    fp = line.substr(8);
+    string account;
+    AccountTotals t;
+    while (getline(in, line))
+    {
+        if (!readTotals(line, account, t))
+        {
+            cerr << "Malformed line in " << path << ": " << line << endl;
+            return false;
+        }
+        out[account] = t;
+    }
+    return true;
+}
+
+static void savePartial(const string &path, const string &fp, const Partial &partial)
+{
+    string temp = path + ".tmp";
+    {
+        ofstream out(temp.c_str());
+        out << "segment " << fp << "\n";
+        for (Partial::const_iterator it = partial.begin(); it != partial.end(); ++it)
+            writeTotals(out, it->first, it->second);
+        if (!out)
+        {
+            cerr << "Cannot write " << temp << endl;
+            return;
+        }
+    }
+    std::remove(path.c_str());
+    std::rename(temp.c_str(), path.c_str());
+}
+
+// State file: "day <day> <fingerprint>" per merged segment, then the period's totals
+static bool loadState(const string &path, map<string, string> &merged, Partial &totals)
+{
+    ifstream in(path.c_str());
+    if (!in)
+        return false;
+    string line, account;
+    AccountTotals t;
+    while (getline(in, line))
+    {
+        if (line.compare(0, 4, "day ") == 0)
+        {
+            size_t space = line.find(' ', 4);
+            if (space == string::npos)
+                return false;
+            merged[line.substr(4, space - 4)] = line.substr(space + 1);
+        }
+        else if (readTotals(line, account, t))
+            totals[account] = t;
+        else
+        {
+            cerr << "Malformed line in " << path << ": " << line << endl;
+            return false;
+        }
+    }
+    return true;
+}
+
+static void saveState(const string &path, const map<string, string> &merged, const Partial &totals)
+{
+    string temp = path + ".tmp";
+    {
+        ofstream out(temp.c_str());
+        for (map<string, string>::const_iterator it = merged.begin(); it != merged.end(); ++it)
+            out << "day " << it->first << " " << it->second << "\n";
+        for (Partial::const_iterator it = totals.begin(); it != totals.end(); ++it)
+            writeTotals(out, it->first, it->second);
+    }
+    std::remove(path.c_str());
+    std::rename(temp.c_str(), path.c_str());
+}
+
+static string rupees(long long paise)
+{
+    ostringstream ss;
+    ss << (paise < 0 ? "-" : "") << llabs(paise) / 100 << "." << setw(2) << setfill('0') << llabs(paise) % 100;
+    return ss.str();
+}
+
+static void writeStatements(const string &path, const Partial &totals)
+{
+    vector<string> accounts;
+    for (Partial::const_iterator it = totals.begin(); it != totals.end(); ++it)
+        if (it->second.stays > 0 && it->first != WALK_IN)
+            accounts.push_back(it->first);
+    sort(accounts.begin(), accounts.end());
+
+    ofstream out(path.c_str());
+    out << "billingId,userType,stays,hours,valet,validated,prepaid,charged,total\n";
+    for (size_t i = 0; i < accounts.size(); ++i)
+    {
+        const AccountTotals &t = totals.find(accounts[i])->second;
+        out << accounts[i] << "," << USER_TYPES[t.userType & 3] << "," << t.stays << "," << fixed << setprecision(1)
+            << t.seconds / 3600.0 << "," << t.valet << "," << t.validated << "," << rupees(t.prepaid) << ","
+            << rupees(t.charged) << "," << rupees(t.prepaid + t.charged) << "\n";
+    }
+    if (!out)
+        cerr << "Cannot write " << path << endl;
+}
+
+// ----- Fork-join over day segments -----
+struct DayTask
+{
+    string day;
+    string segment;
+    string csv;
+    string partialPath;
+    string currentFp;  // "" if the day has no segment or CSV
+    string mergedFp;   // fingerprint the stored totals were built from, "" if none
+};
+
+struct WorkerResult
+{
+    Partial delta;
+    long long scannedRows = 0;
+    long long csvRows = 0; // of scannedRows, read from CSV tails
+    int scanned = 0;
+    int cached = 0;
+};
+
+// Adds (new - old) partial sums of one day to the worker's accumulator
+static bool runTask(const DayTask &task, bool incremental, WorkerResult &result)
+{
+    Partial previous, current;
+    string previousFp;
+    bool havePrevious = loadPartial(task.partialPath, previousFp, previous);
+    if (incremental && !task.mergedFp.empty() && !(havePrevious && previousFp == task.mergedFp))
+        return false; // what the totals hold for this day is no longer known
+
+    if (havePrevious && previousFp == task.currentFp)
+    {
+        current.swap(previous);
+        previous.clear();
+        result.cached++;
+    }
+    else if (!task.currentFp.empty())
+    {
+        TransactionReader reader(task.segment, task.csv);
+        if (reader.isDamaged())
+            cerr << task.segment << " is not a transaction segment; reading " << task.csv << " instead" << endl;
+        Transaction t;
+        while (reader.next(t))
+        {
+            current[t.billingId].add(t);
+            result.scannedRows++;
+        }
+        result.csvRows += reader.csvRows();
+        result.scanned++;
+        savePartial(task.partialPath, task.currentFp, current);
+    }
+    mergeInto(result.delta, current, 1);
+    if (incremental && !task.mergedFp.empty())
+        mergeInto(result.delta, previous, -1);
+    return true;
+}
+
+static bool runAll(const vector<DayTask> &tasks, bool incremental, unsigned threads, vector<WorkerResult> &results)
+{
+    atomic<size_t> nextTask(0);
+    atomic<bool> ok(true);
+    unsigned workers = max(1u, min(threads, (unsigned)max((size_t)1, tasks.size())));
+    results.assign(workers, WorkerResult());
+    vector<thread> pool;
+    for (unsigned w = 0; w < workers; ++w)
+    {
+        pool.push_back(thread([&, w]()
+                              {
+            size_t i;
+            while (ok && (i = nextTask++) < tasks.size())
+            {
+                if (!runTask(tasks[i], incremental, results[w]))
+                    ok = false;
+            } }));
+    }
+    for (size_t w = 0; w < pool.size(); ++w)
+        pool[w].join();
+    return ok;
+}
+
+// ----- Statement detail for one account -----
+static int printAccount(const string &dir, const string &from, const string &to, const string &account)
+{
+    TransactionLog::writeCsvHeader(stdout);
+    long long paise = 0, rows = 0;
+    for (string day = from; day <= to; day = TransactionLog::nextDay(day))
+    {
+        TransactionReader reader(dir + "/" + day + ".col", dir + "/" + day + ".csv");
+        if (reader.isDamaged())
+            cerr << dir << "/" << day << ".col is not a transaction segment; reading the CSV instead" << endl;
+        Transaction t;
+        while (reader.next(t))
+        {
+            if (t.billingId != account)
+                continue;
+            TransactionLog::writeCsvRow(stdout, t);
+            paise += llround(t.fee() * 100);
+            rows++;
+        }
+    }
+    cerr << account << ": " << rows << " transactions, total " << rupees(paise) << endl;
+    return 0;
+}
+
+// --export: one reply line in the engine's protocol, for the dashboard to show as-is
+static int exportPeriod(const string &dir, const string &from, const string &to)
+{
+    string path = dir + "/export-" + from + "_" + to + ".csv";
+    TransactionLog::ExportSummary summary;
+    string error;
+    if (!TransactionLog::exportRange(dir, from, to, path, summary, error))
+    {
+        cout << "ERROR," << error << endl;
+        return 1;
+    }
+    cout << fixed << setprecision(2) << "EXPORT," << summary.rows << "," << summary.total << "," << summary.segments << "," << path << endl;
+    return 0;
+}
+
+int main(int argc, char **argv)
+{
+    string dir = "transactions", account, from, to;
+    unsigned threads = max(1u, thread::hardware_concurrency());
+    bool full = false, exportRows = false;
+    vector<string> dates;
+    for (int i = 1; i < argc; ++i)
+    {
+        string arg = argv[i];
+        if (arg == "--dir" && i + 1 < argc)
+            dir = argv[++i];
+        else if (arg == "--threads" && i + 1 < argc)
+            threads = (unsigned)max(1, atoi(argv[++i]));
+        else if (arg == "--account" && i + 1 < argc)
+            account = argv[++i];
+        else if (arg == "--full")
+            full = true;
+        else if (arg == "--export")
+            exportRows = true;
+        else
+            dates.push_back(arg);
+    }
+    if (dates.size() == 1 && dates[0].size() == 7)
+    {
+        // YYYY-MM: first to last day of the month
+        from = dates[0] + "-01";
+        if (TransactionLog::parseDay(from) != 0)
+        {
+            for (to = from; TransactionLog::nextDay(to).compare(0, 7, dates[0]) == 0;)
+                to = TransactionLog::nextDay(to);
+        }
+    }
+    else if (dates.size() == 2)
+    {
+        from = dates[0];
+        to = dates[1];
+    }
+    if (TransactionLog::parseDay(from) == 0 || TransactionLog::parseDay(to) == 0 || to < from)
+    {
+        cerr << "Usage: parking_invoice [--dir transactions] [--threads N] [--account ID] [--full] [--export] YYYY-MM | FROM TO" << endl;
+        return 1;
+    }
+    if (!account.empty())
+        return printAccount(dir, from, to, account);
+    if (exportRows)
+        return exportPeriod(dir, from, to);
+
+    chrono::steady_clock::time_point t0 = chrono::steady_clock::now();
+    string invoiceDir = dir + "/invoices";
+    string partsDir = invoiceDir + "/parts";
+    makeDirectory(invoiceDir);
+    makeDirectory(partsDir);
+    string period = from + "_" + to;
+    string statePath = invoiceDir + "/" + period + ".state";
+
+    map<string, string> merged;
+    Partial totals;
+    bool incremental = !full && loadState(statePath, merged, totals);
+    if (!incremental)
+    {
+        merged.clear();
+        totals.clear();
+    }
+
+    // Incremental: only days whose segment differs from what the totals were built from
+    vector<DayTask> all, changed;
+    for (string day = from; day <= to; day = TransactionLog::nextDay(day))
+    {
+        DayTask task;
+        task.day = day;
+        task.segment = dir + "/" + day + ".col";
+        task.csv = dir + "/" + day + ".csv";
+        task.partialPath = partsDir + "/" + day + ".part";
+        task.currentFp = dayFingerprint(task.segment, task.csv);
+        map<string, string>::const_iterator m = merged.find(day);
+        task.mergedFp = (m != merged.end()) ? m->second : "";
+        if (full)
+            std::remove(task.partialPath.c_str());
+        all.push_back(task);
+        if (task.currentFp != task.mergedFp)
+            changed.push_back(task);
+    }
+
+    vector<WorkerResult> results;
+    if (incremental && !runAll(changed, true, threads, results))
+    {
+        cerr << "Cached partial sums for a changed day are missing; rebuilding the period" << endl;
+        incremental = false;
+        totals.clear();
+    }
+    if (!incremental)
+        runAll(all, false, threads, results);
+
+    // Join: merge the workers' per-account sums into the period totals
+    Partial delta;
+    long long scannedRows = 0, csvRows = 0;
+    int scanned = 0, cached = 0;
+    for (size_t w = 0; w < results.size(); ++w)
+    {
+        mergeInto(delta, results[w].delta, 1);
+        scannedRows += results[w].scannedRows;
+        csvRows += results[w].csvRows;
+        scanned += results[w].scanned;
+        cached += results[w].cached;
+    }
+    vector<string> affected;
+    for (Partial::const_iterator it = delta.begin(); it != delta.end(); ++it)
+    {
+        if (it->second.isZero())
+            continue;
+        totals[it->first].merge(it->second, 1);
+        affected.push_back(it->first);
+    }
+    for (Partial::iterator it = totals.begin(); it != totals.end();)
+        it = it->second.isZero() ? totals.erase(it) : ++it;
+
+    merged.clear();
+    for (size_t i = 0; i < all.size(); ++i)
+        if (!all[i].currentFp.empty())
+            merged[all[i].day] = all[i].currentFp;
+    string statementPath = invoiceDir + "/" + period + ".csv";
+    if (!affected.empty() || !incremental || fingerprint(statementPath).empty())
+        writeStatements(statementPath, totals);
+    saveState(statePath, merged, totals);
+
+    long long paise = 0, stays = 0;
+    size_t accounts = 0;
+    for (Partial::const_iterator it = totals.begin(); it != totals.end(); ++it)
+    {
+        if (it->first == WALK_IN)
+            continue;
+        paise += it->second.prepaid + it->second.charged;
+        stays += it->second.stays;
+        accounts++;
+    }
+    double seconds = chrono::duration<double>(chrono::steady_clock::now() - t0).count();
+    cout << "Invoices " << from << " to " << to << ": " << accounts << " accounts, " << stays
+         << " transactions, total " << rupees(paise) << endl;
+    Partial::const_iterator walkIns = totals.find(WALK_IN);
+    if (walkIns != totals.end())
+        cout << "Walk-in guests (not invoiced): " << walkIns->second.stays << " transactions, total "
+             << rupees(walkIns->second.prepaid + walkIns->second.charged) << endl;
+    cout << (incremental ? "Incremental" : "Full") << " run on " << results.size() << " threads: " << scanned
+         << " segments scanned (" << scannedRows << " rows, " << csvRows << " of them from CSV only), " << cached
+         << " from cache, " << affected.size() << " accounts changed, " << fixed << setprecision(2) << seconds << " s"
+         << endl;
+    if (incremental)
+    {
+        sort(affected.begin(), affected.end());
+        for (size_t i = 0; i < affected.size() && i < 10; ++i)
+            cout << "  changed: " << affected[i] << endl;
+        if (affected.size() > 10)
+            cout << "  ... and " << affected.size() - 10 << " more" << endl;
+    }
+    cout << "Statements: " << statementPath << endl;
+    return 0;
+}
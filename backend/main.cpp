@@ -1,3 +1,8 @@
+// Parking engine: one command per line on stdin, one reply line per command on stdout.
+//
+// Build: g++ -std=c++11 -O2 -o parking_backend main.cpp ParkingSystem.cpp ProfileStore.cpp TransactionLog.cpp
+// (parking_backend.exe on Windows; the dashboard's BACKEND_PATH points at it)
+
 #include "ParkingSystem.h"
 #include <vector>
 #include <string>
@@ -15,9 +20,21 @@ vector<string> split(const string &s, char delimiter)
     return tokens;
 }
 
-int main()
+static int serve(int argc, char **argv)
 {
-    AdvancedParkingSystem parkingSystem;
+    // Profiles persist across launches in a memory-mapped store next to the engine
+    // Completed stays are journalled per day under transactions/ (CSV + columnar)
+    TransactionLog transactionLog("transactions");
+    AdvancedParkingSystem parkingSystem(AdvancedParkingSystem::defaultLayout(), "user-profiles.dat");
+    parkingSystem.setTransactionLog(&transactionLog);
+
+    // --virtual-clock START: time only moves on ADVANCE_CLOCK (used by the tariff parity check)
+    unique_ptr<VirtualClock> virtualClock;
+    if (argc == 3 && string(argv[1]) == "--virtual-clock")
+    {
+        virtualClock.reset(new VirtualClock((time_t)stoll(argv[2])));
+        parkingSystem.setClock(virtualClock.get());
+    }
 
     string commandLine;
     while (getline(cin, commandLine))
@@ -47,15 +64,72 @@ int main()
                 // FIND,plate
                 cout << parkingSystem.findMyCar(args[1]) << endl;
             }
+            else if (command == "RESERVE" && args.size() == 6)
+            {
+                // RESERVE,plate,type,name,startEpoch,endEpoch
+                cout << parkingSystem.reserveSlot(args[1], args[2], args[3], (time_t)stoll(args[4]), (time_t)stoll(args[5])) << endl;
+            }
+            else if (command == "CANCEL_RESERVATION" && args.size() == 2)
+            {
+                // CANCEL_RESERVATION,reservationId
+                cout << parkingSystem.cancelReservation(stoi(args[1])) << endl;
+            }
+            else if (command == "AVAILABILITY" && args.size() == 5)
+            {
+                // AVAILABILITY,plate,type,startEpoch,endEpoch
+                cout << parkingSystem.checkAvailability(args[1], args[2], (time_t)stoll(args[3]), (time_t)stoll(args[4])) << endl;
+            }
+            else if (command == "SET_OVERFLOW" && args.size() == 6)
+            {
+                // SET_OVERFLOW,fromConstraint,toConstraint,fromHour,toHour,headroomPercent
+                cout << parkingSystem.addOverflowRule(args[1], args[2], stoi(args[3]), stoi(args[4]), stoi(args[5])) << endl;
+            }
+            else if (command == "CLEAR_OVERFLOW")
+            {
+                cout << parkingSystem.clearOverflowRules() << endl;
+            }
+            else if (command == "GET_OVERFLOW_STATS")
+            {
+                cout << "OVERFLOW," << parkingSystem.getOverflowStats() << endl;
+            }
+            else if (command == "SET_STRATEGY" && args.size() == 2)
+            {
+                // SET_STRATEGY,LOWEST_ID|NEAREST_EXIT|AISLE_ROUND_ROBIN|LRU
+                cout << parkingSystem.setSelectionStrategy(args[1]) << endl;
+            }
+            else if (command == "GET_STRATEGY")
+            {
+                cout << "STRATEGY," << parkingSystem.getSelectionStrategy() << endl;
+            }
             else if (command == "REGISTER" && args.size() == 5)
             {
                 // REGISTER,plate,name,type(0-3),billingId
                 cout << parkingSystem.registerUser(args[1], args[2], stoi(args[3]), args[4]) << endl;
             }
+            else if (command == "GET_USER" && args.size() == 2)
+            {
+                // GET_USER,plate
+                cout << parkingSystem.getUser(args[1]) << endl;
+            }
+            else if (command == "BLOCK" && args.size() == 3)
+            {
+                // BLOCK,plate,1|0
+                cout << parkingSystem.setBlocked(args[1], stoi(args[2]) != 0) << endl;
+            }
+            else if (command == "ADVANCE_CLOCK" && args.size() == 2 && virtualClock)
+            {
+                // ADVANCE_CLOCK,seconds -> CLOCK,nowEpoch
+                virtualClock->set(virtualClock->now() + (time_t)stoll(args[1]));
+                cout << "CLOCK," << (long long)virtualClock->now() << endl;
+            }
             else if (command == "STATUS")
             {
                 cout << "STATUS," << parkingSystem.getParkingStatus() << endl;
             }
+            else if (command == "GET_OCCUPANCY")
+            {
+                cout << "OCCUPANCY," << parkingSystem.getOccupancyByConstraint() << endl;
+            }
             else if (command == "GET_ANALYTICS")
             {
                 cout << "ANALYTICS," << parkingSystem.getAnalyticsData() << endl;
@@ -64,6 +138,10 @@ int main()
             {
                 cout << "USERS," << parkingSystem.getUserList() << endl;
             }
+            else if (command == "GET_BILLING")
+            {
+                cout << "BILLING," << parkingSystem.getBillingData() << endl;
+            }
             else if (command == "GET_DETAILS" && args.size() == 2)
             {
                 // GET_DETAILS,slotId
@@ -87,4 +165,18 @@ int main()
         cout.flush(); // Ensure output is sent immediately
     }
     return 0;
-}
\ No newline at end of file
+}
+
+int main(int argc, char **argv)
+{
+    try
+    {
+        return serve(argc, argv);
+    }
+    catch (const exception &e)
+    {
+        // Startup failed (another engine owns these files); no command has been read yet
+        cerr << e.what() << endl;
+        return 1;
+    }
+}
@@ -0,0 +1,592 @@
+// Headless discrete-event simulator for capacity planning.
+//
+// Runs the real AdvancedParkingSystem (allocation, waiting queues, billing) on a
+// VirtualClock with stochastic arrivals, so a year of traffic takes seconds.
+// Every scenario is replicated with different seeds and all runs are spread over
+// the machine's cores; each run owns its own engine, so nothing is shared.
+//
+// Build: g++ -std=c++11 -O2 -pthread -o parking_sim ParkingSystem.cpp ProfileStore.cpp TransactionLog.cpp simulator.cpp
+// Usage: parking_sim [scenarios.txt]
+//        parking_sim --strategies constraint hours occupancyPercent meanStayMinutes seed
+//   the second form compares the slot selection strategies on one class of the default
+//   layout and prints a single SIMULATION,... (or ERROR,...) line; the dashboard runs it
+//   so a simulated year never holds up the engine's command loop
+//
+// Scenario file: one scenario per line, "name key=value ...", '#' starts a comment.
+//   days=365             simulated days per run
+//   runs=8               replications (seeds seed, seed+1, ...)
+//   seed=1
+//   validationHours=2    restaurant validation allowance
+//   demand=1.0           multiplier on every arrival rate
+//   addFloor=CAR_GUEST:20   extra floor on top of the default layout (repeatable)
+// Without a file, a baseline, an extra guest floor and a 3-hour validation are compared.
+
+#include "ParkingSystem.h"
+#include <atomic>
+#include <chrono>
+#include <fstream>
+#include <random>
+#include <thread>
+
+// ----- Traffic model -----
+// One stream of arrivals per constraint class; rates are per hour at each hour of day
+struct TrafficClass
+{
+    string constraint;
+    string vehicleType;
+    int userType;             // UserType of arriving drivers; registered pool when not GUEST
+    int poolSize;             // registered drivers for non-guest classes
+    double hourlyRate[24];    // arrivals per hour by hour of day
+    double meanStayMinutes;
+    double minStayMinutes;
+    double validationChance;  // restaurant guests who get their ticket validated
+    double underpayChance;    // guests who pre-pay for a typical visit instead of their actual stay
+};
+
+static vector<TrafficClass> defaultTraffic()
+{
+    vector<TrafficClass> traffic;
+    //                 0    1    2    3    4    5    6    7    8    9   10   11   12   13   14   15   16   17   18   19   20   21   22   23
+    double bikes[] = {0.2, 0.1, 0.1, 0.1, 0.1, 0.3, 1.0, 3.0, 4.0, 3.0, 2.0, 2.0, 3.0, 2.5, 2.0, 2.0, 3.0, 4.0, 3.0, 2.0, 1.5, 1.0, 0.5, 0.3};
+    double guests[] = {0.5, 0.2, 0.1, 0.1, 0.1, 0.2, 0.5, 1.0, 2.0, 3.0, 4.0, 8.0, 14.0, 12.0, 6.0, 4.0, 4.0, 6.0, 10.0, 16.0, 15.0, 9.0, 4.0, 1.5};
+    double hotel[] = {0.3, 0.2, 0.1, 0.1, 0.1, 0.2, 0.3, 0.5, 0.6, 0.6, 0.8, 1.0, 1.2, 1.5, 2.0, 2.5, 2.5, 2.0, 1.5, 1.2, 1.0, 0.8, 0.6, 0.4};
+    double residents[] = {0.2, 0.1, 0.1, 0.1, 0.1, 0.3, 0.6, 0.8, 0.8, 0.6, 0.5, 0.6, 0.8, 0.7, 0.6, 0.8, 1.2, 2.0, 2.5, 2.0, 1.5, 1.0, 0.6, 0.3};
+    double trucks[] = {0.0, 0.0, 0.0, 0.0, 0.2, 0.6, 1.5, 2.5, 3.0, 3.0, 2.5, 2.0, 1.5, 1.5, 2.0, 2.0, 1.5, 1.0, 0.5, 0.2, 0.1, 0.0, 0.0, 0.0};
+    double staff[] = {0.2, 0.1, 0.1, 0.1, 0.2, 0.5, 2.0, 3.0, 2.5, 1.0, 0.5, 0.4, 0.4, 0.4, 1.0, 2.0, 1.0, 0.5, 0.4, 0.4, 0.4, 1.0, 1.0, 0.5};
+    struct Row
+    {
+        const char *constraint, *vehicleType;
+        int userType, poolSize;
+        const double *rates;
+        double meanStay, minStay, validation, underpay;
+    } rows[] = {
+        {"BIKE", "BIKE", GUEST, 0, bikes, 120, 10, 0.0, 0.2},
+        {"CAR_GUEST", "CAR", GUEST, 0, guests, 95, 20, 0.6, 0.3},
+        {"CAR_HOTEL", "CAR", HOTEL, 20, hotel, 14 * 60, 60, 0.0, 0.0},
+        {"CAR_RESIDENT", "CAR", RESIDENT, 18, residents, 9 * 60, 30, 0.0, 0.0},
+        {"TRUCK", "TRUCK", GUEST, 0, trucks, 40, 10, 0.0, 0.4},
+        {"STAFF", "CAR", STAFF, 12, staff, 8 * 60, 60, 0.0, 0.0},
+    };
+    for (size_t i = 0; i < sizeof(rows) / sizeof(rows[0]); ++i)
+    {
+        TrafficClass c;
+        c.constraint = rows[i].constraint;
+        c.vehicleType = rows[i].vehicleType;
+        c.userType = rows[i].userType;
+        c.poolSize = rows[i].poolSize;
+        copy(rows[i].rates, rows[i].rates + 24, c.hourlyRate);
+        c.meanStayMinutes = rows[i].meanStay;
+        c.minStayMinutes = rows[i].minStay;
+        c.validationChance = rows[i].validation;
+        c.underpayChance = rows[i].underpay;
+        traffic.push_back(c);
+    }
+    return traffic;
+}
+
+// ----- Scenarios -----
+struct Scenario
+{
+    string name;
+    int days = 365;
+    int runs = 8;
+    unsigned seed = 1;
+    int validationHours = 2;
+    double demand = 1.0;
+    vector<FloorPlan> extraFloors;
+};
+
+static bool parseScenario(const string &line, Scenario &scenario)
+{
+    istringstream in(line);
+    if (!(in >> scenario.name))
+        return false;
+    string option;
+    while (in >> option)
+    {
+        size_t eq = option.find('=');
+        string key = option.substr(0, eq);
+        string value = eq == string::npos ? "" : option.substr(eq + 1);
+        if (key == "days")
+            scenario.days = stoi(value);
+        else if (key == "runs")
+            scenario.runs = stoi(value);
+        else if (key == "seed")
+            scenario.seed = (unsigned)stoul(value);
+        else if (key == "validationHours")
+            scenario.validationHours = stoi(value);
+        else if (key == "demand")
+            scenario.demand = stod(value);
+        else if (key == "addFloor" && value.find(':') != string::npos)
+            scenario.extraFloors.push_back({0, value.substr(0, value.find(':')), stoi(value.substr(value.find(':') + 1))});
+        else
+            throw invalid_argument("unknown scenario option '" + option + "'");
+    }
+    if (scenario.days <= 0 || scenario.runs <= 0 || scenario.demand < 0)
+        throw invalid_argument("days and runs must be positive, demand non-negative");
+    return true;
+}
+
+// ----- Results -----
+// Occupancy as a histogram of whole percent per constraint, sampled every 15 minutes
+struct RunResult
+{
+    map<string, vector<long long>> occupancyHistogram; // constraint -> 101 buckets
+    map<string, vector<double>> waitMinutes;           // constraint -> minutes, per vehicle served from a queue
+    vector<double> dailyRevenue;
+    long long arrivals = 0;
+    long long queued = 0;
+    long long unserved = 0; // still queued when the run ended
+
+    void merge(const RunResult &other)
+    {
+        for (map<string, vector<long long>>::const_iterator it = other.occupancyHistogram.begin(); it != other.occupancyHistogram.end(); ++it)
+        {
+            vector<long long> &mine = occupancyHistogram[it->first];
+            mine.resize(101, 0);
+            for (size_t i = 0; i < it->second.size(); ++i)
+                mine[i] += it->second[i];
+        }
+        for (map<string, vector<double>>::const_iterator it = other.waitMinutes.begin(); it != other.waitMinutes.end(); ++it)
+            waitMinutes[it->first].insert(waitMinutes[it->first].end(), it->second.begin(), it->second.end());
+        dailyRevenue.insert(dailyRevenue.end(), other.dailyRevenue.begin(), other.dailyRevenue.end());
+        arrivals += other.arrivals;
+        queued += other.queued;
+        unserved += other.unserved;
+    }
+};
+
+// ----- One run -----
+class SimulationRun
+{
+private:
+    enum EventKind
+    {
+        ARRIVAL,
+        DEPARTURE,
+        SAMPLE
+    };
+    struct Event
+    {
+        time_t time;
+        int kind;
+        int trafficClass;
+        string plate;
+        bool operator>(const Event &other) const { return time > other.time; }
+    };
+
+    const Scenario &scenario;
+    const vector<TrafficClass> &traffic;
+    vector<FloorPlan> layout;
+    map<int, string> constraintOfSlot;
+    VirtualClock clock;
+    AdvancedParkingSystem engine;
+    mt19937 rng;
+    time_t start;
+    priority_queue<Event, vector<Event>, greater<Event>> events;
+    map<string, int> classOfPlate;                        // plate -> traffic class, while parked or queued
+    map<string, deque<pair<string, time_t>>> waiting;     // mirrors the engine's FIFO queues
+    vector<vector<string>> idleDrivers;                   // registered drivers not on site, per class
+    long long guestSeq = 0;
+    RunResult result;
+
+    double hourlyRate(int c, time_t t) const
+    {
+        int hour = (int)(((t - start) / 3600) % 24);
+        return traffic[c].hourlyRate[hour] * scenario.demand;
+    }
+
+    // Next arrival of class c after t: thinning against the class's peak rate
+    void scheduleArrival(int c, time_t after)
+    {
+        double peak = *max_element(traffic[c].hourlyRate, traffic[c].hourlyRate + 24) * scenario.demand;
+        if (peak <= 0)
+            return;
+        exponential_distribution<double> gap(peak / 3600.0);
+        uniform_real_distribution<double> coin(0.0, 1.0);
+        double t = (double)after;
+        time_t end = start + (time_t)scenario.days * 86400;
+        while (true)
+        {
+            t += gap(rng);
+            if (t >= end)
+                return;
+            if (coin(rng) * peak <= hourlyRate(c, (time_t)t))
+                break;
+        }
+        events.push({(time_t)t, ARRIVAL, c, ""});
+    }
+
+    time_t sampleStay(int c)
+    {
+        exponential_distribution<double> stay(1.0 / traffic[c].meanStayMinutes);
+        return (time_t)((traffic[c].minStayMinutes + stay(rng)) * 60);
+    }
+
+    void parked(const string &plate, int c, time_t now)
+    {
+        events.push({now + sampleStay(c), DEPARTURE, c, plate});
+    }
+
+    void arrive(const Event &e)
+    {
+        const TrafficClass &tc = traffic[e.trafficClass];
+        scheduleArrival(e.trafficClass, e.time);
+        string plate;
+        if (tc.userType == GUEST)
+        {
+            plate = "SIM" + to_string(++guestSeq);
+        }
+        else
+        {
+            vector<string> &idle = idleDrivers[e.trafficClass];
+            if (idle.empty())
+                return; // everyone in the pool is already on site
+            uniform_int_distribution<size_t> pick(0, idle.size() - 1);
+            size_t i = pick(rng);
+            plate = idle[i];
+            idle[i] = idle.back();
+            idle.pop_back();
+        }
+        result.arrivals++;
+        classOfPlate[plate] = e.trafficClass;
+
+        time_t stay = sampleStay(e.trafficClass);
+        uniform_real_distribution<double> coin(0.0, 1.0);
+        int prepaidHours = (int)ceil(stay / 3600.0);
+        if (coin(rng) < tc.underpayChance)
+            prepaidHours = (int)ceil((tc.minStayMinutes + tc.meanStayMinutes) / 60.0); // long stays overstay
+        string reply = engine.parkVehicle(plate, tc.vehicleType, "Sim", prepaidHours, false);
+        if (reply.find("waiting queue") != string::npos)
+        {
+            // "Lot full for CONSTRAINT. ..." names the queue the engine used
+            size_t from = reply.find("for ") + 4;
+            string constraint = reply.substr(from, reply.find('.', from) - from);
+            waiting[constraint].push_back(make_pair(plate, e.time));
+            result.queued++;
+            return;
+        }
+        if (reply.compare(0, 7, "SUCCESS") != 0)
+        {
+            release(plate, e.trafficClass);
+            return;
+        }
+        if (coin(rng) < tc.validationChance)
+            engine.applyValidation(plate);
+        events.push({e.time + stay, DEPARTURE, e.trafficClass, plate});
+    }
+
+    void depart(const Event &e)
+    {
+        string found = engine.findMyCar(e.plate);
+        size_t comma = found.find(',');
+        if (found.compare(0, 7, "SUCCESS") != 0)
+            return;
+        int slotId = stoi(found.substr(comma + 1, found.find(',', comma + 1) - comma - 1));
+        engine.removeVehicle(e.plate);
+        release(e.plate, e.trafficClass);
+
+        // The engine parks the head of the freed slot's queue, if any
+        const string &constraint = constraintOfSlot[slotId];
+        deque<pair<string, time_t>> &queue = waiting[constraint];
+        if (queue.empty())
+            return;
+        pair<string, time_t> head = queue.front();
+        queue.pop_front();
+        if (engine.findMyCar(head.first).compare(0, 7, "SUCCESS") == 0)
+        {
+            result.waitMinutes[constraint].push_back((e.time - head.second) / 60.0);
+            parked(head.first, classOfPlate[head.first], e.time);
+        }
+        else
+        {
+            queue.push_back(head); // the engine queued it again
+        }
+    }
+
+    void release(const string &plate, int c)
+    {
+        classOfPlate.erase(plate);
+        if (traffic[c].userType != GUEST)
+            idleDrivers[c].push_back(plate);
+    }
+
+    void sample(time_t now)
+    {
+        // constraint,free,total;...
+        istringstream in(engine.getOccupancyByConstraint());
+        string row;
+        while (getline(in, row, ';'))
+        {
+            size_t a = row.find(','), b = row.rfind(',');
+            if (a == string::npos || a == b)
+                continue;
+            int free = stoi(row.substr(a + 1, b - a - 1)), total = stoi(row.substr(b + 1));
+            if (total <= 0)
+                continue;
+            vector<long long> &histogram = result.occupancyHistogram[row.substr(0, a)];
+            histogram.resize(101, 0);
+            histogram[(total - free) * 100 / total]++;
+        }
+        if (now + 900 < start + (time_t)scenario.days * 86400)
+            events.push({now + 900, SAMPLE, -1, ""});
+    }
+
+public:
+    SimulationRun(const Scenario &s, const vector<TrafficClass> &t, const vector<FloorPlan> &floors, time_t startTime, unsigned seed)
+        : scenario(s), traffic(t), layout(floors), clock(startTime), engine(floors), rng(seed), start(startTime)
+    {
+        int slotId = 1;
+        for (size_t f = 0; f < layout.size(); ++f)
+            for (int i = 0; i < layout[f].slots; ++i)
+                constraintOfSlot[slotId++] = layout[f].constraint;
+        engine.setClock(&clock);
+        engine.setValidationHours(scenario.validationHours);
+        idleDrivers.resize(traffic.size());
+        for (size_t c = 0; c < traffic.size(); ++c)
+        {
+            for (int i = 0; i < traffic[c].poolSize; ++i)
+            {
+                string plate = "SIM-" + traffic[c].constraint + "-" + to_string(i);
+                engine.registerUser(plate, "Sim", traffic[c].userType, "SIM-" + to_string(i));
+                idleDrivers[c].push_back(plate);
+            }
+        }
+    }
+
+    RunResult run()
+    {
+        for (size_t c = 0; c < traffic.size(); ++c)
+            scheduleArrival((int)c, start);
+        events.push({start, SAMPLE, -1, ""});
+        time_t end = start + (time_t)scenario.days * 86400;
+        time_t nextDay = start + 86400;
+        double revenueAtDayStart = 0;
+        while (!events.empty() && events.top().time < end)
+        {
+            Event e = events.top();
+            events.pop();
+            while (e.time >= nextDay)
+            {
+                double revenue = engine.getTotalRevenue();
+                result.dailyRevenue.push_back(revenue - revenueAtDayStart);
+                revenueAtDayStart = revenue;
+                nextDay += 86400;
+            }
+            clock.set(e.time);
+            if (e.kind == ARRIVAL)
+                arrive(e);
+            else if (e.kind == DEPARTURE)
+                depart(e);
+            else
+                sample(e.time);
+        }
+        while (nextDay <= end)
+        {
+            double revenue = engine.getTotalRevenue();
+            result.dailyRevenue.push_back(revenue - revenueAtDayStart);
+            revenueAtDayStart = revenue;
+            nextDay += 86400;
+        }
+        for (map<string, deque<pair<string, time_t>>>::const_iterator it = waiting.begin(); it != waiting.end(); ++it)
+            result.unserved += it->second.size();
+        return result;
+    }
+};
+
+// ----- Report -----
+static double percentile(vector<double> &values, double p)
+{
+    if (values.empty())
+        return 0;
+    size_t k = (size_t)min((double)values.size() - 1, floor(p * (values.size() - 1) + 0.5));
+    nth_element(values.begin(), values.begin() + k, values.end());
+    return values[k];
+}
+
+static int histogramPercentile(const vector<long long> &histogram, double p)
+{
+    long long total = 0;
+    for (size_t i = 0; i < histogram.size(); ++i)
+        total += histogram[i];
+    long long target = (long long)ceil(p * total), seen = 0;
+    for (size_t i = 0; i < histogram.size(); ++i)
+    {
+        seen += histogram[i];
+        if (seen >= target && seen > 0)
+            return (int)i;
+    }
+    return 100;
+}
+
+static void report(const Scenario &scenario, RunResult &r, double seconds)
+{
+    cout << fixed << setprecision(1);
+    cout << "SCENARIO " << scenario.name << ": " << scenario.runs << " runs x " << scenario.days << " days, validation "
+         << scenario.validationHours << "h, demand x" << scenario.demand;
+    for (size_t i = 0; i < scenario.extraFloors.size(); ++i)
+        cout << ", +" << scenario.extraFloors[i].slots << " " << scenario.extraFloors[i].constraint;
+    cout << " (slowest run " << seconds << "s)" << endl;
+
+    cout << "  Occupancy %       p50   p90   p99  full-time%" << endl;
+    for (map<string, vector<long long>>::const_iterator it = r.occupancyHistogram.begin(); it != r.occupancyHistogram.end(); ++it)
+    {
+        long long total = 0;
+        for (size_t i = 0; i < it->second.size(); ++i)
+            total += it->second[i];
+        cout << "  " << left << setw(16) << it->first << right
+             << setw(5) << histogramPercentile(it->second, 0.5)
+             << setw(6) << histogramPercentile(it->second, 0.9)
+             << setw(6) << histogramPercentile(it->second, 0.99)
+             << setw(12) << (total > 0 ? 100.0 * it->second[100] / total : 0.0) << endl;
+    }
+
+    cout << "  Queue: " << r.queued << " of " << r.arrivals << " arrivals queued, " << r.unserved << " unserved at end" << endl;
+    cout << "  Queue wait min   served     p50     p90     p99     max" << endl;
+    for (map<string, vector<double>>::iterator it = r.waitMinutes.begin(); it != r.waitMinutes.end(); ++it)
+    {
+        vector<double> &w = it->second;
+        cout << "  " << left << setw(16) << it->first << right << setw(7) << w.size()
+             << setw(8) << percentile(w, 0.5) << setw(8) << percentile(w, 0.9)
+             << setw(8) << percentile(w, 0.99) << setw(8) << percentile(w, 1.0) << endl;
+    }
+
+    double sum = 0;
+    for (size_t i = 0; i < r.dailyRevenue.size(); ++i)
+        sum += r.dailyRevenue[i];
+    double mean = r.dailyRevenue.empty() ? 0 : sum / r.dailyRevenue.size();
+    cout << setprecision(0);
+    cout << "  Revenue/day       mean " << mean << "  p10 " << percentile(r.dailyRevenue, 0.1) << "  p50 "
+         << percentile(r.dailyRevenue, 0.5) << "  p90 " << percentile(r.dailyRevenue, 0.9)
+         << "  | per year " << mean * 365 << endl
+         << endl;
+}
+
+// --strategies: one reply line in the engine's protocol, for the dashboard to show as-is
+static int compareStrategies(char **argv)
+{
+    try
+    {
+        AdvancedParkingSystem engine;
+        string result = engine.simulateStrategies(argv[0], stoi(argv[1]), stoi(argv[2]), stoi(argv[3]), (unsigned)stoul(argv[4]));
+        if (result.compare(0, 6, "ERROR,") == 0)
+        {
+            cout << result << endl;
+            return 1;
+        }
+        cout << "SIMULATION," << result << endl;
+        return 0;
+    }
+    catch (const exception &e)
+    {
+        cout << "ERROR," << e.what() << endl;
+        return 1;
+    }
+}
+
+int main(int argc, char **argv)
+{
+    if (argc == 7 && string(argv[1]) == "--strategies")
+        return compareStrategies(argv + 2);
+
+    vector<Scenario> scenarios;
+    try
+    {
+        if (argc > 1)
+        {
+            ifstream file(argv[1]);
+            if (!file)
+            {
+                cerr << "Cannot open scenario file " << argv[1] << endl;
+                return 1;
+            }
+            string line;
+            while (getline(file, line))
+            {
+                line = line.substr(0, line.find('#'));
+                Scenario s;
+                if (parseScenario(line, s))
+                    scenarios.push_back(s);
+            }
+        }
+        else
+        {
+            const char *defaults[] = {"baseline", "extra-guest-floor addFloor=CAR_GUEST:20", "validation-3h validationHours=3"};
+            for (size_t i = 0; i < 3; ++i)
+            {
+                Scenario s;
+                parseScenario(defaults[i], s);
+                scenarios.push_back(s);
+            }
+        }
+    }
+    catch (const exception &e)
+    {
+        cerr << "Bad scenario: " << e.what() << endl;
+        return 1;
+    }
+
+    // Local midnight of a fixed Monday, so hour-of-day demand lines up with the overflow windows
+    struct tm base = {};
+    base.tm_year = 2024 - 1900;
+    base.tm_mon = 0;
+    base.tm_mday = 1;
+    base.tm_isdst = -1;
+    time_t start = mktime(&base);
+
+    // Flatten scenario x replication into tasks and hand them out to one worker per core
+    vector<TrafficClass> traffic = defaultTraffic();
+    vector<vector<FloorPlan>> layouts;
+    vector<pair<size_t, int>> tasks;
+    for (size_t s = 0; s < scenarios.size(); ++s)
+    {
+        vector<FloorPlan> layout = AdvancedParkingSystem::defaultLayout();
+        for (size_t i = 0; i < scenarios[s].extraFloors.size(); ++i)
+        {
+            FloorPlan floor = scenarios[s].extraFloors[i];
+            floor.floor = layout.back().floor + 1;
+            layout.push_back(floor);
+        }
+        layouts.push_back(layout);
+        for (int r = 0; r < scenarios[s].runs; ++r)
+            tasks.push_back(make_pair(s, r));
+    }
+    vector<RunResult> results(tasks.size());
+    vector<double> taskSeconds(tasks.size());
+    atomic<size_t> nextTask(0);
+    unsigned workers = max(1u, min(thread::hardware_concurrency(), (unsigned)tasks.size()));
+    vector<thread> pool;
+    for (unsigned w = 0; w < workers; ++w)
+    {
+        pool.push_back(thread([&]()
+                              {
+            size_t i;
+            while ((i = nextTask++) < tasks.size())
+            {
+                const Scenario &scenario = scenarios[tasks[i].first];
+                chrono::steady_clock::time_point t0 = chrono::steady_clock::now();
+                SimulationRun run(scenario, traffic, layouts[tasks[i].first], start, scenario.seed + tasks[i].second);
+                results[i] = run.run();
+                taskSeconds[i] = chrono::duration<double>(chrono::steady_clock::now() - t0).count();
+            } }));
+    }
+    for (size_t w = 0; w < pool.size(); ++w)
+        pool[w].join();
+
+    cout << "Simulated " << tasks.size() << " runs on " << workers << " threads" << endl
+         << endl;
+    for (size_t s = 0; s < scenarios.size(); ++s)
+    {
+        RunResult merged;
+        double seconds = 0;
+        for (size_t i = 0; i < tasks.size(); ++i)
+        {
+            if (tasks[i].first != s)
+                continue;
+            merged.merge(results[i]);
+            seconds = max(seconds, taskSeconds[i]);
+        }
+        report(scenarios[s], merged, seconds);
+    }
+    return 0;
+}
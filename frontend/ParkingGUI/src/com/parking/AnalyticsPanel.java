@@ -1,16 +1,20 @@
 package com.parking;
 
-import java.util.Comparator;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.chart.BarChart;
 import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.PieChart;
 import javafx.scene.chart.XYChart;
+import java.time.LocalDate;
+import javafx.scene.control.Button;
+import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 
 public class AnalyticsPanel extends BorderPane {
@@ -18,10 +22,12 @@ public class AnalyticsPanel extends BorderPane {
     private BarChart<String, Number> peakHoursChart;
     private PieChart occupancyChart;
     private Label revenueLabel;
+    private Label accruedLabel;
+    private Label overflowLabel;
 
     private ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
 
-    public AnalyticsPanel() {
+    public AnalyticsPanel(BackendConnector connector) {
         getStyleClass().add("analytics-panel"); // Use specific style class
         setPadding(new Insets(20));
 
@@ -32,7 +38,9 @@ public class AnalyticsPanel extends BorderPane {
         revenueTitle.getStyleClass().add("control-panel-title");
         revenueLabel = new Label("\u20B90.00");
         revenueLabel.getStyleClass().add("revenue-label");
-        revenueBox.getChildren().addAll(revenueTitle, revenueLabel);
+        accruedLabel = new Label("Accruing on exit: \u20B90.00");
+        overflowLabel = new Label("Queueing avoided: 0 vehicles");
+        revenueBox.getChildren().addAll(revenueTitle, revenueLabel, accruedLabel, overflowLabel, createExportRow(connector));
         setTop(revenueBox);
         BorderPane.setMargin(revenueBox, new Insets(0, 0, 20, 0)); // Add margin below
 
@@ -56,6 +64,25 @@ public class AnalyticsPanel extends BorderPane {
         setRight(occupancyChart);
     }
 
+    // --- Transaction export: parking_invoice streams the date range to CSV ---
+    private HBox createExportRow(BackendConnector connector) {
+        LocalDate today = LocalDate.now();
+        DatePicker fromPicker = new DatePicker(today.withDayOfMonth(1));
+        DatePicker toPicker = new DatePicker(today);
+        fromPicker.setPrefWidth(130);
+        toPicker.setPrefWidth(130);
+        Button exportBtn = new Button("Export Transactions");
+        exportBtn.setOnAction(e -> connector.exportTransactions(fromPicker.getValue(), toPicker.getValue()));
+        HBox row = new HBox(8, new Label("From"), fromPicker, new Label("to"), toPicker, exportBtn);
+        row.setAlignment(Pos.CENTER_LEFT);
+        return row;
+    }
+
+    /** Live estimate of fees still to be collected from vehicles currently parked. */
+    public void setAccruedTotal(double total, int billableSlots) {
+        accruedLabel.setText("Accruing on exit: \u20B9" + String.format("%.2f", total) + " (" + billableSlots + " vehicles)");
+    }
+
     public void updateData(String data) {
          if (data == null || data.isEmpty()) {
              System.err.println("Received empty analytics data.");
@@ -70,13 +97,16 @@ public class AnalyticsPanel extends BorderPane {
         String peakData = parts[0];
         String pieData = parts[1];
         String revenue = parts[2];
+        String overflow = parts.length > 3 ? parts[3] : "0";
 
         // 1. Update Peak Hours Chart
         peakHoursChart.getData().clear();
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Entries"); // Add name for clarity if legend is enabled later
         if (!peakData.isEmpty()) {
-            ObservableList<XYChart.Data<String, Number>> dataList = FXCollections.observableArrayList();
+            // Bucket by hour in a primitive array so the chart comes out in hour order
+            int[] entriesByHour = new int[24];
+            boolean[] seenHour = new boolean[24];
             for (String part : peakData.split(";")) {
                 if (part.isEmpty()) continue;
                 String[] pair = part.split(",");
@@ -84,14 +114,12 @@ public class AnalyticsPanel extends BorderPane {
                     try {
                         int hour24 = Integer.parseInt(pair[0]);
                         int count = Integer.parseInt(pair[1]);
-
-                        String hourLabel;
-                        if (hour24 == 0) hourLabel = "12 AM";
-                        else if (hour24 == 12) hourLabel = "12 PM";
-                        else if (hour24 > 12) hourLabel = (hour24 - 12) + " PM";
-                        else hourLabel = hour24 + " AM";
-
-                        dataList.add(new XYChart.Data<>(hourLabel, count));
+                        if (hour24 < 0 || hour24 > 23) {
+                            System.err.println("Peak hour out of range: " + part);
+                            continue;
+                        }
+                        entriesByHour[hour24] += count;
+                        seenHour[hour24] = true;
                     } catch (NumberFormatException e) {
                         System.err.println("Error parsing peak hour data: " + part + " - " + e.getMessage());
                     }
@@ -99,16 +127,16 @@ public class AnalyticsPanel extends BorderPane {
                      System.err.println("Malformed peak hour pair: " + part);
                 }
             }
-             // Sort data by hour for better chart display
-            dataList.sort(Comparator.comparingInt(d -> {
-                try {
-                    String label = d.getXValue();
-                    int hour = Integer.parseInt(label.split(" ")[0]);
-                    if (label.contains("PM") && hour != 12) hour += 12;
-                    if (label.contains("AM") && hour == 12) hour = 0; // Midnight case
-                    return hour;
-                } catch (Exception e) { return 24; } // Put errors at the end
-            }));
+            ObservableList<XYChart.Data<String, Number>> dataList = FXCollections.observableArrayList();
+            for (int hour24 = 0; hour24 < 24; hour24++) {
+                if (!seenHour[hour24]) continue;
+                String hourLabel;
+                if (hour24 == 0) hourLabel = "12 AM";
+                else if (hour24 == 12) hourLabel = "12 PM";
+                else if (hour24 > 12) hourLabel = (hour24 - 12) + " PM";
+                else hourLabel = hour24 + " AM";
+                dataList.add(new XYChart.Data<>(hourLabel, entriesByHour[hour24]));
+            }
             series.setData(dataList);
         }
         peakHoursChart.getData().add(series);
@@ -148,5 +176,8 @@ public class AnalyticsPanel extends BorderPane {
              System.err.println("Error parsing revenue data: " + revenue + " - " + e.getMessage());
              revenueLabel.setText("\u20B9?.??");
         }
+
+        // 4. Overflow placements (vehicles that would otherwise have been queued)
+        overflowLabel.setText("Queueing avoided: " + overflow.trim() + " vehicles parked via overflow");
     }
 }
\ No newline at end of file
@@ -5,41 +5,91 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javafx.application.Platform;
 
 /**
  * BackendConnector: manages communication with backend EXE and keeps
  * waiting-queues for items that couldn't be parked immediately.
  *
- * Exposes small API for MainDashboard to read/assign/poll queues.
+ * Replies are published as typed events on an {@link EventBus}; the connector
+ * does not know who consumes them. Exposes small API to read/assign/poll queues.
  */
 public class BackendConnector {
     private Process backendProcess;
     private BufferedWriter processWriter;
     private BufferedReader processReader;
 
-    private MainDashboard mainApp;
+    private final EventBus events;
+    private final SlotStateTable slotTable; // written here, once per STATUS
     private BiConsumer<String, Boolean> statusNotifier;
 
+    // The engine answers every command line with exactly one response line, in order.
+    // Each written command enqueues the handler for its reply here so pipelined
+    // callers (bulk import) can correlate responses without a request id.
+    // Only the writer thread adds to it, right before writing, so the order matches the pipe.
+    private final Queue<Consumer<String>> pendingReplies = new ConcurrentLinkedQueue<>();
+    private final Consumer<String> defaultReplyHandler = this::handleBackendResponse;
+
+    // ----- Outbox -----
+    // Callers (FX thread, timers, importers) only enqueue; one virtual writer thread owns the pipe,
+    // so a slow engine stalls the writer rather than the UI.
+    private static final class Outgoing {
+        final String command;
+        final Consumer<String> onReply;
+        final long enqueuedNanos;
+
+        Outgoing(String command, Consumer<String> onReply) {
+            this.command = command;
+            this.onReply = onReply;
+            this.enqueuedNanos = System.nanoTime();
+        }
+    }
+
+    private final Queue<Outgoing> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outboxDepth = new AtomicInteger();
+    private final AtomicLong maxWriteLatencyNanos = new AtomicLong(); // since the last summary
+    private volatile long writtenCount = 0;        // written by the writer thread only
+    private volatile long writeLatencyTotalNanos = 0;
+    private long summaryWritten = 0, summaryLatencyTotal = 0;
+    private volatile Thread writerThread;
+    private volatile boolean running = false;
+
+    // Amount in "Bill \u20B912.00 to Room ...", "Penalty fee due: \u20B950.00", "Pre-paid: \u20B940.00"
+    private static final Pattern FEE_PATTERN = Pattern.compile("\u20B9\\s*([0-9]+(?:\\.[0-9]+)?)");
+
+    // Engine stderr, kept out of the reply stream
+    private static final String ENGINE_ERROR_LOG = "engine-errors.log";
     // Absolute path tuned earlier
     private static final String BACKEND_PATH =
         "C:\\Users\\Bhuban Wakode\\Documents\\Projects\\grand-parking-system\\backend\\parking_backend.exe";
 
     // ----- Waiting queues (frontend-side) -----
     public static class WaitingVehicle {
-        public final String plate;
+        public final int plateId;   // PlateRegistry ID
+        public final String plate;  // canonical shared instance from PlateRegistry
         public final String name;
         public final String type; // "BIKE" or "CAR" (or "CAR_GUEST"/etc)
 
         public WaitingVehicle(String plate, String name, String type) {
-            this.plate = plate;
+            PlateRegistry plates = PlateRegistry.getInstance();
+            this.plateId = plates.idOf(plate);
+            this.plate = plates.plateOf(plateId);
             this.name = (name == null || name.trim().isEmpty()) ? "Guest" : name.trim();
             this.type = type;
         }
@@ -48,8 +98,15 @@ public class BackendConnector {
     private final Queue<WaitingVehicle> bikeQueue = new LinkedList<>();
     private final Queue<WaitingVehicle> carQueue  = new LinkedList<>();
 
-    public BackendConnector(MainDashboard app, BiConsumer<String, Boolean> statusNotifier) {
-        this.mainApp = app;
+    // Reservations switch slots to/from "reserved" on the clock, not on a command reply,
+    // so we schedule a STATUS refresh at those moments (grace period matches the engine)
+    private static final long RESERVATION_GRACE_SECONDS = 15 * 60;
+    private final Timer reservationRefreshTimer = new Timer("reservation-refresh", true);
+
+    /** @param statusNotifier connection lifecycle messages (started, lost, offline) */
+    public BackendConnector(EventBus events, SlotStateTable slotTable, BiConsumer<String, Boolean> statusNotifier) {
+        this.events = events;
+        this.slotTable = slotTable;
         this.statusNotifier = statusNotifier;
     }
 
@@ -64,7 +121,9 @@ public class BackendConnector {
             }
 
             ProcessBuilder pb = new ProcessBuilder(BACKEND_PATH);
-            pb.redirectErrorStream(true);
+            // Replies are matched to commands by position, so stdout must carry exactly
+            // one line per command; anything the engine prints on stderr goes to a log
+            pb.redirectError(ProcessBuilder.Redirect.appendTo(new File(ENGINE_ERROR_LOG)));
             backendProcess = pb.start();
 
             processWriter = new BufferedWriter(new OutputStreamWriter(backendProcess.getOutputStream()));
@@ -75,7 +134,8 @@ public class BackendConnector {
                     String line;
                     while ((line = processReader.readLine()) != null) {
                         System.out.println("RAW RCV <- " + line);
-                        handleBackendResponse(line);
+                        Consumer<String> replyHandler = pendingReplies.poll();
+                        (replyHandler != null ? replyHandler : defaultReplyHandler).accept(line);
                     }
                 } catch (Exception e) {
                     if (backendProcess != null && backendProcess.isAlive()) {
@@ -89,6 +149,10 @@ public class BackendConnector {
             readerThread.setDaemon(true);
             readerThread.start();
 
+            running = true;
+            // Virtual (and so daemon): it only parks between drains and blocks on the pipe
+            writerThread = Thread.ofVirtual().name("backend-writer").start(this::runWriter);
+
             statusNotifier.accept("Backend connected successfully.", false);
         } catch (Exception e) {
             statusNotifier.accept(
@@ -104,46 +168,51 @@ public class BackendConnector {
      * "SUCCESS,Lot full for CAR_GUEST. Vehicle MH01XX1111 added to waiting queue."
      */
     private void handleBackendResponse(String response) {
-        Platform.runLater(() -> {
-            try {
-                String[] parts = response.split(",", 2);
-                String type = parts[0];
-                String message = parts.length > 1 ? parts[1].trim() : "";
-
-                if ("SUCCESS".equals(type)) {
-                    // If backend tells us the vehicle was added to waiting queue, parse it
-                    parseWaitingQueueMessage(message);
-
-                    // Many SUCCESS messages carry either parking info or generic messages
-                    statusNotifier.accept(message, false);
+        handleBackendResponse(response, true);
+    }
 
+    /** @param refreshOnSuccess false when the caller will refresh once for a whole batch */
+    private void handleBackendResponse(String response, boolean refreshOnSuccess) {
+        try {
+            String[] parts = response.split(",", 2);
+            String type = parts[0];
+            String message = parts.length > 1 ? parts[1].trim() : "";
+
+            if ("SUCCESS".equals(type)) {
+                // If backend tells us the vehicle was added to waiting queue, parse it
+                parseWaitingQueueMessage(message);
+                // Exit and pre-paid messages carry the amount charged
+                Matcher fee = FEE_PATTERN.matcher(message);
+                if (fee.find()) events.publishFee(Double.parseDouble(fee.group(1)), message);
+                events.publishText(EventBus.REPLY, type, message);
+
+                if (refreshOnSuccess) {
                     // Also request a fresh STATUS so UI gets the latest occupancy
                     sendCommand("STATUS");
-                } else if ("ERROR".equals(type)) {
-                    statusNotifier.accept("Backend Error: " + message, true);
-                } else if ("STATUS".equals(type)) {
-                    // forward raw status payload to UI updater
-                    mainApp.updateUI(message);
-                } else if ("ANALYTICS".equals(type)) {
-                    // MainDashboard does not define updateAnalytics(String); instead,
-                    // forward analytics payload as a status so the UI can surface it,
-                    // or implement updateAnalytics in MainDashboard and revert this change.
-                    statusNotifier.accept("ANALYTICS: " + message, false);
-                } else if ("USERS".equals(type)) {
-                    // MainDashboard may not implement updateUserList(String); forward as status
-                    // so the UI can decide how to present the user list payload.
-                    statusNotifier.accept("USERS: " + message, false);
-                } else if ("DETAILS".equals(type) || "DETAIL".equals(type)) {
-                    mainApp.showSlotDetails(message);
-                } else {
-                    // Unknown responses - forward as status so user sees them
-                    statusNotifier.accept(response, false);
+                    // ...and billing inputs, since PARK/REMOVE/VALIDATE change them
+                    sendCommand("GET_BILLING");
                 }
-            } catch (Exception e) {
-                System.err.println("Error handling backend response: " + e.getMessage());
-                e.printStackTrace();
+            } else if ("ERROR".equals(type)) {
+                events.publishText(EventBus.COMMAND_FAILED, type, message);
+            } else if ("STATUS".equals(type)) {
+                // Parse once into the shared table, then announce what changed
+                slotTable.apply(message);
+                for (int i = 0; i < slotTable.changedCount(); i++) {
+                    int slotId = slotTable.changedSlot(i);
+                    events.publishSlot(slotId, slotTable.get(slotId));
+                }
+                events.publishText(EventBus.STATUS, type, message);
+            } else if (parts.length > 1) {
+                // ANALYTICS, BILLING, DETAILS, OCCUPANCY, SIMULATION, ...: consumers decide
+                events.publishText(EventBus.REPLY, type, message);
+            } else {
+                // Unknown responses - forward so the user sees them
+                events.publishText(EventBus.REPLY, "", response);
             }
-        });
+        } catch (Exception e) {
+            System.err.println("Error handling backend response: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
 
     // parse messages indicating waiting queue addition
@@ -156,7 +225,7 @@ public class BackendConnector {
             Matcher m = p.matcher(msg);
             if (m.find()) {
                 String constraint = m.group(1).toUpperCase(); // e.g., CAR_GUEST or BIKE
-                String plate = m.group(2).toUpperCase();
+                String plate = m.group(2);
 
                 // Map constraint to simplified type for frontend-queues
                 String simplifiedType = mapConstraintToType(constraint);
@@ -169,8 +238,7 @@ public class BackendConnector {
                     synchronized (carQueue) { carQueue.add(w); }
                 }
 
-                // Tell UI to refresh waiting queue table
-                mainApp.updateWaitingQueuesUI(); // new method in MainDashboard
+                events.publishQueue(EventBus.VEHICLE_QUEUED, w.plateId, simplifiedType);
             }
         } catch (Exception ignored) {}
     }
@@ -204,19 +272,15 @@ public class BackendConnector {
     }
 
     public WaitingVehicle pollNextForType(String type) {
+        WaitingVehicle v;
         if ("BIKE".equals(type)) {
-            synchronized (bikeQueue) { 
-                WaitingVehicle v = bikeQueue.poll();
-                mainApp.updateWaitingQueuesUI();
-                return v;
-            }
+            synchronized (bikeQueue) { v = bikeQueue.poll(); }
         } else {
-            synchronized (carQueue) { 
-                WaitingVehicle v = carQueue.poll();
-                mainApp.updateWaitingQueuesUI();
-                return v;
-            }
+            synchronized (carQueue) { v = carQueue.poll(); }
         }
+        // Published outside the queue lock: a full ring waits on consumers that read the queues
+        if (v != null) events.publishQueue(EventBus.VEHICLE_DEQUEUED, v.plateId, type);
+        return v;
     }
 
     /** Forcefully add a waiting vehicle into queue (front-end action) */
@@ -227,31 +291,176 @@ public class BackendConnector {
         } else {
             synchronized (carQueue) { carQueue.add(w); }
         }
-        mainApp.updateWaitingQueuesUI();
+        events.publishQueue(EventBus.VEHICLE_QUEUED, w.plateId, type);
     }
 
     // ---------- Commands ----------
 
+    /** Queues the command and returns at once; the writer thread puts it on the pipe. */
     private void sendCommand(String command) {
-        if (backendProcess == null || !backendProcess.isAlive()) {
+        if (!running || !backendProcess.isAlive()) {
             statusNotifier.accept("Backend offline. Command dropped: " + command, true);
             return;
         }
+        System.out.println("SEND -> " + command);
+        enqueue(new Outgoing(command, defaultReplyHandler));
+        LockSupport.unpark(writerThread);
+    }
 
+    /**
+     * Pipelined send: queues all commands back-to-back; the writer flushes them together.
+     * Each reply is routed to {@code onReply} (on the reader thread) instead of the
+     * normal response handling, so batches don't trigger a STATUS refresh per line.
+     * Never blocks on the pipe.
+     *
+     * @return false if the backend is offline
+     */
+    public boolean sendPipelined(List<String> commands, Consumer<String> onReply) {
+        if (!running || !backendProcess.isAlive()) {
+            statusNotifier.accept("Backend offline. " + commands.size() + " commands dropped.", true);
+            return false;
+        }
+        for (String command : commands) enqueue(new Outgoing(command, onReply));
+        LockSupport.unpark(writerThread);
+        return true;
+    }
+
+    private void enqueue(Outgoing out) {
+        outboxDepth.incrementAndGet();
+        outbox.offer(out);
+    }
+
+    // Single consumer: drains everything queued, registers reply handlers in write order, flushes once
+    private void runWriter() {
         try {
-            System.out.println("SEND -> " + command);
-            processWriter.write(command + "\n");
-            processWriter.flush();
+            while (running) {
+                Outgoing next = outbox.poll();
+                if (next == null) {
+                    LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+                    continue;
+                }
+                int n = 0;
+                long enqueuedSum = 0, oldest = next.enqueuedNanos;
+                do {
+                    outboxDepth.decrementAndGet();
+                    pendingReplies.add(next.onReply);
+                    processWriter.write(next.command);
+                    processWriter.write('\n');
+                    enqueuedSum += next.enqueuedNanos;
+                    n++;
+                } while ((next = outbox.poll()) != null);
+                processWriter.flush();
+
+                long flushed = System.nanoTime();
+                writeLatencyTotalNanos += n * flushed - enqueuedSum;
+                writtenCount += n;
+                maxWriteLatencyNanos.accumulateAndGet(flushed - oldest, Math::max);
+            }
         } catch (Exception e) {
-            statusNotifier.accept("Failed to send: " + e.getMessage(), true);
+            if (running && backendProcess.isAlive()) {
+                statusNotifier.accept("Failed to send: " + e.getMessage(), true);
+            }
+        } finally {
+            running = false;
+            int dropped = 0;
+            while (outbox.poll() != null) dropped++;
+            outboxDepth.addAndGet(-dropped);
         }
     }
 
+    /** Commands queued but not yet written to the engine. */
+    public int getOutboxDepth() { return outboxDepth.get(); }
+
+    /**
+     * "Outbox: depth, avg / max enqueue-to-write latency" since the previous call.
+     * Call from one thread (the FX status ticker).
+     */
+    public String outboxSummary() {
+        long written = writtenCount, total = writeLatencyTotalNanos;
+        long n = written - summaryWritten;
+        double avgMs = n > 0 ? (total - summaryLatencyTotal) / 1e6 / n : 0;
+        summaryWritten = written;
+        summaryLatencyTotal = total;
+        return String.format("Outbox: %d queued | write latency avg %.2f ms, max %.2f ms",
+            outboxDepth.get(), avgMs, maxWriteLatencyNanos.getAndSet(0) / 1e6);
+    }
+
+    /**
+     * Pipelined batch of state-changing commands (gate events). Replies get the normal
+     * handling except that STATUS/BILLING are refreshed once after the last reply
+     * rather than once per SUCCESS. {@code onReply} sees every raw reply as well.
+     */
+    public boolean sendBatchWithSingleRefresh(List<String> commands, Consumer<String> onReply) {
+        if (commands.isEmpty()) return true;
+        AtomicInteger remaining = new AtomicInteger(commands.size());
+        return sendPipelined(commands, reply -> {
+            handleBackendResponse(reply, false);
+            if (onReply != null) onReply.accept(reply);
+            if (remaining.decrementAndGet() == 0) {
+                sendCommand("STATUS");
+                sendCommand("GET_BILLING");
+            }
+        });
+    }
+
     public void getInitialStatus() { sendCommand("STATUS"); }
     public void getAnalytics() { sendCommand("GET_ANALYTICS"); }
     public void getUsers() { sendCommand("GET_USERS"); }
+    public void getBilling() { sendCommand("GET_BILLING"); }
+    public void getOccupancy() { sendCommand("GET_OCCUPANCY"); }
     public void getSlotDetails(int slotId) { sendCommand("GET_DETAILS," + slotId); }
 
+    /**
+     * Writes the transactions that left between the two dates (inclusive) to a CSV next to the engine's log.
+     * Runs parking_invoice --export rather than an engine command: a month takes seconds to scan, and the
+     * engine answers commands one at a time.
+     */
+    public void exportTransactions(java.time.LocalDate from, java.time.LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            statusNotifier.accept("Pick a start date on or before the end date.", true); return;
+        }
+        runTool("parking_invoice", "--export", from.toString(), to.toString());
+    }
+
+    /**
+     * Runs one of the offline tools built next to the engine (parking_invoice, parking_sim) on its own
+     * virtual thread and handles the last line it prints like an engine reply. Its replies are not matched
+     * by position, so they never disturb the pending engine replies.
+     */
+    private void runTool(String tool, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(toolPath(tool));
+        for (String arg : args) command.add(arg);
+        Thread.ofVirtual().name(tool).start(() -> {
+            try {
+                ProcessBuilder pb = new ProcessBuilder(command);
+                pb.redirectError(ProcessBuilder.Redirect.appendTo(new File(ENGINE_ERROR_LOG)));
+                Process process = pb.start();
+                process.getOutputStream().close();
+                String reply = null;
+                try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = out.readLine()) != null) reply = line;
+                }
+                process.waitFor();
+                if (reply == null) {
+                    statusNotifier.accept(tool + " gave no result; see " + ENGINE_ERROR_LOG, true);
+                } else {
+                    handleBackendResponse(reply, false);
+                }
+            } catch (Exception e) {
+                statusNotifier.accept("Could not run " + tool + ": " + e.getMessage(), true);
+            }
+        });
+    }
+
+    /** An offline tool in the engine's directory, with the engine's executable suffix. */
+    private static String toolPath(String tool) {
+        File engine = new File(BACKEND_PATH);
+        String suffix = BACKEND_PATH.endsWith(".exe") ? ".exe" : "";
+        return new File(engine.getParentFile(), tool + suffix).getPath();
+    }
+
     public void parkVehicle(String plate, String type, String name, int duration, int valet) {
         if (plate == null || plate.trim().isEmpty()) {
             statusNotifier.accept("Plate cannot be empty.", true); return;
@@ -280,6 +489,92 @@ public class BackendConnector {
         sendCommand("FIND," + plate.trim().toUpperCase());
     }
 
+    /** Books a slot for [startEpoch, endEpoch); times are epoch seconds. */
+    public void reserveSlot(String plate, String type, String name, long startEpoch, long endEpoch) {
+        if (plate == null || plate.trim().isEmpty()) {
+            statusNotifier.accept("Plate cannot be empty.", true); return;
+        }
+        if (endEpoch <= startEpoch) {
+            statusNotifier.accept("Reservation must end after it starts.", true); return;
+        }
+        String driver = (name == null) ? "" : name.trim();
+        String command = "RESERVE," + plate.trim().toUpperCase() + "," + type + "," + driver + "," + startEpoch + "," + endEpoch;
+        sendPipelined(List.of(command), reply -> {
+            handleBackendResponse(reply);
+            // Only a booking that was made changes the board when its window opens and closes
+            if (reply.startsWith("SUCCESS,")) {
+                scheduleStatusRefresh(startEpoch - RESERVATION_GRACE_SECONDS);
+                scheduleStatusRefresh(endEpoch);
+            }
+        });
+    }
+
+    private void scheduleStatusRefresh(long epochSeconds) {
+        long delayMillis = epochSeconds * 1000L + 500 - System.currentTimeMillis();
+        if (delayMillis <= 0) return; // already covered by the reply-triggered refresh
+        reservationRefreshTimer.schedule(new TimerTask() {
+            @Override
+            public void run() { sendCommand("STATUS"); }
+        }, delayMillis);
+    }
+
+    public void cancelReservation(int reservationId) {
+        sendCommand("CANCEL_RESERVATION," + reservationId);
+    }
+
+    /** Asks how many slots of the plate's constraint class are free for the window. */
+    public void checkAvailability(String plate, String type, long startEpoch, long endEpoch) {
+        String p = (plate == null || plate.trim().isEmpty()) ? "-" : plate.trim().toUpperCase();
+        sendCommand("AVAILABILITY," + p + "," + type + "," + startEpoch + "," + endEpoch);
+    }
+
+    // ---------- Allocation policy ----------
+
+    public void setOverflowRule(String fromConstraint, String toConstraint, int fromHour, int toHour, int headroomPercent) {
+        sendCommand("SET_OVERFLOW," + fromConstraint + "," + toConstraint + "," + fromHour + "," + toHour + "," + headroomPercent);
+    }
+
+    public void clearOverflowRules() { sendCommand("CLEAR_OVERFLOW"); }
+    public void getOverflowStats() { sendCommand("GET_OVERFLOW_STATS"); }
+
+    /** LOWEST_ID, NEAREST_EXIT, AISLE_ROUND_ROBIN or LRU. */
+    public void setSelectionStrategy(String strategy) { sendCommand("SET_STRATEGY," + strategy); }
+
+    /**
+     * Replays a year of synthetic traffic for one constraint class against every strategy.
+     * Runs parking_sim --strategies, so the engine keeps answering commands meanwhile.
+     */
+    public void compareStrategies(String constraint, int occupancyPercent, int meanStayMinutes) {
+        runTool("parking_sim", "--strategies", constraint, "8760", String.valueOf(occupancyPercent),
+            String.valueOf(meanStayMinutes), String.valueOf(System.nanoTime() & 0x7fffffff));
+    }
+
+    /**
+     * Replaces the engine's overflow rules with the ones in a CSV file:
+     * fromConstraint,toConstraint,fromHour,toHour,headroomPercent (# starts a comment).
+     * Does nothing if the file is missing; the engine starts with no overflow rules.
+     */
+    public void loadOverflowRules(Path file) {
+        if (file == null || !Files.isRegularFile(file)) return;
+        try {
+            List<String> lines = Files.readAllLines(file);
+            clearOverflowRules();
+            for (String line : lines) {
+                String l = line.trim();
+                if (l.isEmpty() || l.startsWith("#")) continue;
+                String[] f = l.split(",");
+                if (f.length != 5) {
+                    System.err.println("Malformed overflow rule: " + line);
+                    continue;
+                }
+                setOverflowRule(f[0].trim().toUpperCase(), f[1].trim().toUpperCase(),
+                    Integer.parseInt(f[2].trim()), Integer.parseInt(f[3].trim()), Integer.parseInt(f[4].trim()));
+            }
+        } catch (Exception e) {
+            statusNotifier.accept("Could not load overflow rules: " + e.getMessage(), true);
+        }
+    }
+
     public void registerUser(String plate, String name, int type, String billingId) {
         if (plate == null || plate.trim().isEmpty() ||
             name == null || name.trim().isEmpty() ||
@@ -290,10 +585,31 @@ public class BackendConnector {
         sendCommand("REGISTER," + plate.trim().toUpperCase() + "," + name.trim() + "," + type + "," + billingId.trim());
     }
 
+    /** One profile from the engine's store; GET_USERS lists only the first USER_LIST_LIMIT. */
+    public void getUser(String plate) {
+        if (plate == null || plate.trim().isEmpty()) {
+            statusNotifier.accept("Plate cannot be empty.", true); return;
+        }
+        sendCommand("GET_USER," + plate.trim().toUpperCase());
+    }
+
+    /** Blacklists (or clears) a plate; the engine refuses PARK for blocked plates, gate feed included. */
+    public void setBlocked(String plate, boolean blocked) {
+        if (plate == null || plate.trim().isEmpty()) {
+            statusNotifier.accept("Plate cannot be empty.", true); return;
+        }
+        sendCommand("BLOCK," + plate.trim().toUpperCase() + "," + (blocked ? 1 : 0));
+    }
+
     public void stopBackend() {
+        reservationRefreshTimer.cancel();
+        running = false;
+        if (writerThread != null) LockSupport.unpark(writerThread);
         try {
             if (processWriter != null) processWriter.close();
             if (processReader != null) processReader.close();
+            // Closing stdin lets the engine write its pending transaction row group
+            if (backendProcess != null) backendProcess.waitFor(1, TimeUnit.SECONDS);
             if (backendProcess != null && backendProcess.isAlive()) {
                 backendProcess.destroyForcibly();
                 System.out.println("Backend terminated.");
@@ -0,0 +1,234 @@
+package com.parking;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * BulkUserImporter: streams a CSV of users into the engine as REGISTER commands.
+ *
+ * Expected columns: plate,name,type,billingId where type is 0-3 or
+ * Guest/Resident/Hotel/Staff. A header row is skipped automatically.
+ *
+ * Rows are read in chunks, validated in parallel, then sent to the backend as
+ * pipelined batches with a bounded number of unanswered commands in flight.
+ * The user directory is refreshed once when the whole file is done. Rows the
+ * backend never answered (timeout, lost connection) are reported as failed.
+ */
+public class BulkUserImporter {
+
+    /** Progress callbacks; invoked from the importer and backend reader threads. */
+    public interface Listener {
+        void onProgress(long rowsRead, int registered, int failed, double fractionDone);
+        void onRowError(long lineNumber, String plate, String reason);
+        void onComplete(int registered, int failed, boolean cancelled);
+    }
+
+    private static final String[] USER_TYPES = {"Guest", "Resident", "Hotel", "Staff"}; // Match enum order
+    private static final int CHUNK_SIZE = 1024;
+    private static final int MAX_IN_FLIGHT = 512;
+    private static final long REPLY_TIMEOUT_SECONDS = 30;
+
+    private final BackendConnector connector;
+    private final Listener listener;
+    private volatile boolean cancelled = false;
+
+    private final AtomicInteger registered = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    // Sent rows without a reply; whoever removes a row (reply handler or the final drain) counts it
+    private final Set<Row> outstanding = ConcurrentHashMap.newKeySet();
+
+    public BulkUserImporter(BackendConnector connector, Listener listener) {
+        this.connector = connector;
+        this.listener = listener;
+    }
+
+    public void cancel() { cancelled = true; }
+
+    // One parsed CSV line; command is null when the row failed validation
+    private static final class Row {
+        final long lineNumber;
+        final String plate;
+        String command;
+        String error;
+
+        Row(long lineNumber, String plate) {
+            this.lineNumber = lineNumber;
+            this.plate = plate;
+        }
+    }
+
+    /** Blocking; run this off the FX thread. */
+    public void importFile(File csv) {
+        long totalBytes = Math.max(1, csv.length());
+        long bytesRead = 0;
+        long lineNumber = 0;
+        Set<String> seenPlates = new HashSet<>();
+        List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(csv), StandardCharsets.UTF_8))) {
+            String line;
+            long chunkStartLine = 1;
+            while (!cancelled && (line = reader.readLine()) != null) {
+                lineNumber++;
+                bytesRead += line.length() + 1;
+                if (lineNumber == 1 && line.toLowerCase().startsWith("plate")) {
+                    chunkStartLine = 2;
+                    continue; // header
+                }
+                chunk.add(line);
+                if (chunk.size() == CHUNK_SIZE) {
+                    processChunk(chunk, chunkStartLine, seenPlates);
+                    chunkStartLine = lineNumber + 1;
+                    chunk.clear();
+                    listener.onProgress(lineNumber, registered.get(), failed.get(),
+                        Math.min(1.0, (double) bytesRead / totalBytes));
+                }
+            }
+            if (!cancelled && !chunk.isEmpty()) {
+                processChunk(chunk, chunkStartLine, seenPlates);
+            }
+        } catch (Exception e) {
+            listener.onRowError(lineNumber, "-", "Import aborted: " + e.getMessage());
+            cancelled = true;
+        }
+
+        awaitOutstandingReplies();
+        for (Row row : outstanding) {
+            if (!outstanding.remove(row)) continue; // answered meanwhile
+            failed.incrementAndGet();
+            listener.onRowError(row.lineNumber, row.plate, "No reply from backend; registration unconfirmed");
+        }
+        listener.onProgress(lineNumber, registered.get(), failed.get(), 1.0);
+        connector.getUsers(); // single directory refresh for the whole import
+        listener.onComplete(registered.get(), failed.get(), cancelled);
+    }
+
+    private void processChunk(List<String> lines, long firstLineNumber, Set<String> seenPlates) throws InterruptedException {
+        Row[] rows = new Row[lines.size()];
+        IntStream.range(0, rows.length).parallel()
+            .forEach(i -> rows[i] = parseRow(lines.get(i), firstLineNumber + i));
+
+        List<String> commands = new ArrayList<>(rows.length);
+        List<Row> sent = new ArrayList<>(rows.length);
+        for (Row row : rows) {
+            if (row.command != null && !seenPlates.add(row.plate)) {
+                row.command = null;
+                row.error = "Duplicate plate in file";
+            }
+            if (row.command == null) {
+                if (row.error != null) {
+                    failed.incrementAndGet();
+                    listener.onRowError(row.lineNumber, row.plate, row.error);
+                }
+                continue;
+            }
+            commands.add(row.command);
+            sent.add(row);
+        }
+        if (commands.isEmpty()) return;
+
+        // Bounded pipelining: never more than MAX_IN_FLIGHT unanswered REGISTERs
+        for (int from = 0; from < commands.size(); from += MAX_IN_FLIGHT) {
+            int to = Math.min(commands.size(), from + MAX_IN_FLIGHT);
+            int batchSize = to - from;
+            if (!inFlight.tryAcquire(batchSize, REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Backend stopped answering");
+            }
+
+            List<Row> batchRows = sent.subList(from, to);
+            outstanding.addAll(batchRows);
+            AtomicInteger replyIndex = new AtomicInteger();
+            boolean ok = connector.sendPipelined(commands.subList(from, to), reply -> {
+                Row row = batchRows.get(replyIndex.getAndIncrement());
+                inFlight.release();
+                if (!outstanding.remove(row)) return; // already reported as unconfirmed
+                if (reply.startsWith("SUCCESS")) {
+                    registered.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                    int comma = reply.indexOf(',');
+                    listener.onRowError(row.lineNumber, row.plate, comma >= 0 ? reply.substring(comma + 1) : reply);
+                }
+            });
+            if (!ok) {
+                inFlight.release(batchSize);
+                throw new IllegalStateException("Backend offline");
+            }
+        }
+    }
+
+    private void awaitOutstandingReplies() {
+        try {
+            if (inFlight.tryAcquire(MAX_IN_FLIGHT, REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                inFlight.release(MAX_IN_FLIGHT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- Validation (pure, safe to run in parallel) ----------
+
+    private static Row parseRow(String line, long lineNumber) {
+        String[] parts = line.split(",", -1);
+        String plate = parts.length > 0 ? unquote(parts[0]).toUpperCase() : "";
+        Row row = new Row(lineNumber, plate.isEmpty() ? "-" : plate);
+
+        if (line.trim().isEmpty()) return row; // blank lines are skipped silently
+        if (parts.length != 4) {
+            row.error = "Expected 4 columns (plate,name,type,billingId), got " + parts.length;
+            return row;
+        }
+        String name = unquote(parts[1]);
+        String typeField = unquote(parts[2]);
+        String billingId = unquote(parts[3]);
+
+        if (!plate.matches("[A-Z0-9]{4,12}")) {
+            row.error = "Invalid plate '" + plate + "'";
+        } else if (name.isEmpty() || billingId.isEmpty()) {
+            row.error = "Name and Billing ID are required";
+        } else if (name.indexOf(';') >= 0 || billingId.indexOf(';') >= 0) {
+            row.error = "';' is not allowed in name or billing ID";
+        } else {
+            int type = parseUserType(typeField);
+            if (type < 0) {
+                row.error = "Unknown user type '" + typeField + "'";
+            } else {
+                row.command = "REGISTER," + plate + "," + name + "," + type + "," + billingId;
+            }
+        }
+        return row;
+    }
+
+    static int parseUserType(String field) {
+        for (int i = 0; i < USER_TYPES.length; i++) {
+            if (USER_TYPES[i].equalsIgnoreCase(field)) return i;
+        }
+        try {
+            int type = Integer.parseInt(field);
+            return (type >= 0 && type < USER_TYPES.length) ? type : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String unquote(String field) {
+        String f = field.trim();
+        if (f.length() >= 2 && f.startsWith("\"") && f.endsWith("\"")) f = f.substring(1, f.length() - 1).trim();
+        return f;
+    }
+}
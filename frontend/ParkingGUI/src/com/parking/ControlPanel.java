@@ -1,8 +1,15 @@
 package com.parking;
 
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.Random;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -12,8 +19,9 @@ import javafx.scene.layout.VBox;
 public class ControlPanel extends VBox {
 
     private BackendConnector connector;
+    private UnaryOperator<String> plateResolver = plate -> plate; // typed plate -> plate to send, null = cancel
 
-    private TitledPane entryGatePane, exitGatePane, findCarPane, detailsPane;
+    private TitledPane entryGatePane, exitGatePane, findCarPane, detailsPane, reservationPane, allocationPane;
 
     private TextField entryPlateField, entryNameField;
     private ComboBox<String> entryTypeCombo;
@@ -22,10 +30,17 @@ public class ControlPanel extends VBox {
 
     private TextField exitPlateField;
     private TextField findPlateField;
+
+    private TextField reservePlateField, reserveNameField, cancelIdField;
+    private ComboBox<String> reserveTypeCombo;
+    private DatePicker reserveDatePicker;
+    private Spinner<Integer> reserveHourSpinner, reserveHoursSpinner;
     private VBox waitingQueueBox;
     private Label queueBike, queueCarGuest, queueCarHotel, queueCarResident, queueTruck, queueStaff;
+    private Label forecastLabel;
+    private OccupancyForecaster forecaster;
 
-    private Label detailPlate, detailName, detailTime;
+    private Label detailPlate, detailName, detailTime, detailFee;
 
     public ControlPanel(BackendConnector connector) {
         this.connector = connector;
@@ -36,6 +51,8 @@ public class ControlPanel extends VBox {
         entryGatePane = new TitledPane("Entry Gate", createEntryGate());
         exitGatePane = new TitledPane("Exit & Validation", createExitGate());
         findCarPane = new TitledPane("Find My Car", createFindCar());
+        reservationPane = lazyPane("Reservations", this::createReservations);
+        allocationPane = lazyPane("Slot Allocation", this::createAllocation);
 
         waitingQueueBox = createWaitingQueueSection();
 
@@ -44,9 +61,13 @@ public class ControlPanel extends VBox {
         entryGatePane.setCollapsible(true);
         exitGatePane.setCollapsible(true);
         findCarPane.setCollapsible(true);
+        reservationPane.setCollapsible(true);
+        reservationPane.setExpanded(false);
+        allocationPane.setCollapsible(true);
+        allocationPane.setExpanded(false);
         entryGatePane.setExpanded(true); // Start with Entry expanded
 
-        getChildren().addAll(detailsPane, entryGatePane, exitGatePane, findCarPane, waitingQueueBox);
+        getChildren().addAll(detailsPane, entryGatePane, exitGatePane, findCarPane, reservationPane, allocationPane, waitingQueueBox);
     }
 
     private VBox createDetailsSection() {
@@ -54,12 +75,14 @@ public class ControlPanel extends VBox {
         detailPlate = new Label("Plate: -");
         detailName = new Label("Name: -");
         detailTime = new Label("Entry: -");
+        detailFee = new Label("Due now: -");
 
         detailPlate.getStyleClass().add("detail-label");
         detailName.getStyleClass().add("detail-label");
         detailTime.getStyleClass().add("detail-label");
+        detailFee.getStyleClass().add("detail-label");
 
-        box.getChildren().addAll(detailPlate, detailName, detailTime);
+        box.getChildren().addAll(detailPlate, detailName, detailTime, detailFee);
         return box;
     }
 
@@ -128,7 +151,12 @@ public class ControlPanel extends VBox {
 
         Button removeBtn = createIconButton("Calculate Fee / Process Exit", "assets/remove_icon.png");
         removeBtn.getStyleClass().add("button-remove");
-        removeBtn.setOnAction(e -> connector.removeVehicle(exitPlateField.getText()));
+        removeBtn.setOnAction(e -> {
+            String plate = plateResolver.apply(exitPlateField.getText());
+            if (plate == null) return;
+            exitPlateField.setText(plate);
+            connector.removeVehicle(plate);
+        });
 
         box.getChildren().addAll(form, validateBtn, removeBtn);
         return box;
@@ -145,12 +173,108 @@ public class ControlPanel extends VBox {
         form.add(new Label("Plate:"), 0, 0); form.add(findPlateField, 1, 0);
 
         Button findBtn = createIconButton("Find My Car", "assets/search.png");
-        findBtn.setOnAction(e -> connector.findCar(findPlateField.getText()));
+        findBtn.setOnAction(e -> {
+            String plate = plateResolver.apply(findPlateField.getText());
+            if (plate == null) return;
+            findPlateField.setText(plate);
+            connector.findCar(plate);
+        });
 
         box.getChildren().addAll(form, findBtn);
         return box;
     }
 
+    private VBox createReservations() {
+        VBox box = new VBox(15);
+        GridPane form = new GridPane();
+        form.setVgap(10);
+        form.setHgap(10);
+
+        reservePlateField = new TextField();
+        reservePlateField.setPromptText("Plate Number");
+        reserveNameField = new TextField();
+        reserveNameField.setPromptText("Guest / Event Name");
+        reserveTypeCombo = new ComboBox<>(FXCollections.observableArrayList("BIKE", "CAR", "TRUCK"));
+        reserveTypeCombo.setValue("CAR");
+        reserveDatePicker = new DatePicker(LocalDate.now());
+        reserveHourSpinner = new Spinner<>(0, 23, LocalTime.now().getHour());
+        reserveHoursSpinner = new Spinner<>(1, 72, 2);
+        reserveHoursSpinner.setEditable(true);
+
+        form.add(new Label("Plate:"), 0, 0); form.add(reservePlateField, 1, 0);
+        form.add(new Label("Name:"), 0, 1); form.add(reserveNameField, 1, 1);
+        form.add(new Label("Type:"), 0, 2); form.add(reserveTypeCombo, 1, 2);
+        form.add(new Label("Date:"), 0, 3); form.add(reserveDatePicker, 1, 3);
+        form.add(new Label("From (hour):"), 0, 4); form.add(reserveHourSpinner, 1, 4);
+        form.add(new Label("Hours:"), 0, 5); form.add(reserveHoursSpinner, 1, 5);
+
+        Button availabilityBtn = new Button("Check Availability");
+        availabilityBtn.setMaxWidth(Double.MAX_VALUE);
+        availabilityBtn.setOnAction(e -> {
+            long start = reservationStartEpoch();
+            connector.checkAvailability(reservePlateField.getText(), reserveTypeCombo.getValue(),
+                start, start + reserveHoursSpinner.getValue() * 3600L);
+        });
+
+        Button reserveBtn = new Button("Reserve Slot");
+        reserveBtn.setMaxWidth(Double.MAX_VALUE);
+        reserveBtn.getStyleClass().add("button-park");
+        reserveBtn.setOnAction(e -> {
+            long start = reservationStartEpoch();
+            connector.reserveSlot(reservePlateField.getText(), reserveTypeCombo.getValue(), reserveNameField.getText(),
+                start, start + reserveHoursSpinner.getValue() * 3600L);
+        });
+
+        cancelIdField = new TextField();
+        cancelIdField.setPromptText("Reservation #");
+        Button cancelBtn = new Button("Cancel Reservation");
+        cancelBtn.setMaxWidth(Double.MAX_VALUE);
+        cancelBtn.getStyleClass().add("button-remove");
+        cancelBtn.setOnAction(e -> {
+            try {
+                connector.cancelReservation(Integer.parseInt(cancelIdField.getText().trim().replace("#", "")));
+            } catch (NumberFormatException ex) {
+                System.err.println("Invalid reservation number: " + cancelIdField.getText());
+            }
+        });
+
+        box.getChildren().addAll(form, availabilityBtn, reserveBtn, cancelIdField, cancelBtn);
+        return box;
+    }
+
+    private VBox createAllocation() {
+        VBox box = new VBox(15);
+        GridPane form = new GridPane();
+        form.setVgap(10);
+        form.setHgap(10);
+
+        ComboBox<String> strategyCombo = new ComboBox<>(FXCollections.observableArrayList(
+            "LOWEST_ID", "NEAREST_EXIT", "AISLE_ROUND_ROBIN", "LRU"));
+        strategyCombo.setValue("LOWEST_ID");
+        ComboBox<String> zoneCombo = new ComboBox<>(FXCollections.observableArrayList(
+            "BIKE", "CAR_GUEST", "CAR_HOTEL", "CAR_RESIDENT", "TRUCK", "STAFF"));
+        zoneCombo.setValue("CAR_GUEST");
+
+        form.add(new Label("Strategy:"), 0, 0); form.add(strategyCombo, 1, 0);
+        form.add(new Label("Compare in:"), 0, 1); form.add(zoneCombo, 1, 1);
+
+        Button applyBtn = new Button("Apply Strategy");
+        applyBtn.setMaxWidth(Double.MAX_VALUE);
+        applyBtn.setOnAction(e -> connector.setSelectionStrategy(strategyCombo.getValue()));
+
+        Button compareBtn = new Button("Compare Strategies (1 simulated year)");
+        compareBtn.setMaxWidth(Double.MAX_VALUE);
+        compareBtn.setOnAction(e -> connector.compareStrategies(zoneCombo.getValue(), 85, 120));
+
+        box.getChildren().addAll(form, applyBtn, compareBtn);
+        return box;
+    }
+
+    private long reservationStartEpoch() {
+        LocalDate date = reserveDatePicker.getValue() != null ? reserveDatePicker.getValue() : LocalDate.now();
+        return date.atTime(reserveHourSpinner.getValue(), 0).atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
     private VBox createWaitingQueueSection() {
         VBox box = new VBox(5);
         box.setPadding(new Insets(10, 0, 0, 0));
@@ -162,7 +286,9 @@ public class ControlPanel extends VBox {
         queueCarResident = new Label("Residents (Car): 0");
         queueTruck = new Label("Trucks: 0");
         queueStaff = new Label("Staff: 0");
-        box.getChildren().addAll(title, queueBike, queueCarGuest, queueCarHotel, queueCarResident, queueTruck, queueStaff);
+        forecastLabel = new Label("Occupancy next 1-4h: learning...");
+        forecastLabel.setWrapText(true);
+        box.getChildren().addAll(title, queueBike, queueCarGuest, queueCarHotel, queueCarResident, queueTruck, queueStaff, forecastLabel);
         return box;
     }
 
@@ -193,14 +319,32 @@ public class ControlPanel extends VBox {
         if (detailTime != null) detailTime.setText("Entry: -");
     }
 
+    /** Maps the typed plate to the one FIND/REMOVE should send; returning null cancels the action. */
+    public void setPlateResolver(UnaryOperator<String> resolver) {
+        this.plateResolver = resolver != null ? resolver : plate -> plate;
+    }
+
+    /** Live estimate of what REMOVE would charge for the selected slot; null clears it. */
+    public void setAccruedFee(Double fee) {
+        if (detailFee == null) return;
+        detailFee.setText(fee == null ? "Due now: -" : "Due now: \u20B9" + String.format("%.2f", fee));
+    }
+
+    /** Source of predicted waits and occupancy shown under the queue counts; null hides them. */
+    public void setForecaster(OccupancyForecaster forecaster) {
+        this.forecaster = forecaster;
+    }
+
     public void updateWaitingQueues(String queueData) {
+        long now = System.currentTimeMillis();
         // Reset all labels safely
-        if (queueBike != null) queueBike.setText("Bikes: 0");
-        if (queueCarGuest != null) queueCarGuest.setText("Guests (Car): 0");
-        if (queueCarHotel != null) queueCarHotel.setText("Hotel (Car): 0");
-        if (queueCarResident != null) queueCarResident.setText("Residents (Car): 0");
-        if (queueTruck != null) queueTruck.setText("Trucks: 0");
-        if (queueStaff != null) queueStaff.setText("Staff: 0");
+        if (queueBike != null) queueBike.setText(queueText("Bikes", "BIKE", 0, now));
+        if (queueCarGuest != null) queueCarGuest.setText(queueText("Guests (Car)", "CAR_GUEST", 0, now));
+        if (queueCarHotel != null) queueCarHotel.setText(queueText("Hotel (Car)", "CAR_HOTEL", 0, now));
+        if (queueCarResident != null) queueCarResident.setText(queueText("Residents (Car)", "CAR_RESIDENT", 0, now));
+        if (queueTruck != null) queueTruck.setText(queueText("Trucks", "TRUCK", 0, now));
+        if (queueStaff != null) queueStaff.setText(queueText("Staff", "STAFF", 0, now));
+        updateForecast(now);
 
         if (queueData == null || queueData.isEmpty()) return;
 
@@ -210,25 +354,64 @@ public class ControlPanel extends VBox {
             String[] parts = q.split(":");
             if (parts.length == 2) {
                 String type = parts[0];
-                String count = parts[1];
-                if (type.equals("BIKE") && queueBike != null) queueBike.setText("Bikes: " + count);
-                else if (type.equals("CAR_GUEST") && queueCarGuest != null) queueCarGuest.setText("Guests (Car): " + count);
-                else if (type.equals("CAR_HOTEL") && queueCarHotel != null) queueCarHotel.setText("Hotel (Car): " + count);
-                else if (type.equals("CAR_RESIDENT") && queueCarResident != null) queueCarResident.setText("Residents (Car): " + count);
-                else if (type.equals("TRUCK") && queueTruck != null) queueTruck.setText("Trucks: " + count);
-                else if (type.equals("STAFF") && queueStaff != null) queueStaff.setText("Staff: " + count);
+                int count;
+                try {
+                    count = Integer.parseInt(parts[1].trim());
+                } catch (NumberFormatException e) {
+                    System.err.println("Malformed queue data: " + q);
+                    continue;
+                }
+                if (type.equals("BIKE") && queueBike != null) queueBike.setText(queueText("Bikes", type, count, now));
+                else if (type.equals("CAR_GUEST") && queueCarGuest != null) queueCarGuest.setText(queueText("Guests (Car)", type, count, now));
+                else if (type.equals("CAR_HOTEL") && queueCarHotel != null) queueCarHotel.setText(queueText("Hotel (Car)", type, count, now));
+                else if (type.equals("CAR_RESIDENT") && queueCarResident != null) queueCarResident.setText(queueText("Residents (Car)", type, count, now));
+                else if (type.equals("TRUCK") && queueTruck != null) queueTruck.setText(queueText("Trucks", type, count, now));
+                else if (type.equals("STAFF") && queueStaff != null) queueStaff.setText(queueText("Staff", type, count, now));
             } else {
                  System.err.println("Malformed queue data: " + q);
             }
         }
     }
 
+    // "Guests (Car): 3 | next arrival waits ~12 min"; the wait is for position count + 1
+    private String queueText(String title, String type, int count, long now) {
+        String text = title + ": " + count;
+        if (forecaster == null || forecaster.capacity(type) == 0) return text;
+        double minutes = forecaster.expectedWaitMinutes(type, count + 1, now);
+        if (minutes < 0) return text + " | wait: learning";
+        if (minutes == 0) return text + " | no wait";
+        return text + " | next arrival waits ~" + Math.round(Math.max(1, minutes)) + " min";
+    }
+
+    private void updateForecast(long now) {
+        if (forecastLabel == null || forecaster == null) return;
+        StringBuilder sb = new StringBuilder("Occupancy now -> +1h / +2h / +3h / +4h");
+        for (String type : new String[] {"BIKE", "CAR_GUEST", "CAR_HOTEL", "CAR_RESIDENT", "TRUCK", "STAFF"}) {
+            if (forecaster.capacity(type) == 0) continue;
+            sb.append("\n").append(type).append(": ").append(forecaster.describe(type, now));
+        }
+        forecastLabel.setText(sb.toString());
+    }
+
     // --- Helpers ---
+    // Collapsed at startup, so the form is only built when the pane is first expanded
+    private TitledPane lazyPane(String title, Supplier<Node> content) {
+        TitledPane pane = new TitledPane();
+        pane.setText(title);
+        pane.expandedProperty().addListener((obs, was, expanded) -> {
+            if (expanded && pane.getContent() == null) pane.setContent(content.get());
+        });
+        return pane;
+    }
+
     private Button createIconButton(String text, String iconPath) {
         Button btn = new Button(text);
         btn.setMaxWidth(Double.MAX_VALUE);
         try {
-            Image iconImage = new Image(getClass().getResourceAsStream(iconPath));
+            URL url = getClass().getResource(iconPath);
+            if (url == null) throw new IllegalArgumentException("not found");
+            // Decoded on JavaFX's image loader threads; the icon appears when ready
+            Image iconImage = new Image(url.toExternalForm(), true);
             ImageView icon = new ImageView(iconImage);
             icon.setFitHeight(16);
             icon.setFitWidth(16);
@@ -0,0 +1,291 @@
+package com.parking;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * DisplayBoardServer: read-only occupancy feed for lobby screens and "spaces free" signs.
+ *
+ * The dashboard already receives every STATUS/OCCUPANCY reply (STATUS via the
+ * shared {@link SlotStateTable}); this server republishes the per-floor and per-constraint free/total counts over HTTP:
+ *   GET /occupancy          current snapshot as JSON
+ *   GET /occupancy/stream   Server-Sent Events: one "snapshot", then "delta" events
+ *
+ * Each update is encoded once into shared byte arrays, and every subscriber
+ * writes those same bytes. A subscriber that falls more than one version behind
+ * gets the latest snapshot instead of a backlog of deltas. The engine is never
+ * queried on a subscriber's behalf, so its load does not grow with the number
+ * of boards. Requests and streams run on virtual threads, so a connected board
+ * costs a small heap stack rather than a platform thread. The published state is
+ * guarded by a ReentrantLock, not a monitor: a virtual thread waiting on a monitor
+ * stays pinned to its carrier.
+ */
+public class DisplayBoardServer implements AutoCloseable {
+
+    /** Settings; defaults serve a few hundred boards on the local network. */
+    public static class Config {
+        public String bindAddress = "0.0.0.0";
+        public int port = 8090;
+        public int maxSubscribers = 500;
+        public long heartbeatMillis = 15_000;
+
+        /**
+         * Reads display-server.properties (bind.address, port, max.subscribers,
+         * heartbeat.seconds); null when the file is missing or unreadable.
+         */
+        public static Config load(Path file) {
+            if (file == null || !Files.isRegularFile(file)) return null;
+            Config c = new Config();
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                p.load(in);
+                c.bindAddress = p.getProperty("bind.address", c.bindAddress).trim();
+                c.port = Integer.parseInt(p.getProperty("port", "8090").trim());
+                c.maxSubscribers = Integer.parseInt(p.getProperty("max.subscribers", "500").trim());
+                c.heartbeatMillis = Long.parseLong(p.getProperty("heartbeat.seconds", "15").trim()) * 1000L;
+            } catch (Exception e) {
+                System.err.println("Could not load display server config " + file + ": " + e.getMessage());
+                return null;
+            }
+            return c;
+        }
+    }
+
+    private static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Config config;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile boolean running = true;
+
+    // ----- Published state (guarded by lock; streams wait on updated) -----
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition updated = lock.newCondition();
+    private final Map<Integer, int[]> floors = new TreeMap<>();         // floor -> {free, total}
+    private final Map<String, int[]> constraints = new TreeMap<>();     // constraint -> {free, total}
+    private long version = 0;
+    private byte[] snapshotJson = "{\"version\":0,\"floors\":{},\"constraints\":{}}".getBytes(StandardCharsets.UTF_8);
+    private byte[] snapshotEvent = sseEvent("snapshot", 0, snapshotJson);
+    private byte[] deltaEvent = snapshotEvent;
+
+    public DisplayBoardServer(Config config) {
+        this.config = config;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(config.bindAddress, config.port), 64);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/occupancy", this::handle);
+        server.start();
+    }
+
+    public int getSubscriberCount() { return subscribers.get(); }
+
+    public long getVersion() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        lock.lock();
+        try {
+            updated.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+    }
+
+    // ---------- Feed (called with each engine reply) ----------
+
+    /** Called after each STATUS has been applied to the shared slot table. */
+    public void onSlotTable(SlotStateTable table) {
+        Map<Integer, int[]> next = new TreeMap<>();
+        long v;
+        do {
+            // Lock-free read; recount if the table changed underneath us
+            v = table.beginRead();
+            next.clear();
+            for (int slotId = 1; slotId < table.capacity(); slotId++) {
+                long state = table.get(slotId);
+                if (!SlotStateTable.isKnown(state)) continue;
+                int[] counts = next.computeIfAbsent(SlotStateTable.floorOf(state), k -> new int[2]);
+                if (SlotStateTable.isFree(state)) counts[0]++;
+                counts[1]++;
+            }
+        } while (!table.validate(v));
+        lock.lock();
+        try {
+            StringBuilder delta = new StringBuilder();
+            for (Map.Entry<Integer, int[]> e : next.entrySet()) {
+                int[] old = floors.get(e.getKey());
+                if (old != null && old[0] == e.getValue()[0] && old[1] == e.getValue()[1]) continue;
+                floors.put(e.getKey(), e.getValue());
+                appendEntry(delta, String.valueOf(e.getKey()), e.getValue());
+            }
+            if (delta.length() > 0) publish("{" + delta + "}", "{}");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** OCCUPANCY payload: constraint,free,total;... */
+    public void onConstraintOccupancy(String payload) {
+        lock.lock();
+        try {
+            StringBuilder delta = new StringBuilder();
+            for (String row : payload.split(";")) {
+                if (row.isEmpty()) continue;
+                String[] f = row.split(",");
+                if (f.length != 3) {
+                    System.err.println("Malformed occupancy data: " + row);
+                    continue;
+                }
+                try {
+                    int[] counts = {Integer.parseInt(f[1]), Integer.parseInt(f[2])};
+                    int[] old = constraints.get(f[0]);
+                    if (old != null && old[0] == counts[0] && old[1] == counts[1]) continue;
+                    constraints.put(f[0], counts);
+                    appendEntry(delta, f[0], counts);
+                } catch (NumberFormatException e) {
+                    System.err.println("Error parsing occupancy data: " + row + " - " + e.getMessage());
+                }
+            }
+            if (delta.length() > 0) publish("{}", "{" + delta + "}");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock. Encodes once; subscriber threads only copy bytes.
+    private void publish(String floorDelta, String constraintDelta) {
+        version++;
+        StringBuilder snap = new StringBuilder();
+        for (Map.Entry<Integer, int[]> e : floors.entrySet()) appendEntry(snap, String.valueOf(e.getKey()), e.getValue());
+        StringBuilder cons = new StringBuilder();
+        for (Map.Entry<String, int[]> e : constraints.entrySet()) appendEntry(cons, e.getKey(), e.getValue());
+
+        snapshotJson = body(version, "{" + snap + "}", "{" + cons + "}").getBytes(StandardCharsets.UTF_8);
+        snapshotEvent = sseEvent("snapshot", version, snapshotJson);
+        deltaEvent = sseEvent("delta", version, body(version, floorDelta, constraintDelta).getBytes(StandardCharsets.UTF_8));
+        updated.signalAll();
+    }
+
+    private static String body(long version, String floorsJson, String constraintsJson) {
+        return "{\"version\":" + version + ",\"time\":" + System.currentTimeMillis()
+            + ",\"floors\":" + floorsJson + ",\"constraints\":" + constraintsJson + "}";
+    }
+
+    private static void appendEntry(StringBuilder sb, String key, int[] counts) {
+        if (sb.length() > 0) sb.append(',');
+        sb.append('"').append(key).append("\":{\"free\":").append(counts[0]).append(",\"total\":").append(counts[1]).append('}');
+    }
+
+    private static byte[] sseEvent(String event, long id, byte[] json) {
+        String head = "event: " + event + "\nid: " + id + "\ndata: ";
+        byte[] h = head.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[h.length + json.length + 2];
+        System.arraycopy(h, 0, out, 0, h.length);
+        System.arraycopy(json, 0, out, h.length, json.length);
+        out[out.length - 2] = '\n';
+        out[out.length - 1] = '\n';
+        return out;
+    }
+
+    // ---------- HTTP ----------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            String path = exchange.getRequestURI().getPath();
+            if ("/occupancy".equals(path)) {
+                byte[] body;
+                lock.lock();
+                try {
+                    body = snapshotJson;
+                } finally {
+                    lock.unlock();
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } else if ("/occupancy/stream".equals(path)) {
+                stream(exchange);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        if (subscribers.incrementAndGet() > config.maxSubscribers) {
+            subscribers.decrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+
+            long sent = -1; // forces an initial snapshot
+            while (running) {
+                byte[] chunk;
+                lock.lock();
+                try {
+                    long left = TimeUnit.MILLISECONDS.toNanos(config.heartbeatMillis);
+                    while (running && version == sent && left > 0) {
+                        left = updated.awaitNanos(left);
+                    }
+                    if (!running) return;
+                    if (version == sent) {
+                        chunk = HEARTBEAT;
+                    } else {
+                        chunk = (version == sent + 1) ? deltaEvent : snapshotEvent;
+                        sent = version;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                out.write(chunk);
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // board disconnected or server stopping
+        } finally {
+            subscribers.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.parking;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EventBus: pre-allocated ring buffer between the engine connection and its consumers.
+ *
+ * Producers claim a sequence, fill the reused {@link Event} in that ring slot and
+ * publish it. Any thread may publish. Each subscriber has its own thread and
+ * sequence, so the UI, metrics or a journal read at their own pace. A subscriber
+ * gets every event that is already available as one batch, with
+ * {@code endOfBatch} set on the last, so it can coalesce work (one FX update per
+ * batch, one flush per batch). A producer that laps the slowest subscriber
+ * waits for it; nothing is dropped. Events are overwritten once every
+ * subscriber has passed them, so handlers copy what they need before returning.
+ */
+public class EventBus {
+
+    // ----- Event types -----
+    public static final int STATUS = 1;          // text = STATUS payload
+    public static final int SLOT_CHANGED = 2;    // slotId, state (SlotStateTable word)
+    public static final int VEHICLE_QUEUED = 3;  // plateId, kind = BIKE/CAR
+    public static final int VEHICLE_DEQUEUED = 4;// plateId, kind = BIKE/CAR
+    public static final int FEE_CHARGED = 5;     // amount, text = engine message
+    public static final int COMMAND_FAILED = 6;  // text = error message
+    public static final int REPLY = 7;           // kind = reply type (SUCCESS, ANALYTICS, ...), text = payload
+
+    private static final String[] TYPE_NAMES = {
+        "", "STATUS", "SLOT_CHANGED", "VEHICLE_QUEUED", "VEHICLE_DEQUEUED", "FEE_CHARGED", "COMMAND_FAILED", "REPLY"
+    };
+
+    public static String typeName(int type) {
+        return type > 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : "UNKNOWN";
+    }
+
+    /** One ring slot; reused, so read it only inside the handler. */
+    public static final class Event {
+        int type;
+        String kind;
+        String text;
+        int slotId;
+        int plateId;
+        long state;
+        double amount;
+        long timeMillis;
+
+        public int getType() { return type; }
+        public String getKind() { return kind; }
+        public String getText() { return text; }
+        public int getSlotId() { return slotId; }
+        public int getPlateId() { return plateId; }
+        public long getState() { return state; }
+        public double getAmount() { return amount; }
+        public long getTimeMillis() { return timeMillis; }
+
+        private void reset(int type) {
+            this.type = type;
+            this.kind = null;
+            this.text = null;
+            this.slotId = 0;
+            this.plateId = PlateRegistry.NO_PLATE;
+            this.state = 0;
+            this.amount = 0;
+            this.timeMillis = System.currentTimeMillis();
+        }
+    }
+
+    public interface Handler {
+        void onEvent(Event event, long sequence, boolean endOfBatch) throws Exception;
+    }
+
+    // Subscriber with its own thread and position in the ring
+    private final class Subscriber implements Runnable {
+        final String name;
+        final Handler handler;
+        final AtomicLong sequence;
+        volatile boolean waiting = false;
+        Thread thread;
+
+        Subscriber(String name, Handler handler, long start) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence = new AtomicLong(start);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (running) {
+                long available = highestPublished(next);
+                if (available < next) {
+                    waiting = true;
+                    // Re-check after announcing, so a publish in between is not missed
+                    if (highestPublished(next) < next) LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(50));
+                    waiting = false;
+                    continue;
+                }
+                for (long s = next; s <= available; s++) {
+                    try {
+                        handler.onEvent(ring[index(s)], s, s == available);
+                    } catch (Exception e) {
+                        System.err.println("Event handler " + name + " failed on " + typeName(ring[index(s)].type)
+                            + ": " + e.getMessage());
+                    }
+                }
+                sequence.set(available); // frees the slots for producers
+                next = available + 1;
+            }
+        }
+    }
+
+    private final Event[] ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLongArray published; // ring index -> sequence last published there
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    /** @param size ring capacity, rounded up to a power of two */
+    public EventBus(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+        ring = new Event[capacity];
+        for (int i = 0; i < capacity; i++) ring[i] = new Event();
+        mask = capacity - 1;
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) published.set(i, -1);
+    }
+
+    /**
+     * Adds a subscriber that sees events published from now on, on its own daemon thread.
+     * Subscribe before the producers start to see everything.
+     */
+    public void subscribe(String name, Handler handler) {
+        Subscriber sub = new Subscriber(name, handler, claimed.get());
+        sub.thread = new Thread(sub, "event-bus-" + name);
+        sub.thread.setDaemon(true);
+        subscribers.add(sub);
+        sub.thread.start();
+    }
+
+    /** Events published but not yet handled by the slowest subscriber. */
+    public long getBacklog() {
+        return claimed.get() - minSubscriberSequence(claimed.get());
+    }
+
+    public int getCapacity() { return ring.length; }
+
+    public void close() {
+        running = false;
+        for (Subscriber s : subscribers) LockSupport.unpark(s.thread);
+    }
+
+    // ---------- Publishing ----------
+
+    public void publishText(int type, String kind, String text) {
+        long seq = next();
+        Event e = ring[index(seq)];
+        e.reset(type);
+        e.kind = kind;
+        e.text = text;
+        publish(seq);
+    }
+
+    public void publishSlot(int slotId, long state) {
+        long seq = next();
+        Event e = ring[index(seq)];
+        e.reset(SLOT_CHANGED);
+        e.slotId = slotId;
+        e.plateId = SlotStateTable.plateIdOf(state);
+        e.state = state;
+        publish(seq);
+    }
+
+    public void publishQueue(int type, int plateId, String vehicleType) {
+        long seq = next();
+        Event e = ring[index(seq)];
+        e.reset(type);
+        e.plateId = plateId;
+        e.kind = vehicleType;
+        publish(seq);
+    }
+
+    public void publishFee(double amount, String message) {
+        long seq = next();
+        Event e = ring[index(seq)];
+        e.reset(FEE_CHARGED);
+        e.amount = amount;
+        e.text = message;
+        publish(seq);
+    }
+
+    // Claims the next sequence, waiting while the slowest subscriber is a full ring behind
+    private long next() {
+        long seq = claimed.incrementAndGet();
+        long wrapPoint = seq - ring.length;
+        while (wrapPoint > minSubscriberSequence(seq - 1)) {
+            if (!running) break;
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        return seq;
+    }
+
+    private void publish(long seq) {
+        published.set(index(seq), seq);
+        for (Subscriber s : subscribers) {
+            if (s.waiting) LockSupport.unpark(s.thread);
+        }
+    }
+
+    // ---------- Sequence bookkeeping ----------
+
+    private int index(long seq) { return (int) (seq & mask); }
+
+    private long minSubscriberSequence(long fallback) {
+        long min = fallback;
+        for (Subscriber s : subscribers) min = Math.min(min, s.sequence.get());
+        return min;
+    }
+
+    // Last sequence in an unbroken run of published events starting at from (from - 1 if none)
+    private long highestPublished(long from) {
+        long limit = claimed.get();
+        long s = from;
+        while (s <= limit && published.get(index(s)) == s) s++;
+        return s - 1;
+    }
+}
@@ -0,0 +1,46 @@
+package com.parking;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * EventMetrics: {@link EventBus} subscriber that counts events by type and batch sizes.
+ *
+ * Runs on its own bus thread, so counting never slows the UI subscriber.
+ * Counters are atomics; {@link #summary} can be read from the FX thread.
+ */
+public class EventMetrics implements EventBus.Handler {
+
+    private static final int TYPES = 8;
+
+    private final AtomicLongArray counts = new AtomicLongArray(TYPES);
+    private final AtomicLongArray batches = new AtomicLongArray(2); // {batches, largest batch}
+    private long batchSize = 0; // bus thread only
+    private volatile double feesTotal = 0;
+
+    @Override
+    public void onEvent(EventBus.Event event, long sequence, boolean endOfBatch) {
+        int type = event.getType();
+        if (type > 0 && type < TYPES) counts.incrementAndGet(type);
+        if (type == EventBus.FEE_CHARGED) feesTotal += event.getAmount();
+        batchSize++;
+        if (endOfBatch) {
+            batches.incrementAndGet(0);
+            if (batchSize > batches.get(1)) batches.set(1, batchSize);
+            batchSize = 0;
+        }
+    }
+
+    public long count(int type) { return type > 0 && type < TYPES ? counts.get(type) : 0; }
+
+    public double getFeesTotal() { return feesTotal; }
+
+    /** One-line summary for the status bar; {@code bus} supplies the current backlog. */
+    public String summary(EventBus bus) {
+        long total = 0;
+        for (int t = 1; t < TYPES; t++) total += counts.get(t);
+        long b = batches.get(0);
+        return String.format("Events: %d (%d slot changes, %d errors) | avg batch %.1f, max %d | backlog %d",
+            total, counts.get(EventBus.SLOT_CHANGED), counts.get(EventBus.COMMAND_FAILED),
+            b > 0 ? (double) total / b : 0, batches.get(1), bus.getBacklog());
+    }
+}
@@ -0,0 +1,122 @@
+package com.parking;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FloorPlan: where each bay sits on its floor, plus pillars, aisles and walls.
+ *
+ * Loaded from floor-plan.csv, one shape per line, coordinates in plan units
+ * (pixels at 100% zoom):
+ *   floor,SLOT,slotId,x1,y1,x2,y2,x3,y3[,...]     bay outline (polygon)
+ *   floor,PILLAR|AISLE|WALL,label,x1,y1,...       static feature, drawn under the bays
+ * Slots missing from the plan (or every slot, when there is no file) fall back
+ * to the classic grid of 80x120 boxes, ten per row, in STATUS order.
+ */
+public class FloorPlan {
+
+    /** A non-slot shape: pillar, aisle marking, wall. */
+    public static final class Feature {
+        public final String kind;
+        public final String label;
+        public final double[] points; // x1,y1,x2,y2,...
+
+        Feature(String kind, String label, double[] points) {
+            this.kind = kind;
+            this.label = label;
+            this.points = points;
+        }
+    }
+
+    // ----- Fallback grid -----
+    private static final int GRID_PER_ROW = 10;
+    private static final double GRID_W = 80, GRID_H = 120, GRID_X_GAP = 15, GRID_Y_GAP = 20;
+    private static final double GRID_LEFT = 20, GRID_TOP = 50;
+
+    private final Map<Integer, double[]> slotOutlines = new HashMap<>();
+    private final Map<Integer, List<Feature>> features = new HashMap<>();
+
+    /** Reads the plan; a missing or unreadable file gives an empty plan (grid layout). */
+    public static FloorPlan load(Path file) {
+        FloorPlan plan = new FloorPlan();
+        if (file == null || !Files.isRegularFile(file)) return plan;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split(",");
+                if (f.length < 9 || (f.length - 3) % 2 != 0) {
+                    System.err.println("Malformed floor plan line " + lineNo + ": " + line);
+                    continue;
+                }
+                try {
+                    int floor = Integer.parseInt(f[0].trim());
+                    String kind = f[1].trim().toUpperCase();
+                    double[] points = new double[f.length - 3];
+                    for (int i = 0; i < points.length; i++) points[i] = Double.parseDouble(f[i + 3].trim());
+                    if ("SLOT".equals(kind)) {
+                        plan.slotOutlines.put(Integer.parseInt(f[2].trim()), points);
+                    } else {
+                        plan.features.computeIfAbsent(floor, k -> new ArrayList<>()).add(new Feature(kind, f[2].trim(), points));
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Error parsing floor plan line " + lineNo + ": " + e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Could not load floor plan " + file + ": " + e.getMessage());
+        }
+        return plan;
+    }
+
+    /** Outline of a bay: from the plan if present, otherwise its grid box for {@code floorIndex}. */
+    public double[] slotOutline(int slotId, int floorIndex) {
+        double[] outline = slotOutlines.get(slotId);
+        if (outline != null) return outline;
+        int row = floorIndex / GRID_PER_ROW;
+        int col = floorIndex % GRID_PER_ROW;
+        double x = GRID_LEFT + col * (GRID_W + GRID_X_GAP);
+        double y = GRID_TOP + row * (GRID_H + GRID_Y_GAP);
+        return new double[] {x, y, x + GRID_W, y, x + GRID_W, y + GRID_H, x, y + GRID_H};
+    }
+
+    public List<Feature> features(int floor) {
+        List<Feature> list = features.get(floor);
+        return list != null ? list : Collections.emptyList();
+    }
+
+    /** Smallest x (axis 0) or y (axis 1) of a point list. */
+    public static double min(double[] points, int axis) {
+        double m = Double.MAX_VALUE;
+        for (int i = axis; i < points.length; i += 2) m = Math.min(m, points[i]);
+        return m;
+    }
+
+    public static double max(double[] points, int axis) {
+        double m = -Double.MAX_VALUE;
+        for (int i = axis; i < points.length; i += 2) m = Math.max(m, points[i]);
+        return m;
+    }
+
+    /** Even-odd point-in-polygon test. */
+    public static boolean contains(double[] poly, double x, double y) {
+        boolean inside = false;
+        int n = poly.length / 2;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double xi = poly[2 * i], yi = poly[2 * i + 1];
+            double xj = poly[2 * j], yj = poly[2 * j + 1];
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) inside = !inside;
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,222 @@
+package com.parking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Translate;
+
+/**
+ * FloorView: one floor's bays laid out from a {@link FloorPlan}, with zoom (scroll) and pan (drag).
+ *
+ * Only bays inside the viewport have nodes in the scene graph. Culling and
+ * click hit-testing both go through a {@link SpatialGrid}, so the cost of a
+ * pan, zoom or STATUS refresh grows with the bays on screen rather than the
+ * bays on the floor. Slot state comes from the shared {@link SlotViewModel}.
+ * An optional {@link BayOverlay} recolours bays by a per-slot metric instead.
+ */
+public class FloorView extends Pane {
+
+    private static final double MIN_SCALE = 0.1, MAX_SCALE = 8.0;
+    private static final double CULL_MARGIN = 40;   // plan units kept beyond the edges
+    private static final double CLICK_SLOP = 4;      // pixels of drag still treated as a click
+
+    /** Per-bay metric for overlay colouring: 0..1 on the colour scale, negative for no data. */
+    public interface BayOverlay {
+        double value(int slotId);
+        String caption(int slotId, double value);
+    }
+
+    private final int floor;
+    private final FloorPlan plan;
+    private final SlotViewModel model;
+
+    private final Group world = new Group();
+    private final Group slotLayer = new Group();
+    private final Translate pan = new Translate();
+    private final Scale zoom = new Scale(1, 1, 0, 0);
+
+    private final SpatialGrid index = new SpatialGrid(256);
+    private int indexedCount = 0;
+    private double[][] outlineById = new double[64][];
+    private ParkingSlotView[] nodeById = new ParkingSlotView[64];   // created on first view, then reused
+    private int[] attachedEpoch = new int[64];                       // == cullEpoch while on screen
+    private int cullEpoch = 1;
+
+    private BayOverlay overlay; // null = occupied/reserved/overstay colouring
+    private IntConsumer onSlotClicked = slotId -> {};
+    private double pressX, pressY, lastX, lastY;
+    private boolean dragged;
+
+    public FloorView(int floor, FloorPlan plan, SlotViewModel model) {
+        this.floor = floor;
+        this.plan = plan;
+        this.model = model;
+
+        Group featureLayer = new Group();
+        for (FloorPlan.Feature f : plan.features(floor)) {
+            Polygon p = new Polygon(f.points);
+            p.getStyleClass().add("floor-" + f.kind.toLowerCase());
+            featureLayer.getChildren().add(p);
+        }
+        world.getChildren().addAll(featureLayer, slotLayer);
+        world.getTransforms().addAll(pan, zoom);
+        getChildren().add(world);
+
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(widthProperty());
+        clip.heightProperty().bind(heightProperty());
+        setClip(clip);
+
+        widthProperty().addListener((obs, o, n) -> cull());
+        heightProperty().addListener((obs, o, n) -> cull());
+        installZoomAndPan();
+    }
+
+    /** Called with the slot ID when a bay is clicked (not dragged). */
+    public void setOnSlotClicked(IntConsumer handler) {
+        this.onSlotClicked = handler != null ? handler : slotId -> {};
+    }
+
+    /**
+     * Catches up with the view model: indexes bays seen for the first time, refreshes
+     * changed bays that are on screen, and re-culls if the floor grew.
+     */
+    public void sync() {
+        int count = model.slotCountOnFloor(floor);
+        boolean grew = count > indexedCount;
+        for (; indexedCount < count; indexedCount++) {
+            int slotId = model.slotOnFloor(floor, indexedCount);
+            double[] outline = plan.slotOutline(slotId, indexedCount);
+            ensureCapacity(slotId + 1);
+            outlineById[slotId] = outline;
+            index.insert(slotId, FloorPlan.min(outline, 0), FloorPlan.min(outline, 1), FloorPlan.max(outline, 0), FloorPlan.max(outline, 1));
+        }
+        // Off-screen bays are brought up to date when they scroll into view
+        model.reconcileFloor(floor, slotId -> {
+            if (attachedEpoch[slotId] == cullEpoch) refreshNode(nodeById[slotId], slotId);
+        });
+        if (grew) cull();
+    }
+
+    /** Switches the colouring; null goes back to plain status. Repaints the bays on screen if it changed. */
+    public void setOverlay(BayOverlay overlay) {
+        if (overlay == this.overlay) return;
+        this.overlay = overlay;
+        refreshOnScreen();
+    }
+
+    /** Re-reads the overlay metric for the bays on screen, e.g. as the window rolls on. */
+    public void refreshOverlay() {
+        if (overlay != null) refreshOnScreen();
+    }
+
+    /** Pans so the bay is on screen and returns its node (null if unknown). */
+    public ParkingSlotView showSlot(int slotId) {
+        if (slotId <= 0 || slotId >= outlineById.length || outlineById[slotId] == null) return null;
+        double s = zoom.getX();
+        pan.setX(getWidth() / 2 - index.centerX(slotId) * s);
+        pan.setY(getHeight() / 2 - index.centerY(slotId) * s);
+        cull();
+        return nodeById[slotId];
+    }
+
+    // ---------- Culling ----------
+
+    private void cull() {
+        double w = getWidth(), h = getHeight();
+        if (w <= 0 || h <= 0) return;
+        double s = zoom.getX();
+        double x0 = -pan.getX() / s - CULL_MARGIN, y0 = -pan.getY() / s - CULL_MARGIN;
+        double x1 = (w - pan.getX()) / s + CULL_MARGIN, y1 = (h - pan.getY()) / s + CULL_MARGIN;
+
+        List<Node> visible = new ArrayList<>();
+        int previous = cullEpoch++;
+        index.query(x0, y0, x1, y1, slotId -> {
+            ParkingSlotView node = nodeById[slotId];
+            if (node == null) {
+                node = new ParkingSlotView(slotId, floor, outlineById[slotId]);
+                node.setMouseTransparent(true); // clicks are resolved through the index
+                nodeById[slotId] = node;
+            }
+            if (attachedEpoch[slotId] != previous) refreshNode(node, slotId); // newly on screen
+            attachedEpoch[slotId] = cullEpoch;
+            visible.add(node);
+        });
+        slotLayer.getChildren().setAll(visible);
+    }
+
+    private void refreshNode(ParkingSlotView node, int slotId) {
+        node.updateStatus(model.isOccupied(slotId), model.isReserved(slotId),
+            model.isOverstay(slotId), model.plateIdOf(slotId));
+        if (overlay != null) {
+            double value = overlay.value(slotId);
+            node.showHeat(value, overlay.caption(slotId, value));
+        }
+    }
+
+    private void refreshOnScreen() {
+        for (Node n : slotLayer.getChildren()) {
+            ParkingSlotView node = (ParkingSlotView) n;
+            refreshNode(node, node.getSlotId());
+        }
+    }
+
+    // ---------- Zoom, pan, hit-testing ----------
+
+    private void installZoomAndPan() {
+        setOnScroll(e -> {
+            double old = zoom.getX();
+            double next = Math.max(MIN_SCALE, Math.min(MAX_SCALE, old * Math.exp(e.getDeltaY() * 0.002)));
+            if (next == old) return;
+            // Keep the plan point under the cursor fixed
+            pan.setX(e.getX() - (e.getX() - pan.getX()) * next / old);
+            pan.setY(e.getY() - (e.getY() - pan.getY()) * next / old);
+            zoom.setX(next);
+            zoom.setY(next);
+            cull();
+            e.consume();
+        });
+        setOnMousePressed(e -> {
+            pressX = lastX = e.getX();
+            pressY = lastY = e.getY();
+            dragged = false;
+        });
+        setOnMouseDragged(e -> {
+            if (Math.abs(e.getX() - pressX) > CLICK_SLOP || Math.abs(e.getY() - pressY) > CLICK_SLOP) dragged = true;
+            pan.setX(pan.getX() + e.getX() - lastX);
+            pan.setY(pan.getY() + e.getY() - lastY);
+            lastX = e.getX();
+            lastY = e.getY();
+            cull();
+        });
+        setOnMouseClicked(e -> {
+            if (dragged) return;
+            int slotId = slotAt((e.getX() - pan.getX()) / zoom.getX(), (e.getY() - pan.getY()) / zoom.getY());
+            if (slotId > 0) onSlotClicked.accept(slotId);
+        });
+    }
+
+    /** Bay under a plan-space point, or -1. */
+    public int slotAt(double x, double y) {
+        int[] hit = {-1};
+        index.query(x, y, x, y, slotId -> {
+            if (hit[0] < 0 && FloorPlan.contains(outlineById[slotId], x, y)) hit[0] = slotId;
+        });
+        return hit[0];
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= outlineById.length) return;
+        int cap = Math.max(size, outlineById.length * 2);
+        outlineById = Arrays.copyOf(outlineById, cap);
+        nodeById = Arrays.copyOf(nodeById, cap);
+        attachedEpoch = Arrays.copyOf(attachedEpoch, cap);
+    }
+}
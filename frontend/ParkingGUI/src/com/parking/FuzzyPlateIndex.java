@@ -0,0 +1,185 @@
+package com.parking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FuzzyPlateIndex: "did you mean" lookup over the plates currently parked.
+ *
+ * Camera misreads and typos (MH01AB1234 vs MH01A81234) fail the engine's exact
+ * FIND/REMOVE match. This index returns parked plates within a Levenshtein
+ * distance of the query. Results are ranked by distance, then by how many of the
+ * differences are classic OCR confusions (8/B, 0/O, 1/I, 5/S, 2/Z), which makes a
+ * misread more likely than a typo.
+ *
+ * Plates share one format, so a BK-tree prunes poorly here. Instead, a trigram
+ * inverted index narrows the candidates. One edit can break at most three of the
+ * query's trigrams, so a plate within k edits still contains at least
+ * (trigrams - 3k) of them. Only plates that reach that count get the full
+ * edit-distance check.
+ * Updated incrementally from STATUS deltas. Not thread-safe; used on the FX thread.
+ */
+public class FuzzyPlateIndex {
+
+    public static final class Match {
+        public final int plateId;
+        public final String plate;
+        public final int distance;
+        final int confusions;
+
+        Match(int plateId, String plate, int distance, int confusions) {
+            this.plateId = plateId;
+            this.plate = plate;
+            this.distance = distance;
+            this.confusions = confusions;
+        }
+    }
+
+    private static final int GRAM = 3;
+    private static final String[] OCR_CONFUSIONS = {"8B", "0O", "0D", "1I", "5S", "2Z", "6G"};
+
+    private final PlateRegistry plates = PlateRegistry.getInstance();
+
+    private final IntIntMap live = new IntIntMap(256);                  // plateId -> 1
+    private final Map<Integer, IntIntMap> postings = new HashMap<>();  // trigram -> (plateId -> occurrences)
+    private char[][] textById = new char[256][];                       // plate text, indexed by plateId
+
+    // Per-query trigram hit counts, indexed by plateId; a stale stamp means zero
+    private int[] hitStamp = new int[256];
+    private int[] hits = new int[256];
+    private int[] candidates = new int[256];
+    private int candidateCount = 0;
+    private int stamp = 0;
+
+    // Scratch rows for Levenshtein
+    private int[] prevRow = new int[16];
+    private int[] currRow = new int[16];
+
+    public int size() { return live.size(); }
+
+    public boolean contains(int plateId) { return live.containsKey(plateId); }
+
+    public void add(int plateId) {
+        if (plateId == PlateRegistry.NO_PLATE || live.containsKey(plateId)) return;
+        char[] text = plates.plateOf(plateId).toCharArray();
+        if (plateId >= textById.length) {
+            int cap = Math.max(plateId + 1, textById.length * 2);
+            textById = Arrays.copyOf(textById, cap);
+            hitStamp = Arrays.copyOf(hitStamp, cap);
+            hits = Arrays.copyOf(hits, cap);
+        }
+        textById[plateId] = text;
+        live.put(plateId, 1);
+        for (int i = 0; i + GRAM <= text.length; i++) {
+            postings.computeIfAbsent(gram(text, i), g -> new IntIntMap(8)).addTo(plateId, 1);
+        }
+    }
+
+    public void remove(int plateId) {
+        if (live.remove(plateId, 0) == 0) return;
+        char[] text = textById[plateId];
+        for (int i = 0; i + GRAM <= text.length; i++) {
+            Integer g = gram(text, i);
+            IntIntMap list = postings.get(g);
+            if (list == null) continue;
+            if (list.addTo(plateId, -1) <= 0) list.remove(plateId, 0);
+            if (list.isEmpty()) postings.remove(g);
+        }
+    }
+
+    public void clear() {
+        live.clear();
+        postings.clear();
+    }
+
+    /** Live plates within maxDistance of the query, best first, at most limit results. */
+    public List<Match> search(String query, int maxDistance, int limit) {
+        List<Match> found = new ArrayList<>();
+        char[] q = PlateRegistry.normalize(query).toCharArray();
+        if (q.length == 0 || live.isEmpty()) return found;
+        if (++stamp == 0) { Arrays.fill(hitStamp, 0); stamp = 1; }
+        candidateCount = 0;
+
+        int grams = q.length - GRAM + 1;
+        int required = grams - GRAM * maxDistance;
+        if (required <= 0) {
+            live.forEach((plateId, one) -> countHit(plateId)); // query too short to filter on trigrams
+        } else {
+            for (int i = 0; i < grams; i++) {
+                IntIntMap list = postings.get(gram(q, i));
+                if (list != null) list.forEach((plateId, n) -> countHit(plateId));
+            }
+        }
+
+        for (int c = 0; c < candidateCount; c++) {
+            int plateId = candidates[c];
+            if (hits[plateId] < required) continue;
+            char[] text = textById[plateId];
+            if (Math.abs(text.length - q.length) > maxDistance) continue;
+            int d = distance(text, q);
+            if (d <= maxDistance) {
+                found.add(new Match(plateId, plates.plateOf(plateId), d, confusions(text, q)));
+            }
+        }
+
+        found.sort((a, b) -> a.distance != b.distance ? Integer.compare(a.distance, b.distance)
+            : a.confusions != b.confusions ? Integer.compare(b.confusions, a.confusions)
+            : a.plate.compareTo(b.plate));
+        return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+    }
+
+    // ---------- Internals ----------
+
+    private void countHit(int plateId) {
+        if (hitStamp[plateId] != stamp) {
+            hitStamp[plateId] = stamp;
+            hits[plateId] = 1;
+            if (candidateCount == candidates.length) candidates = Arrays.copyOf(candidates, candidateCount * 2);
+            candidates[candidateCount++] = plateId;
+        } else {
+            hits[plateId]++;
+        }
+    }
+
+    private static Integer gram(char[] s, int at) {
+        return (s[at] << 16) ^ (s[at + 1] << 8) ^ s[at + 2];
+    }
+
+    /** Levenshtein distance over two reusable rows. */
+    private int distance(char[] a, char[] b) {
+        if (prevRow.length <= b.length) {
+            prevRow = new int[b.length + 1];
+            currRow = new int[b.length + 1];
+        }
+        int[] prev = prevRow, curr = currRow;
+        for (int j = 0; j <= b.length; j++) prev[j] = j;
+        for (int i = 1; i <= a.length; i++) {
+            curr[0] = i;
+            for (int j = 1; j <= b.length; j++) {
+                int cost = a[i - 1] == b[j - 1] ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] t = prev; prev = curr; curr = t;
+        }
+        return prev[b.length];
+    }
+
+    // Same-position substitutions that are typical OCR confusions (ranking only)
+    private static int confusions(char[] a, char[] b) {
+        if (a.length != b.length) return 0;
+        int n = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) continue;
+            for (String pair : OCR_CONFUSIONS) {
+                if ((pair.charAt(0) == a[i] && pair.charAt(1) == b[i]) || (pair.charAt(1) == a[i] && pair.charAt(0) == b[i])) {
+                    n++;
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+}
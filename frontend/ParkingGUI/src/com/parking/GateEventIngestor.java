@@ -0,0 +1,358 @@
+package com.parking;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * GateEventIngestor: feeds plate-camera (ANPR) reads into the engine as PARK/REMOVE.
+ *
+ * Events come from a watched drop directory (one file per camera flush) and/or a
+ * loopback TCP socket, one per line:
+ *   epochMillis,gateId,ENTRY|EXIT,plate[,vehicleType]
+ *
+ * Plates are normalized. The same plate and direction seen again within the
+ * dedup window is ignored. Reads older than the lateness limit are discarded.
+ * Accepted events go into a bounded queue: socket readers block on it, which
+ * pushes back on the camera, and file readers wait up to a timeout and then
+ * count the event as dropped. One sender drains the queue in batches and keeps a
+ * bounded number of commands unanswered by the engine.
+ */
+public class GateEventIngestor implements AutoCloseable {
+
+    /** Settings; defaults suit a handful of gates at shift change. */
+    public static class Config {
+        public Path watchDir;                 // null = no directory source
+        public int socketPort = 0;            // 0 = no socket source
+        public long dedupWindowMillis = 30_000;
+        public long lateAfterMillis = 120_000;
+        public int queueCapacity = 1024;
+        public int maxBatch = 64;
+        public int maxInFlight = 256;
+        public long offerTimeoutMillis = 2_000;
+        public String defaultVehicleType = "CAR";
+
+        /**
+         * Reads anpr.properties (watch.dir, socket.port, dedup.seconds, late.seconds,
+         * queue.capacity, batch.size); null when the file is missing or unreadable.
+         */
+        public static Config load(Path file) {
+            if (file == null || !Files.isRegularFile(file)) return null;
+            Config c = new Config();
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                p.load(in);
+                String dir = p.getProperty("watch.dir", "").trim();
+                if (!dir.isEmpty()) c.watchDir = Path.of(dir);
+                c.socketPort = Integer.parseInt(p.getProperty("socket.port", "0").trim());
+                c.dedupWindowMillis = Long.parseLong(p.getProperty("dedup.seconds", "30").trim()) * 1000L;
+                c.lateAfterMillis = Long.parseLong(p.getProperty("late.seconds", "120").trim()) * 1000L;
+                c.queueCapacity = Integer.parseInt(p.getProperty("queue.capacity", "1024").trim());
+                c.maxBatch = Integer.parseInt(p.getProperty("batch.size", "64").trim());
+            } catch (Exception e) {
+                System.err.println("Could not load ANPR config " + file + ": " + e.getMessage());
+                return null;
+            }
+            return c;
+        }
+    }
+
+    // One normalized gate read
+    private static final class GateEvent {
+        final long timestamp;
+        final boolean entry;
+        final String plate;
+        final String vehicleType;
+
+        GateEvent(long timestamp, boolean entry, String plate, String vehicleType) {
+            this.timestamp = timestamp;
+            this.entry = entry;
+            this.plate = plate;
+            this.vehicleType = vehicleType;
+        }
+    }
+
+    // ----- Counters -----
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final Config config;
+    private final BackendConnector connector;
+    private final BlockingQueue<GateEvent> queue;
+    private final Semaphore inFlight;
+    private final int maxBatch;
+
+    // plate + direction -> last accepted read, oldest first. Keyed by String rather than
+    // by PlateRegistry ID: camera reads (misreads included) are unbounded and mostly never
+    // parked, and the registry only holds plates that are parked or queued.
+    private final LinkedHashMap<String, Long> recentReads = new LinkedHashMap<>();
+
+    // Live threads only; each one removes itself when its body returns
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private ServerSocket serverSocket;
+    private WatchService watchService;
+
+    public GateEventIngestor(Config config, BackendConnector connector) {
+        this.config = config;
+        this.connector = connector;
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity);
+        this.inFlight = new Semaphore(config.maxInFlight);
+        // A batch takes one permit per command, so a batch larger than maxInFlight would wait forever
+        this.maxBatch = Math.max(1, Math.min(config.maxBatch, config.maxInFlight));
+    }
+
+    public void start() throws Exception {
+        startThread("anpr-sender", this::sendLoop);
+        if (config.watchDir != null) {
+            Files.createDirectories(config.watchDir.resolve("processed"));
+            watchService = config.watchDir.getFileSystem().newWatchService();
+            config.watchDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+            startThread("anpr-dir", this::watchLoop);
+        }
+        if (config.socketPort > 0) {
+            serverSocket = new ServerSocket(config.socketPort, 50, InetAddress.getLoopbackAddress());
+            startThread("anpr-socket", this::acceptLoop);
+        }
+    }
+
+    private void startThread(String name, Runnable body) {
+        Thread t = new Thread(() -> {
+            try {
+                body.run();
+            } finally {
+                threads.remove(Thread.currentThread());
+            }
+        }, name);
+        t.setDaemon(true);
+        threads.add(t);
+        t.start();
+    }
+
+    // ---------- Ingestion ----------
+
+    /**
+     * Parses, normalizes, de-duplicates and enqueues one line.
+     * @param block true to wait for queue space indefinitely (socket backpressure)
+     */
+    public void ingestLine(String line, boolean block) {
+        if (line == null || line.trim().isEmpty()) return;
+        received.incrementAndGet();
+
+        String[] f = line.split(",");
+        if (f.length < 4) { malformed.incrementAndGet(); return; }
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(f[0].trim());
+        } catch (NumberFormatException e) {
+            malformed.incrementAndGet();
+            return;
+        }
+        String direction = f[2].trim().toUpperCase();
+        if (!"ENTRY".equals(direction) && !"EXIT".equals(direction)) { malformed.incrementAndGet(); return; }
+        String plate = normalizePlate(f[3]);
+        if (plate.length() < 4) { malformed.incrementAndGet(); return; }
+        String vehicleType = f.length > 4 ? f[4].trim().toUpperCase() : config.defaultVehicleType;
+        if (!"BIKE".equals(vehicleType) && !"CAR".equals(vehicleType) && !"TRUCK".equals(vehicleType)) {
+            vehicleType = config.defaultVehicleType;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - timestamp > config.lateAfterMillis) { late.incrementAndGet(); return; }
+
+        boolean entry = "ENTRY".equals(direction);
+        if (isDuplicate(plate + (entry ? '>' : '<'), timestamp)) {
+            duplicates.incrementAndGet();
+            return;
+        }
+
+        GateEvent event = new GateEvent(timestamp, entry, plate, vehicleType);
+        try {
+            if (block) {
+                queue.put(event);
+            } else if (!queue.offer(event, config.offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                dropped.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            dropped.incrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Upper-case, keep letters and digits only (cameras emit spaces, dashes, dots). */
+    static String normalizePlate(String raw) {
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = Character.toUpperCase(raw.charAt(i));
+            if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private synchronized boolean isDuplicate(String key, long timestamp) {
+        // Evict reads that fell out of the window (map is in insertion = time order)
+        Iterator<Map.Entry<String, Long>> it = recentReads.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> oldest = it.next();
+            if (timestamp - oldest.getValue() <= config.dedupWindowMillis) break;
+            it.remove();
+        }
+        Long last = recentReads.get(key);
+        if (last != null && Math.abs(timestamp - last) <= config.dedupWindowMillis) return true;
+        recentReads.remove(key);
+        recentReads.put(key, timestamp);
+        return false;
+    }
+
+    // ---------- Sources ----------
+
+    private void watchLoop() {
+        try {
+            // Pick up files dropped while we were not running
+            try (Stream<Path> existing = Files.list(config.watchDir)) {
+                existing.filter(Files::isRegularFile).sorted().forEach(this::ingestFile);
+            }
+            while (running) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> ev : key.pollEvents()) {
+                    if (ev.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                    Path file = config.watchDir.resolve((Path) ev.context());
+                    if (Files.isRegularFile(file)) ingestFile(file);
+                }
+                if (!key.reset()) break;
+            }
+        } catch (InterruptedException | java.nio.file.ClosedWatchServiceException e) {
+            // shutting down
+        } catch (Exception e) {
+            System.err.println("ANPR directory watcher stopped: " + e.getMessage());
+        }
+    }
+
+    private void ingestFile(Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) ingestLine(line, false);
+        } catch (Exception e) {
+            System.err.println("Could not read ANPR file " + file + ": " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(file, config.watchDir.resolve("processed").resolve(file.getFileName()),
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            System.err.println("Could not archive ANPR file " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket client = serverSocket.accept();
+                startThread("anpr-client-" + client.getPort(), () -> readSocket(client));
+            } catch (Exception e) {
+                if (running) System.err.println("ANPR socket accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void readSocket(Socket client) {
+        try (Socket s = client;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (running && (line = reader.readLine()) != null) ingestLine(line, true);
+        } catch (Exception e) {
+            if (running) System.err.println("ANPR client disconnected: " + e.getMessage());
+        }
+    }
+
+    // ---------- Sender ----------
+
+    private void sendLoop() {
+        List<GateEvent> batch = new ArrayList<>(maxBatch);
+        List<String> commands = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+
+                for (GateEvent e : batch) {
+                    commands.add(e.entry
+                        ? "PARK," + e.plate + "," + e.vehicleType + ",Guest,1,0"
+                        : "REMOVE," + e.plate);
+                }
+                inFlight.acquire(commands.size());
+                int size = commands.size();
+                boolean ok = connector.sendBatchWithSingleRefresh(new ArrayList<>(commands), reply -> {
+                    if (!reply.startsWith("SUCCESS")) rejected.incrementAndGet();
+                    inFlight.release();
+                });
+                if (ok) {
+                    sent.addAndGet(size);
+                } else {
+                    inFlight.release(size);
+                    dropped.addAndGet(size);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                batch.clear();
+                commands.clear();
+            }
+        }
+    }
+
+    // ---------- Stats ----------
+
+    public long getReceived() { return received.get(); }
+    public long getMalformed() { return malformed.get(); }
+    public long getDuplicates() { return duplicates.get(); }
+    public long getLate() { return late.get(); }
+    public long getDropped() { return dropped.get(); }
+    public long getSent() { return sent.get(); }
+    public long getRejected() { return rejected.get(); }
+    public int getQueueDepth() { return queue.size(); }
+
+    /** One-line summary for the status bar. */
+    public String summary() {
+        return "Gates: " + sent.get() + " sent, " + duplicates.get() + " dup, " + late.get() + " late, "
+            + dropped.get() + " dropped, " + rejected.get() + " rejected, queue " + queue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try { if (serverSocket != null) serverSocket.close(); } catch (Exception ignored) {}
+        try { if (watchService != null) watchService.close(); } catch (Exception ignored) {}
+        for (Thread t : threads) t.interrupt();
+    }
+}
@@ -0,0 +1,140 @@
+package com.parking;
+
+import java.util.Arrays;
+
+/**
+ * IntIntMap: small open-addressing int -> int hash map (linear probing).
+ *
+ * Avoids the Integer boxing of HashMap<Integer, Integer> on hot paths that are
+ * keyed by plate IDs or slot IDs. Key 0 is reserved as the empty marker, which
+ * is fine because both plate IDs and slot IDs start at 1.
+ * Not thread-safe; owners confine it to one thread or lock around it.
+ */
+public class IntIntMap {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+
+    public IntIntMap() { this(16); }
+
+    public IntIntMap(int expectedSize) {
+        int cap = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[cap];
+        values = new int[cap];
+        resizeAt = (int) (cap * LOAD_FACTOR);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public int get(int key, int defaultValue) {
+        if (key == 0) return defaultValue;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return values[i];
+            if (k == 0) return defaultValue;
+        }
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) return false;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return true;
+            if (k == 0) return false;
+        }
+    }
+
+    public void put(int key, int value) {
+        if (key == 0) throw new IllegalArgumentException("key 0 is reserved");
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) { values[i] = value; return; }
+            if (k == 0) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > resizeAt) rehash(keys.length << 1);
+                return;
+            }
+        }
+    }
+
+    /** Adds delta to the value for key (missing keys start at 0) and returns the new value. */
+    public int addTo(int key, int delta) {
+        int v = get(key, 0) + delta;
+        put(key, v);
+        return v;
+    }
+
+    public int remove(int key, int defaultValue) {
+        if (key == 0) return defaultValue;
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == 0) return defaultValue;
+            i = (i + 1) & mask;
+        }
+        int old = values[i];
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        size--;
+        return old;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /** Callback for allocation-free iteration. */
+    public interface Visitor {
+        void visit(int key, int value);
+    }
+
+    public void forEach(Visitor visitor) {
+        int[] k = keys;
+        int[] v = values;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != 0) visitor.visit(k[i], v[i]);
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[newCapacity];
+        values = new int[newCapacity];
+        resizeAt = (int) (newCapacity * LOAD_FACTOR);
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int key = oldKeys[j];
+            if (key == 0) continue;
+            int i = mix(key) & mask;
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package com.parking;
 
 // --- Necessary Imports ---
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.css.CssParser;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -36,23 +45,69 @@ public class MainDashboard extends Application {
     private TabPane parkingFloorTabPane; // For the floor tabs
     private AnalyticsPanel analyticsPanel;
     private ResidentPanel residentPanel;
+    private volatile SitesPanel sitesPanel; // built on first selection, refreshed from peer threads
+    private MultiSiteConnector multiSite;
 
-    private Map<Integer, Pane> floorPanes = new HashMap<>();
+    private Map<Integer, FloorView> floorPanes = new HashMap<>();
     private Map<Integer, Tab> floorTabs = new HashMap<>(); // Store tabs for lookup
-    private Map<Integer, Integer> floorSlotCount = new HashMap<>();
-    private Map<Integer, ParkingSlotUI> allSlots = new HashMap<>(); // Master map of all slots
+    private final SlotStateTable slotTable = new SlotStateTable(); // Parsed STATUS, shared with other threads
+    private final EventBus events = new EventBus(4096);             // engine replies -> subscribers
+    private final EventMetrics eventMetrics = new EventMetrics();
+    private final OccupancyForecaster forecaster = new OccupancyForecaster(slotTable); // learns on its own bus thread
+    private String pendingStatus;                                    // "ui" subscriber batch state
+    private boolean queuesChanged;
+    private boolean vehicleQueued;                                   // since the last batch
+    private long[] slotStates;                                       // FX-side snapshot buffer
+    private long[] latestStates;                                     // FX-side buffer for plate sweeps
+    private final BitSet platesInUse = new BitSet();                 // FX thread only
+    private final SlotViewModel slotModel = new SlotViewModel(); // Latest state of every slot
+    private final FloorPlan floorPlan = FloorPlan.load(Paths.get("floor-plan.csv"));
+    private final SlotUsageStats usageStats = new SlotUsageStats(); // rolling utilization / dwell per slot
+    private FloorView.BayOverlay bayOverlay;                         // null = status colouring
+    private static final int OVERLAY_REFRESH_SECONDS = 30;
+    private int overlayTicks = 0;
+    private static final long DWELL_FULL_SCALE_SECONDS = 4 * 3600;   // dwell shown fully red at 4h
+    private final PlateRegistry plates = PlateRegistry.getInstance();
+    private final StartupTimer startupTimer = new StartupTimer();
+    private Image logoImage;
+    // Classes behind the lazily built tabs; loaded on a pool thread while the window is built
+    private static final String[] PRELOAD_CLASSES = {
+        "com.parking.AnalyticsPanel", "com.parking.ResidentPanel", "com.parking.SitesPanel",
+        "javafx.scene.chart.BarChart", "javafx.scene.chart.PieChart", "javafx.scene.chart.CategoryAxis",
+        "javafx.scene.chart.NumberAxis", "javafx.scene.control.TableView", "javafx.scene.control.DatePicker",
+        "javafx.stage.FileChooser"
+    };
+    private final IntIntMap slotByPlateId = new IntIntMap(128); // plateId -> slotId for parked vehicles
+    private final FuzzyPlateIndex parkedPlateIndex = new FuzzyPlateIndex(); // near-miss lookup for FIND/REMOVE
+    private static final int PLATE_MATCH_DISTANCE = 2;
 
     private ControlPanel controlPanel;
     private Label statusMessageLabel;
+    private final NotificationCenter notifications = new NotificationCenter(); // aggregated status messages
     private BackendConnector backendConnector;
     private Label timeLabel;
+    private Label gateStatsLabel;
+    private Label outboxStatsLabel;
+    private Label eventStatsLabel;
+    private GateEventIngestor gateIngestor;
+    private DisplayBoardServer displayServer;
 
     // Waiting queue UI
     private TableView<WaitingRow> waitingTable;
     private Label waitingSummaryLabel;
 
-    // Prevent duplicate suggestion popups for same slot
-    private final Map<Integer, AtomicBoolean> suggestionShownForSlot = new HashMap<>();
+    // Live fee estimate (mirrors the engine's tariff)
+    private final TariffEngine tariffEngine = new TariffEngine(TariffTable.load(Paths.get("tariff.properties")));
+    private int selectedSlotId = -1;
+
+    // Overstay fires from pre-paid exit deadlines instead of a STATUS poll
+    private final OverstayScheduler overstayScheduler =
+        new OverstayScheduler((slotId, deadline) -> Platform.runLater(() -> markOverstay(slotId)));
+
+    // Assignment suggestions, one per "slot freed" edge: slotId -> event number still awaiting
+    // an answer. Dropped when answered or when the slot is taken again, so at most one per slot.
+    private final IntIntMap openFreedEvents = new IntIntMap(16);
+    private int freedEventSeq = 0;
 
     // --- Default Constructor (Needed for JavaFX) ---
     public MainDashboard() {}
@@ -60,16 +115,20 @@ public class MainDashboard extends Application {
     // --- Start Method (Main UI Setup) ---
     @Override
     public void start(Stage primaryStage) {
+        startupTimer.mark("launch");
+        preloadInBackground();
         primaryStage.setTitle("Smart Complex Mobility Hub");
-        try {
-            // Set application icon (optional)
-            Image icon = new Image(getClass().getResourceAsStream("assets/logo.png"));
-            primaryStage.getIcons().add(icon);
-        } catch (Exception e) { System.err.println("Error loading application icon: " + e.getMessage()); }
-
-        // Initialize the backend connector, passing 'this' (MainDashboard instance)
-        backendConnector = new BackendConnector(this, this::showStatusMessage);
+        // Set application icon (optional); decoded on JavaFX's image loader threads
+        logoImage = loadImageAsync("assets/logo.png");
+        if (logoImage != null) primaryStage.getIcons().add(logoImage);
+
+        // Engine replies arrive as events; subscribe before the engine starts talking
+        events.subscribe("ui", this::onEngineEvent);
+        events.subscribe("metrics", eventMetrics);
+        events.subscribe("forecast", forecaster);
+        backendConnector = new BackendConnector(events, slotTable, this::showStatusMessage);
         backendConnector.startBackend();
+        startupTimer.mark("engine");
 
         BorderPane mainLayout = new BorderPane();
         mainLayout.getStyleClass().add("root");
@@ -85,34 +144,30 @@ public class MainDashboard extends Application {
         parkingTab.setClosable(false);
         parkingFloorTabPane = new TabPane();
         parkingFloorTabPane.getStyleClass().add("floor-tab-pane");
-        parkingTab.setContent(parkingFloorTabPane);
-
-        // 2. Analytics Tab
-        Tab analyticsTab = new Tab("Analytics");
-        analyticsTab.setClosable(false);
-        analyticsPanel = new AnalyticsPanel(); // Create instance
-        analyticsTab.setContent(analyticsPanel);
-        // Add listener to refresh data when tab is selected
-        analyticsTab.setOnSelectionChanged(e -> {
-            if (analyticsTab.isSelected() && backendConnector != null) backendConnector.getAnalytics();
+        BorderPane parkingContent = new BorderPane(parkingFloorTabPane);
+        parkingContent.setTop(createOverlayBar());
+        parkingTab.setContent(parkingContent);
+        // Hidden floors are not touched by STATUS; catch up when one is shown
+        parkingFloorTabPane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> {
+            if (newTab != null) reconcileFloor((int) newTab.getUserData());
         });
 
+        // 2. Analytics Tab (charts are built, and data fetched, when it is first opened)
+        Tab analyticsTab = lazyTab("Analytics", () -> analyticsPanel = new AnalyticsPanel(backendConnector), () -> backendConnector.getAnalytics());
+
         // 3. User Management Tab
-        Tab userTab = new Tab("User Management");
-        userTab.setClosable(false);
-        residentPanel = new ResidentPanel(backendConnector); // Create instance
-        userTab.setContent(residentPanel);
-        // Add listener to refresh data when tab is selected
-        userTab.setOnSelectionChanged(e -> {
-            if (userTab.isSelected() && backendConnector != null) backendConnector.getUsers();
-        });
+        Tab userTab = lazyTab("User Management", () -> residentPanel = new ResidentPanel(backendConnector), () -> backendConnector.getUsers());
 
         // Add tabs to the main pane
         mainTabPane.getTabs().addAll(parkingTab, analyticsTab, userTab);
+        Tab sitesTab = createSitesTab();
+        if (sitesTab != null) mainTabPane.getTabs().add(sitesTab);
         mainLayout.setCenter(mainTabPane);
 
         // --- Control Panel (right) ---
         controlPanel = new ControlPanel(backendConnector);
+        controlPanel.setPlateResolver(this::resolveParkedPlate);
+        controlPanel.setForecaster(forecaster);
         VBox rightPane = new VBox(12);
         rightPane.setPadding(new Insets(12));
         rightPane.getChildren().addAll(controlPanel, createWaitingSection());
@@ -130,31 +185,115 @@ public class MainDashboard extends Application {
 
         // --- Status Bar ---
         mainLayout.setBottom(createStatusBar());
+        startupTimer.mark("layout");
 
         // --- Scene Setup ---
         Scene scene = new Scene(mainLayout, 1350, 850);
-        try {
-            // load CSS from resources
-            String css = getClass().getResource("styles.css").toExternalForm();
-            scene.getStylesheets().add(css);
-        } catch (Exception e) {
-            System.err.println("Error loading CSS: " + e.getMessage());
+        URL css = getClass().getResource("styles.css");
+        if (css != null) {
+            scene.getStylesheets().add(css.toExternalForm());
+        } else {
+            System.err.println("Error loading CSS: styles.css not found");
         }
+        startupTimer.mark("scene");
 
+        startupTimer.awaitFirstFrame(scene, this::afterFirstFrame);
         primaryStage.setScene(scene);
         primaryStage.show();
 
-        // Kick off periodic STATUS polling
-        Timeline statusTicker = new Timeline(new KeyFrame(Duration.seconds(3), e -> {
-            if (backendConnector != null) backendConnector.getInitialStatus();
-        }));
-        statusTicker.setCycleCount(Animation.INDEFINITE);
-        statusTicker.play();
+        // No periodic STATUS poll: every command reply triggers a refresh, and the only
+        // time-driven change (overstay) comes from overstayScheduler.
+
+        startGateIngestion();
+        startDisplayServer();
 
-        // Request initial data
+        // The engine has no overflow rules of its own; a site opts in with this file
+        backendConnector.loadOverflowRules(Paths.get("overflow-rules.csv"));
+
+        // The floors need STATUS for the first frame; everything else waits for it (afterFirstFrame)
         backendConnector.getInitialStatus();
-        backendConnector.getAnalytics();
-        backendConnector.getUsers();
+    }
+
+    // Requests the first frame did not need, and the startup report. FX thread.
+    private void afterFirstFrame() {
+        backendConnector.getBilling();
+        if (multiSite != null) backendConnector.getAnalytics(); // the all-sites view shares local analytics
+        boolean training = getParameters().getRaw().contains("--training-run");
+        Thread reporter = new Thread(() -> showStatusMessage(startupTimer.report(training), false), "startup-report");
+        reporter.setDaemon(true);
+        reporter.start();
+        if (training) runTraining();
+    }
+
+    // Tab whose content is built the first time it is selected; onSelected runs on every selection
+    private Tab lazyTab(String title, Supplier<Node> content, Runnable onSelected) {
+        Tab tab = new Tab(title);
+        tab.setClosable(false);
+        tab.setOnSelectionChanged(e -> {
+            if (!tab.isSelected()) return;
+            if (tab.getContent() == null) tab.setContent(content.get());
+            if (backendConnector != null && onSelected != null) onSelected.run();
+        });
+        return tab;
+    }
+
+    // Off the FX thread while the window is built: the stylesheet is parsed once so the CSS
+    // parser and converters are loaded and warm (and errors show early), and the classes of the
+    // lazily built tabs are loaded. The scene still parses styles.css itself on its first pulse.
+    private void preloadInBackground() {
+        ExecutorService pool = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "startup-preload");
+            t.setDaemon(true);
+            return t;
+        });
+        pool.execute(() -> {
+            URL css = getClass().getResource("styles.css");
+            if (css == null) return;
+            try {
+                new CssParser().parse(css);
+            } catch (IOException e) {
+                System.err.println("Error preloading CSS: " + e.getMessage());
+            }
+        });
+        pool.execute(() -> {
+            ClassLoader loader = getClass().getClassLoader();
+            for (String name : PRELOAD_CLASSES) {
+                try {
+                    Class.forName(name, false, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    System.err.println("Could not preload " + name + ": " + e.getMessage());
+                }
+            }
+        });
+        pool.shutdown();
+    }
+
+    // Background-loading Image, or null if the resource is missing
+    private Image loadImageAsync(String path) {
+        URL url = getClass().getResource(path);
+        if (url == null) {
+            System.err.println("Error loading image: " + path + " not found");
+            return null;
+        }
+        return new Image(url.toExternalForm(), true);
+    }
+
+    // CDS training run (--training-run, with -XX:ArchiveClassesAtExit): opens every tab and
+    // pane once so their classes land in the archive, then exits after the engine settles.
+    private void runTraining() {
+        for (Tab tab : mainTabPane.getTabs()) mainTabPane.getSelectionModel().select(tab);
+        mainTabPane.getSelectionModel().selectFirst();
+        for (Node node : controlPanel.getChildrenUnmodifiable()) {
+            if (node instanceof TitledPane) {
+                TitledPane pane = (TitledPane) node;
+                boolean expanded = pane.isExpanded();
+                pane.setExpanded(true);
+                pane.setExpanded(expanded);
+            }
+        }
+        PauseTransition settle = new PauseTransition(Duration.seconds(5));
+        settle.setOnFinished(e -> Platform.exit());
+        settle.play();
     }
 
     // --- Header UI ---
@@ -165,12 +304,11 @@ public class MainDashboard extends Application {
         header.setAlignment(Pos.CENTER_LEFT);
 
         ImageView logo = null;
-        try {
-            Image img = new Image(getClass().getResourceAsStream("assets/logo.png"));
-            logo = new ImageView(img);
+        if (logoImage != null) {
+            logo = new ImageView(logoImage);
             logo.setFitHeight(48);
             logo.setFitWidth(48);
-        } catch (Exception ignored) {}
+        }
 
         Label title = new Label(" Smart Complex Mobility Hub");
         title.getStyleClass().add("header-title");
@@ -182,7 +320,17 @@ public class MainDashboard extends Application {
         timeLabel.getStyleClass().add("time-label");
         updateTime(); // initial
 
-        Timeline t = new Timeline(new KeyFrame(Duration.seconds(1), ev -> updateTime()));
+        Timeline t = new Timeline(new KeyFrame(Duration.seconds(1), ev -> {
+            updateTime();
+            refreshAccruedFees();
+            if (bayOverlay != null && ++overlayTicks % OVERLAY_REFRESH_SECONDS == 0) {
+                FloorView view = floorPanes.get(visibleFloor());
+                if (view != null) view.refreshOverlay();
+            }
+            if (gateIngestor != null) gateStatsLabel.setText(gateIngestor.summary());
+            if (backendConnector != null) outboxStatsLabel.setText(backendConnector.outboxSummary());
+            eventStatsLabel.setText(eventMetrics.summary(events));
+        }));
         t.setCycleCount(Animation.INDEFINITE);
         t.play();
 
@@ -205,20 +353,163 @@ public class MainDashboard extends Application {
 
         statusMessageLabel = new Label("Ready");
         statusMessageLabel.getStyleClass().add("status-label");
+        notifications.attach(statusMessageLabel);
 
-        statusBar.getChildren().add(statusMessageLabel);
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        gateStatsLabel = new Label("");
+        gateStatsLabel.getStyleClass().add("status-label");
+        outboxStatsLabel = new Label("");
+        outboxStatsLabel.getStyleClass().add("status-label");
+        eventStatsLabel = new Label("");
+        eventStatsLabel.getStyleClass().add("status-label");
+
+        statusBar.getChildren().addAll(statusMessageLabel, notifications.createHistoryButton(), spacer,
+            gateStatsLabel, outboxStatsLabel, eventStatsLabel);
         return statusBar;
     }
 
-    // Small helper for notifications
-    public void showStatusMessage(String message, boolean isError) {
+    // 4. Other garages; only shown when sites.properties is present
+    private Tab createSitesTab() {
+        MultiSiteConnector.Config config = MultiSiteConnector.Config.load(Paths.get("sites.properties"));
+        if (config == null) return null;
+        multiSite = new MultiSiteConnector(config, backendConnector, siteId -> {
+            if (sitesPanel != null) sitesPanel.requestRefresh();
+        });
+        multiSite.start();
+
+        // Peers are polled from startup; the table is built when the tab is first opened
+        return lazyTab("All Sites", () -> {
+            SitesPanel panel = new SitesPanel(multiSite);
+            sitesPanel = panel;
+            panel.requestRefresh();
+            return panel;
+        }, () -> backendConnector.getAnalytics());
+    }
+
+    // Plate-camera feed; only runs when anpr.properties is present
+    private void startGateIngestion() {
+        GateEventIngestor.Config config = GateEventIngestor.Config.load(Paths.get("anpr.properties"));
+        if (config == null) return;
+        try {
+            gateIngestor = new GateEventIngestor(config, backendConnector);
+            gateIngestor.start();
+            showStatusMessage("Gate camera ingestion started.", false);
+        } catch (Exception e) {
+            gateIngestor = null;
+            showStatusMessage("Could not start gate ingestion: " + e.getMessage(), true);
+        }
+    }
+
+    // Lobby/entrance board feed; only runs when display-server.properties is present
+    private void startDisplayServer() {
+        DisplayBoardServer.Config config = DisplayBoardServer.Config.load(Paths.get("display-server.properties"));
+        if (config == null) return;
+        try {
+            displayServer = new DisplayBoardServer(config);
+            displayServer.start();
+            backendConnector.getOccupancy();
+            showStatusMessage("Display board server listening on port " + config.port + ".", false);
+        } catch (Exception e) {
+            displayServer = null;
+            showStatusMessage("Could not start display board server: " + e.getMessage(), true);
+        }
+    }
+
+    /** OCCUPANCY reply: per-constraint free/total, used only by the display boards. */
+    public void updateConstraintOccupancy(String data) {
+        if (displayServer != null) displayServer.onConstraintOccupancy(data);
+    }
+
+    // ------------------------
+    // Live fee estimate
+    // ------------------------
+
+    /** Called by BackendConnector with a fresh BILLING payload. */
+    public void updateBilling(String billingData) {
+        tariffEngine.loadBilling(billingData);
+
+        // Rebuild overstay deadlines; past-due ones fire straight away
+        overstayScheduler.clear();
+        for (int slotId = 1; slotId < tariffEngine.slotCapacity(); slotId++) {
+            long deadline = tariffEngine.overstayDeadline(slotId);
+            if (deadline > 0) overstayScheduler.schedule(slotId, deadline);
+        }
         Platform.runLater(() -> {
-            statusMessageLabel.setText(message);
-            statusMessageLabel.getStyleClass().removeAll("status-label-success", "status-label-error");
-            statusMessageLabel.getStyleClass().add(isError ? "status-label-error" : "status-label-success");
+            // Cars parked before the dashboard started: use the engine's entry time
+            for (int slotId = 1; slotId < tariffEngine.slotCapacity(); slotId++) {
+                usageStats.backdateEntry(slotId, tariffEngine.entryTimeOf(slotId));
+            }
+            refreshAccruedFees();
         });
     }
 
+    // Flip just the affected slot into overstay styling
+    private void markOverstay(int slotId) {
+        if (!slotModel.markOverstay(slotId)) return;
+        int floor = slotModel.floorOf(slotId);
+        if (floor == visibleFloor()) reconcileFloor(floor);
+    }
+
+    // One pass over all occupied slots; cached fees are reused until their next hour boundary
+    private void refreshAccruedFees() {
+        double total = tariffEngine.tick(System.currentTimeMillis() / 1000L);
+        if (analyticsPanel != null) analyticsPanel.setAccruedTotal(total, tariffEngine.getOccupiedCount());
+        if (controlPanel != null) {
+            controlPanel.setAccruedFee(tariffEngine.isBillable(selectedSlotId) ? tariffEngine.feeForSlot(selectedSlotId) : null);
+        }
+    }
+
+    /** Called by BackendConnector with an ANALYTICS payload. */
+    public void updateAnalytics(String analyticsData) {
+        if (multiSite != null) multiSite.onLocalAnalytics(analyticsData);
+        Platform.runLater(() -> {
+            if (analyticsPanel != null) analyticsPanel.updateData(analyticsData);
+        });
+    }
+
+    // USERS reply: the directory is only shown once the User Management tab was opened
+    public void updateUserList(String usersData) {
+        Platform.runLater(() -> {
+            if (residentPanel != null) residentPanel.updateUserList(usersData);
+        });
+    }
+
+    /** Shows parking_sim --strategies results: name,avgWalk,busiestRampShare,peakRamp15,turnedAway;... */
+    public void showStrategyComparison(String data) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-18s %9s %8s %8s %8s%n", "Strategy", "Walk (m)", "Ramp %", "Peak/15m", "Refused"));
+        for (String row : data.split(";")) {
+            if (row.isEmpty()) continue;
+            String[] f = row.split(",");
+            if (f.length != 5) {
+                System.err.println("Malformed simulation row: " + row);
+                continue;
+            }
+            try {
+                sb.append(String.format("%-18s %9s %7.0f%% %8s %8s%n", f[0], f[1], Double.parseDouble(f[2]) * 100, f[3], f[4]));
+            } catch (NumberFormatException e) {
+                System.err.println("Error parsing simulation row: " + row);
+            }
+        }
+        Platform.runLater(() -> {
+            Alert a = new Alert(Alert.AlertType.INFORMATION);
+            a.setTitle("Slot Selection Strategies");
+            a.setHeaderText("One simulated year of traffic, same arrivals for every strategy");
+            TextArea text = new TextArea(sb.toString());
+            text.setEditable(false);
+            text.setStyle("-fx-font-family: 'Consolas', monospace;");
+            text.setPrefRowCount(7);
+            a.getDialogPane().setContent(text);
+            a.show();
+        });
+    }
+
+    // Small helper for notifications
+    public void showStatusMessage(String message, boolean isError) {
+        notifications.post(message, isError); // rendered at most once per frame
+    }
+
     // ------------------------
     // Waiting Queue UI Section
     // ------------------------
@@ -354,100 +645,185 @@ public class MainDashboard extends Application {
         }
     }
 
+    // ------------------------
+    // Engine events ("ui" subscriber thread)
+    // ------------------------
+
+    // Work is coalesced per batch: only the newest STATUS is applied, queues redraw once
+    private void onEngineEvent(EventBus.Event e, long sequence, boolean endOfBatch) {
+        switch (e.getType()) {
+            case EventBus.STATUS:
+                pendingStatus = e.getText();
+                break;
+            case EventBus.VEHICLE_QUEUED:
+                vehicleQueued = true;
+                queuesChanged = true;
+                break;
+            case EventBus.VEHICLE_DEQUEUED:
+                queuesChanged = true;
+                break;
+            case EventBus.COMMAND_FAILED:
+                showStatusMessage("Backend Error: " + e.getText(), true);
+                break;
+            case EventBus.REPLY:
+                handleReply(e.getKind(), e.getText());
+                break;
+            default:
+                break; // SLOT_CHANGED, FEE_CHARGED: for other subscribers
+        }
+        if (!endOfBatch) return;
+        if (pendingStatus != null) {
+            String status = pendingStatus;
+            pendingStatus = null;
+            updateUI(status);
+        }
+        if (queuesChanged) {
+            queuesChanged = false;
+            updateWaitingQueuesUI();
+        }
+        if (vehicleQueued) {
+            vehicleQueued = false;
+            // After the STATUS posted above, so the slot model is current
+            Platform.runLater(this::offerFreeSlotToQueue);
+        }
+    }
+
+    private void handleReply(String type, String message) {
+        if ("SUCCESS".equals(type)) {
+            // Many SUCCESS messages carry either parking info or generic messages
+            showStatusMessage(message, false);
+        } else if ("ANALYTICS".equals(type)) {
+            updateAnalytics(message);
+        } else if ("SIMULATION".equals(type)) {
+            showStrategyComparison(message);
+        } else if ("STRATEGY".equals(type)) {
+            showStatusMessage("Slot selection strategy: " + message, false);
+        } else if ("OVERFLOW".equals(type)) {
+            // placements|FROM>TO,count;...|headroomRefusals|rules
+            String[] o = message.split("\\|", -1);
+            showStatusMessage("Overflow: " + o[0] + " vehicles placed outside their zone"
+                + (o.length > 2 ? ", " + o[2] + " held back by headroom" : "") + ".", false);
+        } else if ("USERS".equals(type)) {
+            updateUserList(message);
+        } else if ("USER".equals(type)) {
+            // Name,Plate,BillingID,Type(as int),Blocked(1/0)
+            String[] u = message.split(",");
+            if (u.length == 5) {
+                String[] types = {"Guest", "Resident", "Hotel", "Staff"};
+                int t = u[3].matches("[0-3]") ? Integer.parseInt(u[3]) : 0;
+                showStatusMessage(u[1] + ": " + u[0] + " (" + types[t] + ", " + u[2] + ")"
+                    + ("1".equals(u[4]) ? " - BLOCKED" : ""), false);
+            } else {
+                showStatusMessage("User: " + message, false);
+            }
+        } else if ("EXPORT".equals(type)) {
+            // rows,total,days,path
+            String[] e = message.split(",", 4);
+            if (e.length == 4) {
+                showStatusMessage("Exported " + e[0] + " transactions (\u20B9" + e[1] + ") from " + e[2]
+                    + " day(s) to " + e[3], false);
+            } else {
+                showStatusMessage("Export: " + message, false);
+            }
+        } else if ("AVAILABILITY".equals(type)) {
+            // constraint,freeSlots,totalSlots
+            String[] a = message.split(",");
+            if (a.length == 3) {
+                showStatusMessage(a[1] + " of " + a[2] + " " + a[0] + " slots free for that window.", false);
+            } else {
+                showStatusMessage("Availability: " + message, false);
+            }
+        } else if ("OCCUPANCY".equals(type)) {
+            updateConstraintOccupancy(message);
+        } else if ("BILLING".equals(type)) {
+            updateBilling(message);
+        } else if ("DETAILS".equals(type) || "DETAIL".equals(type)) {
+            showSlotDetails(message);
+        } else {
+            // Unknown responses - forward as status so user sees them
+            showStatusMessage(type.isEmpty() ? message : type + "," + message, false);
+        }
+    }
+
     // ------------------------
     // Status updates from backend
     // ------------------------
     public void updateUI(String statusData) {
+        // The connector already parsed it into the shared table; every consumer reads it from there
+        int bar = statusData.indexOf('|');
+        String queueInfo = bar >= 0 ? statusData.substring(bar + 1) : "";
+        if (displayServer != null) {
+            // One engine query per refresh, however many boards are subscribed
+            displayServer.onSlotTable(slotTable);
+            backendConnector.getOccupancy();
+        }
+        if (multiSite != null) multiSite.onLocalStatus(slotTable, queueInfo);
         Platform.runLater(() -> {
             try {
-                String[] parts = statusData.split("\\|", -1);
-                String slotsInfo = parts[0];
-                String queueInfo = parts.length > 1 ? parts[1] : "";
-
                 // --- Process Slot Data ---
-                String[] slotsData = slotsInfo.split(";");
-                for (String slotData : slotsData) {
-                    if (slotData.isEmpty()) continue;
-                    String[] slotParts = slotData.split(",");
-                    // Expected Format: slotId,isOccupied,isReserved,isOverstay,plate,floor
-                    if (slotParts.length == 6) {
-                        int slotId = Integer.parseInt(slotParts[0]);
-                        boolean isOccupied = slotParts[1].equals("1");
-                        boolean isReserved = slotParts[2].equals("1");
-                        boolean isOverstay = slotParts[3].equals("1");
-                        String plate = slotParts[4];
-                        int floor = Integer.parseInt(slotParts[5]);
-
-                        // Dynamically create floor tab if it doesn't exist
-                        if (!floorTabs.containsKey(floor)) {
-                             String floorName = "Floor " + floor; // Determine name later if needed
-                            Tab tab = new Tab(floorName);
-                            tab.setUserData(floor); // Store floor number
-                            tab.setClosable(false);
-                            Pane pane = new Pane();
-                            pane.getStyleClass().add("parking-visualization-pane");
-                            tab.setContent(pane);
-
-                            parkingFloorTabPane.getTabs().add(tab);
-                            // Sort tabs by floor number after adding
-                            parkingFloorTabPane.getTabs().sort(Comparator.comparingInt(t -> (int) t.getUserData()));
-
-                            floorPanes.put(floor, pane);
-                            floorTabs.put(floor, tab); // Store the tab reference
-                            floorSlotCount.put(floor, 0); // Initialize slot count for this floor
-                        }
+                long[] states = slotStates = slotTable.snapshot(slotStates);
+                long now = System.currentTimeMillis() / 1000L;
+                for (int slotId = 1; slotId < states.length; slotId++) {
+                    long state = states[slotId];
+                    if (!SlotStateTable.isKnown(state)) continue;
+                    boolean isOccupied = SlotStateTable.isOccupied(state);
+                    boolean isReserved = SlotStateTable.isReserved(state);
+                    boolean isOverstay = SlotStateTable.isOverstay(state);
+                    int plateId = SlotStateTable.plateIdOf(state);
+                    int floor = SlotStateTable.floorOf(state);
+
+                    // Dynamically create floor tab if it doesn't exist
+                    if (!floorTabs.containsKey(floor)) {
+                         String floorName = "Floor " + floor; // Determine name later if needed
+                        Tab tab = new Tab(floorName);
+                        tab.setUserData(floor); // Store floor number
+                        tab.setClosable(false);
+                        FloorView pane = new FloorView(floor, floorPlan, slotModel);
+                        pane.getStyleClass().add("parking-visualization-pane");
+                        pane.setOnSlotClicked(this::onSlotClicked);
+                        tab.setContent(pane);
+
+                        floorPanes.put(floor, pane);
+                        floorTabs.put(floor, tab); // Store the tab reference
+
+                        parkingFloorTabPane.getTabs().add(tab);
+                        // Sort tabs by floor number after adding
+                        parkingFloorTabPane.getTabs().sort(Comparator.comparingInt(t -> (int) t.getUserData()));
+                    }
 
-                        Pane currentFloorPane = floorPanes.get(floor);
-                        if (currentFloorPane == null) continue; // Should not happen
-
-                        // Dynamically create slot UI if it doesn't exist
-                        if (!allSlots.containsKey(slotId)) {
-                            int slotIndex = floorSlotCount.getOrDefault(floor, 0); // Get current count
-                            int slotsPerRow = 10; // Layout: 10 slots per row
-                            int row = slotIndex / slotsPerRow;
-                            int col = slotIndex % slotsPerRow;
-                            double slotWidth = 80;
-                            double slotHeight = 120;
-                            double xGap = 15;
-                            double yGap = 20;
-                            double x = 20 + col * (slotWidth + xGap);
-                            double y = 50 + row * (slotHeight + yGap);
-
-                            ParkingSlotUI slotUI = new ParkingSlotUI(slotId, floor, x, y, slotWidth, slotHeight);
-                            // Add click listener
-                            slotUI.setOnMouseClicked(e -> {
-                                if (controlPanel != null) controlPanel.setPlate(slotUI.getPlate());
-                                if (slotUI.isOccupied) { // Use the public field
-                                    backendConnector.getSlotDetails(slotId);
-                                } else {
-                                    if (controlPanel != null) controlPanel.clearDetails();
-                                }
-                            });
-
-                            allSlots.put(slotId, slotUI);
-                            currentFloorPane.getChildren().add(slotUI);
-                            floorSlotCount.put(floor, slotIndex + 1); // Increment count
+                    int previousPlateId = slotModel.plateIdOf(slotId);
+                    boolean wasOccupied = slotModel.isOccupied(slotId);
+                    boolean wasReserved = slotModel.isReserved(slotId);
+                    // Entry/exit events for the usage overlay; a plate swap is an exit plus an entry
+                    if (wasOccupied && (!isOccupied || previousPlateId != plateId)) usageStats.exit(slotId, now);
+                    if (isOccupied && (!wasOccupied || previousPlateId != plateId)) usageStats.enter(slotId, now);
+                    // A booking shows its plate before the car arrives, so watch occupancy too
+                    if (previousPlateId != plateId || wasOccupied != isOccupied) {
+                        if (slotByPlateId.get(previousPlateId, 0) == slotId) {
+                            slotByPlateId.remove(previousPlateId, 0);
+                            parkedPlateIndex.remove(previousPlateId);
                         }
-
-                        // Update the visual status of the slot
-                        if (allSlots.containsKey(slotId)) {
-                            allSlots.get(slotId).updateStatus(isOccupied, isReserved, isOverstay, plate);
+                        if (plateId != PlateRegistry.NO_PLATE && isOccupied) {
+                            slotByPlateId.put(plateId, slotId);
+                            parkedPlateIndex.add(plateId);
                         }
-
-                        // If slot is free (not occupied), check if there's a waiting vehicle of matching type
-                        if (!isOccupied) {
-                            // Determine slot constraint type by current UI setup. We only support BIKE or CAR here.
-                            // We derive type by looking at plate pattern or slot distribution? Simpler: use slotId -> floor mapping heuristic
-                            // For robustness, we'll attempt to check top of bikeQueue/carQueue and suggest if available.
-                            checkAndSuggestAssign(slotId);
-                        }
-                    } else {
-                         // Log malformed data
-                         System.err.println("Malformed slot data received: " + slotData);
+                    }
+                    // Record only; nodes are updated for the visible floor below
+                    slotModel.update(slotId, isOccupied, isReserved, isOverstay, plateId, floor);
+
+                    // Edge-triggered: only a slot that just became available can take a waiting vehicle
+                    if ((wasOccupied || wasReserved) && !isOccupied && !isReserved) {
+                        onSlotFreed(slotId);
+                    } else if (isOccupied || isReserved) {
+                        openFreedEvents.remove(slotId, 0); // any open suggestion is stale now
                     }
                 }
+                reconcileFloor(visibleFloor());
+
                 // Update waiting queue display
                 updateWaitingQueuesUI();
+                if (controlPanel != null) controlPanel.updateWaitingQueues(queueInfo);
+                sweepPlates(states);
             } catch (Exception e) {
                  // Log any errors during UI update
                  System.err.println("Error during UI update: " + e.getMessage());
@@ -457,35 +833,73 @@ public class MainDashboard extends Application {
     }
 
     /**
-     * When a free slot is seen, we check the top of queues and propose assignment.
-     * This uses a simple heuristic:
-     * - If bikeQueue has vehicles and bike slots exist -> propose to assign a bike
+     * Lets the plate registry forget plates that left: keeps those shown, those in the latest
+     * STATUS (which may be newer than the one just shown) and those in a waiting queue.
+     */
+    private void sweepPlates(long[] shown) {
+        platesInUse.clear();
+        for (long state : shown) platesInUse.set(SlotStateTable.plateIdOf(state));
+        latestStates = slotTable.snapshot(latestStates);
+        for (long state : latestStates) platesInUse.set(SlotStateTable.plateIdOf(state));
+        for (BackendConnector.WaitingVehicle w : backendConnector.getBikeQueueSnapshot()) platesInUse.set(w.plateId);
+        for (BackendConnector.WaitingVehicle w : backendConnector.getCarQueueSnapshot()) platesInUse.set(w.plateId);
+        plates.sweep(platesInUse);
+    }
+
+    /**
+     * A slot went from occupied/reserved to free (once per edge, not per STATUS).
+     * We check the top of queues and propose assignment:
+     * - If bikeQueue has vehicles -> propose to assign a bike
      * - Else if carQueue has vehicles -> propose assign car
-     *
-     * We guard against popping multiple popups for the same slot using suggestionShownForSlot map.
+     * Each freed event gets at most one popup; freeing the slot again later gives a new one.
      */
-    private void checkAndSuggestAssign(int freeSlotId) {
-        if (suggestionShownForSlot.containsKey(freeSlotId) && suggestionShownForSlot.get(freeSlotId).get()) {
-            return; // Already suggested for this slot
-        }
+    private void onSlotFreed(int slotId) {
         BackendConnector.WaitingVehicle bikeTop = backendConnector.peekNextForType("BIKE");
         BackendConnector.WaitingVehicle carTop  = backendConnector.peekNextForType("CAR");
+        if (bikeTop == null && carTop == null) return; // nothing waiting, nothing to remember
 
-        // If both exist, prefer BIKE if free slots typically for bikes. To be safe, show combined choices.
         if (bikeTop != null) {
-            // Suggest assign bikeTop to this freeSlot
-            suggestionShownForSlot.putIfAbsent(freeSlotId, new AtomicBoolean(false));
-            showAssignPopupForSlot(freeSlotId, "BIKE", bikeTop);
-        } else if (carTop != null) {
-            suggestionShownForSlot.putIfAbsent(freeSlotId, new AtomicBoolean(false));
-            showAssignPopupForSlot(freeSlotId, "CAR", carTop);
+            offerSlot(slotId, "BIKE", bikeTop);
+        } else {
+            offerSlot(slotId, "CAR", carTop);
         }
     }
 
-    private void showAssignPopupForSlot(int slotId, String type, BackendConnector.WaitingVehicle candidate) {
-        // mark suggested so we don't flood
-        suggestionShownForSlot.get(slotId).set(true);
+    /**
+     * A vehicle joined a queue. Freed slots are only offered on the edge, so a slot that was
+     * already free (since startup, or left alone after "Later") is offered here instead: the
+     * lowest free slot of the queue head's kind that has no open offer.
+     */
+    private void offerFreeSlotToQueue() {
+        BackendConnector.WaitingVehicle bikeTop = backendConnector.peekNextForType("BIKE");
+        BackendConnector.WaitingVehicle carTop  = backendConnector.peekNextForType("CAR");
+        int slotId;
+        if (bikeTop != null && (slotId = freeSlotFor("BIKE")) > 0) {
+            offerSlot(slotId, "BIKE", bikeTop);
+        } else if (carTop != null && (slotId = freeSlotFor("CAR")) > 0) {
+            offerSlot(slotId, "CAR", carTop);
+        }
+    }
+
+    /** Lowest free, unbooked slot of a BIKE or CAR class (by the last STATUS shown) with no open offer; 0 if none. */
+    private int freeSlotFor(String type) {
+        long[] states = slotStates;
+        if (states == null) return 0;
+        for (int slotId = 1; slotId < states.length; slotId++) {
+            if (!SlotStateTable.isFree(states[slotId]) || openFreedEvents.containsKey(slotId)) continue;
+            String constraint = slotTable.constraintName(SlotStateTable.constraintOf(states[slotId]));
+            if ("BIKE".equals(type) ? constraint.equals("BIKE") : constraint.startsWith("CAR_")) return slotId;
+        }
+        return 0;
+    }
 
+    private void offerSlot(int slotId, String type, BackendConnector.WaitingVehicle candidate) {
+        int eventId = ++freedEventSeq;
+        openFreedEvents.put(slotId, eventId);
+        showAssignPopupForSlot(slotId, eventId, type, candidate);
+    }
+
+    private void showAssignPopupForSlot(int slotId, int eventId, String type, BackendConnector.WaitingVehicle candidate) {
         Platform.runLater(() -> {
             Alert a = new Alert(Alert.AlertType.CONFIRMATION);
             a.setTitle("Assign Waiting Vehicle");
@@ -496,7 +910,12 @@ public class MainDashboard extends Application {
             a.getButtonTypes().setAll(assignNow, later);
 
             a.showAndWait().ifPresent(btn -> {
-                if (btn == assignNow) {
+                // Answer only the event this popup was raised for
+                boolean current = openFreedEvents.get(slotId, 0) == eventId;
+                if (current) openFreedEvents.remove(slotId, 0);
+                if (btn == assignNow && !current) {
+                    showStatusMessage("Slot " + slotId + " was taken in the meantime.", true);
+                } else if (btn == assignNow) {
                     // Poll and assign
                     BackendConnector.WaitingVehicle polled = backendConnector.pollNextForType(type);
                     if (polled != null) {
@@ -514,6 +933,120 @@ public class MainDashboard extends Application {
         });
     }
 
+    /** Shared slot state; safe to read from any thread (see {@link SlotStateTable#beginRead}). */
+    public SlotStateTable getSlotTable() { return slotTable; }
+
+    /** Slot currently holding the plate according to the last STATUS, or -1. */
+    public int findSlotForPlate(String plate) {
+        int plateId = plates.find(plate);
+        return plateId == PlateRegistry.NO_PLATE ? -1 : slotByPlateId.get(plateId, -1);
+    }
+
+    /**
+     * Plate to send for FIND/REMOVE. An exact match against the parked set is used as typed;
+     * otherwise the operator picks from near matches (misreads, typos). Returns null if cancelled.
+     */
+    public String resolveParkedPlate(String typed) {
+        String plate = PlateRegistry.normalize(typed);
+        if (plate.isEmpty() || findSlotForPlate(plate) >= 0) return plate;
+
+        List<FuzzyPlateIndex.Match> matches = parkedPlateIndex.search(plate, PLATE_MATCH_DISTANCE, 5);
+        if (matches.isEmpty()) return plate; // let the engine report "not found"
+
+        List<String> choices = matches.stream()
+            .map(m -> m.plate + "  (Slot " + slotByPlateId.get(m.plateId, -1) + ")")
+            .collect(Collectors.toList());
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(choices.get(0), choices);
+        dialog.setTitle("Plate Not Found");
+        dialog.setHeaderText("No parked vehicle with plate " + plate + ". Did you mean:");
+        dialog.setContentText("Vehicle:");
+        return dialog.showAndWait()
+            .map(choice -> matches.get(choices.indexOf(choice)).plate)
+            .orElse(null);
+    }
+
+    // ------------------------
+    // Floor rendering
+    // ------------------------
+
+    private int visibleFloor() {
+        Tab tab = parkingFloorTabPane.getSelectionModel().getSelectedItem();
+        return tab != null ? (int) tab.getUserData() : -1;
+    }
+
+    // Status / utilization / dwell colouring over a chosen window
+    private HBox createOverlayBar() {
+        ComboBox<String> mode = new ComboBox<>();
+        mode.getItems().addAll("Status", "Utilization", "Average dwell");
+        mode.setValue("Status");
+        ComboBox<String> window = new ComboBox<>();
+        window.getItems().addAll("1 hour", "4 hours", "8 hours", "24 hours");
+        window.setValue("4 hours");
+        window.setDisable(true);
+
+        Runnable apply = () -> {
+            int hours = Integer.parseInt(window.getValue().split(" ")[0]);
+            window.setDisable("Status".equals(mode.getValue()));
+            setBayOverlay(mode.getValue(), hours * 3600);
+        };
+        mode.setOnAction(e -> apply.run());
+        window.setOnAction(e -> apply.run());
+
+        HBox bar = new HBox(10, new Label("Colour bays by:"), mode, new Label("over the last"), window);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(6, 10, 6, 10));
+        return bar;
+    }
+
+    private void setBayOverlay(String mode, int windowSeconds) {
+        if ("Utilization".equals(mode)) {
+            bayOverlay = new FloorView.BayOverlay() {
+                public double value(int slotId) {
+                    return usageStats.utilization(slotId, windowSeconds, System.currentTimeMillis() / 1000L);
+                }
+                public String caption(int slotId, double value) {
+                    return Math.round(value * 100) + "% used";
+                }
+            };
+        } else if ("Average dwell".equals(mode)) {
+            bayOverlay = new FloorView.BayOverlay() {
+                public double value(int slotId) {
+                    long dwell = usageStats.averageDwell(slotId, windowSeconds, System.currentTimeMillis() / 1000L);
+                    return dwell < 0 ? -1 : (double) dwell / DWELL_FULL_SCALE_SECONDS;
+                }
+                public String caption(int slotId, double value) {
+                    if (value < 0) return "no exits";
+                    long minutes = Math.round(value * DWELL_FULL_SCALE_SECONDS / 60.0);
+                    return "avg " + (minutes / 60) + "h " + (minutes % 60) + "m";
+                }
+            };
+        } else {
+            bayOverlay = null;
+        }
+        // Other floors pick it up when their tab is shown
+        FloorView view = floorPanes.get(visibleFloor());
+        if (view != null) view.setOverlay(bayOverlay);
+    }
+
+    // Push the floor's changed slots into its on-screen nodes
+    private void reconcileFloor(int floor) {
+        FloorView view = floorPanes.get(floor);
+        if (view == null) return;
+        view.sync();
+        if (floor == visibleFloor()) view.setOverlay(bayOverlay);
+    }
+
+    private void onSlotClicked(int slotId) {
+        selectedSlotId = slotId;
+        refreshAccruedFees();
+        if (controlPanel != null) controlPanel.setPlate(plates.plateOf(slotModel.plateIdOf(slotId)));
+        if (slotModel.isOccupied(slotId)) {
+            backendConnector.getSlotDetails(slotId);
+        } else {
+            if (controlPanel != null) controlPanel.clearDetails();
+        }
+    }
+
     // Show detailed slot info panel
     public void showSlotDetails(String data) {
         if (controlPanel != null) {
@@ -526,14 +1059,15 @@ public class MainDashboard extends Application {
             try {
                 int slotId = Integer.parseInt(slotIdStr);
                 int floor = Integer.parseInt(floorStr);
-                if (allSlots.containsKey(slotId)) {
-                    ParkingSlotUI slot = allSlots.get(slotId);
-                    // Select the correct floor tab
+                if (slotModel.isKnown(slotId)) {
+                    // Select the correct floor tab (this builds/reconciles its nodes)
                     if (floorTabs.containsKey(floor)) {
                          mainTabPane.getSelectionModel().select(0); // Select the main Parking Lot tab first
                          parkingFloorTabPane.getSelectionModel().select(floorTabs.get(floor));
                     }
-                    slot.highlight(); // Make the slot flash
+                    FloorView view = floorPanes.get(floor);
+                    ParkingSlotView slot = view != null ? view.showSlot(slotId) : null;
+                    if (slot != null) slot.highlight(); // Make the slot flash
                 }
             } catch (Exception e) {
                 showStatusMessage("Could not highlight slot: " + e.getMessage(), true);
@@ -541,6 +1075,16 @@ public class MainDashboard extends Application {
         });
     }
 
+    @Override
+    public void stop() {
+        overstayScheduler.close();
+        if (gateIngestor != null) gateIngestor.close();
+        if (displayServer != null) displayServer.close();
+        if (multiSite != null) multiSite.close();
+        if (backendConnector != null) backendConnector.stopBackend();
+        events.close();
+    }
+
     // --- Main Method (Application Entry Point) ---
     public static void main(String[] args) {
         launch(args);
@@ -0,0 +1,361 @@
+package com.parking;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * MultiSiteConnector: one engine per garage, merged into a combined view.
+ *
+ * The dashboard's own engine is the "local" site and is fed from the replies
+ * BackendConnector already receives. Every other site runs its own
+ * {@link SiteEngine} process. Commands are routed by site ID. Each site is
+ * refreshed (STATUS + GET_ANALYTICS) on its own schedule. A site that has not
+ * answered its last refresh is skipped, not queued up again, so one slow site
+ * never holds back the others or piles up work.
+ *
+ * The combined totals are kept incrementally: when a site reports, its previous
+ * contribution is subtracted and the new one is added. The merge costs one site's
+ * update, not a rescan of all sites.
+ */
+public class MultiSiteConnector implements AutoCloseable {
+
+    public static final String LOCAL_SITE = "local";
+
+    /** Settings from sites.properties. */
+    public static class Config {
+        public final Map<String, String> names = new LinkedHashMap<>();
+        public final Map<String, List<String>> commands = new LinkedHashMap<>();
+        public final Map<String, Path> dirs = new LinkedHashMap<>();
+        public String localName = "This site";
+        public long refreshMillis = 5_000;
+
+        /**
+         * Reads sites.properties (local.name, refresh.seconds, site.ID.name,
+         * site.ID.command, site.ID.dir); null when the file is missing or unreadable.
+         * A site's data directory defaults to sites/ID next to sites.properties.
+         */
+        public static Config load(Path file) {
+            if (file == null || !Files.isRegularFile(file)) return null;
+            Config c = new Config();
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                p.load(in);
+                c.localName = p.getProperty("local.name", c.localName).trim();
+                c.refreshMillis = Long.parseLong(p.getProperty("refresh.seconds", "5").trim()) * 1000L;
+                for (String key : new TreeSet<>(p.stringPropertyNames())) {
+                    if (!key.startsWith("site.") || !key.endsWith(".command")) continue;
+                    String id = key.substring(5, key.length() - ".command".length());
+                    if (id.isEmpty() || LOCAL_SITE.equals(id)) continue;
+                    c.commands.put(id, Arrays.asList(p.getProperty(key).trim().split("\\s+")));
+                    c.names.put(id, p.getProperty("site." + id + ".name", id).trim());
+                    String dir = p.getProperty("site." + id + ".dir");
+                    Path base = file.toAbsolutePath().getParent();
+                    c.dirs.put(id, dir != null ? base.resolve(dir.trim()) : base.resolve(Paths.get("sites", id)));
+                }
+            } catch (Exception e) {
+                System.err.println("Could not load site config " + file + ": " + e.getMessage());
+                return null;
+            }
+            return c;
+        }
+    }
+
+    /** One site's figures (or the combined totals); copies are handed to the UI. */
+    public static final class SiteSummary {
+        public final String siteId;
+        public final String name;
+        public int total, free, occupied, reserved, overstay, waiting;
+        public int entries;
+        public double revenue;
+        public final int[] entriesByHour = new int[24];
+        public final Map<Integer, int[]> floors = new TreeMap<>(); // floor -> {free, occupied, reserved, total}
+        public long updatedMillis;
+        public boolean online = true;
+        public int backlog;
+
+        SiteSummary(String siteId, String name) {
+            this.siteId = siteId;
+            this.name = name;
+        }
+
+        SiteSummary copy() {
+            SiteSummary s = new SiteSummary(siteId, name);
+            s.total = total; s.free = free; s.occupied = occupied; s.reserved = reserved;
+            s.overstay = overstay; s.waiting = waiting; s.entries = entries; s.revenue = revenue;
+            System.arraycopy(entriesByHour, 0, s.entriesByHour, 0, 24);
+            for (Map.Entry<Integer, int[]> e : floors.entrySet()) s.floors.put(e.getKey(), e.getValue().clone());
+            s.updatedMillis = updatedMillis; s.online = online; s.backlog = backlog;
+            return s;
+        }
+    }
+
+    /** Called on a site's reader thread (or the FX thread for the local site). */
+    public interface Listener {
+        void onSiteUpdated(String siteId);
+    }
+
+    private final Config config;
+    private final BackendConnector localConnector;
+    private final Listener listener;
+    private final Map<String, SiteEngine> engines = new LinkedHashMap<>();
+    private final Map<String, AtomicBoolean> refreshPending = new LinkedHashMap<>();
+    private final Timer refreshTimer = new Timer("site-refresh", true);
+
+    // ----- Merged view (guarded by this) -----
+    private final Map<String, SiteSummary> sites = new LinkedHashMap<>();
+    private final SiteSummary combined = new SiteSummary("all", "All sites");
+
+    public MultiSiteConnector(Config config, BackendConnector localConnector, Listener listener) {
+        this.config = config;
+        this.localConnector = localConnector;
+        this.listener = listener;
+        sites.put(LOCAL_SITE, new SiteSummary(LOCAL_SITE, config.localName));
+        for (Map.Entry<String, String> e : config.names.entrySet()) {
+            sites.put(e.getKey(), new SiteSummary(e.getKey(), e.getValue()));
+        }
+    }
+
+    /** Starts every remote engine; a site that fails to start is shown offline. */
+    public void start() {
+        for (Map.Entry<String, List<String>> e : config.commands.entrySet()) {
+            String id = e.getKey();
+            SiteEngine engine = new SiteEngine(id, e.getValue(), config.dirs.get(id),
+                line -> System.err.println("Unsolicited reply from site " + id + ": " + line));
+            try {
+                engine.start();
+            } catch (Exception ex) {
+                System.err.println("Could not start site " + id + ": " + ex.getMessage());
+            }
+            engines.put(id, engine);
+            refreshPending.put(id, new AtomicBoolean(false));
+        }
+        refreshTimer.schedule(new TimerTask() {
+            @Override
+            public void run() { refreshRemoteSites(); }
+        }, 0, Math.max(1000L, config.refreshMillis));
+    }
+
+    public List<String> getSiteIds() {
+        synchronized (this) { return new ArrayList<>(sites.keySet()); }
+    }
+
+    /**
+     * Routes one command to a site. {@code onReply} receives the raw response line.
+     * Never blocks; returns false when the site is unknown, down, or backed up.
+     */
+    public boolean send(String siteId, String command, Consumer<String> onReply) {
+        if (LOCAL_SITE.equals(siteId)) {
+            return localConnector != null && localConnector.sendPipelined(Collections.singletonList(command), onReply);
+        }
+        SiteEngine engine = engines.get(siteId);
+        return engine != null && engine.send(command, onReply);
+    }
+
+    /** Looks for a plate in every site; {@code onFound} gets "Site name: slot X, floor Y" per hit. */
+    public void findEverywhere(String plate, Consumer<String> onFound) {
+        String canonical = PlateRegistry.normalize(plate);
+        for (String siteId : getSiteIds()) {
+            String name = nameOf(siteId);
+            send(siteId, "FIND," + canonical, reply -> {
+                String[] f = reply.split(",");
+                if (f.length == 3 && "SUCCESS".equals(f[0])) {
+                    onFound.accept(name + ": slot " + f[1] + ", floor " + f[2]);
+                }
+            });
+        }
+    }
+
+    // ---------- Feeds ----------
+
+    /**
+     * Local engine's state, already parsed into the dashboard's slot table;
+     * {@code queueInfo} is the STATUS part after '|'.
+     */
+    public void onLocalStatus(SlotStateTable table, String queueInfo) {
+        Map<Integer, int[]> floors = new TreeMap<>();
+        int[] overstay = new int[1];
+        long v;
+        do {
+            v = table.beginRead();
+            floors.clear();
+            overstay[0] = 0;
+            for (int slotId = 1; slotId < table.capacity(); slotId++) {
+                long state = table.get(slotId);
+                if (!SlotStateTable.isKnown(state)) continue;
+                countSlot(floors, overstay, SlotStateTable.floorOf(state), SlotStateTable.isOccupied(state),
+                    SlotStateTable.isReserved(state), SlotStateTable.isOverstay(state));
+            }
+        } while (!table.validate(v));
+        mergeStatus(LOCAL_SITE, floors, overstay[0], countWaiting(queueInfo));
+    }
+
+    /** ANALYTICS payload the dashboard already received for its own engine. */
+    public void onLocalAnalytics(String payload) { applyAnalytics(LOCAL_SITE, payload); }
+
+    private void refreshRemoteSites() {
+        for (Map.Entry<String, SiteEngine> e : engines.entrySet()) {
+            String id = e.getKey();
+            SiteEngine engine = e.getValue();
+            AtomicBoolean pending = refreshPending.get(id);
+            boolean up = engine.isRunning();
+            synchronized (this) {
+                SiteSummary s = sites.get(id);
+                s.online = up;
+                s.backlog = engine.getBacklog();
+            }
+            if (!up || !pending.compareAndSet(false, true)) continue; // still waiting on the last refresh
+            boolean sent = engine.send("STATUS", reply -> {
+                if (reply.startsWith("STATUS,")) applyStatus(id, reply.substring(7));
+            }) && engine.send("GET_ANALYTICS", reply -> {
+                pending.set(false);
+                if (reply.startsWith("ANALYTICS,")) applyAnalytics(id, reply.substring(10));
+            });
+            if (!sent) pending.set(false);
+        }
+    }
+
+    // ---------- Incremental merge ----------
+
+    // Remote sites: their STATUS is only needed as counts, so it is not kept in a table
+    private void applyStatus(String siteId, String payload) {
+        String[] parts = payload.split("\\|", -1);
+        Map<Integer, int[]> floors = new TreeMap<>();
+        int[] overstay = new int[1];
+        for (String row : parts[0].split(";")) {
+            if (row.isEmpty()) continue;
+            String[] f = row.split(",");
+            if (f.length != 6 && f.length != 7) continue; // 7th column (constraint) is newer
+            try {
+                countSlot(floors, overstay, Integer.parseInt(f[5]), "1".equals(f[1]), "1".equals(f[2]), "1".equals(f[3]));
+            } catch (NumberFormatException ignored) {}
+        }
+        mergeStatus(siteId, floors, overstay[0], countWaiting(parts.length > 1 ? parts[1] : ""));
+    }
+
+    // floor -> {free, occupied, reserved, total}
+    private static void countSlot(Map<Integer, int[]> floors, int[] overstay, int floor,
+                                  boolean occupied, boolean reserved, boolean isOverstay) {
+        int[] c = floors.computeIfAbsent(floor, k -> new int[4]);
+        if (occupied) c[1]++;
+        else if (reserved) c[2]++;
+        else c[0]++;
+        c[3]++;
+        if (isOverstay) overstay[0]++;
+    }
+
+    private static int countWaiting(String queueInfo) {
+        int waiting = 0;
+        for (String q : queueInfo.split(";")) {
+            int colon = q.indexOf(':');
+            if (colon < 0) continue;
+            try { waiting += Integer.parseInt(q.substring(colon + 1).trim()); } catch (NumberFormatException ignored) {}
+        }
+        return waiting;
+    }
+
+    private void mergeStatus(String siteId, Map<Integer, int[]> floors, int overstay, int waiting) {
+        synchronized (this) {
+            SiteSummary s = sites.get(siteId);
+            if (s == null) return;
+            // Take the site's old figures out of the totals, then add the new ones
+            combined.total -= s.total; combined.free -= s.free; combined.occupied -= s.occupied;
+            combined.reserved -= s.reserved; combined.overstay -= s.overstay; combined.waiting -= s.waiting;
+
+            s.floors.clear();
+            s.floors.putAll(floors);
+            s.total = 0; s.free = 0; s.occupied = 0; s.reserved = 0;
+            for (int[] c : floors.values()) {
+                s.free += c[0]; s.occupied += c[1]; s.reserved += c[2]; s.total += c[3];
+            }
+            s.overstay = overstay;
+            s.waiting = waiting;
+            s.updatedMillis = System.currentTimeMillis();
+            s.online = true;
+
+            combined.total += s.total; combined.free += s.free; combined.occupied += s.occupied;
+            combined.reserved += s.reserved; combined.overstay += s.overstay; combined.waiting += s.waiting;
+            combined.updatedMillis = s.updatedMillis;
+        }
+        listener.onSiteUpdated(siteId);
+    }
+
+    // ANALYTICS payload: hour,count;...|userType,count;...|revenue|overflow
+    private void applyAnalytics(String siteId, String payload) {
+        String[] parts = payload.split("\\|", -1);
+        if (parts.length < 3) {
+            System.err.println("Analytics data format error from site " + siteId + ": " + payload);
+            return;
+        }
+        int[] byHour = new int[24];
+        for (String row : parts[0].split(";")) {
+            String[] f = row.split(",");
+            if (f.length != 2) continue;
+            try {
+                int hour = Integer.parseInt(f[0].trim());
+                if (hour >= 0 && hour < 24) byHour[hour] += Integer.parseInt(f[1].trim());
+            } catch (NumberFormatException ignored) {}
+        }
+        double revenue;
+        try {
+            revenue = Double.parseDouble(parts[2].trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid revenue from site " + siteId + ": " + parts[2]);
+            return;
+        }
+
+        synchronized (this) {
+            SiteSummary s = sites.get(siteId);
+            if (s == null) return;
+            combined.revenue += revenue - s.revenue;
+            int entries = 0;
+            for (int h = 0; h < 24; h++) {
+                combined.entriesByHour[h] += byHour[h] - s.entriesByHour[h];
+                s.entriesByHour[h] = byHour[h];
+                entries += byHour[h];
+            }
+            combined.entries += entries - s.entries;
+            s.entries = entries;
+            s.revenue = revenue;
+        }
+        listener.onSiteUpdated(siteId);
+    }
+
+    // ---------- Views ----------
+
+    /** Copies of every site's figures, in configuration order. */
+    public synchronized List<SiteSummary> snapshotSites() {
+        List<SiteSummary> out = new ArrayList<>(sites.size());
+        for (SiteSummary s : sites.values()) out.add(s.copy());
+        return out;
+    }
+
+    public synchronized SiteSummary snapshotCombined() {
+        return combined.copy();
+    }
+
+    public synchronized String nameOf(String siteId) {
+        SiteSummary s = sites.get(siteId);
+        return s != null ? s.name : siteId;
+    }
+
+    @Override
+    public void close() {
+        refreshTimer.cancel();
+        for (SiteEngine engine : engines.values()) engine.close();
+    }
+}
@@ -0,0 +1,199 @@
+package com.parking;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javafx.animation.AnimationTimer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.stage.Stage;
+
+/**
+ * NotificationCenter: status-bar messages, aggregated and rate-limited.
+ *
+ * {@link #post} is safe from any thread and only enqueues. Once per frame the
+ * queue is drained on the FX thread. Messages that differ only in numbers and
+ * plates ("Parked in Slot 12", "Parked in Slot 40") fall into one group per
+ * {@link #WINDOW_MILLIS} window, shown as the latest text plus a count. An error
+ * stays on the label for {@link #ERROR_HOLD_MILLIS} even if routine messages keep
+ * coming; they still reach the history. The history keeps the last
+ * {@link #HISTORY_LIMIT} groups and can be opened from the status bar.
+ */
+public class NotificationCenter {
+
+    public static final long WINDOW_MILLIS = 10_000;
+    public static final long ERROR_HOLD_MILLIS = 5_000;
+    public static final int HISTORY_LIMIT = 500;
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private static final class Posted {
+        final String message;
+        final boolean isError;
+        final long millis;
+
+        Posted(String message, boolean isError) {
+            this.message = message;
+            this.isError = isError;
+            this.millis = System.currentTimeMillis();
+        }
+    }
+
+    // One aggregation window of similar messages; also a history row
+    private static final class Entry {
+        final boolean isError;
+        final long firstMillis;
+        final String firstTime;
+        long lastMillis;
+        String latest;
+        int count = 1;
+
+        Entry(Posted p) {
+            this.isError = p.isError;
+            this.firstMillis = p.millis;
+            this.firstTime = LocalTime.now().format(TIME);
+            this.lastMillis = p.millis;
+            this.latest = p.message;
+        }
+
+        String labelText() {
+            if (count == 1) return latest;
+            long seconds = Math.max(1, (lastMillis - firstMillis + 999) / 1000);
+            return latest + "  (" + count + " similar in last " + seconds + "s)";
+        }
+
+        @Override
+        public String toString() {
+            return firstTime + (isError ? "  ERROR  " : "  ") + labelText();
+        }
+    }
+
+    private final Queue<Posted> inbox = new ConcurrentLinkedQueue<>();
+
+    // FX thread only
+    private final Map<String, Entry> openWindows = new HashMap<>();
+    private final ObservableList<Entry> history = FXCollections.observableArrayList();
+    private Label label;
+    private Entry shown;
+    private ListView<Entry> historyView;
+    private Stage historyStage;
+
+    /** Safe from any thread; the label catches up on the next frame. */
+    public void post(String message, boolean isError) {
+        if (message == null) return;
+        inbox.offer(new Posted(message, isError));
+    }
+
+    /** Starts rendering into the label; call once on the FX thread. Earlier posts are kept. */
+    public void attach(Label statusLabel) {
+        this.label = statusLabel;
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) { drain(); }
+        }.start();
+    }
+
+    // ----- Per-frame drain -----
+
+    private void drain() {
+        if (inbox.isEmpty()) return;
+        boolean updatedOld = false;
+        Entry candidate = null;
+        Posted p;
+        while ((p = inbox.poll()) != null) {
+            String key = (p.isError ? "E|" : "I|") + template(p.message);
+            Entry e = openWindows.get(key);
+            if (e == null || p.millis - e.firstMillis > WINDOW_MILLIS) {
+                e = new Entry(p);
+                openWindows.put(key, e);
+                history.add(e);
+            } else {
+                e.count++;
+                e.lastMillis = p.millis;
+                e.latest = p.message;
+                updatedOld = true;
+            }
+            // Errors win within the frame too
+            if (candidate == null || e.isError || !candidate.isError) candidate = e;
+        }
+        long now = System.currentTimeMillis();
+        expireWindows(now);
+        if (history.size() > HISTORY_LIMIT) history.remove(0, history.size() - HISTORY_LIMIT);
+        if (updatedOld && historyView != null) historyView.refresh();
+
+        boolean holdError = shown != null && shown.isError && shown != candidate
+            && now - shown.lastMillis < ERROR_HOLD_MILLIS;
+        if (!candidate.isError && holdError) return;
+        shown = candidate;
+        render();
+    }
+
+    private void render() {
+        if (label == null || shown == null) return;
+        label.setText(shown.labelText());
+        label.getStyleClass().removeAll("status-label-success", "status-label-error");
+        label.getStyleClass().add(shown.isError ? "status-label-error" : "status-label-success");
+    }
+
+    private void expireWindows(long now) {
+        Iterator<Entry> it = openWindows.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().firstMillis > WINDOW_MILLIS) it.remove();
+        }
+    }
+
+    // Digits usually mean a plate, slot, amount or time: treat them as placeholders
+    static String template(String message) {
+        StringBuilder sb = new StringBuilder(message.length());
+        int i = 0, n = message.length();
+        while (i < n) {
+            int end = i;
+            while (end < n && !Character.isWhitespace(message.charAt(end))) end++;
+            boolean hasDigit = false;
+            for (int j = i; j < end && !hasDigit; j++) hasDigit = Character.isDigit(message.charAt(j));
+            sb.append(hasDigit ? "#" : message.substring(i, end));
+            while (end < n && Character.isWhitespace(message.charAt(end))) sb.append(message.charAt(end++));
+            i = end;
+        }
+        return sb.toString();
+    }
+
+    // ----- History window -----
+
+    /** Status-bar button that opens the scrollable history. */
+    public Button createHistoryButton() {
+        Button button = new Button("History");
+        button.setOnAction(e -> showHistory(button));
+        return button;
+    }
+
+    private void showHistory(Button owner) {
+        if (historyStage == null) {
+            historyView = new ListView<>(history);
+            historyView.setCellFactory(v -> new ListCell<Entry>() {
+                @Override
+                protected void updateItem(Entry item, boolean empty) {
+                    super.updateItem(item, empty);
+                    setText(empty || item == null ? null : item.toString());
+                    setStyle(!empty && item != null && item.isError ? "-fx-text-fill: #c62828;" : "");
+                }
+            });
+            historyStage = new Stage();
+            historyStage.setTitle("Notifications (last " + HISTORY_LIMIT + ")");
+            historyStage.initOwner(owner.getScene().getWindow());
+            historyStage.setScene(new Scene(historyView, 640, 400));
+        }
+        historyStage.show();
+        historyStage.toFront();
+        if (!history.isEmpty()) historyView.scrollTo(history.size() - 1);
+    }
+}
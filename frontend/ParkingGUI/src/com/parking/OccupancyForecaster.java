@@ -0,0 +1,215 @@
+package com.parking;
+
+import java.util.TimeZone;
+
+/**
+ * OccupancyForecaster: learns arrival and departure rates per constraint and hour of day
+ * from {@link EventBus} SLOT_CHANGED events, and projects occupancy and queue waits.
+ *
+ * For each constraint and hour of day it keeps two exponentially weighted
+ * estimates, folded in when the hour ends (hours without events count as quiet):
+ *   arrivals per hour                     (lambda)
+ *   departures per occupied vehicle-hour  (delta, the departure hazard)
+ * The occupied vehicle-hours are integrated as events arrive, so an event costs a
+ * few array updates and memory is fixed (24 hours x constraints, plus one word per
+ * slot to spot edges). Forecasts step the mean occupancy forward in 15-minute steps:
+ * occ += lambda/4 - delta/4 * occ, capped at capacity. A queued vehicle at position
+ * k waits for the k-th departure from a full zone, so its expected wait is the time
+ * for the cumulative expected departures (delta x capacity per hour) to reach k.
+ * Updated on the bus thread; queries are synchronized and cheap.
+ */
+public class OccupancyForecaster implements EventBus.Handler {
+
+    private static final int HOURS = 24;
+    private static final int MAX_CONSTRAINTS = 256;     // SlotStateTable constraint index range
+    private static final double ALPHA = 0.3;            // weight of the newest day's hour
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final int STEPS_PER_HOUR = 4;
+
+    private final SlotStateTable table;
+
+    // ----- Learned rates [constraint][hour] -----
+    private final double[][] arrivalRate = new double[MAX_CONSTRAINTS][HOURS];
+    private final double[][] departureHazard = new double[MAX_CONSTRAINTS][HOURS];
+    private final boolean[][] learned = new boolean[MAX_CONSTRAINTS][HOURS];
+
+    // ----- Current hour accumulators [constraint] -----
+    private final int[] arrivals = new int[MAX_CONSTRAINTS];
+    private final int[] departures = new int[MAX_CONSTRAINTS];
+    private final double[] occupiedHours = new double[MAX_CONSTRAINTS];
+    private final long[] integratedTo = new long[MAX_CONSTRAINTS];
+
+    // ----- Live state -----
+    private final int[] occupied = new int[MAX_CONSTRAINTS];
+    private final int[] capacity = new int[MAX_CONSTRAINTS];
+    private long[] lastState = new long[64]; // by slot ID, to tell arrivals from other changes
+    private long hourStart = -1;             // epoch millis of the current local hour
+
+    public OccupancyForecaster(SlotStateTable table) {
+        this.table = table;
+    }
+
+    // ---------- Learning ----------
+
+    @Override
+    public void onEvent(EventBus.Event event, long sequence, boolean endOfBatch) {
+        if (event.getType() != EventBus.SLOT_CHANGED) return;
+        onSlotChanged(event.getSlotId(), event.getState(), event.getTimeMillis());
+    }
+
+    public synchronized void onSlotChanged(int slotId, long state, long millis) {
+        if (slotId <= 0) return;
+        if (slotId >= lastState.length) lastState = java.util.Arrays.copyOf(lastState, Math.max(slotId + 1, lastState.length * 2));
+        rollHour(millis);
+
+        long before = lastState[slotId];
+        lastState[slotId] = state;
+        int c = SlotStateTable.constraintOf(state);
+        boolean wasOccupied = SlotStateTable.isOccupied(before);
+        boolean isOccupied = SlotStateTable.isOccupied(state);
+
+        if (!SlotStateTable.isKnown(before)) {
+            capacity[c]++;
+            integrate(c, millis);
+            if (isOccupied) occupied[c]++; // already parked when we started: not an arrival
+            return;
+        }
+        if (wasOccupied == isOccupied) return;
+        integrate(c, millis);
+        if (isOccupied) {
+            occupied[c]++;
+            arrivals[c]++;
+        } else {
+            occupied[c]--;
+            departures[c]++;
+        }
+    }
+
+    // Adds occupied vehicle-hours since the last event for this constraint
+    private void integrate(int c, long millis) {
+        if (integratedTo[c] != 0 && millis > integratedTo[c]) {
+            occupiedHours[c] += occupied[c] * (double) (millis - integratedTo[c]) / HOUR_MILLIS;
+        }
+        integratedTo[c] = millis;
+    }
+
+    // Folds every hour that ended since the last event into the per-hour estimates. The
+    // forecaster only lives while the dashboard runs, so an hour without events really was
+    // quiet and is learned as zero arrivals. After a gap of more than a day, each hour of
+    // day is folded once and the rest of the gap is skipped.
+    private void rollHour(long millis) {
+        long start = localHourStart(millis);
+        if (hourStart < 0) {
+            hourStart = start;
+            return;
+        }
+        for (int folded = 0; hourStart < start && folded < HOURS; folded++) {
+            foldHour(hourStart);
+            hourStart += HOUR_MILLIS;
+        }
+        if (hourStart < start) {
+            for (int c = 0; c < MAX_CONSTRAINTS; c++) {
+                if (capacity[c] != 0) integratedTo[c] = start; // skipped hours add no vehicle-hours
+            }
+        }
+        hourStart = start;
+    }
+
+    // Folds the accumulated counts into the estimates for the hour starting at from, then resets them
+    private void foldHour(long from) {
+        long end = from + HOUR_MILLIS;
+        int hour = hourOfDay(from);
+        for (int c = 0; c < MAX_CONSTRAINTS; c++) {
+            if (capacity[c] == 0) continue;
+            integrate(c, end);
+            double hazard = occupiedHours[c] > 0 ? departures[c] / occupiedHours[c] : 0;
+            if (!learned[c][hour]) {
+                arrivalRate[c][hour] = arrivals[c];
+                departureHazard[c][hour] = hazard;
+                learned[c][hour] = true;
+            } else {
+                arrivalRate[c][hour] += ALPHA * (arrivals[c] - arrivalRate[c][hour]);
+                departureHazard[c][hour] += ALPHA * (hazard - departureHazard[c][hour]);
+            }
+            arrivals[c] = 0;
+            departures[c] = 0;
+            occupiedHours[c] = 0;
+        }
+    }
+
+    // ---------- Queries ----------
+
+    /** Expected occupied slots of the constraint {@code hoursAhead} (1-4) from now. */
+    public synchronized double forecast(String constraint, int hoursAhead, long nowMillis) {
+        int c = indexOf(constraint);
+        if (c < 0) return 0;
+        double occ = occupied[c];
+        int hour = hourOfDay(nowMillis);
+        for (int step = 0; step < hoursAhead * STEPS_PER_HOUR; step++) {
+            int h = (hour + step / STEPS_PER_HOUR) % HOURS;
+            occ += (arrivalRate[c][h] - departureHazard[c][h] * occ) / STEPS_PER_HOUR;
+            occ = Math.max(0, Math.min(capacity[c], occ));
+        }
+        return occ;
+    }
+
+    /**
+     * Expected minutes until the vehicle at queue {@code position} (1 = next) gets a slot,
+     * or -1 when no departures have been learned yet for the coming hours.
+     */
+    public synchronized double expectedWaitMinutes(String constraint, int position, long nowMillis) {
+        int c = indexOf(constraint);
+        if (c < 0 || position <= 0 || capacity[c] == 0) return -1;
+        int free = capacity[c] - occupied[c];
+        if (position <= free) return 0;
+        double needed = position - free;
+        int hour = hourOfDay(nowMillis);
+        double minutes = 0;
+        for (int i = 0; i < HOURS; i++) {
+            double perHour = departureHazard[c][(hour + i) % HOURS] * capacity[c];
+            if (perHour > 0 && perHour >= needed) return minutes + needed / perHour * 60;
+            needed -= perHour;
+            minutes += 60;
+        }
+        return -1;
+    }
+
+    public synchronized int capacity(String constraint) {
+        int c = indexOf(constraint);
+        return c < 0 ? 0 : capacity[c];
+    }
+
+    public synchronized int occupied(String constraint) {
+        int c = indexOf(constraint);
+        return c < 0 ? 0 : occupied[c];
+    }
+
+    /** "42 now -> 45 / 48 / 50 / 50 of 50" for the next four hours. */
+    public String describe(String constraint, long nowMillis) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(occupied(constraint)).append(" now ->");
+        for (int h = 1; h <= 4; h++) {
+            sb.append(h == 1 ? " " : " / ").append(Math.round(forecast(constraint, h, nowMillis)));
+        }
+        return sb.append(" of ").append(capacity(constraint)).toString();
+    }
+
+    private int indexOf(String constraint) {
+        for (int c = 1; c < MAX_CONSTRAINTS; c++) {
+            String name = table.constraintName(c);
+            if (name.isEmpty()) return -1;
+            if (name.equals(constraint)) return c;
+        }
+        return -1;
+    }
+
+    private static long localHourStart(long millis) {
+        long offset = TimeZone.getDefault().getOffset(millis);
+        return Math.floorDiv(millis + offset, HOUR_MILLIS) * HOUR_MILLIS - offset;
+    }
+
+    private static int hourOfDay(long millis) {
+        long offset = TimeZone.getDefault().getOffset(millis);
+        return (int) Math.floorMod(Math.floorDiv(millis + offset, HOUR_MILLIS), (long) HOURS);
+    }
+}
@@ -0,0 +1,147 @@
+package com.parking;
+
+import java.util.Arrays;
+
+/**
+ * OverstayScheduler: fires an event the moment a guest's pre-paid exit time passes.
+ *
+ * Deadlines sit in a binary min-heap (primitive arrays) served by one daemon
+ * thread. The thread sleeps until the earliest deadline, so nothing polls.
+ * Rescheduling or cancelling a slot does not search the heap. The slot's
+ * current deadline is recorded separately, and heap entries that no longer
+ * match it are dropped when they reach the top.
+ */
+public class OverstayScheduler implements AutoCloseable {
+
+    /** Called on the scheduler thread; hop to the FX thread before touching nodes. */
+    public interface Listener {
+        void onOverstay(int slotId, long prePaidExitEpochSeconds);
+    }
+
+    private final Listener listener;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // Min-heap ordered by deadline (epoch seconds)
+    private long[] heapDeadline = new long[64];
+    private int[] heapSlot = new int[64];
+    private int heapSize = 0;
+
+    // Live deadline per slotId; 0 = nothing scheduled
+    private long[] currentDeadline = new long[128];
+
+    public OverstayScheduler(Listener listener) {
+        this.listener = listener;
+        this.worker = new Thread(this::runLoop, "overstay-scheduler");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /** (Re)schedules a slot; the event fires once the clock is past {@code prePaidExitEpochSeconds}. */
+    public synchronized void schedule(int slotId, long prePaidExitEpochSeconds) {
+        if (slotId <= 0 || prePaidExitEpochSeconds <= 0) return;
+        if (slotId >= currentDeadline.length) {
+            currentDeadline = Arrays.copyOf(currentDeadline, Math.max(slotId + 1, currentDeadline.length * 2));
+        }
+        if (currentDeadline[slotId] == prePaidExitEpochSeconds) return;
+        currentDeadline[slotId] = prePaidExitEpochSeconds;
+        push(prePaidExitEpochSeconds, slotId);
+        if (heapSlot[0] == slotId && heapDeadline[0] == prePaidExitEpochSeconds) notifyAll(); // new earliest
+    }
+
+    public synchronized void cancel(int slotId) {
+        if (slotId > 0 && slotId < currentDeadline.length) currentDeadline[slotId] = 0;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(currentDeadline, 0L);
+        heapSize = 0;
+    }
+
+    /** Number of live (non-cancelled) deadlines. */
+    public synchronized int pending() {
+        int n = 0;
+        for (long d : currentDeadline) if (d != 0) n++;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void runLoop() {
+        while (running) {
+            int firedSlot;
+            long firedDeadline;
+            synchronized (this) {
+                try {
+                    dropStaleTop();
+                    if (heapSize == 0) {
+                        wait();
+                        continue;
+                    }
+                    // Engine rule: overstay once now > prePaidExitTime
+                    long fireAtMillis = (heapDeadline[0] + 1) * 1000L;
+                    long waitMillis = fireAtMillis - System.currentTimeMillis();
+                    if (waitMillis > 0) {
+                        wait(waitMillis);
+                        continue; // re-check: the heap may have changed while we slept
+                    }
+                    firedSlot = heapSlot[0];
+                    firedDeadline = heapDeadline[0];
+                    pop();
+                    currentDeadline[firedSlot] = 0;
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            try {
+                listener.onOverstay(firedSlot, firedDeadline);
+            } catch (Exception e) {
+                System.err.println("Overstay listener failed for slot " + firedSlot + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // ---------- Heap helpers (caller holds the lock) ----------
+
+    private void dropStaleTop() {
+        while (heapSize > 0 && currentDeadline[heapSlot[0]] != heapDeadline[0]) pop();
+    }
+
+    private void push(long deadline, int slotId) {
+        if (heapSize == heapDeadline.length) {
+            heapDeadline = Arrays.copyOf(heapDeadline, heapSize * 2);
+            heapSlot = Arrays.copyOf(heapSlot, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapDeadline[parent] <= deadline) break;
+            heapDeadline[i] = heapDeadline[parent];
+            heapSlot[i] = heapSlot[parent];
+            i = parent;
+        }
+        heapDeadline[i] = deadline;
+        heapSlot[i] = slotId;
+    }
+
+    private void pop() {
+        long lastDeadline = heapDeadline[--heapSize];
+        int lastSlot = heapSlot[heapSize];
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapDeadline[child + 1] < heapDeadline[child]) child++;
+            if (lastDeadline <= heapDeadline[child]) break;
+            heapDeadline[i] = heapDeadline[child];
+            heapSlot[i] = heapSlot[child];
+            i = child;
+        }
+        heapDeadline[i] = lastDeadline;
+        heapSlot[i] = lastSlot;
+    }
+}
@@ -4,26 +4,40 @@ import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
 import javafx.animation.Timeline;
 import javafx.scene.Group;
+import javafx.scene.shape.Polygon;
 import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.util.Duration;
 
 class ParkingSlotView extends Group {
-    private Rectangle background;
+    private Shape background;
     private Text slotIdText;
     private Text plateText;
 
-    private String plate = "N/A";
+    private int plateId = PlateRegistry.NO_PLATE;
+    private final int slotId;
     private int floor;
     public boolean isOccupied = false;
     private FadeTransition flashAnimation;
 
     public ParkingSlotView(int id, int floor, double x, double y, double width, double height) {
+        this(id, floor, new Rectangle(x, y, width, height), x, y, width);
+    }
+
+    /** Bay drawn from a floor-plan outline (x1,y1,x2,y2,...); labels sit at its top-left. */
+    public ParkingSlotView(int id, int floor, double[] outline) {
+        this(id, floor, new Polygon(outline), FloorPlan.min(outline, 0), FloorPlan.min(outline, 1),
+             FloorPlan.max(outline, 0) - FloorPlan.min(outline, 0));
+    }
+
+    private ParkingSlotView(int id, int floor, Shape shape, double x, double y, double width) {
+        this.slotId = id;
         this.floor = floor;
 
-        background = new Rectangle(x, y, width, height);
+        background = shape;
         background.getStyleClass().add("parking-slot");
 
         slotIdText = new Text(x + 10, y + 25, "Slot " + id);
@@ -46,14 +60,22 @@ class ParkingSlotView extends Group {
         flashAnimation.setInterpolator(Interpolator.EASE_BOTH);
     }
 
-    public String getPlate() { return plate; }
+    public String getPlate() { return PlateRegistry.getInstance().plateOf(plateId); }
+    public int getPlateId() { return plateId; }
     public int getFloor() { return floor; }
+    public int getSlotId() { return slotId; }
 
     public void updateStatus(boolean occupied, boolean reserved, boolean overstay, String plate) {
+        updateStatus(occupied, reserved, overstay, PlateRegistry.getInstance().idOf(plate));
+    }
+
+    public void updateStatus(boolean occupied, boolean reserved, boolean overstay, int plateId) {
         this.isOccupied = occupied;
-        this.plate = plate;
+        this.plateId = plateId;
+        String plate = PlateRegistry.getInstance().plateOf(plateId);
 
         stopHighlight();
+        background.setStyle(""); // drop any heat overlay
 
         background.getStyleClass().removeAll(
                 "parking-slot-available", "parking-slot-occupied",
@@ -89,6 +111,28 @@ class ParkingSlotView extends Group {
         }
     }
 
+    // ----- Heat overlay -----
+
+    // Green (0) to red (1) in 5% steps, built once so a repaint allocates nothing
+    private static final String[] HEAT_STYLES = new String[21];
+    private static final String NO_DATA_STYLE = "-fx-fill: #9e9e9e;";
+    static {
+        for (int i = 0; i < HEAT_STYLES.length; i++) {
+            HEAT_STYLES[i] = "-fx-fill: hsb(" + (120 - i * 6) + ", 75%, 90%);";
+        }
+    }
+
+    /**
+     * Recolours the bay by a 0..1 value (negative = no data) and shows the caption
+     * in place of the plate. Cleared by the next {@link #updateStatus}.
+     */
+    public void showHeat(double value, String caption) {
+        stopHighlight();
+        background.setStyle(value < 0 ? NO_DATA_STYLE
+            : HEAT_STYLES[(int) Math.round(Math.min(1.0, value) * (HEAT_STYLES.length - 1))]);
+        plateText.setText(caption);
+    }
+
     // Find My Car Temporary Flash
     public void highlight() {
         FadeTransition ft = new FadeTransition(Duration.millis(350), background);
@@ -0,0 +1,161 @@
+package com.parking;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * PlateRegistry: canonicalizes licence plates once and hands out stable int IDs.
+ *
+ * Every STATUS refresh, queue message and user list carries the same few hundred
+ * plates as freshly allocated Strings. Interning them here means the rest of the
+ * client keeps one canonical String per plate and can key its maps by int.
+ *
+ * ID 0 ({@link #NO_PLATE}) stands for "no plate" (empty, "N/A"). After every STATUS
+ * the dashboard {@link #sweep sweeps} the registry with the IDs still in use (parked
+ * or queued), so the table tracks the lot, not every plate seen since startup. An
+ * unused ID is dropped from lookups at one sweep and only handed out again after the
+ * next one also finds it unused; until then {@link #plateOf} still answers for it.
+ * Register plates the engine reports, not raw external input such as camera reads.
+ */
+public final class PlateRegistry {
+    public static final int NO_PLATE = 0;
+    public static final String NO_PLATE_TEXT = "N/A";
+
+    private static final PlateRegistry INSTANCE = new PlateRegistry();
+
+    public static PlateRegistry getInstance() { return INSTANCE; }
+
+    // Open-addressing table: canonical plate -> id (0 = empty bucket)
+    private String[] tableKeys = new String[1024];
+    private int[] tableIds = new int[1024];
+    // Reverse lookup: id -> canonical plate (index 0 unused; null once the ID is free)
+    private String[] plates = new String[512];
+    private int highest = 0; // largest ID handed out so far
+    private int count = 0;   // plates in the lookup table
+    // Dropped from the lookup at the last sweep; freed at the next unless in use again
+    private int[] retiring = new int[64];
+    private int retiringCount = 0;
+    private int[] freeIds = new int[64];
+    private int freeCount = 0;
+
+    private PlateRegistry() {
+        plates[NO_PLATE] = NO_PLATE_TEXT;
+    }
+
+    /** Upper-cases and trims; returns the same instance when already canonical. */
+    public static String normalize(String plate) {
+        if (plate == null) return "";
+        return plate.trim().toUpperCase();
+    }
+
+    private static boolean isNoPlate(String canonical) {
+        return canonical.isEmpty() || NO_PLATE_TEXT.equals(canonical);
+    }
+
+    /** Returns the ID for a plate, registering it on first sight. */
+    public synchronized int idOf(String plate) {
+        String canonical = normalize(plate);
+        if (isNoPlate(canonical)) return NO_PLATE;
+
+        int mask = tableKeys.length - 1;
+        for (int i = canonical.hashCode() & mask; ; i = (i + 1) & mask) {
+            String k = tableKeys[i];
+            if (k == null) {
+                int id = freeCount > 0 ? freeIds[--freeCount] : ++highest;
+                if (id == plates.length) plates = Arrays.copyOf(plates, plates.length << 1);
+                plates[id] = canonical;
+                tableKeys[i] = canonical;
+                tableIds[i] = id;
+                if (++count * 2 > tableKeys.length) rehash(tableKeys.length << 1);
+                return id;
+            }
+            if (k.equals(canonical)) return tableIds[i];
+        }
+    }
+
+    /** Returns the ID if the plate was seen before, otherwise NO_PLATE. Never registers. */
+    public synchronized int find(String plate) {
+        String canonical = normalize(plate);
+        if (isNoPlate(canonical)) return NO_PLATE;
+        int mask = tableKeys.length - 1;
+        for (int i = canonical.hashCode() & mask; ; i = (i + 1) & mask) {
+            String k = tableKeys[i];
+            if (k == null) return NO_PLATE;
+            if (k.equals(canonical)) return tableIds[i];
+        }
+    }
+
+    /** Canonical plate text for an ID ("N/A" for NO_PLATE or unknown IDs). */
+    public synchronized String plateOf(int id) {
+        return (id > 0 && id <= highest && plates[id] != null) ? plates[id] : NO_PLATE_TEXT;
+    }
+
+    /** Shorthand: canonical shared instance for a plate string. */
+    public String intern(String plate) {
+        return plateOf(idOf(plate));
+    }
+
+    public synchronized int size() { return count; }
+
+    /**
+     * Forgets every plate whose ID is not set in {@code inUse}. IDs retired by the previous
+     * sweep are freed if still unused, or return to the lookup if something picked them up
+     * in between (a STATUS parsed while the sweep ran). Costs one pass over the table.
+     *
+     * @return number of IDs freed for reuse
+     */
+    public synchronized int sweep(BitSet inUse) {
+        int freed = 0, kept = 0;
+        for (int r = 0; r < retiringCount; r++) {
+            int id = retiring[r];
+            if (!inUse.get(id)) {
+                plates[id] = null;
+                if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount << 1);
+                freeIds[freeCount++] = id;
+                freed++;
+            } else if (find(plates[id]) == NO_PLATE) {
+                insert(plates[id], id);
+            } else {
+                retiring[kept++] = id; // the plate was registered again under a newer ID
+            }
+        }
+        retiringCount = kept;
+
+        boolean dropped = false;
+        for (int j = 0; j < tableKeys.length; j++) {
+            if (tableKeys[j] == null || inUse.get(tableIds[j])) continue;
+            if (retiringCount == retiring.length) retiring = Arrays.copyOf(retiring, retiringCount << 1);
+            retiring[retiringCount++] = tableIds[j];
+            tableKeys[j] = null;
+            count--;
+            dropped = true;
+        }
+        if (dropped) rehash(tableKeys.length); // linear probing: close the gaps
+        return freed;
+    }
+
+    private void insert(String canonical, int id) {
+        int mask = tableKeys.length - 1;
+        int i = canonical.hashCode() & mask;
+        while (tableKeys[i] != null) i = (i + 1) & mask;
+        tableKeys[i] = canonical;
+        tableIds[i] = id;
+        if (++count * 2 > tableKeys.length) rehash(tableKeys.length << 1);
+    }
+
+    private void rehash(int length) {
+        String[] newKeys = new String[length];
+        int[] newIds = new int[newKeys.length];
+        int mask = newKeys.length - 1;
+        for (int j = 0; j < tableKeys.length; j++) {
+            String k = tableKeys[j];
+            if (k == null) continue;
+            int i = k.hashCode() & mask;
+            while (newKeys[i] != null) i = (i + 1) & mask;
+            newKeys[i] = k;
+            newIds[i] = tableIds[j];
+        }
+        tableKeys = newKeys;
+        tableIds = newIds;
+    }
+}
@@ -1,7 +1,9 @@
 package com.parking;
 
+import java.io.File;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -9,6 +11,7 @@ import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.util.Duration;
 // --- END IMPORTS ---
 
@@ -21,6 +24,14 @@ public class ResidentPanel extends BorderPane {
     private TextField plateField, nameField, billingIdField;
     private ComboBox<String> userTypeCombo;
 
+    // Bulk import
+    private static final int MAX_IMPORT_LOG = 500;
+    private Button importBtn;
+    private ProgressBar importProgress;
+    private Label importStatusLabel;
+    private ObservableList<String> importLog = FXCollections.observableArrayList();
+    private BulkUserImporter activeImport;
+
     public ResidentPanel(BackendConnector connector) {
         this.connector = connector;
         getStyleClass().add("resident-panel"); // Use specific style class
@@ -88,10 +99,91 @@ public class ResidentPanel extends BorderPane {
              delay.play();
         });
 
-        box.getChildren().addAll(title, form, addBtn);
+        box.getChildren().addAll(title, form, addBtn, createImportSection());
         return box;
     }
 
+    private VBox createImportSection() {
+        VBox box = new VBox(8);
+        box.setPadding(new Insets(15, 0, 0, 0));
+
+        Label title = new Label("Bulk Import (CSV)");
+        title.getStyleClass().add("control-panel-title");
+
+        Label hint = new Label("Columns: plate,name,type,billingId");
+        hint.setWrapText(true);
+
+        importBtn = new Button("Import CSV...");
+        importBtn.setMaxWidth(Double.MAX_VALUE);
+        importBtn.setOnAction(e -> {
+            if (activeImport != null) { activeImport.cancel(); return; }
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Select user CSV");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"));
+            File file = chooser.showOpenDialog(getScene().getWindow());
+            if (file != null) startImport(file);
+        });
+
+        importProgress = new ProgressBar(0);
+        importProgress.setMaxWidth(Double.MAX_VALUE);
+        importProgress.setVisible(false);
+
+        importStatusLabel = new Label("");
+        importStatusLabel.setWrapText(true);
+
+        ListView<String> logView = new ListView<>(importLog);
+        logView.setPlaceholder(new Label("Row errors will appear here."));
+        logView.setPrefHeight(160);
+
+        box.getChildren().addAll(title, hint, importBtn, importProgress, importStatusLabel, logView);
+        return box;
+    }
+
+    private void startImport(File file) {
+        importLog.clear();
+        importProgress.setProgress(0);
+        importProgress.setVisible(true);
+        importStatusLabel.setText("Importing " + file.getName() + "...");
+        importBtn.setText("Cancel Import");
+
+        activeImport = new BulkUserImporter(connector, new BulkUserImporter.Listener() {
+            @Override
+            public void onProgress(long rowsRead, int registered, int failed, double fractionDone) {
+                Platform.runLater(() -> {
+                    importProgress.setProgress(fractionDone);
+                    importStatusLabel.setText("Read " + rowsRead + " rows - registered " + registered + ", failed " + failed);
+                });
+            }
+
+            @Override
+            public void onRowError(long lineNumber, String plate, String reason) {
+                Platform.runLater(() -> {
+                    if (importLog.size() < MAX_IMPORT_LOG) {
+                        importLog.add("Line " + lineNumber + " (" + plate + "): " + reason);
+                    } else if (importLog.size() == MAX_IMPORT_LOG) {
+                        importLog.add("... further errors omitted");
+                    }
+                });
+            }
+
+            @Override
+            public void onComplete(int registered, int failed, boolean cancelled) {
+                Platform.runLater(() -> {
+                    activeImport = null;
+                    importBtn.setText("Import CSV...");
+                    importProgress.setVisible(false);
+                    importStatusLabel.setText((cancelled ? "Import stopped. " : "Import finished. ")
+                        + registered + " registered, " + failed + " failed.");
+                });
+            }
+        });
+
+        BulkUserImporter importer = activeImport;
+        Thread worker = new Thread(() -> importer.importFile(file), "user-import");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
     public void updateUserList(String data) {
         userList.clear();
         if (data == null || data.isEmpty()) return;
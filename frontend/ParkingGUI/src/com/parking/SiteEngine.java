@@ -0,0 +1,147 @@
+package com.parking;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * SiteEngine: one engine process for one garage, with its own reader and writer threads.
+ *
+ * {@link #send} never blocks. Commands go into a bounded outbox drained by this
+ * site's writer thread, so a site whose engine stalls (full pipe, slow disk)
+ * only delays its own commands. Replies are matched to callers in order, the same
+ * way BackendConnector does it, since the engine answers each line with exactly one
+ * stdout line. Its stderr goes to engine-errors.log, never into the reply stream.
+ *
+ * Each site runs in its own working directory: the engine keeps user-profiles.dat
+ * and transactions/ relative to it and locks them, so two sites never share them.
+ */
+public class SiteEngine implements AutoCloseable {
+
+    private static final int OUTBOX_CAPACITY = 1024;
+
+    private final String siteId;
+    private final List<String> command;
+    private final Path workDir;
+    private final BlockingQueue<String> outbox = new LinkedBlockingQueue<>(OUTBOX_CAPACITY);
+    private final Queue<Consumer<String>> pendingReplies = new ConcurrentLinkedQueue<>();
+    private final Consumer<String> unsolicited;
+
+    private Process process;
+    private volatile boolean running = false;
+    private volatile long lastReplyMillis = 0;
+
+    /**
+     * @param command     engine executable and arguments
+     * @param workDir     this site's data directory, created if missing
+     * @param unsolicited receives replies that have no waiting caller (reader thread)
+     */
+    public SiteEngine(String siteId, List<String> command, Path workDir, Consumer<String> unsolicited) {
+        this.siteId = siteId;
+        this.command = command;
+        this.workDir = workDir;
+        this.unsolicited = unsolicited;
+    }
+
+    public String getSiteId() { return siteId; }
+
+    public void start() throws Exception {
+        Files.createDirectories(workDir);
+        // A relative executable path is meant from here, not from the site directory
+        List<String> args = new ArrayList<>(command);
+        Path exe = Paths.get(args.get(0));
+        if (!exe.isAbsolute() && Files.exists(exe)) args.set(0, exe.toAbsolutePath().toString());
+        ProcessBuilder pb = new ProcessBuilder(args);
+        pb.directory(workDir.toFile());
+        pb.redirectError(ProcessBuilder.Redirect.appendTo(workDir.resolve("engine-errors.log").toFile()));
+        process = pb.start();
+        running = true;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+
+        Thread readerThread = new Thread(() -> {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lastReplyMillis = System.currentTimeMillis();
+                    Consumer<String> handler = pendingReplies.poll();
+                    try {
+                        (handler != null ? handler : unsolicited).accept(line);
+                    } catch (Exception e) {
+                        System.err.println("Site " + siteId + " reply handler failed: " + e.getMessage());
+                    }
+                }
+            } catch (Exception e) {
+                if (running) System.err.println("Lost connection to site " + siteId + ": " + e.getMessage());
+            } finally {
+                running = false;
+            }
+        }, "site-" + siteId + "-reader");
+
+        Thread writerThread = new Thread(() -> {
+            try {
+                while (running) {
+                    String next = outbox.poll(1, TimeUnit.SECONDS);
+                    if (next == null) continue;
+                    writer.write(next);
+                    writer.write('\n');
+                    // Batch whatever queued up meanwhile into one flush
+                    while ((next = outbox.poll()) != null) {
+                        writer.write(next);
+                        writer.write('\n');
+                    }
+                    writer.flush();
+                }
+            } catch (Exception e) {
+                if (running) System.err.println("Write to site " + siteId + " failed: " + e.getMessage());
+                running = false;
+            }
+        }, "site-" + siteId + "-writer");
+
+        readerThread.setDaemon(true);
+        writerThread.setDaemon(true);
+        readerThread.start();
+        writerThread.start();
+    }
+
+    /**
+     * Queues a command; {@code onReply} gets its response line on this site's reader thread.
+     * Returns false (without blocking) when the site is down or its outbox is full.
+     */
+    public boolean send(String cmd, Consumer<String> onReply) {
+        if (!running) return false;
+        // The reply slot and the outbox entry must stay in the same order
+        synchronized (outbox) {
+            if (outbox.remainingCapacity() == 0) return false;
+            pendingReplies.add(onReply != null ? onReply : unsolicited);
+            outbox.add(cmd);
+        }
+        return true;
+    }
+
+    public boolean isRunning() { return running; }
+
+    /** Commands written or queued whose replies have not arrived yet. */
+    public int getBacklog() { return pendingReplies.size(); }
+
+    public long getLastReplyMillis() { return lastReplyMillis; }
+
+    @Override
+    public void close() {
+        running = false;
+        if (process != null && process.isAlive()) process.destroyForcibly();
+    }
+}
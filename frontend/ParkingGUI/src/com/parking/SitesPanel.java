@@ -0,0 +1,174 @@
+package com.parking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+/**
+ * SitesPanel: combined occupancy across all garages, with per-site drill-down.
+ *
+ * Rows come from {@link MultiSiteConnector} snapshots. Selecting a site shows its
+ * floors. Updates from different sites are coalesced into one FX refresh.
+ */
+public class SitesPanel extends BorderPane {
+
+    private final MultiSiteConnector sites;
+    private final TableView<SiteRow> siteTable = new TableView<>();
+    private final TableView<SiteRow> floorTable = new TableView<>();
+    private final Label totalsLabel = new Label("All sites: -");
+    private final Label floorTitle = new Label("Select a site to see its floors");
+    private final Label findResultLabel = new Label();
+    private volatile boolean refreshQueued = false;
+
+    public SitesPanel(MultiSiteConnector sites) {
+        this.sites = sites;
+        getStyleClass().add("analytics-panel");
+        setPadding(new Insets(20));
+
+        totalsLabel.getStyleClass().add("control-panel-title");
+        TextField findField = new TextField();
+        findField.setPromptText("Plate to find in every site");
+        Button findBtn = new Button("Find in All Sites");
+        findBtn.setOnAction(e -> {
+            String plate = findField.getText();
+            if (plate == null || plate.trim().isEmpty()) return;
+            findResultLabel.setText("Searching...");
+            sites.findEverywhere(plate, hit -> Platform.runLater(() -> findResultLabel.setText(hit)));
+        });
+        HBox findRow = new HBox(10, findField, findBtn, findResultLabel);
+        VBox top = new VBox(10, totalsLabel, findRow);
+        top.setPadding(new Insets(0, 0, 15, 0));
+        setTop(top);
+
+        siteTable.getColumns().add(column("Site", "name", 180));
+        siteTable.getColumns().add(column("Free", "free", 70));
+        siteTable.getColumns().add(column("Occupied", "occupied", 80));
+        siteTable.getColumns().add(column("Reserved", "reserved", 80));
+        siteTable.getColumns().add(column("Total", "total", 70));
+        siteTable.getColumns().add(column("Overstay", "overstay", 80));
+        siteTable.getColumns().add(column("Waiting", "waiting", 70));
+        siteTable.getColumns().add(column("Entries", "entries", 70));
+        siteTable.getColumns().add(column("Revenue", "revenue", 100));
+        siteTable.getColumns().add(column("Updated", "updated", 110));
+        siteTable.getSelectionModel().selectedItemProperty().addListener((obs, old, row) -> showFloors());
+        setCenter(siteTable);
+
+        floorTable.getColumns().add(column("Floor", "name", 120));
+        floorTable.getColumns().add(column("Free", "free", 70));
+        floorTable.getColumns().add(column("Occupied", "occupied", 80));
+        floorTable.getColumns().add(column("Reserved", "reserved", 80));
+        floorTable.getColumns().add(column("Total", "total", 70));
+        floorTable.setPrefWidth(440);
+        VBox drill = new VBox(10, floorTitle, floorTable);
+        drill.setPadding(new Insets(0, 0, 0, 15));
+        setRight(drill);
+    }
+
+    private static TableColumn<SiteRow, String> column(String title, String property, double width) {
+        TableColumn<SiteRow, String> col = new TableColumn<>(title);
+        col.setCellValueFactory(new PropertyValueFactory<>(property));
+        col.setPrefWidth(width);
+        return col;
+    }
+
+    /** Safe from any thread; bursts of site updates become one table refresh. */
+    public void requestRefresh() {
+        if (refreshQueued) return;
+        refreshQueued = true;
+        Platform.runLater(() -> {
+            refreshQueued = false;
+            refresh();
+        });
+    }
+
+    private void refresh() {
+        String selectedId = siteTable.getSelectionModel().getSelectedItem() != null
+            ? siteTable.getSelectionModel().getSelectedItem().siteId : null;
+
+        List<SiteRow> rows = new ArrayList<>();
+        SiteRow reselect = null;
+        long now = System.currentTimeMillis();
+        for (MultiSiteConnector.SiteSummary s : sites.snapshotSites()) {
+            SiteRow row = SiteRow.of(s, now);
+            if (row.siteId.equals(selectedId)) reselect = row;
+            rows.add(row);
+        }
+        siteTable.getItems().setAll(rows);
+        if (reselect != null) siteTable.getSelectionModel().select(reselect);
+
+        MultiSiteConnector.SiteSummary all = sites.snapshotCombined();
+        totalsLabel.setText("All sites: " + all.free + " free of " + all.total
+            + "  |  " + all.overstay + " overstay  |  " + all.waiting + " waiting"
+            + "  |  Revenue \u20B9" + String.format("%.2f", all.revenue));
+        showFloors();
+    }
+
+    private void showFloors() {
+        SiteRow row = siteTable.getSelectionModel().getSelectedItem();
+        if (row == null) {
+            floorTable.getItems().clear();
+            return;
+        }
+        floorTitle.setText("Floors at " + row.getName());
+        List<SiteRow> floors = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> e : row.floors.entrySet()) {
+            int[] c = e.getValue();
+            floors.add(new SiteRow(row.siteId, "Floor " + e.getKey(), c[0], c[1], c[2], c[3], 0, 0, 0, 0, "", null));
+        }
+        floorTable.getItems().setAll(floors);
+    }
+
+    // Table row for a site or one of its floors
+    public static class SiteRow {
+        final String siteId;
+        final Map<Integer, int[]> floors;
+        private final String name, revenue, updated;
+        private final int free, occupied, reserved, total, overstay, waiting, entries;
+
+        SiteRow(String siteId, String name, int free, int occupied, int reserved, int total,
+                int overstay, int waiting, int entries, double revenue, String updated, Map<Integer, int[]> floors) {
+            this.siteId = siteId;
+            this.name = name;
+            this.free = free;
+            this.occupied = occupied;
+            this.reserved = reserved;
+            this.total = total;
+            this.overstay = overstay;
+            this.waiting = waiting;
+            this.entries = entries;
+            this.revenue = String.format("\u20B9%.2f", revenue);
+            this.updated = updated;
+            this.floors = floors;
+        }
+
+        static SiteRow of(MultiSiteConnector.SiteSummary s, long now) {
+            String updated = !s.online ? "offline"
+                : s.updatedMillis == 0 ? "waiting..."
+                : ((now - s.updatedMillis) / 1000) + "s ago" + (s.backlog > 0 ? " (" + s.backlog + " queued)" : "");
+            return new SiteRow(s.siteId, s.name, s.free, s.occupied, s.reserved, s.total,
+                s.overstay, s.waiting, s.entries, s.revenue, updated, s.floors);
+        }
+
+        public String getName() { return name; }
+        public String getFree() { return String.valueOf(free); }
+        public String getOccupied() { return String.valueOf(occupied); }
+        public String getReserved() { return String.valueOf(reserved); }
+        public String getTotal() { return String.valueOf(total); }
+        public String getOverstay() { return String.valueOf(overstay); }
+        public String getWaiting() { return String.valueOf(waiting); }
+        public String getEntries() { return String.valueOf(entries); }
+        public String getRevenue() { return revenue; }
+        public String getUpdated() { return updated; }
+    }
+}
@@ -0,0 +1,181 @@
+package com.parking;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SlotStateTable: the client's one copy of every slot's state, packed into a long per slot.
+ *
+ * STATUS is parsed once, here, and every consumer (floor views, display boards,
+ * the all-sites view, analytics) reads the table instead of re-parsing strings.
+ * Each slot's word holds the known/occupied/reserved/overstay flags, floor,
+ * constraint index and plate ID:
+ *
+ *   bits  0-31  plate ID (PlateRegistry)
+ *   bits 32-47  floor (signed 16-bit)
+ *   bits 48-55  constraint index ({@link #constraintName})
+ *   bits 56-59  flags: known, occupied, reserved, overstay
+ *
+ * There is one writer ({@link #apply}, called with each STATUS on the engine's
+ * reader thread). Readers never lock: a version counter is odd while a refresh
+ * is being written, so a reader takes {@link #beginRead()}, reads what it needs,
+ * and retries if {@link #validate} fails. {@link #snapshot} does the same into a reusable buffer.
+ */
+public class SlotStateTable {
+
+    private static final long KNOWN = 1L << 56;
+    private static final long OCCUPIED = 1L << 57;
+    private static final long RESERVED = 1L << 58;
+    private static final long OVERSTAY = 1L << 59;
+
+    private volatile AtomicLongArray slots = new AtomicLongArray(64); // indexed by slot ID
+    private final AtomicLong version = new AtomicLong();              // odd = write in progress
+    private volatile String[] constraintNames = new String[0];
+
+    // Writer scratch: rows parsed before the write window opens, so it stays short
+    private int[] pendingIds = new int[64];
+    private long[] pendingStates = new long[64];
+    private int[] changedIds = new int[64];
+    private int changedCount = 0;
+
+    // ---------- Writer ----------
+
+    /**
+     * Parses a STATUS payload (slotId,occupied,reserved,overstay,plate,floor[,constraint];...|queues)
+     * and publishes it as one version. Single writer.
+     * @return number of slot rows applied
+     */
+    public int apply(String statusPayload) {
+        int bar = statusPayload.indexOf('|');
+        String slotsInfo = bar >= 0 ? statusPayload.substring(0, bar) : statusPayload;
+        PlateRegistry plates = PlateRegistry.getInstance();
+        int n = 0, maxId = 0;
+        for (String row : slotsInfo.split(";")) {
+            if (row.isEmpty()) continue;
+            String[] f = row.split(",");
+            // Engines before the constraint column send 6 fields
+            if (f.length != 6 && f.length != 7) {
+                System.err.println("Malformed slot data received: " + row);
+                continue;
+            }
+            try {
+                int slotId = Integer.parseInt(f[0]);
+                long state = pack("1".equals(f[1]), "1".equals(f[2]), "1".equals(f[3]),
+                    Integer.parseInt(f[5]), f.length == 7 ? constraintIndex(f[6]) : 0, plates.idOf(f[4]));
+                if (n == pendingIds.length) {
+                    pendingIds = Arrays.copyOf(pendingIds, n * 2);
+                    pendingStates = Arrays.copyOf(pendingStates, n * 2);
+                }
+                pendingIds[n] = slotId;
+                pendingStates[n++] = state;
+                maxId = Math.max(maxId, slotId);
+            } catch (NumberFormatException e) {
+                System.err.println("Error parsing slot data: " + row + " - " + e.getMessage());
+            }
+        }
+
+        version.incrementAndGet(); // odd: readers retry
+        try {
+            AtomicLongArray a = slots;
+            if (maxId >= a.length()) {
+                AtomicLongArray grown = new AtomicLongArray(Math.max(maxId + 1, a.length() * 2));
+                for (int i = 0; i < a.length(); i++) grown.set(i, a.get(i));
+                slots = a = grown;
+            }
+            changedCount = 0;
+            for (int i = 0; i < n; i++) {
+                if (a.getAndSet(pendingIds[i], pendingStates[i]) != pendingStates[i]) {
+                    if (changedCount == changedIds.length) changedIds = Arrays.copyOf(changedIds, changedCount * 2);
+                    changedIds[changedCount++] = pendingIds[i];
+                }
+            }
+        } finally {
+            version.incrementAndGet(); // even: consistent again
+        }
+        return n;
+    }
+
+    /** Writer thread only: slots whose word changed in the last {@link #apply}. */
+    public int changedCount() { return changedCount; }
+
+    public int changedSlot(int i) { return changedIds[i]; }
+
+    // ---------- Readers ----------
+
+    /** Version to validate against later; waits out a write in progress. */
+    public long beginRead() {
+        long v;
+        while (((v = version.get()) & 1) != 0) Thread.onSpinWait();
+        return v;
+    }
+
+    /** True if nothing was written since {@code beginRead} returned {@code v}. */
+    public boolean validate(long v) {
+        return version.get() == v;
+    }
+
+    /** Packed state of a slot, 0 if never seen. Validate before trusting a multi-slot read. */
+    public long get(int slotId) {
+        AtomicLongArray a = slots;
+        return slotId >= 0 && slotId < a.length() ? a.get(slotId) : 0L;
+    }
+
+    /** Bound for slot-ID loops (highest ID seen, plus one, or more). */
+    public int capacity() { return slots.length(); }
+
+    /**
+     * Consistent copy of the whole table, indexed by slot ID. {@code reuse} is
+     * filled and returned when its length matches, so steady-state reads allocate nothing.
+     */
+    public long[] snapshot(long[] reuse) {
+        while (true) {
+            long v = beginRead();
+            AtomicLongArray a = slots;
+            long[] dest = reuse != null && reuse.length == a.length() ? reuse : new long[a.length()];
+            for (int i = 0; i < dest.length; i++) dest[i] = a.get(i);
+            if (validate(v)) return dest;
+            reuse = dest;
+        }
+    }
+
+    public long getVersion() { return version.get(); }
+
+    // ---------- Packed-word accessors ----------
+
+    public static boolean isKnown(long s) { return (s & KNOWN) != 0; }
+    public static boolean isOccupied(long s) { return (s & OCCUPIED) != 0; }
+    public static boolean isReserved(long s) { return (s & RESERVED) != 0; }
+    public static boolean isOverstay(long s) { return (s & OVERSTAY) != 0; }
+    public static boolean isFree(long s) { return (s & (KNOWN | OCCUPIED | RESERVED)) == KNOWN; }
+    public static int plateIdOf(long s) { return (int) s; }
+    public static int floorOf(long s) { return (short) (s >>> 32); }
+    public static int constraintOf(long s) { return (int) (s >>> 48) & 0xFF; }
+
+    static long pack(boolean occupied, boolean reserved, boolean overstay, int floor, int constraint, int plateId) {
+        return KNOWN
+            | (occupied ? OCCUPIED : 0) | (reserved ? RESERVED : 0) | (overstay ? OVERSTAY : 0)
+            | ((long) (constraint & 0xFF) << 48)
+            | ((long) (floor & 0xFFFF) << 32)
+            | (plateId & 0xFFFFFFFFL);
+    }
+
+    /** Constraint name for an index from {@link #constraintOf}; "" when the engine didn't say. */
+    public String constraintName(int index) {
+        String[] names = constraintNames;
+        return index > 0 && index <= names.length ? names[index - 1] : "";
+    }
+
+    // Writer only; index 0 = unknown. A handful of names, so a linear scan is fine.
+    private int constraintIndex(String name) {
+        String[] names = constraintNames;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i + 1;
+        }
+        if (names.length == 0xFF) return 0;
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = name.intern();
+        constraintNames = grown;
+        return grown.length;
+    }
+}
@@ -0,0 +1,138 @@
+package com.parking;
+
+import java.util.Arrays;
+
+/**
+ * SlotUsageStats: rolling per-slot utilization and dwell time, built from entry and exit events.
+ *
+ * Time is cut into fixed buckets held in a ring that covers the longest window.
+ * Each slot has one cell per bucket for occupied seconds, completed stays and
+ * their summed dwell, stored slot-major in flat int arrays so a slot's window is a
+ * contiguous run. An exit spreads the stay's seconds over the buckets it
+ * covered. A stay still in progress is added at query time from its entry
+ * timestamp. Nothing is rescanned: a query costs one pass over the window's
+ * buckets for one slot. Not thread-safe; used on the FX thread.
+ */
+public class SlotUsageStats {
+
+    public static final int BUCKET_SECONDS = 15 * 60;
+    public static final int BUCKETS = 24 * 3600 / BUCKET_SECONDS; // longest window: 24 hours
+
+    private long[] occupiedSince = new long[0]; // epoch seconds, 0 = free
+    private int[] occupiedSeconds = new int[0]; // [slotId * BUCKETS + ring]
+    private int[] stays = new int[0];
+    private int[] dwellSeconds = new int[0];
+    private int capacity = 0;
+
+    private long headStart = 0;     // start of the newest bucket in the ring
+    private long trackingSince = 0; // first event seen; windows don't reach back before it
+
+    /** A car arrived (or was first seen) in the slot. */
+    public void enter(int slotId, long now) {
+        ensureCapacity(slotId + 1);
+        advance(now);
+        if (occupiedSince[slotId] == 0) occupiedSince[slotId] = now;
+    }
+
+    /** The slot's car left; the stay is booked into the buckets it covered. */
+    public void exit(int slotId, long now) {
+        if (slotId >= capacity || occupiedSince[slotId] == 0) return;
+        advance(now);
+        long since = occupiedSince[slotId];
+        occupiedSince[slotId] = 0;
+        addOccupied(slotId, since, now);
+        int cell = slotId * BUCKETS + ring(headStart);
+        stays[cell]++;
+        dwellSeconds[cell] += (int) Math.max(0, now - since);
+    }
+
+    /**
+     * Moves an open stay's start earlier, e.g. to the engine's entry time for a car that
+     * was already parked when the dashboard started. Ignored for free slots.
+     */
+    public void backdateEntry(int slotId, long entry) {
+        if (slotId >= capacity || occupiedSince[slotId] == 0 || entry <= 0) return;
+        occupiedSince[slotId] = Math.min(occupiedSince[slotId], entry);
+    }
+
+    /** Share of the window the slot was occupied, 0..1. */
+    public double utilization(int slotId, int windowSeconds, long now) {
+        advance(now);
+        int buckets = windowBuckets(windowSeconds);
+        long start = Math.max(trackingSince, headStart - (long) (buckets - 1) * BUCKET_SECONDS);
+        long span = Math.max(1, now - start);
+        if (slotId >= capacity) return 0;
+        long occupied = 0;
+        int base = slotId * BUCKETS;
+        for (int i = 0; i < buckets; i++) occupied += occupiedSeconds[base + ring(headStart - (long) i * BUCKET_SECONDS)];
+        long since = occupiedSince[slotId];
+        if (since != 0) occupied += Math.max(0, now - Math.max(since, start));
+        return Math.min(1.0, (double) occupied / span);
+    }
+
+    /** Mean length in seconds of stays that ended within the window, or -1 if none did. */
+    public long averageDwell(int slotId, int windowSeconds, long now) {
+        advance(now);
+        if (slotId >= capacity) return -1;
+        int buckets = windowBuckets(windowSeconds);
+        long total = 0;
+        int count = 0;
+        int base = slotId * BUCKETS;
+        for (int i = 0; i < buckets; i++) {
+            int cell = base + ring(headStart - (long) i * BUCKET_SECONDS);
+            total += dwellSeconds[cell];
+            count += stays[cell];
+        }
+        return count == 0 ? -1 : total / count;
+    }
+
+    // ----- Ring maintenance -----
+
+    private static int windowBuckets(int windowSeconds) {
+        return Math.max(1, Math.min(BUCKETS, (windowSeconds + BUCKET_SECONDS - 1) / BUCKET_SECONDS));
+    }
+
+    private static int ring(long bucketStart) {
+        return (int) Math.floorMod(bucketStart / BUCKET_SECONDS, (long) BUCKETS);
+    }
+
+    // Rolls the ring forward to now, clearing the buckets that fall out of the window
+    private void advance(long now) {
+        long current = now - Math.floorMod(now, (long) BUCKET_SECONDS);
+        if (current <= headStart) return;
+        if (trackingSince == 0) trackingSince = now;
+        long steps = headStart == 0 ? BUCKETS : Math.min(BUCKETS, (current - headStart) / BUCKET_SECONDS);
+        for (long s = steps - 1; s >= 0; s--) {
+            int r = ring(current - s * BUCKET_SECONDS);
+            for (int slot = 0; slot < capacity; slot++) {
+                int cell = slot * BUCKETS + r;
+                occupiedSeconds[cell] = 0;
+                stays[cell] = 0;
+                dwellSeconds[cell] = 0;
+            }
+        }
+        headStart = current;
+    }
+
+    // Spreads [from, to) over the buckets still in the ring
+    private void addOccupied(int slotId, long from, long to) {
+        long t = Math.max(from, headStart - (long) (BUCKETS - 1) * BUCKET_SECONDS);
+        int base = slotId * BUCKETS;
+        while (t < to) {
+            long bucketStart = t - Math.floorMod(t, (long) BUCKET_SECONDS);
+            long end = Math.min(to, bucketStart + BUCKET_SECONDS);
+            occupiedSeconds[base + ring(bucketStart)] += (int) (end - t);
+            t = end;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= capacity) return;
+        int cap = Math.max(size, Math.max(16, capacity * 2));
+        occupiedSince = Arrays.copyOf(occupiedSince, cap);
+        occupiedSeconds = Arrays.copyOf(occupiedSeconds, cap * BUCKETS);
+        stays = Arrays.copyOf(stays, cap * BUCKETS);
+        dwellSeconds = Arrays.copyOf(dwellSeconds, cap * BUCKETS);
+        capacity = cap;
+    }
+}
@@ -0,0 +1,128 @@
+package com.parking;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SlotViewModel: latest STATUS state for every slot, kept in primitive arrays.
+ *
+ * STATUS updates land here for all floors. A slot whose state changed is
+ * marked dirty, and only the visible floor's dirty slots are pushed into
+ * JavaFX nodes. A hidden floor keeps its dirty marks until its tab is selected,
+ * then it is reconciled in one pass. Arrays are indexed by slot ID.
+ * Not thread-safe; used on the FX thread.
+ */
+public class SlotViewModel {
+
+    private static final byte OCCUPIED = 1;
+    private static final byte RESERVED = 2;
+    private static final byte OVERSTAY = 4;
+
+    /** Allocation-free callback for per-slot walks. */
+    public interface SlotVisitor {
+        void visit(int slotId);
+    }
+
+    // Slots on one floor, in the order STATUS first listed them (= layout position)
+    private static final class FloorSlots {
+        int[] slots = new int[32];
+        int count = 0;
+        int dirty = 0;
+    }
+
+    private boolean[] known = new boolean[0];
+    private byte[] flags = new byte[0];
+    private int[] plateId = new int[0];
+    private int[] floor = new int[0];
+    private int[] floorIndex = new int[0];
+    private boolean[] dirty = new boolean[0];
+
+    private final Map<Integer, FloorSlots> floors = new TreeMap<>();
+
+    /**
+     * Records a slot's state from STATUS. New slots and changed slots are marked dirty.
+     * @return true if anything changed
+     */
+    public boolean update(int slotId, boolean occupied, boolean reserved, boolean overstay, int plate, int floorNo) {
+        ensureCapacity(slotId + 1);
+        byte f = (byte) ((occupied ? OCCUPIED : 0) | (reserved ? RESERVED : 0) | (overstay ? OVERSTAY : 0));
+        if (!known[slotId]) {
+            known[slotId] = true;
+            floor[slotId] = floorNo;
+            FloorSlots fs = floors.computeIfAbsent(floorNo, k -> new FloorSlots());
+            if (fs.count == fs.slots.length) fs.slots = Arrays.copyOf(fs.slots, fs.count * 2);
+            floorIndex[slotId] = fs.count;
+            fs.slots[fs.count++] = slotId;
+        } else if (flags[slotId] == f && plateId[slotId] == plate) {
+            return false;
+        }
+        flags[slotId] = f;
+        plateId[slotId] = plate;
+        markDirty(slotId);
+        return true;
+    }
+
+    /** Overstay fired client-side for an occupied slot; false if the slot isn't occupied. */
+    public boolean markOverstay(int slotId) {
+        if (!isOccupied(slotId) || isOverstay(slotId)) return false;
+        flags[slotId] = (byte) (OCCUPIED | OVERSTAY);
+        markDirty(slotId);
+        return true;
+    }
+
+    /** Visits the floor's dirty slots once, clearing their marks. */
+    public void reconcileFloor(int floorNo, SlotVisitor visitor) {
+        FloorSlots fs = floors.get(floorNo);
+        if (fs == null || fs.dirty == 0) return;
+        for (int i = 0; i < fs.count; i++) {
+            int slotId = fs.slots[i];
+            if (!dirty[slotId]) continue;
+            dirty[slotId] = false;
+            visitor.visit(slotId);
+        }
+        fs.dirty = 0;
+    }
+
+    /** Slots seen on the floor so far; new slots are appended, so indexes are stable. */
+    public int slotCountOnFloor(int floorNo) {
+        FloorSlots fs = floors.get(floorNo);
+        return fs == null ? 0 : fs.count;
+    }
+
+    public int slotOnFloor(int floorNo, int index) {
+        return floors.get(floorNo).slots[index];
+    }
+
+    public int dirtyCount(int floorNo) {
+        FloorSlots fs = floors.get(floorNo);
+        return fs == null ? 0 : fs.dirty;
+    }
+
+    public boolean isKnown(int slotId) { return slotId >= 0 && slotId < known.length && known[slotId]; }
+    public boolean isOccupied(int slotId) { return isKnown(slotId) && (flags[slotId] & OCCUPIED) != 0; }
+    public boolean isReserved(int slotId) { return isKnown(slotId) && (flags[slotId] & RESERVED) != 0; }
+    public boolean isOverstay(int slotId) { return isKnown(slotId) && (flags[slotId] & OVERSTAY) != 0; }
+    public int plateIdOf(int slotId) { return isKnown(slotId) ? plateId[slotId] : PlateRegistry.NO_PLATE; }
+    public int floorOf(int slotId) { return isKnown(slotId) ? floor[slotId] : -1; }
+
+    /** Position of the slot within its floor's layout (0-based). */
+    public int floorIndexOf(int slotId) { return isKnown(slotId) ? floorIndex[slotId] : -1; }
+
+    private void markDirty(int slotId) {
+        if (dirty[slotId]) return;
+        dirty[slotId] = true;
+        floors.get(floor[slotId]).dirty++;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= known.length) return;
+        int cap = Math.max(size, Math.max(16, known.length * 2));
+        known = Arrays.copyOf(known, cap);
+        flags = Arrays.copyOf(flags, cap);
+        plateId = Arrays.copyOf(plateId, cap);
+        floor = Arrays.copyOf(floor, cap);
+        floorIndex = Arrays.copyOf(floorIndex, cap);
+        dirty = Arrays.copyOf(dirty, cap);
+    }
+}
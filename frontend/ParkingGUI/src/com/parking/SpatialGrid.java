@@ -0,0 +1,84 @@
+package com.parking;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SpatialGrid: uniform-grid index of bounding boxes, for viewport culling and hit-testing.
+ *
+ * Each item (a slot ID) is filed under every cell its box touches. A query
+ * visits only the cells under the requested rectangle and reports each
+ * overlapping item once. Bays are roughly the same size, so a fixed cell of a
+ * few bay widths keeps lists short without the bookkeeping of a tree.
+ * Not thread-safe; used on the FX thread.
+ */
+public class SpatialGrid {
+
+    private final double cellSize;
+    private final Map<Long, int[]> cells = new HashMap<>(); // cell -> [count, id, id, ...]
+
+    // Bounding boxes indexed by item ID
+    private double[] minX = new double[64], minY = new double[64], maxX = new double[64], maxY = new double[64];
+
+    // Query de-duplication
+    private int[] seenStamp = new int[64];
+    private int stamp = 0;
+
+    public SpatialGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void insert(int id, double x0, double y0, double x1, double y1) {
+        ensureCapacity(id + 1);
+        minX[id] = x0; minY[id] = y0; maxX[id] = x1; maxY[id] = y1;
+        for (int cy = cell(y0); cy <= cell(y1); cy++) {
+            for (int cx = cell(x0); cx <= cell(x1); cx++) {
+                long key = key(cx, cy);
+                int[] list = cells.get(key);
+                if (list == null) {
+                    list = new int[8];
+                } else if (list[0] + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                }
+                list[++list[0]] = id;
+                cells.put(key, list);
+            }
+        }
+    }
+
+    /** Visits every item whose box overlaps the rectangle, once each. */
+    public void query(double x0, double y0, double x1, double y1, SlotViewModel.SlotVisitor visitor) {
+        if (++stamp == 0) { Arrays.fill(seenStamp, 0); stamp = 1; }
+        for (int cy = cell(y0); cy <= cell(y1); cy++) {
+            for (int cx = cell(x0); cx <= cell(x1); cx++) {
+                int[] list = cells.get(key(cx, cy));
+                if (list == null) continue;
+                for (int i = 1; i <= list[0]; i++) {
+                    int id = list[i];
+                    if (seenStamp[id] == stamp) continue;
+                    seenStamp[id] = stamp;
+                    if (maxX[id] < x0 || minX[id] > x1 || maxY[id] < y0 || minY[id] > y1) continue;
+                    visitor.visit(id);
+                }
+            }
+        }
+    }
+
+    public double centerX(int id) { return (minX[id] + maxX[id]) / 2; }
+    public double centerY(int id) { return (minY[id] + maxY[id]) / 2; }
+
+    private int cell(double v) { return (int) Math.floor(v / cellSize); }
+
+    private static long key(int cx, int cy) { return ((long) cx << 32) ^ (cy & 0xFFFFFFFFL); }
+
+    private void ensureCapacity(int size) {
+        if (size <= minX.length) return;
+        int cap = Math.max(size, minX.length * 2);
+        minX = Arrays.copyOf(minX, cap);
+        minY = Arrays.copyOf(minY, cap);
+        maxX = Arrays.copyOf(maxX, cap);
+        maxY = Arrays.copyOf(maxY, cap);
+        seenStamp = Arrays.copyOf(seenStamp, cap);
+    }
+}
@@ -0,0 +1,114 @@
+package com.parking;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.Scene;
+
+/**
+ * StartupTimer: wall-clock phases from JVM launch to the first laid-out frame.
+ *
+ * Phases are marked on the FX thread as start() goes; {@link #awaitFirstFrame}
+ * closes the list on the scene's first layout pulse. The result is printed and
+ * appended to {@link #LOG_FILE}, tagged with whether a class-data-sharing archive
+ * was in use, so a run with the archive can be compared with the last run without
+ * it (and vice versa) - the comparison is printed too. Training runs are printed
+ * but not logged: they write an archive rather than use one.
+ */
+public class StartupTimer {
+
+    public static final Path LOG_FILE = Path.of("startup-times.log");
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final boolean cds = usesSharedArchive();
+    private final List<String> phases = new ArrayList<>();
+    private long lastMillis = jvmStartMillis;
+    private long firstFrameMillis = -1;
+
+    /** Records the time since the previous mark under {@code phase}. FX thread. */
+    public void mark(String phase) {
+        long now = System.currentTimeMillis();
+        phases.add(phase + " " + (now - lastMillis));
+        lastMillis = now;
+    }
+
+    /** Marks "first frame" on the scene's first layout pulse, then runs {@code onFirstFrame}. */
+    public void awaitFirstFrame(Scene scene, Runnable onFirstFrame) {
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            mark("first frame");
+            firstFrameMillis = System.currentTimeMillis() - jvmStartMillis;
+            onFirstFrame.run();
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
+    /** Time from JVM launch to the first frame, -1 until it was shown. */
+    public long getFirstFrameMillis() { return firstFrameMillis; }
+
+    public boolean isCdsEnabled() { return cds; }
+
+    /**
+     * Prints and logs this run; file I/O, so call it off the FX thread.
+     * @param trainingRun true for a CDS training run, which is printed but not logged
+     * @return one-line summary, e.g. "First frame in 640 ms with CDS (980 ms without)"
+     */
+    public String report(boolean trainingRun) {
+        String line = LocalDateTime.now().format(STAMP) + " cds=" + (cds ? "on" : "off")
+            + " firstFrameMs=" + firstFrameMillis + " phases=" + String.join(", ", phases);
+        if (trainingRun) {
+            System.out.println("Startup (training run, not logged): " + line);
+            return "Training run: first frame in " + firstFrameMillis + " ms";
+        }
+        System.out.println("Startup: " + line);
+
+        long other = lastFirstFrame(!cds);
+        try {
+            Files.write(LOG_FILE, List.of(line), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Could not write " + LOG_FILE + ": " + e.getMessage());
+        }
+        String summary = "First frame in " + firstFrameMillis + " ms " + (cds ? "with" : "without") + " CDS";
+        return other < 0 ? summary : summary + " (" + other + " ms " + (cds ? "without" : "with") + ")";
+    }
+
+    // First-frame time of the latest logged run with the given CDS state, -1 if none
+    private static long lastFirstFrame(boolean withCds) {
+        if (!Files.exists(LOG_FILE)) return -1;
+        String tag = " cds=" + (withCds ? "on" : "off") + " firstFrameMs=";
+        long result = -1;
+        try {
+            for (String line : Files.readAllLines(LOG_FILE, StandardCharsets.UTF_8)) {
+                int at = line.indexOf(tag);
+                if (at < 0) continue;
+                int from = at + tag.length();
+                int to = line.indexOf(' ', from);
+                try {
+                    result = Long.parseLong(to < 0 ? line.substring(from) : line.substring(from, to));
+                } catch (NumberFormatException e) {
+                    System.err.println("Malformed startup log line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read " + LOG_FILE + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static boolean usesSharedArchive() {
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-XX:SharedArchiveFile")) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,198 @@
+package com.parking;
+
+import java.util.Arrays;
+
+/**
+ * TariffEngine: live fee estimate for every occupied slot.
+ *
+ * Mirrors the engine's calculateFee (what REMOVE would charge right now) using
+ * a {@link TariffTable}. Billing inputs come from the engine's BILLING payload
+ * and are kept in primitive arrays indexed by slot ID. {@link #tick(long)} walks
+ * them in one pass. A slot's fee only changes at an hour boundary, so each slot
+ * caches its result until that boundary and most ticks recompute nothing.
+ */
+public class TariffEngine {
+    private static final long HOUR = 3600L;
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private final TariffTable tariff;
+
+    // Struct-of-arrays billing inputs, indexed by slotId
+    private boolean[] occupied = new boolean[0];
+    private byte[] vehicleClass = new byte[0];
+    private byte[] userType = new byte[0];
+    private long[] entryTime = new long[0];
+    private long[] prePaidExit = new long[0];
+    private boolean[] valet = new boolean[0];
+    private boolean[] validated = new boolean[0];
+
+    // Per-slot cache: fee and the first second at which it may change
+    private double[] fee = new double[0];
+    private long[] validUntil = new long[0];
+
+    private final long[] boundaryScratch = new long[1];
+
+    private double totalAccrued = 0;
+    private int occupiedCount = 0;
+    private int recomputedLastTick = 0;
+
+    public TariffEngine(TariffTable tariff) {
+        this.tariff = tariff;
+    }
+
+    public TariffTable getTariff() { return tariff; }
+
+    /**
+     * Replaces all billing inputs from a BILLING payload:
+     * slotId,vehicleType,userType,entryTime,prePaidExitTime,valet,validated;...
+     */
+    public synchronized void loadBilling(String payload) {
+        Arrays.fill(occupied, false);
+        occupiedCount = 0;
+        if (payload != null && !payload.isEmpty()) {
+            for (String row : payload.split(";")) {
+                if (row.isEmpty()) continue;
+                String[] f = row.split(",");
+                if (f.length != 7) {
+                    System.err.println("Malformed billing data: " + row);
+                    continue;
+                }
+                try {
+                    setSlot(Integer.parseInt(f[0]), TariffTable.vehicleClass(f[1]), Integer.parseInt(f[2]),
+                        Long.parseLong(f[3]), Long.parseLong(f[4]), "1".equals(f[5]), "1".equals(f[6]));
+                } catch (NumberFormatException e) {
+                    System.err.println("Error parsing billing data: " + row + " - " + e.getMessage());
+                }
+            }
+        }
+        Arrays.fill(validUntil, 0L); // inputs may have changed (validation, re-park): force recompute
+    }
+
+    /** Sets the billing inputs for one occupied slot. */
+    public synchronized void setSlot(int slotId, int vehicleClassIndex, int user, long entry, long exit,
+                                     boolean isValet, boolean isValidated) {
+        ensureCapacity(slotId + 1);
+        if (!occupied[slotId]) occupiedCount++;
+        occupied[slotId] = true;
+        vehicleClass[slotId] = (byte) vehicleClassIndex;
+        userType[slotId] = (byte) user;
+        entryTime[slotId] = entry;
+        prePaidExit[slotId] = exit;
+        valet[slotId] = isValet;
+        validated[slotId] = isValidated;
+        validUntil[slotId] = 0L;
+    }
+
+    /** Recomputes fees whose cached value expired; returns the total accrued across all slots. */
+    public synchronized double tick(long nowEpochSeconds) {
+        int recomputed = 0;
+        double total = 0;
+        for (int slot = 0; slot < occupied.length; slot++) {
+            if (!occupied[slot]) continue;
+            if (nowEpochSeconds >= validUntil[slot]) {
+                computeSlot(slot, nowEpochSeconds);
+                recomputed++;
+            }
+            total += fee[slot];
+        }
+        recomputedLastTick = recomputed;
+        totalAccrued = total;
+        return total;
+    }
+
+    /** Fee from the last tick; 0 for free or unknown slots. */
+    public synchronized double feeForSlot(int slotId) {
+        return (slotId >= 0 && slotId < occupied.length && occupied[slotId]) ? fee[slotId] : 0.0;
+    }
+
+    public synchronized boolean isBillable(int slotId) {
+        return slotId >= 0 && slotId < occupied.length && occupied[slotId];
+    }
+
+    /** Engine entry time (epoch seconds) of the slot's car, or 0 when the slot isn't billable. */
+    public synchronized long entryTimeOf(int slotId) {
+        return isBillable(slotId) ? entryTime[slotId] : 0L;
+    }
+
+    /**
+     * Pre-paid exit time for a slot that can go into overstay (unvalidated guest),
+     * or 0 when the slot never overstays.
+     */
+    public synchronized long overstayDeadline(int slotId) {
+        if (!isBillable(slotId) || validated[slotId]) return 0L;
+        if (userType[slotId] != TariffTable.USER_GUEST) return 0L;
+        return prePaidExit[slotId];
+    }
+
+    /** Highest slot ID seen so far plus one; bound for per-slot loops. */
+    public synchronized int slotCapacity() { return occupied.length; }
+
+    public synchronized double getTotalAccrued() { return totalAccrued; }
+    public synchronized int getOccupiedCount() { return occupiedCount; }
+    public synchronized int getRecomputedLastTick() { return recomputedLastTick; }
+
+    /** Stateless evaluation of the engine's fee rules at {@code now}. */
+    public static double computeFee(TariffTable t, int vehicleClass, int userType, long entry, long prePaidExit,
+                                    boolean valet, boolean validated, long now) {
+        return evaluate(t, vehicleClass, userType, entry, prePaidExit, valet, validated, now, null);
+    }
+
+    // ---------- Fee rules (mirror AdvancedParkingSystem::calculateFee) ----------
+
+    private void computeSlot(int slot, long now) {
+        fee[slot] = evaluate(tariff, vehicleClass[slot], userType[slot], entryTime[slot], prePaidExit[slot],
+            valet[slot], validated[slot], now, boundaryScratch);
+        validUntil[slot] = boundaryScratch[0];
+    }
+
+    private static double evaluate(TariffTable t, int vehicleClass, int userType, long entry, long prePaidExit,
+                                   boolean valet, boolean validated, long now, long[] boundaryOut) {
+        long nextChange = NEVER;
+        double result;
+        double baseRate = t.hourlyRate(vehicleClass);
+
+        if (userType == TariffTable.USER_RESIDENT || userType == TariffTable.USER_STAFF) {
+            result = 0.0;
+        } else if (userType == TariffTable.USER_HOTEL) {
+            // ceil(max(1h, parked) / 1h) * rate (+ valet)
+            long hours = ceilHours(Math.max(HOUR, now - entry));
+            result = hours * baseRate + (valet ? t.getValetFee() : 0.0);
+            nextChange = entry + hours * HOUR + 1;
+        } else if (now <= prePaidExit && !validated) {
+            result = 0.0; // still inside the pre-paid window
+            nextChange = prePaidExit + 1;
+        } else {
+            long freeUntil = prePaidExit + (validated ? t.getValidationHours() * HOUR : 0L);
+            long overstay = now - freeUntil;
+            if (overstay <= 0) {
+                result = 0.0;
+                nextChange = freeUntil + 1;
+            } else {
+                long hours = ceilHours(overstay);
+                result = hours * baseRate * t.getOverstayMultiplier();
+                if (valet && !validated) result += t.getValetFee();
+                nextChange = freeUntil + hours * HOUR + 1;
+            }
+        }
+        if (boundaryOut != null) boundaryOut[0] = nextChange;
+        return result;
+    }
+
+    private static long ceilHours(long seconds) {
+        return (seconds + HOUR - 1) / HOUR;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= occupied.length) return;
+        int cap = Math.max(size, occupied.length * 2);
+        occupied = Arrays.copyOf(occupied, cap);
+        vehicleClass = Arrays.copyOf(vehicleClass, cap);
+        userType = Arrays.copyOf(userType, cap);
+        entryTime = Arrays.copyOf(entryTime, cap);
+        prePaidExit = Arrays.copyOf(prePaidExit, cap);
+        valet = Arrays.copyOf(valet, cap);
+        validated = Arrays.copyOf(validated, cap);
+        fee = Arrays.copyOf(fee, cap);
+        validUntil = Arrays.copyOf(validUntil, cap);
+    }
+}
@@ -0,0 +1,78 @@
+package com.parking;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * TariffTable: the client-side copy of the engine's billing constants.
+ *
+ * Defaults mirror BIKE_RATE, CAR_RATE, TRUCK_RATE, OVERSTAY_PENALTY_RATE,
+ * VALET_FEE and VALIDATION_HOURS in ParkingSystem.h. Any of them can be
+ * overridden from a properties file (bike.rate, car.rate, truck.rate,
+ * overstay.multiplier, valet.fee, validation.hours) so the estimate can follow
+ * a re-tuned engine without a rebuild.
+ */
+public final class TariffTable {
+    // Vehicle classes, used as indexes into the rate table
+    public static final int BIKE = 0;
+    public static final int CAR = 1;
+    public static final int TRUCK = 2;
+
+    // UserType order in the engine: GUEST(0), RESIDENT(1), HOTEL(2), STAFF(3)
+    public static final int USER_GUEST = 0;
+    public static final int USER_RESIDENT = 1;
+    public static final int USER_HOTEL = 2;
+    public static final int USER_STAFF = 3;
+
+    private final double[] hourlyRates;
+    private final double overstayMultiplier;
+    private final double valetFee;
+    private final int validationHours;
+
+    public TariffTable(double bikeRate, double carRate, double truckRate,
+                       double overstayMultiplier, double valetFee, int validationHours) {
+        this.hourlyRates = new double[] {bikeRate, carRate, truckRate};
+        this.overstayMultiplier = overstayMultiplier;
+        this.valetFee = valetFee;
+        this.validationHours = validationHours;
+    }
+
+    /** Same values as the engine's billing constants. */
+    public static TariffTable defaults() {
+        return new TariffTable(20.0, 50.0, 100.0, 2.0, 150.0, 2);
+    }
+
+    /** Loads overrides from a properties file; missing keys keep the engine defaults. */
+    public static TariffTable load(Path file) {
+        TariffTable d = defaults();
+        if (file == null || !Files.isRegularFile(file)) return d;
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            p.load(in);
+            return new TariffTable(
+                Double.parseDouble(p.getProperty("bike.rate", String.valueOf(d.hourlyRates[BIKE]))),
+                Double.parseDouble(p.getProperty("car.rate", String.valueOf(d.hourlyRates[CAR]))),
+                Double.parseDouble(p.getProperty("truck.rate", String.valueOf(d.hourlyRates[TRUCK]))),
+                Double.parseDouble(p.getProperty("overstay.multiplier", String.valueOf(d.overstayMultiplier))),
+                Double.parseDouble(p.getProperty("valet.fee", String.valueOf(d.valetFee))),
+                Integer.parseInt(p.getProperty("validation.hours", String.valueOf(d.validationHours))));
+        } catch (Exception e) {
+            System.err.println("Could not load tariff file " + file + ": " + e.getMessage() + ". Using defaults.");
+            return d;
+        }
+    }
+
+    /** Maps the engine's vehicleType string the same way calculateFee does (anything else is CAR). */
+    public static int vehicleClass(String vehicleType) {
+        if ("BIKE".equals(vehicleType)) return BIKE;
+        if ("TRUCK".equals(vehicleType)) return TRUCK;
+        return CAR;
+    }
+
+    public double hourlyRate(int vehicleClass) { return hourlyRates[vehicleClass]; }
+    public double getOverstayMultiplier() { return overstayMultiplier; }
+    public double getValetFee() { return valetFee; }
+    public int getValidationHours() { return validationHours; }
+}
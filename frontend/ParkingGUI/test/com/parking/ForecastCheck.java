@@ -0,0 +1,84 @@
+package com.parking;
+
+import java.util.TimeZone;
+
+/**
+ * ForecastCheck: checks how {@link OccupancyForecaster} folds elapsed hours.
+ *
+ * Feeds SLOT_CHANGED states for six CAR_SMALL slots over three days (in UTC)
+ * and reads the learned rates back through {@link OccupancyForecaster#forecast}:
+ * quiet hours after a gap must be learned as zero arrivals, counts must land
+ * in the hour of day they happened, and a gap of more than a day must not add
+ * its vehicle-hours to the hour that follows it.
+ *
+ * Usage: java com.parking.ForecastCheck
+ * Exits 0 when every value matches, 1 otherwise.
+ */
+public class ForecastCheck {
+
+    private static final long MINUTE = 60_000L, HOUR = 60 * MINUTE, DAY = 24 * HOUR;
+    private static final long DAY1 = 1_767_225_600_000L; // 2026-01-01 00:00 UTC
+    private static final double ALPHA = 0.3;             // OccupancyForecaster's EWMA weight
+
+    private final SlotStateTable table = new SlotStateTable();
+    private final OccupancyForecaster forecaster = new OccupancyForecaster(table);
+    private int failures = 0;
+
+    private static long at(int day, int hour, int minute) {
+        return DAY1 + (day - 1) * DAY + hour * HOUR + minute * MINUTE;
+    }
+
+    private void slot(int slotId, boolean occupied, boolean overstay, long millis) {
+        forecaster.onSlotChanged(slotId, SlotStateTable.pack(occupied, false, overstay, 1, 1, 0), millis);
+    }
+
+    private void expect(String name, double expected, double actual) {
+        boolean ok = Math.abs(expected - actual) < 1e-9;
+        if (!ok) failures++;
+        System.out.printf("%s  %-52s expected %.4f  got %.4f%n", ok ? "ok  " : "FAIL", name, expected, actual);
+    }
+
+    private int run() {
+        table.apply("1,0,0,0,N/A,1,CAR_SMALL"); // names constraint index 1
+        for (int id = 1; id <= 6; id++) slot(id, false, false, at(1, 10, 0));
+
+        // Day 1: one arrival at 10:10, then nothing until 13:30. Hours 10, 11 and 12 are folded
+        // together as 1, 0 and 0 arrivals.
+        slot(1, true, false, at(1, 10, 10));
+        slot(2, true, false, at(1, 13, 30));
+        // Day 2: two arrivals in hour 11, which day 1 already learned as quiet. The overstay
+        // flag at 12:00 is no arrival or departure; it only ends the hour.
+        slot(3, true, false, at(2, 11, 5));
+        slot(4, true, false, at(2, 11, 10));
+        slot(3, true, true, at(2, 12, 0));
+
+        // Four parked, no departures seen: a one-hour forecast is 4 + that hour's arrival rate
+        expect("hour 10: 1 arrival on day 1, then a quiet day 2", 4 + 1 + ALPHA * (0 - 1),
+            forecaster.forecast("CAR_SMALL", 1, at(2, 10, 0)));
+        expect("hour 11: learned quiet on day 1, 2 arrivals on day 2", 4 + ALPHA * 2,
+            forecaster.forecast("CAR_SMALL", 1, at(2, 11, 0)));
+        expect("hour 12: learned quiet on day 1", 4,
+            forecaster.forecast("CAR_SMALL", 1, at(2, 12, 0)));
+
+        // 26.5 hours later slot 1 leaves at 14:30. Hour 14 then held 4 vehicles for half an
+        // hour and 3 for the other half: 3.5 vehicle-hours, so the hazard is 1 / 3.5. Hour 14
+        // was learned as 0 on both earlier days.
+        slot(1, false, false, at(3, 14, 30));
+        slot(3, true, false, at(3, 15, 10));
+        double hazard = ALPHA * (1 / 3.5);
+        double occupancy = 3;
+        for (int step = 0; step < 4; step++) occupancy -= hazard * occupancy / 4;
+        expect("hour 14 after a 26-hour gap: 1 departure / 3.5 h", occupancy,
+            forecaster.forecast("CAR_SMALL", 1, at(3, 14, 0)));
+        expect("capacity", 6, forecaster.capacity("CAR_SMALL"));
+        expect("occupied", 3, forecaster.occupied("CAR_SMALL"));
+
+        System.out.println(failures == 0 ? "All values match." : failures + " values differ.");
+        return failures == 0 ? 0 : 1;
+    }
+
+    public static void main(String[] args) {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC")); // hours of day below are UTC
+        System.exit(new ForecastCheck().run());
+    }
+}
@@ -0,0 +1,75 @@
+package com.parking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SpatialGridCheck: checks {@link SpatialGrid} queries against a brute-force scan.
+ *
+ * Files 5000 bays of FloorPlan's default size (80x120, some rotated to 120x80) at
+ * random over a large floor, in the grid FloorView uses (256 cells), then runs 2000
+ * random viewport rectangles and 2000 point hit-tests. Each query must report
+ * exactly the bays whose box overlaps it, each once. Prints the mean query time.
+ *
+ * Usage: java com.parking.SpatialGridCheck [seed]
+ * Exits 0 when every query matches, 1 otherwise.
+ */
+public class SpatialGridCheck {
+
+    private static final int BAYS = 5000;
+    private static final int QUERIES = 2000;
+    private static final double FLOOR_WIDTH = 12_000, FLOOR_HEIGHT = 8_000;
+
+    public static void main(String[] args) {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 1);
+        SpatialGrid grid = new SpatialGrid(256);
+        double[][] boxes = new double[BAYS + 1][]; // by slot ID, from 1 like the engine's
+        for (int id = 1; id <= BAYS; id++) {
+            boolean rotated = random.nextInt(4) == 0;
+            double w = rotated ? 120 : 80, h = rotated ? 80 : 120;
+            double x = random.nextDouble() * (FLOOR_WIDTH - w), y = random.nextDouble() * (FLOOR_HEIGHT - h);
+            boxes[id] = new double[] {x, y, x + w, y + h};
+            grid.insert(id, x, y, x + w, y + h);
+        }
+
+        int failures = 0;
+        long nanos = 0;
+        List<Integer> found = new ArrayList<>();
+        for (int q = 0; q < 2 * QUERIES; q++) {
+            double x0, y0, x1, y1;
+            if (q < QUERIES) {
+                // A viewport: anything from a zoomed-in corner to most of the floor, partly off it
+                double w = 200 + random.nextDouble() * 6_000, h = 150 + random.nextDouble() * 4_000;
+                x0 = random.nextDouble() * FLOOR_WIDTH - w / 2;
+                y0 = random.nextDouble() * FLOOR_HEIGHT - h / 2;
+                x1 = x0 + w;
+                y1 = y0 + h;
+            } else {
+                // A click
+                x0 = x1 = random.nextDouble() * FLOOR_WIDTH;
+                y0 = y1 = random.nextDouble() * FLOOR_HEIGHT;
+            }
+            found.clear();
+            long t0 = System.nanoTime();
+            grid.query(x0, y0, x1, y1, found::add);
+            nanos += System.nanoTime() - t0;
+
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 1; id <= BAYS; id++) {
+                double[] b = boxes[id];
+                if (b[2] >= x0 && b[0] <= x1 && b[3] >= y0 && b[1] <= y1) expected.add(id);
+            }
+            Collections.sort(found);
+            if (!found.equals(expected)) {
+                failures++;
+                System.out.printf("FAIL  query %d (%.0f,%.0f)-(%.0f,%.0f): grid %d bays, scan %d%n",
+                    q, x0, y0, x1, y1, found.size(), expected.size());
+            }
+        }
+        System.out.printf("%d queries over %d bays, %.1f us per query%n", 2 * QUERIES, BAYS, nanos / 1000.0 / (2 * QUERIES));
+        System.out.println(failures == 0 ? "All queries match." : failures + " queries differ.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,245 @@
+package com.parking;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * StoreFormatCheck: checks what the engine leaves on disk, across restarts and crashes.
+ *
+ * Runs the built engine (with a virtual clock) and parking_invoice in a scratch directory:
+ *   profile store   1000 profiles force the table to double; the engine is killed,
+ *                   and a restart must find every profile and the blocked flag
+ *   row groups      5000 stays fill more than one row group; after a clean exit the
+ *                   day's .col file alone must give the same export as .col plus CSV
+ *   reconciliation  10 more stays are left only in the CSV by killing the engine, and
+ *                   the .col file gets a torn tail; the next start must cut the tail,
+ *                   append the 10 rows and note both in recovery.log
+ *
+ * Usage: java com.parking.StoreFormatCheck path/to/parking_backend path/to/parking_invoice
+ * Exits 0 when every check passes, 1 otherwise.
+ */
+public class StoreFormatCheck {
+
+    private static final long START = 1_767_261_600L; // 2026-01-01 10:00 UTC, any fixed time works
+    private static final String FROM = "2025-12-31", TO = "2026-01-02"; // the start day in any time zone
+    private static final int PROFILES = 1000;          // past 70% of the 1024 records a new store has
+    private static final long HEADER_BYTES = 64, RECORD_BYTES = 128;
+    private static final int STAYS = 5000;             // ROW_GROUP_ROWS is 4096
+    private static final int CRASHED_STAYS = 10;
+    private static final byte[] TORN_TAIL = {1, 2, 3, 4, 5, 6, 7};
+    private static final long COLUMNAR_MAGIC_BYTES = 8;
+
+    private final String engine, invoicer;
+    private final Path scratch, log;
+    private int failures = 0;
+
+    private StoreFormatCheck(String engine, String invoicer, Path scratch) {
+        this.engine = engine;
+        this.invoicer = invoicer;
+        this.scratch = scratch;
+        this.log = scratch.resolve("transactions");
+    }
+
+    // ---------- Engine session ----------
+
+    private final class Session implements AutoCloseable {
+        final Process process;
+        final BufferedReader in;
+        final BufferedWriter out;
+
+        Session() throws IOException {
+            ProcessBuilder pb = new ProcessBuilder(engine, "--virtual-clock", String.valueOf(START));
+            pb.directory(scratch.toFile());
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            process = pb.start();
+            in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        String call(String command) throws IOException {
+            out.write(command);
+            out.write('\n');
+            out.flush();
+            String reply = in.readLine();
+            if (reply == null) throw new IOException("engine exited after " + command);
+            return reply;
+        }
+
+        void expectSuccess(String command) throws IOException {
+            String reply = call(command);
+            if (!reply.startsWith("SUCCESS")) throw new IOException(command + ": " + reply);
+        }
+
+        /** Clean shutdown: end of input, so the engine writes its pending row group. */
+        void quit() throws IOException, InterruptedException {
+            out.close();
+            process.waitFor();
+        }
+
+        /** A crash: nothing is flushed or closed. */
+        void kill() throws InterruptedException {
+            process.destroyForcibly();
+            process.waitFor();
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            if (process.isAlive()) kill();
+        }
+    }
+
+    // ---------- Checks ----------
+
+    private void expect(String name, Object expected, Object actual) {
+        boolean ok = expected.equals(actual);
+        if (!ok) failures++;
+        System.out.printf("%s  %-50s expected %s  got %s%n", ok ? "ok  " : "FAIL", name, expected, actual);
+    }
+
+    private static String plate(int i) { return String.format("PS%04d", i); }
+
+    private void checkProfileStore() throws IOException, InterruptedException {
+        try (Session s = new Session()) {
+            for (int i = 0; i < PROFILES; i++) {
+                s.expectSuccess("REGISTER," + plate(i) + ",Store " + i + "," + (i % 4) + ",Acct " + i);
+            }
+            s.expectSuccess("BLOCK," + plate(7) + ",1");
+            s.kill();
+        }
+        expect("store size after doubling (bytes)", HEADER_BYTES + 2048 * RECORD_BYTES,
+            Files.size(scratch.resolve("user-profiles.dat")));
+
+        try (Session s = new Session()) {
+            int found = 0;
+            for (int i = 0; i < PROFILES; i++) {
+                String expected = "USER,Store " + i + "," + plate(i) + ",Acct " + i + "," + (i % 4) + "," + (i == 7 ? 1 : 0);
+                if (s.call("GET_USER," + plate(i)).equals(expected)) found++;
+            }
+            expect("profiles intact after a kill and restart", PROFILES, found);
+            s.quit();
+        }
+    }
+
+    private void stays(Session s, String prefix, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            String plate = prefix + i;
+            s.expectSuccess("PARK," + plate + ",CAR,Row " + i + ",1,0");
+            s.expectSuccess("REMOVE," + plate);
+        }
+    }
+
+    private void checkRowGroups() throws IOException, InterruptedException {
+        try (Session s = new Session()) {
+            stays(s, "PR", STAYS);
+            s.quit();
+        }
+        String withCsv = export();
+        expect("rows exported", (long) STAYS, rowsOf(withCsv));
+        expect("columnar export without the CSV", withCsv, exportColumnarOnly());
+    }
+
+    private void checkReconciliation() throws IOException, InterruptedException {
+        try (Session s = new Session()) {
+            stays(s, "PC", CRASHED_STAYS);
+            s.kill();
+        }
+        for (Path col : daySegments(".col")) {
+            // Only segments with row groups; the others are just the 8-byte magic
+            if (Files.size(col) > COLUMNAR_MAGIC_BYTES) Files.write(col, TORN_TAIL, StandardOpenOption.APPEND);
+        }
+        try (Session s = new Session()) {
+            s.quit();
+        }
+        String columnar = exportColumnarOnly();
+        expect("rows after reconciliation (.col alone)", (long) (STAYS + CRASHED_STAYS), rowsOf(columnar));
+        expect("reconciled export matches .col plus CSV", export(), columnar);
+        String notes = new String(Files.readAllBytes(log.resolve("recovery.log")), StandardCharsets.UTF_8);
+        expect("recovery.log notes the torn tail", true, notes.contains("dropped " + TORN_TAIL.length + " damaged bytes"));
+        expect("recovery.log notes the CSV rows", true, notes.contains("Recovered " + CRASHED_STAYS + " transactions"));
+    }
+
+    // ---------- parking_invoice --export ----------
+
+    /** EXPORT,rows,total,days for the start day (the output path left off). */
+    private String export() throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(invoicer, "--dir", log.toString(), "--export", FROM, TO);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process p = pb.start();
+        String reply;
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            reply = r.readLine();
+        }
+        p.waitFor();
+        if (reply == null || !reply.startsWith("EXPORT,")) throw new IOException("parking_invoice --export: " + reply);
+        return reply.substring(0, reply.lastIndexOf(','));
+    }
+
+    /** The same export with the day CSVs moved aside, so only the columnar segments are read. */
+    private String exportColumnarOnly() throws IOException, InterruptedException {
+        List<Path> csvs = daySegments(".csv");
+        for (Path csv : csvs) Files.move(csv, csv.resolveSibling(csv.getFileName() + ".aside"));
+        try {
+            return export();
+        } finally {
+            for (Path csv : csvs) Files.move(csv.resolveSibling(csv.getFileName() + ".aside"), csv);
+        }
+    }
+
+    private static long rowsOf(String exportReply) {
+        return Long.parseLong(exportReply.split(",")[1]);
+    }
+
+    private List<Path> daySegments(String extension) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(log, "????-??-??" + extension)) {
+            for (Path p : dir) segments.add(p);
+        }
+        return segments;
+    }
+
+    private int run() throws IOException, InterruptedException {
+        checkProfileStore();
+        checkRowGroups();
+        checkReconciliation();
+        System.out.println(failures == 0 ? "All checks pass." : failures + " checks failed.");
+        return failures == 0 ? 0 : 1;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: java com.parking.StoreFormatCheck path/to/parking_backend path/to/parking_invoice");
+            System.exit(2);
+        }
+        // Scratch directory: the engine keeps its profile store and journal in its working directory
+        Path scratch = Files.createTempDirectory("store-format");
+        int status;
+        try {
+            status = new StoreFormatCheck(Paths.get(args[0]).toAbsolutePath().toString(),
+                Paths.get(args[1]).toAbsolutePath().toString(), scratch).run();
+        } finally {
+            deleteTree(scratch);
+        }
+        System.exit(status);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.parking;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * TariffParityCheck: checks {@link TariffEngine} against the engine it mirrors.
+ *
+ * Starts the built engine with a virtual clock in a scratch directory, parks one
+ * vehicle per case, and at each case's exit time loads GET_BILLING into a
+ * TariffEngine and compares {@link TariffEngine#feeForSlot} with what REMOVE
+ * charges. Covers guest (pre-paid, overstay, valet, validated), hotel, resident
+ * and staff stays for each vehicle class.
+ *
+ * Usage: java com.parking.TariffParityCheck path/to/engine
+ * Exits 0 when every case matches, 1 otherwise.
+ */
+public class TariffParityCheck {
+
+    private static final long HOUR = 3600L;
+    private static final long START = 1_767_261_600L; // 2026-01-01 10:00 UTC, any fixed time works
+    private static final Pattern SLOT = Pattern.compile("slot (\\d+)");
+    private static final Pattern AMOUNT = Pattern.compile("\\u20B9([0-9]+(?:\\.[0-9]+)?)");
+
+    private static final class Case {
+        final String name, plate, vehicleType;
+        final int userType, prepaidHours;
+        final boolean valet, validate;
+        final long exitAfter;
+        int slotId;
+
+        Case(String name, String plate, String vehicleType, int userType, int prepaidHours,
+             boolean valet, boolean validate, long exitAfter) {
+            this.name = name; this.plate = plate; this.vehicleType = vehicleType; this.userType = userType;
+            this.prepaidHours = prepaidHours; this.valet = valet; this.validate = validate; this.exitAfter = exitAfter;
+        }
+    }
+
+    private static List<Case> cases() {
+        List<Case> c = new ArrayList<>();
+        int g = TariffTable.USER_GUEST, h = TariffTable.USER_HOTEL;
+        int r = TariffTable.USER_RESIDENT, s = TariffTable.USER_STAFF;
+        c.add(new Case("guest car inside pre-paid window", "TPG01", "CAR", g, 2, false, false, HOUR));
+        c.add(new Case("guest car leaves exactly at pre-paid exit", "TPG02", "CAR", g, 2, false, false, 2 * HOUR));
+        c.add(new Case("guest car one second over", "TPG03", "CAR", g, 2, false, false, 2 * HOUR + 1));
+        c.add(new Case("guest car overstay 2.5h", "TPG04", "CAR", g, 1, false, false, 3 * HOUR + HOUR / 2));
+        c.add(new Case("guest bike overstay", "TPG05", "BIKE", g, 1, false, false, 4 * HOUR));
+        c.add(new Case("guest truck overstay", "TPG06", "TRUCK", g, 3, false, false, 5 * HOUR + 60));
+        c.add(new Case("guest valet inside window", "TPG07", "CAR", g, 2, true, false, HOUR));
+        c.add(new Case("guest valet overstay", "TPG08", "CAR", g, 1, true, false, 2 * HOUR + 600));
+        c.add(new Case("guest validated inside validation", "TPG09", "CAR", g, 1, false, true, 2 * HOUR));
+        c.add(new Case("guest validated past validation", "TPG10", "CAR", g, 1, false, true, 5 * HOUR));
+        c.add(new Case("guest validated valet past validation", "TPG11", "TRUCK", g, 1, true, true, 6 * HOUR + 1));
+        c.add(new Case("hotel car under the one-hour minimum", "TPH01", "CAR", h, 0, false, false, 600));
+        c.add(new Case("hotel car 2.5h", "TPH02", "CAR", h, 0, false, false, 2 * HOUR + HOUR / 2));
+        c.add(new Case("hotel valet 3h exactly", "TPH03", "CAR", h, 0, true, false, 3 * HOUR));
+        c.add(new Case("resident long stay", "TPR01", "CAR", r, 0, true, false, 30 * HOUR));
+        c.add(new Case("staff car", "TPS01", "CAR", s, 0, false, false, 9 * HOUR));
+        c.add(new Case("staff truck", "TPS02", "TRUCK", s, 0, true, false, 4 * HOUR));
+        return c;
+    }
+
+    private final BufferedReader in;
+    private final BufferedWriter out;
+
+    private TariffParityCheck(Process engine) {
+        in = new BufferedReader(new InputStreamReader(engine.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(engine.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    private String call(String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) throw new IOException("engine exited after " + command);
+        return reply;
+    }
+
+    private static double amountIn(String reply) {
+        Matcher m = AMOUNT.matcher(reply);
+        return m.find() ? Double.parseDouble(m.group(1)) : 0.0;
+    }
+
+    private int run() throws IOException {
+        TariffTable tariff = TariffTable.defaults();
+        List<Case> cases = cases();
+        for (Case c : cases) {
+            if (c.userType != TariffTable.USER_GUEST) {
+                call("REGISTER," + c.plate + ",Parity " + c.plate + "," + c.userType + ",Acct " + c.plate);
+            }
+            String reply = call("PARK," + c.plate + "," + c.vehicleType + ",Parity," + c.prepaidHours + "," + (c.valet ? 1 : 0));
+            Matcher m = SLOT.matcher(reply);
+            if (!m.find()) throw new IOException("could not park " + c.plate + ": " + reply);
+            c.slotId = Integer.parseInt(m.group(1));
+            if (c.validate) call("VALIDATE," + c.plate);
+        }
+
+        cases.sort(Comparator.comparingLong(c -> c.exitAfter));
+        long now = START;
+        int failures = 0;
+        for (Case c : cases) {
+            String clock = call("ADVANCE_CLOCK," + (START + c.exitAfter - now));
+            now = Long.parseLong(clock.substring("CLOCK,".length()));
+
+            String billing = call("GET_BILLING");
+            TariffEngine estimate = new TariffEngine(tariff);
+            estimate.loadBilling(billing.substring("BILLING,".length()));
+            estimate.tick(now);
+            double expected = estimate.feeForSlot(c.slotId);
+
+            String removed = call("REMOVE," + c.plate);
+            double charged = amountIn(removed);
+            boolean ok = Math.abs(expected - charged) < 0.005;
+            if (!ok) failures++;
+            System.out.printf("%s  %-42s estimate %8.2f  engine %8.2f  (%s)%n",
+                ok ? "ok  " : "FAIL", c.name, expected, charged, removed);
+        }
+        System.out.println(failures == 0 ? "All " + cases.size() + " cases match."
+                                         : failures + " of " + cases.size() + " cases differ.");
+        return failures == 0 ? 0 : 1;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: java com.parking.TariffParityCheck path/to/engine");
+            System.exit(2);
+        }
+        // Scratch directory: the engine keeps its profile store and journal in its working directory
+        Path scratch = Files.createTempDirectory("tariff-parity");
+        int status;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(Paths.get(args[0]).toAbsolutePath().toString(),
+                "--virtual-clock", String.valueOf(START));
+            pb.directory(scratch.toFile());
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process engine = pb.start();
+            try {
+                status = new TariffParityCheck(engine).run();
+            } finally {
+                engine.destroy();
+                engine.waitFor(); // its files must be closed before they are deleted
+            }
+        } finally {
+            deleteTree(scratch);
+        }
+        System.exit(status);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}